@@ -20,6 +20,8 @@ class DependencyGraph {
     int size = 0
     int depth = 1
     boolean useSnapshotVersions = false
+    // The number of parent POMs above each module. The top-most parent imports a BOM that manages the versions of all modules
+    int parentDepth = 0
 
     boolean isEmpty() {
         size == 0
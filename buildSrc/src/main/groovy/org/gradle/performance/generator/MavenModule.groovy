@@ -24,6 +24,7 @@ class MavenModule {
     final String artifactId
     final String version
     String parentPomSection
+    String additionalPomSection
     String type = 'jar'
     private final List dependencies = []
     int publishCount = 1
@@ -116,6 +117,10 @@ class MavenModule {
             pomFile << "\n$parentPomSection\n"
         }
 
+        if (additionalPomSection) {
+            pomFile << "\n$additionalPomSection\n"
+        }
+
         dependencies.each { dependency ->
             pomFile << """
   <dependencies>
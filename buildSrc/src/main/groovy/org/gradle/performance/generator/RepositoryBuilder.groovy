@@ -18,6 +18,7 @@ package org.gradle.performance.generator
 
 class RepositoryBuilder {
     private int depth = 1
+    private int parentDepth = 0
     private int numberOfArtifacts = 0
     private File targetDir
     boolean withSnapshotVersions = false
@@ -42,6 +43,11 @@ class RepositoryBuilder {
         return this;
     }
 
+    RepositoryBuilder withParentDepth(int parentDepth) {
+        this.parentDepth = parentDepth
+        return this;
+    }
+
     RepositoryBuilder withMavenJarCreator(MavenJarCreator mavenJarCreator) {
         this.mavenJarCreator = mavenJarCreator
         this
@@ -63,11 +69,72 @@ class RepositoryBuilder {
         }
 
         transformGraphToDepth(repo.modules, depth)
+        if (parentDepth > 0) {
+            addParentPoms(repo)
+        }
         repo.setDepth(depth)
         repo.publish()
         repo
     }
 
+    /**
+     * Publishes a chain of parent POMs plus a BOM, and makes each module a child of the last parent. These are not added to the modules of the
+     * repository, so that they are never picked as dependencies.
+     */
+    void addParentPoms(MavenRepository repo) {
+        def bom = pomModule(repo, "bom")
+        bom.additionalPomSection = """  <dependencyManagement>
+    <dependencies>
+${repo.modules.collect { dependencySection(it, "      ") }.join("\n")}
+    </dependencies>
+  </dependencyManagement>"""
+        bom.publish()
+
+        MavenModule parent = null
+        (1..parentDepth).each { level ->
+            def module = pomModule(repo, "parent$level")
+            module.parentPomSection = parentSection(parent)
+            module.additionalPomSection = """  <properties>
+    <parent${level}.version>1.0</parent${level}.version>
+  </properties>
+${level == 1 ? importSection(bom) : ""}
+  <build>
+    <plugins>
+${(1..10).collect { "      <plugin><groupId>org.example.plugins</groupId><artifactId>plugin$it</artifactId><version>1.0</version><configuration><level>$level</level></configuration></plugin>" }.join("\n")}
+    </plugins>
+  </build>"""
+            module.publish()
+            parent = module
+        }
+        repo.modules.each { it.parentPomSection = parentSection(parent) }
+    }
+
+    private MavenModule pomModule(MavenRepository repo, String artifactId) {
+        def module = new MavenModule(new File(repo.rootDir, "group/$artifactId/1.0"), "group", artifactId, "1.0")
+        module.type = "pom"
+        module.mavenJarCreator = mavenJarCreator
+        return module
+    }
+
+    private static String parentSection(MavenModule parent) {
+        if (parent == null) {
+            return null
+        }
+        return "  <parent><groupId>$parent.groupId</groupId><artifactId>$parent.artifactId</artifactId><version>$parent.version</version></parent>"
+    }
+
+    private static String importSection(MavenModule bom) {
+        return """  <dependencyManagement>
+    <dependencies>
+      <dependency><groupId>$bom.groupId</groupId><artifactId>$bom.artifactId</artifactId><version>$bom.version</version><type>pom</type><scope>import</scope></dependency>
+    </dependencies>
+  </dependencyManagement>"""
+    }
+
+    private static String dependencySection(MavenModule module, String indent) {
+        return "$indent<dependency><groupId>$module.groupId</groupId><artifactId>$module.artifactId</artifactId><version>$module.version</version></dependency>"
+    }
+
     void transformGraphToDepth(List<MavenModule> modules, int depth) {
         def depGroups = modules.groupBy { (int) (it.artifactId - "artifact").toInteger() / depth }
         depGroups.each { idx, groupModules ->
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.performance.generator.tasks
+
+import org.gradle.performance.generator.*
+
+/**
+ * Generates a C++ library with a tree of large headers, shaped like the Boost headers. Each source file includes the root of the tree.
+ */
+class NativeHeaderTreeProjectGeneratorTask extends ProjectGeneratorTask {
+
+    void generateProjectSource(File projectDir, TestProject testProject, Map args) {
+        generateWithTemplate(projectDir, "src/lib/headers/lib/config.hpp", 'config.hpp', args)
+        args.headerCount.times { h ->
+            generateWithTemplate(projectDir, "src/lib/headers/lib/header${h}.hpp", 'header.hpp', args + [headerIndex: h])
+        }
+        testProject.sourceFiles.times { s ->
+            generateWithTemplate(projectDir, "src/lib/cpp/source${s}.cpp", 'source.cpp', args + [sourceIndex: s])
+        }
+    }
+}
@@ -116,6 +116,7 @@ abstract class ProjectGeneratorTask extends DefaultTask {
             .withArtifacts(dependencyGraph.size)
             .withDepth(dependencyGraph.depth)
             .withSnapshotVersions(dependencyGraph.useSnapshotVersions)
+            .withParentDepth(dependencyGraph.parentDepth)
             .withMavenJarCreator(mavenJarCreator)
             .create()
         return repo;
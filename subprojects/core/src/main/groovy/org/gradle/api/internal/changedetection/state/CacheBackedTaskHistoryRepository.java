@@ -181,13 +181,30 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
         }
     }
 
-    private static class TaskHistory {
+    private static class TaskHistory implements EstimatedHeapSize {
         private static final int MAX_HISTORY_ENTRIES = 3;
         private final List<LazyTaskExecution> configurations = new ArrayList<LazyTaskExecution>();
         public String toString() {
             return super.toString() + "[" + configurations.size() + "]";
         }
 
+        // Does not include the file snapshots, which are held by the file snapshot cache
+        public long getEstimatedHeapSize() {
+            long size = 64;
+            for (LazyTaskExecution configuration : configurations) {
+                size += 128 + Math.max(InMemoryTaskArtifactCache.estimateSize(configuration.getTaskClass()), 0);
+                if (configuration.getOutputFiles() != null) {
+                    for (String outputFile : configuration.getOutputFiles()) {
+                        size += 32 + InMemoryTaskArtifactCache.estimateSize(outputFile);
+                    }
+                }
+                if (configuration.getInputProperties() != null) {
+                    size += 128L * configuration.getInputProperties().size();
+                }
+            }
+            return size;
+        }
+
         public void beforeSerialized() {
             //cleaning up the transient fields, so that any in-memory caching is happy
             for (LazyTaskExecution c : configurations) {
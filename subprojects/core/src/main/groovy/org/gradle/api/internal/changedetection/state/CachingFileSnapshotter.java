@@ -15,6 +15,7 @@
  */
 package org.gradle.api.internal.changedetection.state;
 
+import org.gradle.api.Nullable;
 import org.gradle.api.file.FileTreeElement;
 import org.gradle.api.internal.cache.StringInterner;
 import org.gradle.api.internal.hash.Hasher;
@@ -29,12 +30,13 @@ import java.io.File;
 public class CachingFileSnapshotter implements FileSnapshotter {
     private final PersistentIndexedCache<String, FileInfo> cache;
     private final Hasher hasher;
-    private final FileInfoSerializer serializer = new FileInfoSerializer();
+    private final String algorithm;
     private final StringInterner stringInterner;
 
     public CachingFileSnapshotter(Hasher hasher, PersistentStore store, StringInterner stringInterner) {
         this.hasher = hasher;
-        this.cache = store.createCache("fileHashes", String.class, serializer);
+        this.algorithm = hasher.getAlgorithm();
+        this.cache = store.createCache("fileHashes", String.class, new FileInfoSerializer(algorithm));
         this.stringInterner = stringInterner;
     }
 
@@ -48,25 +50,59 @@ public class CachingFileSnapshotter implements FileSnapshotter {
 
     private FileInfo snapshot(File file, long length, long timestamp) {
         String absolutePath = file.getAbsolutePath();
-        FileInfo info = cache.get(absolutePath);
-
-        if (info != null && length == info.length && timestamp == info.timestamp) {
+        FileInfo info = getCached(absolutePath, length, timestamp);
+        if (info != null) {
             return info;
         }
 
-        byte[] hash = hasher.hash(file);
-        info = new FileInfo(hash, length, timestamp);
+        info = hash(file, length, timestamp);
         cache.put(stringInterner.intern(absolutePath), info);
         return info;
     }
 
+    /**
+     * Returns the cached snapshot of the given file, or null when the file has not been hashed before or has changed since. Must be called while holding the cache lock.
+     */
+    @Nullable
+    public FileInfo getCachedSnapshot(FileTreeElement file) {
+        return getCached(file.getFile().getAbsolutePath(), file.getSize(), file.getLastModified());
+    }
+
+    /**
+     * Calculates a fresh snapshot of the given file without consulting or updating the cache. Does not require the cache lock, so may be called concurrently.
+     */
+    public FileInfo hash(FileTreeElement file) {
+        return hash(file.getFile(), file.getSize(), file.getLastModified());
+    }
+
+    /**
+     * Records the given snapshot in the cache. Must be called while holding the cache lock.
+     */
+    public void cacheSnapshot(FileTreeElement file, FileInfo info) {
+        cache.put(stringInterner.intern(file.getFile().getAbsolutePath()), info);
+    }
+
+    private FileInfo getCached(String absolutePath, long length, long timestamp) {
+        FileInfo info = cache.get(absolutePath);
+        if (info != null && length == info.length && timestamp == info.timestamp && algorithm.equals(info.algorithm)) {
+            return info;
+        }
+        return null;
+    }
+
+    private FileInfo hash(File file, long length, long timestamp) {
+        return new FileInfo(hasher.hash(file), algorithm, length, timestamp);
+    }
+
     public static class FileInfo implements FileSnapshot {
         private final byte[] hash;
+        private final String algorithm;
         private final long timestamp;
         private final long length;
 
-        public FileInfo(byte[] hash, long length, long timestamp) {
+        public FileInfo(byte[] hash, String algorithm, long length, long timestamp) {
             this.hash = hash;
+            this.algorithm = algorithm;
             this.length = length;
             this.timestamp = timestamp;
         }
@@ -77,14 +113,26 @@ public class CachingFileSnapshotter implements FileSnapshotter {
     }
 
     private static class FileInfoSerializer implements Serializer<FileInfo> {
+        private final String algorithm;
+
+        FileInfoSerializer(String algorithm) {
+            this.algorithm = algorithm;
+        }
+
         public FileInfo read(Decoder decoder) throws Exception {
+            String algorithm = decoder.readString();
+            if (algorithm.equals(this.algorithm)) {
+                // Share the current algorithm name between all entries
+                algorithm = this.algorithm;
+            }
             byte[] hash = decoder.readBinary();
             long timestamp = decoder.readLong();
             long length = decoder.readLong();
-            return new FileInfo(hash, length, timestamp);
+            return new FileInfo(hash, algorithm, length, timestamp);
         }
 
         public void write(Encoder encoder, FileInfo value) throws Exception {
+            encoder.writeString(value.algorithm);
             encoder.writeBinary(value.hash);
             encoder.writeLong(value.timestamp);
             encoder.writeLong(value.length);
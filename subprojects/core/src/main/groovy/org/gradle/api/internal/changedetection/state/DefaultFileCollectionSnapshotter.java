@@ -17,6 +17,7 @@
 package org.gradle.api.internal.changedetection.state;
 
 import com.google.common.collect.Lists;
+import com.google.common.primitives.Ints;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.file.FileVisitDetails;
 import org.gradle.api.file.FileVisitor;
@@ -48,7 +49,7 @@ public class DefaultFileCollectionSnapshotter implements FileCollectionSnapshott
     }
 
     public FileCollectionSnapshot emptySnapshot() {
-        return new FileCollectionSnapshotImpl(new HashMap<String, IncrementalFileSnapshot>());
+        return FileCollectionSnapshotImpl.EMPTY;
     }
 
     public FileCollectionSnapshot snapshot(final FileCollection input) {
@@ -58,33 +59,35 @@ public class DefaultFileCollectionSnapshotter implements FileCollectionSnapshott
         visitFiles(input, allFileVisitDetails, missingFiles);
 
         if (allFileVisitDetails.isEmpty() && missingFiles.isEmpty()) {
-            return new FileCollectionSnapshotImpl(Collections.<String, IncrementalFileSnapshot>emptyMap());
+            return FileCollectionSnapshotImpl.EMPTY;
         }
 
-        final Map<String, IncrementalFileSnapshot> snapshots = new HashMap<String, IncrementalFileSnapshot>();
+        final FileCollectionSnapshotBuilder builder = new FileCollectionSnapshotBuilder(allFileVisitDetails.size() + missingFiles.size());
 
         cacheAccess.useCache("Create file snapshot", new Runnable() {
             public void run() {
+                Set<String> paths = new HashSet<String>();
                 for (FileVisitDetails fileDetails : allFileVisitDetails) {
                     final String absolutePath = stringInterner.intern(fileDetails.getFile().getAbsolutePath());
-                    if (!snapshots.containsKey(absolutePath)) {
-                        if (fileDetails.isDirectory()) {
-                            snapshots.put(absolutePath, DirSnapshot.getInstance());
-                        } else {
-                            snapshots.put(absolutePath, new FileHashSnapshot(snapshotter.snapshot(fileDetails).getHash()));
-                        }
+                    if (!paths.add(absolutePath)) {
+                        continue;
+                    }
+                    if (fileDetails.isDirectory()) {
+                        builder.addDirectory(absolutePath);
+                    } else {
+                        builder.addFile(absolutePath, snapshotter.snapshot(fileDetails).getHash());
                     }
                 }
                 for (File missingFile : missingFiles) {
-                    final String absolutePath = stringInterner.intern(missingFile.getAbsolutePath());
-                    if (!snapshots.containsKey(absolutePath)) {
-                        snapshots.put(absolutePath, MissingFileSnapshot.getInstance());
+                    String absolutePath = stringInterner.intern(missingFile.getAbsolutePath());
+                    if (paths.add(absolutePath)) {
+                        builder.addMissingFile(absolutePath);
                     }
                 }
             }
         });
 
-        return new FileCollectionSnapshotImpl(snapshots);
+        return builder.build();
     }
 
     protected void visitFiles(FileCollection input, final List<FileVisitDetails> allFileVisitDetails, final List<File> missingFiles) {
@@ -107,26 +110,13 @@ public class DefaultFileCollectionSnapshotter implements FileCollectionSnapshott
         }
     }
 
-    interface IncrementalFileSnapshot {
-        boolean isUpToDate(IncrementalFileSnapshot snapshot);
-    }
-
-    static class FileHashSnapshot implements IncrementalFileSnapshot, FileSnapshot {
+    static class FileHashSnapshot implements FileSnapshot {
         final byte[] hash;
 
         public FileHashSnapshot(byte[] hash) {
             this.hash = hash;
         }
 
-        public boolean isUpToDate(IncrementalFileSnapshot snapshot) {
-            if (!(snapshot instanceof FileHashSnapshot)) {
-                return false;
-            }
-
-            FileHashSnapshot other = (FileHashSnapshot) snapshot;
-            return Arrays.equals(hash, other.hash);
-        }
-
         @Override
         public String toString() {
             return new BigInteger(1, hash).toString(16);
@@ -137,47 +127,114 @@ public class DefaultFileCollectionSnapshotter implements FileCollectionSnapshott
         }
     }
 
-    static class DirSnapshot implements IncrementalFileSnapshot {
-        private static DirSnapshot instance = new DirSnapshot();
+    /**
+     * Collects the entries of a snapshot, in any order. When a path is added more than once, the first entry is used.
+     */
+    static class FileCollectionSnapshotBuilder {
+        private final List<Entry> entries;
 
-        private DirSnapshot() {
+        FileCollectionSnapshotBuilder(int expectedSize) {
+            entries = Lists.newArrayListWithCapacity(expectedSize);
         }
 
-        static DirSnapshot getInstance() {
-            return instance;
+        void addDirectory(String path) {
+            entries.add(new Entry(path, FileCollectionSnapshotImpl.DIR, null));
         }
 
-        public boolean isUpToDate(IncrementalFileSnapshot snapshot) {
-            return snapshot instanceof DirSnapshot;
+        void addMissingFile(String path) {
+            entries.add(new Entry(path, FileCollectionSnapshotImpl.MISSING, null));
         }
-    }
 
-    static class MissingFileSnapshot implements IncrementalFileSnapshot {
-        private static MissingFileSnapshot instance = new MissingFileSnapshot();
-
-        private MissingFileSnapshot() {
+        void addFile(String path, byte[] hash) {
+            entries.add(new Entry(path, FileCollectionSnapshotImpl.FILE, hash));
         }
 
-        static MissingFileSnapshot getInstance() {
-            return instance;
+        FileCollectionSnapshotImpl build() {
+            // Stable sort, so that the first of several entries for the same path comes first
+            Collections.sort(entries);
+            FileCollectionSnapshotImpl.Appender appender = new FileCollectionSnapshotImpl.Appender(entries.size());
+            String previous = null;
+            for (Entry entry : entries) {
+                if (!entry.path.equals(previous)) {
+                    byte[] hash = entry.hash == null ? FileCollectionSnapshotImpl.NO_HASH : entry.hash;
+                    appender.append(entry.path, entry.type, hash, 0, hash.length);
+                    previous = entry.path;
+                }
+            }
+            return appender.build();
         }
-        public boolean isUpToDate(IncrementalFileSnapshot snapshot) {
-            return snapshot instanceof MissingFileSnapshot;
+
+        private static class Entry implements Comparable<Entry> {
+            final String path;
+            final byte type;
+            final byte[] hash;
+
+            Entry(String path, byte type, byte[] hash) {
+                this.path = path;
+                this.type = type;
+                this.hash = hash;
+            }
+
+            public int compareTo(Entry o) {
+                return DirectoryTreeHashes.PATH_ORDER.compare(path, o.path);
+            }
         }
     }
 
-    static class FileCollectionSnapshotImpl implements FileCollectionSnapshot {
-        final Map<String, IncrementalFileSnapshot> snapshots;
+    /**
+     * A snapshot held in a few flat arrays, rather than an object per file. Entries are sorted by path, so that two snapshots can be compared by
+     * walking them side by side. The hashes of all files are packed into a single array.
+     *
+     * <p>The snapshot also carries {@link DirectoryTreeHashes}, so that comparing two snapshots can skip an unchanged snapshot, or an unchanged
+     * directory tree, without visiting each file.</p>
+     */
+    static class FileCollectionSnapshotImpl implements FileCollectionSnapshot, EstimatedHeapSize {
+        static final byte DIR = 1;
+        static final byte MISSING = 2;
+        static final byte FILE = 3;
+        static final byte[] NO_HASH = new byte[0];
+        static final FileCollectionSnapshotImpl EMPTY = new FileCollectionSnapshotImpl(new String[0], new byte[0], new int[1], NO_HASH);
+
+        final String[] paths;
+        final byte[] types;
+        // The hash of entry i is at hashOffsets[i] until hashOffsets[i + 1]. Entries that are not files have an empty hash.
+        final int[] hashOffsets;
+        final byte[] hashes;
+        final DirectoryTreeHashes treeHashes;
+
+        FileCollectionSnapshotImpl(String[] paths, byte[] types, int[] hashOffsets, byte[] hashes) {
+            this(paths, types, hashOffsets, hashes, DirectoryTreeHashes.calculate(paths, types, hashOffsets, hashes));
+        }
+
+        FileCollectionSnapshotImpl(String[] paths, byte[] types, int[] hashOffsets, byte[] hashes, DirectoryTreeHashes treeHashes) {
+            this.paths = paths;
+            this.types = types;
+            this.hashOffsets = hashOffsets;
+            this.hashes = hashes;
+            this.treeHashes = treeHashes;
+        }
+
+        int size() {
+            return paths.length;
+        }
+
+        public long getEstimatedHeapSize() {
+            long size = 128 + 9L * paths.length + hashes.length + 2L * treeHashes.dirIndexes.length * 4 + treeHashes.dirHashes.length;
+            for (String path : paths) {
+                size += InMemoryTaskArtifactCache.estimateSize(path);
+            }
+            return size;
+        }
 
-        public FileCollectionSnapshotImpl(Map<String, IncrementalFileSnapshot> snapshots) {
-            this.snapshots = snapshots;
+        byte[] getHash(int index) {
+            return Arrays.copyOfRange(hashes, hashOffsets[index], hashOffsets[index + 1]);
         }
 
         public FileCollection getFiles() {
             List<File> files = new ArrayList<File>();
-            for (Map.Entry<String, IncrementalFileSnapshot> entry : snapshots.entrySet()) {
-                if (entry.getValue() instanceof FileHashSnapshot) {
-                    files.add(new File(entry.getKey()));
+            for (int i = 0; i < paths.length; i++) {
+                if (types[i] == FILE) {
+                    files.add(new File(paths[i]));
                 }
             }
             return new SimpleFileCollection(files);
@@ -185,9 +242,9 @@ public class DefaultFileCollectionSnapshotter implements FileCollectionSnapshott
 
         public FileCollection getAllFiles() {
             List<File> files = Lists.newArrayList();
-            for (Map.Entry<String, IncrementalFileSnapshot> entry : snapshots.entrySet()) {
-                if (!(entry.getValue() instanceof DirSnapshot)) {
-                    files.add(new File(entry.getKey()));
+            for (int i = 0; i < paths.length; i++) {
+                if (types[i] != DIR) {
+                    files.add(new File(paths[i]));
                 }
             }
             return new SimpleFileCollection(files);
@@ -196,9 +253,9 @@ public class DefaultFileCollectionSnapshotter implements FileCollectionSnapshott
         public FilesSnapshotSet getSnapshot() {
             return new FilesSnapshotSet() {
                 public FileSnapshot findSnapshot(File file) {
-                    IncrementalFileSnapshot s = snapshots.get(file.getAbsolutePath());
-                    if (s instanceof FileSnapshot) {
-                        return (FileSnapshot) s;
+                    int index = Arrays.binarySearch(paths, file.getAbsolutePath(), DirectoryTreeHashes.PATH_ORDER);
+                    if (index >= 0 && types[index] == FILE) {
+                        return new FileHashSnapshot(getHash(index));
                     }
                     return null;
                 }
@@ -206,37 +263,40 @@ public class DefaultFileCollectionSnapshotter implements FileCollectionSnapshott
         }
 
         public ChangeIterator<String> iterateChangesSince(FileCollectionSnapshot oldSnapshot) {
-            FileCollectionSnapshotImpl other = (FileCollectionSnapshotImpl) oldSnapshot;
-            final Map<String, IncrementalFileSnapshot> otherSnapshots = new HashMap<String, IncrementalFileSnapshot>(other.snapshots);
-            final Iterator<String> currentFiles = snapshots.keySet().iterator();
+            final FileCollectionSnapshotImpl other = (FileCollectionSnapshotImpl) oldSnapshot;
+            final boolean unchanged = treeHashes.hasSameContents(other.treeHashes);
 
             return new ChangeIterator<String>() {
-                private Iterator<String> removedFiles;
+                private int current;
+                private int previous;
 
                 public boolean next(ChangeListener<String> listener) {
-                    while (currentFiles.hasNext()) {
-                        String currentFile = currentFiles.next();
-                        IncrementalFileSnapshot otherFile = otherSnapshots.remove(currentFile);
-
-                        if (otherFile == null) {
-                            listener.added(currentFile);
+                    if (unchanged) {
+                        return false;
+                    }
+                    while (current < paths.length || previous < other.paths.length) {
+                        int compare = compare(current, other, previous);
+                        if (compare < 0) {
+                            listener.added(paths[current++]);
+                            return true;
+                        }
+                        if (compare > 0) {
+                            listener.removed(other.paths[previous++]);
                             return true;
-                        } else if (!snapshots.get(currentFile).isUpToDate(otherFile)) {
-                            listener.changed(currentFile);
+                        }
+                        if (treeHashes.hasSameDirectoryContents(current, other.treeHashes, previous)) {
+                            current = treeHashes.getDirectoryEnd(current);
+                            previous = other.treeHashes.getDirectoryEnd(previous);
+                            continue;
+                        }
+                        boolean upToDate = isUpToDate(current, other, previous);
+                        current++;
+                        previous++;
+                        if (!upToDate) {
+                            listener.changed(paths[current - 1]);
                             return true;
                         }
                     }
-
-                    // Create a single iterator to use for all of the removed files
-                    if (removedFiles == null) {
-                        removedFiles = otherSnapshots.keySet().iterator();
-                    }
-
-                    if (removedFiles.hasNext()) {
-                        listener.removed(removedFiles.next());
-                        return true;
-                    }
-
                     return false;
                 }
             };
@@ -250,29 +310,172 @@ public class DefaultFileCollectionSnapshotter implements FileCollectionSnapshott
                 }
 
                 public FileCollectionSnapshot applyTo(FileCollectionSnapshot snapshot, final ChangeListener<Merge> listener) {
-                    FileCollectionSnapshotImpl target = (FileCollectionSnapshotImpl) snapshot;
-                    final Map<String, IncrementalFileSnapshot> newSnapshots = new HashMap<String, IncrementalFileSnapshot>(target.snapshots);
-                    diff(snapshots, other.snapshots, new MapMergeChangeListener<String, IncrementalFileSnapshot>(listener, newSnapshots));
-                    return new FileCollectionSnapshotImpl(newSnapshots);
+                    return merge((FileCollectionSnapshotImpl) snapshot, other, diff(other, listener));
                 }
             };
         }
 
-        private void diff(Map<String, IncrementalFileSnapshot> snapshots, Map<String, IncrementalFileSnapshot> oldSnapshots,
-                          ChangeListener<Map.Entry<String, IncrementalFileSnapshot>> listener) {
-            Map<String, IncrementalFileSnapshot> otherSnapshots = new HashMap<String, IncrementalFileSnapshot>(oldSnapshots);
-            for (Map.Entry<String, IncrementalFileSnapshot> entry : snapshots.entrySet()) {
-                IncrementalFileSnapshot otherFile = otherSnapshots.remove(entry.getKey());
-                if (otherFile == null) {
-                    listener.added(entry);
-                } else if (!entry.getValue().isUpToDate(otherFile)) {
-                    listener.changed(entry);
+        /**
+         * Returns the changes since the given snapshot that are not ignored by the listener, sorted by path. Each change is the index of an entry
+         * of this snapshot that should be added or replaced, or the bitwise complement of the index of an entry of the given snapshot that should be
+         * removed.
+         */
+        private int[] diff(FileCollectionSnapshotImpl other, ChangeListener<Merge> listener) {
+            if (treeHashes.hasSameContents(other.treeHashes)) {
+                return new int[0];
+            }
+            List<Integer> changes = Lists.newArrayList();
+            int current = 0;
+            int previous = 0;
+            while (current < paths.length || previous < other.paths.length) {
+                int compare = compare(current, other, previous);
+                DefaultMerge merge = new DefaultMerge();
+                if (compare < 0) {
+                    listener.added(merge);
+                    if (!merge.ignore) {
+                        changes.add(current);
+                    }
+                    current++;
+                } else if (compare > 0) {
+                    listener.removed(merge);
+                    if (!merge.ignore) {
+                        changes.add(~previous);
+                    }
+                    previous++;
+                } else if (treeHashes.hasSameDirectoryContents(current, other.treeHashes, previous)) {
+                    current = treeHashes.getDirectoryEnd(current);
+                    previous = other.treeHashes.getDirectoryEnd(previous);
+                } else {
+                    if (!isUpToDate(current, other, previous)) {
+                        listener.changed(merge);
+                        if (!merge.ignore) {
+                            changes.add(current);
+                        }
+                    }
+                    current++;
+                    previous++;
+                }
+            }
+            return Ints.toArray(changes);
+        }
+
+        /**
+         * Applies the given changes, as returned by {@link #diff}, to the given target snapshot.
+         */
+        private FileCollectionSnapshotImpl merge(FileCollectionSnapshotImpl target, FileCollectionSnapshotImpl other, int[] changes) {
+            if (changes.length == 0) {
+                return target;
+            }
+            Appender appender = new Appender(target.size() + changes.length);
+            int index = 0;
+            int change = 0;
+            while (index < target.paths.length || change < changes.length) {
+                int compare;
+                if (change == changes.length) {
+                    compare = 1;
+                } else if (index == target.paths.length) {
+                    compare = -1;
+                } else {
+                    compare = DirectoryTreeHashes.PATH_ORDER.compare(changedPath(changes[change], other), target.paths[index]);
+                }
+                if (compare > 0) {
+                    appender.append(target, index++);
+                    continue;
+                }
+                if (changes[change] >= 0) {
+                    appender.append(this, changes[change]);
+                }
+                change++;
+                if (compare == 0) {
+                    index++;
+                }
+            }
+            return appender.build();
+        }
+
+        private String changedPath(int change, FileCollectionSnapshotImpl other) {
+            return change >= 0 ? paths[change] : other.paths[~change];
+        }
+
+        private int compare(int index, FileCollectionSnapshotImpl other, int otherIndex) {
+            if (index == paths.length) {
+                return 1;
+            }
+            if (otherIndex == other.paths.length) {
+                return -1;
+            }
+            return DirectoryTreeHashes.PATH_ORDER.compare(paths[index], other.paths[otherIndex]);
+        }
+
+        private boolean isUpToDate(int index, FileCollectionSnapshotImpl other, int otherIndex) {
+            if (types[index] != other.types[otherIndex]) {
+                return false;
+            }
+            int start = hashOffsets[index];
+            int length = hashOffsets[index + 1] - start;
+            int otherStart = other.hashOffsets[otherIndex];
+            if (length != other.hashOffsets[otherIndex + 1] - otherStart) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (hashes[start + i] != other.hashes[otherStart + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Builds a snapshot from entries appended in path order.
+         */
+        static class Appender {
+            private final String[] paths;
+            private final byte[] types;
+            private final int[] hashOffsets;
+            private byte[] hashes;
+            private int count;
+
+            Appender(int capacity) {
+                paths = new String[capacity];
+                types = new byte[capacity];
+                hashOffsets = new int[capacity + 1];
+                hashes = new byte[capacity * 16];
+            }
+
+            void append(FileCollectionSnapshotImpl snapshot, int index) {
+                int start = snapshot.hashOffsets[index];
+                append(snapshot.paths[index], snapshot.types[index], snapshot.hashes, start, snapshot.hashOffsets[index + 1] - start);
+            }
+
+            void append(String path, byte type, byte[] hash, int offset, int length) {
+                int end = hashOffsets[count] + length;
+                if (end > hashes.length) {
+                    hashes = Arrays.copyOf(hashes, Math.max(end, hashes.length * 2));
                 }
+                System.arraycopy(hash, offset, hashes, hashOffsets[count], length);
+                paths[count] = path;
+                types[count] = type;
+                hashOffsets[count + 1] = end;
+                count++;
             }
-            for (Map.Entry<String, IncrementalFileSnapshot> entry : otherSnapshots.entrySet()) {
-                listener.removed(entry);
+
+            FileCollectionSnapshotImpl build() {
+                if (count == 0) {
+                    return EMPTY;
+                }
+                if (count == paths.length) {
+                    return new FileCollectionSnapshotImpl(paths, types, hashOffsets, Arrays.copyOf(hashes, hashOffsets[count]));
+                }
+                return new FileCollectionSnapshotImpl(Arrays.copyOf(paths, count), Arrays.copyOf(types, count), Arrays.copyOf(hashOffsets, count + 1), Arrays.copyOf(hashes, hashOffsets[count]));
             }
         }
 
+        private static class DefaultMerge implements Merge {
+            boolean ignore;
+
+            public void ignore() {
+                ignore = true;
+            }
+        }
     }
 }
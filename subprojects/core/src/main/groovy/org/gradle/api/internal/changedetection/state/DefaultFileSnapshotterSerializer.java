@@ -17,58 +17,88 @@
 package org.gradle.api.internal.changedetection.state;
 
 import org.gradle.api.internal.cache.StringInterner;
+import org.gradle.api.internal.changedetection.state.DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl;
 import org.gradle.internal.serialize.Decoder;
 import org.gradle.internal.serialize.Encoder;
 import org.gradle.internal.serialize.Serializer;
 
-import java.util.HashMap;
-import java.util.Map;
-
-class DefaultFileSnapshotterSerializer implements Serializer<DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl> {
+/**
+ * Writes a snapshot in the same layout as it is held in memory: the sorted paths, followed by the type of each entry, the length of each hash,
+ * and all of the hashes. These are followed by the {@link DirectoryTreeHashes} of the snapshot, so that they do not need to be recalculated.
+ */
+class DefaultFileSnapshotterSerializer implements Serializer<FileCollectionSnapshotImpl> {
     private final StringInterner stringInterner;
 
     public DefaultFileSnapshotterSerializer(StringInterner stringInterner) {
         this.stringInterner = stringInterner;
     }
 
-    public DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl read(Decoder decoder) throws Exception {
-        Map<String, DefaultFileCollectionSnapshotter.IncrementalFileSnapshot> snapshots = new HashMap<String, DefaultFileCollectionSnapshotter.IncrementalFileSnapshot>();
-        DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl snapshot = new DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl(snapshots);
+    public FileCollectionSnapshotImpl read(Decoder decoder) throws Exception {
         int snapshotsCount = decoder.readSmallInt();
+        if (snapshotsCount == 0) {
+            return FileCollectionSnapshotImpl.EMPTY;
+        }
+        String[] paths = new String[snapshotsCount];
+        for (int i = 0; i < snapshotsCount; i++) {
+            paths[i] = stringInterner.intern(decoder.readString());
+        }
+        byte[] types = new byte[snapshotsCount];
+        decoder.readBytes(types);
+        int[] hashOffsets = new int[snapshotsCount + 1];
         for (int i = 0; i < snapshotsCount; i++) {
-            String key = stringInterner.intern(decoder.readString());
-            byte fileSnapshotKind = decoder.readByte();
-            if (fileSnapshotKind == 1) {
-                snapshots.put(key, DefaultFileCollectionSnapshotter.DirSnapshot.getInstance());
-            } else if (fileSnapshotKind == 2) {
-                snapshots.put(key, DefaultFileCollectionSnapshotter.MissingFileSnapshot.getInstance());
-            } else if (fileSnapshotKind == 3) {
-                byte hashSize = decoder.readByte();
-                byte[] hash = new byte[hashSize];
-                decoder.readBytes(hash);
-                snapshots.put(key, new DefaultFileCollectionSnapshotter.FileHashSnapshot(hash));
-            } else {
+            byte type = types[i];
+            if (type != FileCollectionSnapshotImpl.DIR && type != FileCollectionSnapshotImpl.MISSING && type != FileCollectionSnapshotImpl.FILE) {
                 throw new RuntimeException("Unable to read serialized file collection snapshot. Unrecognized value found in the data stream.");
             }
+            hashOffsets[i + 1] = hashOffsets[i] + (type == FileCollectionSnapshotImpl.FILE ? decoder.readSmallInt() : 0);
+        }
+        byte[] hashes = new byte[hashOffsets[snapshotsCount]];
+        decoder.readBytes(hashes);
+
+        byte[] snapshotHash = new byte[DirectoryTreeHashes.HASH_SIZE];
+        decoder.readBytes(snapshotHash);
+        int dirCount = 0;
+        for (byte type : types) {
+            if (type == FileCollectionSnapshotImpl.DIR) {
+                dirCount++;
+            }
         }
-        return snapshot;
+        int[] dirIndexes = new int[dirCount];
+        int[] dirEnds = new int[dirCount];
+        for (int i = 0, dir = 0; i < snapshotsCount; i++) {
+            if (types[i] == FileCollectionSnapshotImpl.DIR) {
+                dirIndexes[dir] = i;
+                dirEnds[dir] = i + decoder.readSmallInt();
+                dir++;
+            }
+        }
+        byte[] dirHashes = new byte[dirCount * DirectoryTreeHashes.HASH_SIZE];
+        decoder.readBytes(dirHashes);
+        return new FileCollectionSnapshotImpl(paths, types, hashOffsets, hashes, new DirectoryTreeHashes(snapshotHash, dirIndexes, dirEnds, dirHashes));
     }
 
-    public void write(Encoder encoder, DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl value) throws Exception {
-        encoder.writeSmallInt(value.snapshots.size());
-        for (String key : value.snapshots.keySet()) {
-            encoder.writeString(key);
-            DefaultFileCollectionSnapshotter.IncrementalFileSnapshot incrementalFileSnapshot = value.snapshots.get(key);
-            if (incrementalFileSnapshot instanceof DefaultFileCollectionSnapshotter.DirSnapshot) {
-                encoder.writeByte((byte) 1);
-            } else if (incrementalFileSnapshot instanceof DefaultFileCollectionSnapshotter.MissingFileSnapshot) {
-                encoder.writeByte((byte) 2);
-            } else if (incrementalFileSnapshot instanceof DefaultFileCollectionSnapshotter.FileHashSnapshot) {
-                encoder.writeByte((byte) 3);
-                byte[] hash = ((DefaultFileCollectionSnapshotter.FileHashSnapshot) incrementalFileSnapshot).hash;
-                encoder.writeByte((byte) hash.length);
-                encoder.writeBytes(hash);
+    public void write(Encoder encoder, FileCollectionSnapshotImpl value) throws Exception {
+        int snapshotsCount = value.size();
+        encoder.writeSmallInt(snapshotsCount);
+        if (snapshotsCount == 0) {
+            return;
+        }
+        for (String path : value.paths) {
+            encoder.writeString(path);
+        }
+        encoder.writeBytes(value.types);
+        for (int i = 0; i < snapshotsCount; i++) {
+            if (value.types[i] == FileCollectionSnapshotImpl.FILE) {
+                encoder.writeSmallInt(value.hashOffsets[i + 1] - value.hashOffsets[i]);
             }
         }
+        encoder.writeBytes(value.hashes);
+
+        DirectoryTreeHashes treeHashes = value.treeHashes;
+        encoder.writeBytes(treeHashes.snapshotHash);
+        for (int dir = 0; dir < treeHashes.dirIndexes.length; dir++) {
+            encoder.writeSmallInt(treeHashes.dirEnds[dir] - treeHashes.dirIndexes[dir]);
+        }
+        encoder.writeBytes(treeHashes.dirHashes);
     }
 }
@@ -22,6 +22,7 @@ import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.cache.PersistentIndexedCacheParameters;
 import org.gradle.cache.internal.CacheDecorator;
 import org.gradle.cache.internal.FileLockManager;
+import org.gradle.cache.internal.filelock.LockOptionsBuilder;
 import org.gradle.internal.Factory;
 import org.gradle.internal.serialize.Serializer;
 
@@ -30,15 +31,31 @@ import java.io.Closeable;
 import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode;
 
 public class DefaultTaskArtifactStateCacheAccess implements TaskArtifactStateCacheAccess, Closeable {
+    /**
+     * When set, the task artifact caches are locked only while their files are accessed, see {@link #DefaultTaskArtifactStateCacheAccess(Gradle, CacheRepository, CacheDecorator, boolean)}.
+     */
+    public static final String LOCK_ON_ACCESS_TOGGLE = "org.gradle.cache.lockOnAccess";
     private final CacheDecorator inMemoryDecorator;
     private final PersistentCache cache;
 
     public DefaultTaskArtifactStateCacheAccess(Gradle gradle, CacheRepository cacheRepository, CacheDecorator decorator) {
+        this(gradle, cacheRepository, decorator, false);
+    }
+
+    /**
+     * @param lockOnDemand When true, {@link #useCache} locks the cache only when this process does not already hold the file lock, and each
+     * access to the files of the cache locks the cache, see {@link org.gradle.cache.internal.filelock.LockOptions#isLockOnAccess()}.
+     */
+    public DefaultTaskArtifactStateCacheAccess(Gradle gradle, CacheRepository cacheRepository, CacheDecorator decorator, boolean lockOnDemand) {
         this.inMemoryDecorator = decorator;
+        LockOptionsBuilder lockOptions = mode(FileLockManager.LockMode.None); // Lock on demand
+        if (lockOnDemand) {
+            lockOptions.lockOnAccess();
+        }
         cache = cacheRepository
                 .cache(gradle, "taskArtifacts")
                 .withDisplayName("task history cache")
-                .withLockOptions(mode(FileLockManager.LockMode.None)) // Lock on demand
+                .withLockOptions(lockOptions)
                 .open();
     }
 
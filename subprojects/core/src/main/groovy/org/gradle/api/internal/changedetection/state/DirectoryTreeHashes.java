@@ -0,0 +1,158 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+
+/**
+ * Merkle style hashes of the entries of a file collection snapshot: a hash of the whole snapshot, and for each directory a hash of the entries
+ * inside the directory. A directory hash combines the entries directly inside the directory with the hashes of its subdirectories.
+ *
+ * <p>Comparing these hashes allows an unchanged snapshot, or an unchanged directory tree within a snapshot, to be skipped without comparing
+ * each file. Relies on the entries being sorted in {@link #PATH_ORDER}, so that the entries inside a directory directly follow the directory.</p>
+ */
+class DirectoryTreeHashes {
+    /**
+     * Orders paths so that the file separator sorts before any other character. This keeps the contents of a directory together, for example
+     * {@code a/b/c} sorts before {@code a/b.txt}.
+     */
+    static final Comparator<String> PATH_ORDER = new Comparator<String>() {
+        public int compare(String left, String right) {
+            int length = Math.min(left.length(), right.length());
+            for (int i = 0; i < length; i++) {
+                char leftChar = left.charAt(i);
+                char rightChar = right.charAt(i);
+                if (leftChar != rightChar) {
+                    if (leftChar == File.separatorChar) {
+                        return -1;
+                    }
+                    if (rightChar == File.separatorChar) {
+                        return 1;
+                    }
+                    return leftChar - rightChar;
+                }
+            }
+            return left.length() - right.length();
+        }
+    };
+
+    static final int HASH_SIZE = 16;
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    final byte[] snapshotHash;
+    // For each directory, in order: the index of the directory entry, the index after the last entry inside the directory and the hash of the entries
+    final int[] dirIndexes;
+    final int[] dirEnds;
+    final byte[] dirHashes;
+
+    DirectoryTreeHashes(byte[] snapshotHash, int[] dirIndexes, int[] dirEnds, byte[] dirHashes) {
+        this.snapshotHash = snapshotHash;
+        this.dirIndexes = dirIndexes;
+        this.dirEnds = dirEnds;
+        this.dirHashes = dirHashes;
+    }
+
+    static DirectoryTreeHashes calculate(String[] paths, byte[] types, int[] hashOffsets, byte[] hashes) {
+        int dirCount = 0;
+        for (byte type : types) {
+            if (type == DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl.DIR) {
+                dirCount++;
+            }
+        }
+        int[] dirIndexes = new int[dirCount];
+        int[] dirEnds = new int[dirCount];
+        byte[] dirHashes = new byte[dirCount * HASH_SIZE];
+
+        Hasher snapshotHasher = HASH_FUNCTION.newHasher();
+        Deque<OpenDirectory> openDirs = new ArrayDeque<OpenDirectory>();
+        int dir = 0;
+        for (int i = 0; i < paths.length; i++) {
+            String path = paths[i];
+            while (!openDirs.isEmpty() && !path.startsWith(openDirs.peek().prefix)) {
+                close(openDirs, snapshotHasher, i, dirEnds, dirHashes);
+            }
+            Hasher hasher = openDirs.isEmpty() ? snapshotHasher : openDirs.peek().hasher;
+            int hashLength = hashOffsets[i + 1] - hashOffsets[i];
+            hasher.putUnencodedChars(path).putByte(types[i]).putInt(hashLength).putBytes(hashes, hashOffsets[i], hashLength);
+            if (types[i] == DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl.DIR) {
+                dirIndexes[dir] = i;
+                openDirs.push(new OpenDirectory(dir++, path));
+            }
+        }
+        while (!openDirs.isEmpty()) {
+            close(openDirs, snapshotHasher, paths.length, dirEnds, dirHashes);
+        }
+        return new DirectoryTreeHashes(snapshotHasher.hash().asBytes(), dirIndexes, dirEnds, dirHashes);
+    }
+
+    private static void close(Deque<OpenDirectory> openDirs, Hasher snapshotHasher, int end, int[] dirEnds, byte[] dirHashes) {
+        OpenDirectory closed = openDirs.pop();
+        HashCode hash = closed.hasher.hash();
+        dirEnds[closed.dir] = end;
+        hash.writeBytesTo(dirHashes, closed.dir * HASH_SIZE, HASH_SIZE);
+        Hasher parent = openDirs.isEmpty() ? snapshotHasher : openDirs.peek().hasher;
+        parent.putBytes(dirHashes, closed.dir * HASH_SIZE, HASH_SIZE);
+    }
+
+    boolean hasSameContents(DirectoryTreeHashes other) {
+        return Arrays.equals(snapshotHash, other.snapshotHash);
+    }
+
+    /**
+     * Returns true if the entries at the given indexes are both directories with the same contents. Does not compare the paths of the directories.
+     */
+    boolean hasSameDirectoryContents(int index, DirectoryTreeHashes other, int otherIndex) {
+        int dir = Arrays.binarySearch(dirIndexes, index);
+        int otherDir = Arrays.binarySearch(other.dirIndexes, otherIndex);
+        if (dir < 0 || otherDir < 0) {
+            return false;
+        }
+        for (int i = 0; i < HASH_SIZE; i++) {
+            if (dirHashes[dir * HASH_SIZE + i] != other.dirHashes[otherDir * HASH_SIZE + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the index after the last entry inside the directory at the given index.
+     */
+    int getDirectoryEnd(int index) {
+        return dirEnds[Arrays.binarySearch(dirIndexes, index)];
+    }
+
+    private static class OpenDirectory {
+        final int dir;
+        final String prefix;
+        final Hasher hasher = HASH_FUNCTION.newHasher();
+
+        OpenDirectory(int dir, String path) {
+            this.dir = dir;
+            this.prefix = path.endsWith(File.separator) ? path : path + File.separatorChar;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+/**
+ * Statistics for one of the caches held by {@link InMemoryTaskArtifactCache}.
+ */
+public class InMemoryCacheStatistics {
+    private final String cacheId;
+    private final long entryCount;
+    private final long estimatedSize;
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+
+    public InMemoryCacheStatistics(String cacheId, long entryCount, long estimatedSize, long hitCount, long missCount, long evictionCount) {
+        this.cacheId = cacheId;
+        this.entryCount = entryCount;
+        this.estimatedSize = estimatedSize;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+    }
+
+    public String getCacheId() {
+        return cacheId;
+    }
+
+    /**
+     * The number of entries currently held in memory.
+     */
+    public long getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * The estimated heap used by the entries currently held in memory, in bytes.
+     */
+    public long getEstimatedSize() {
+        return estimatedSize;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Returns the hits, misses and evictions that have happened since the given statistics were taken, along with the current size.
+     */
+    public InMemoryCacheStatistics since(InMemoryCacheStatistics earlier) {
+        return new InMemoryCacheStatistics(cacheId, entryCount, estimatedSize, hitCount - earlier.hitCount, missCount - earlier.missCount, evictionCount - earlier.evictionCount);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Entries{%d} EstimatedSize{%d} Hits{%d} Misses{%d} Evictions{%d}", entryCount, estimatedSize, hitCount, missCount, evictionCount);
+    }
+}
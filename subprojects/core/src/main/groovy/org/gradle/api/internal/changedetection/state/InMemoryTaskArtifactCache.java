@@ -26,23 +26,34 @@ import org.gradle.cache.internal.FileLock;
 import org.gradle.cache.internal.MultiProcessSafePersistentIndexedCache;
 
 import java.io.File;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Keeps the entries of the task artifact caches in memory. The entries of all caches share a single budget, which is based on the maximum heap
+ * size. Entries are weighed by their estimated heap size, so that a few large entries, such as the history of a task with many input files,
+ * can displace many small ones, such as file hashes.
+ */
 public class InMemoryTaskArtifactCache implements CacheDecorator {
     private final static Logger LOG = Logging.getLogger(InMemoryTaskArtifactCache.class);
     private final static Object NULL = new Object();
-    private static final Map<String, Integer> CACHE_CAPS = new CacheCapSizer().calculateCaps();
+    // Estimated size of an entry in the cache, excluding the key and value
+    private static final int ENTRY_OVERHEAD = 64;
+    private static final int OBJECT_OVERHEAD = 16;
 
     static class CacheCapSizer {
-        private static final Map<String, Integer> DEFAULT_CAP_SIZES = new HashMap<String, Integer>();
+        // The budget to use for the default maximum heap size, scaled for other heap sizes
+        private static final int DEFAULT_BUDGET_MB = 100;
+        private static final Map<String, Integer> DEFAULT_ENTRY_SIZES = new HashMap<String, Integer>();
 
         static {
-            DEFAULT_CAP_SIZES.put("fileSnapshots", 10000);
-            DEFAULT_CAP_SIZES.put("taskArtifacts", 2000);
-            DEFAULT_CAP_SIZES.put("outputFileStates", 3000);
-            DEFAULT_CAP_SIZES.put("fileHashes", 400000);
-            DEFAULT_CAP_SIZES.put("compilationState", 1000);
+            // The size to assume for values whose size cannot be estimated
+            DEFAULT_ENTRY_SIZES.put("fileSnapshots", 10000);
+            DEFAULT_ENTRY_SIZES.put("taskArtifacts", 2000);
+            DEFAULT_ENTRY_SIZES.put("outputFileStates", 100);
+            DEFAULT_ENTRY_SIZES.put("fileHashes", 200);
+            DEFAULT_ENTRY_SIZES.put("compilationState", 20000);
         }
 
         final HeapProportionalSizer sizer;
@@ -55,52 +66,75 @@ public class InMemoryTaskArtifactCache implements CacheDecorator {
             this(0);
         }
 
-        public Map<String, Integer> calculateCaps() {
-            Map<String, Integer> capSizes = new HashMap<String, Integer>();
-            for (Map.Entry<String, Integer> entry : DEFAULT_CAP_SIZES.entrySet()) {
-                capSizes.put(entry.getKey(), sizer.scaleValue(entry.getValue(), 100));
-            }
-            return capSizes;
+        /**
+         * Returns the number of bytes that the entries of all caches may use.
+         */
+        public long calculateBudget() {
+            return sizer.scaleValue(DEFAULT_BUDGET_MB * 1024, 1024) * 1024L;
         }
-    }
 
+        static int getDefaultEntrySize(String cacheName) {
+            Integer size = DEFAULT_ENTRY_SIZES.get(cacheName);
+            assert size != null : "Unknown cache.";
+            return size == null ? 1000 : size;
+        }
+    }
 
     private final Object lock = new Object();
-    private final Cache<String, Cache<Object, Object>> cache = CacheBuilder.newBuilder()
-            .maximumSize(CACHE_CAPS.size() * 2) //X2 to factor in a child build (for example buildSrc)
-            .build();
+    // Partitions of open caches, and of closed caches that still have entries in memory
+    private final Map<String, CachePartition> partitions = new HashMap<String, CachePartition>();
+    private final Cache<CacheKey, WeighedValue> cache;
+    private final EntryWeigher weigher = new EntryWeigher();
 
     private final Map<String, FileLock.State> states = new HashMap<String, FileLock.State>();
 
+    public InMemoryTaskArtifactCache() {
+        this(new CacheCapSizer().calculateBudget());
+    }
+
+    InMemoryTaskArtifactCache(long budget) {
+        LOG.info("Creating In-memory task artifact cache: MaxSize{{}}", budget);
+        LoggingEvictionListener evictionListener = new LoggingEvictionListener(budget);
+        cache = CacheBuilder.newBuilder().maximumWeight(budget).weigher(weigher).removalListener(new PartitionSizeListener(evictionListener)).build();
+        evictionListener.setCache(cache);
+    }
+
     public <K, V> MultiProcessSafePersistentIndexedCache<K, V> decorate(final String cacheId, String cacheName, final MultiProcessSafePersistentIndexedCache<K, V> original) {
-        final Cache<Object, Object> data = loadData(cacheId, cacheName);
+        final CachePartition data = loadData(cacheId, cacheName);
 
         return new MultiProcessSafePersistentIndexedCache<K, V>() {
             public void close() {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("In-memory cache of {}: {}", cacheId, data.statistics());
+                }
+                synchronized (lock) {
+                    data.openCount--;
+                }
+                releaseIfUnused(data);
                 original.close();
             }
 
             public V get(K key) {
                 assert key instanceof String || key instanceof Long || key instanceof File : "Unsupported key type: " + key;
-                Object value = data.getIfPresent(key);
-                if (value == NULL) {
-                    return null;
-                }
-                if (value != null) {
-                    return (V) value;
+                CacheKey cacheKey = new CacheKey(data, key);
+                WeighedValue entry = cache.getIfPresent(cacheKey);
+                if (entry != null && entry.generation == data.generation.get()) {
+                    data.hits.incrementAndGet();
+                    return entry.value == NULL ? null : (V) entry.value;
                 }
+                data.misses.incrementAndGet();
                 V out = original.get(key);
-                data.put(key, out == null ? NULL : out);
+                store(cacheKey, out == null ? NULL : out);
                 return out;
             }
 
             public void put(K key, V value) {
                 original.put(key, value);
-                data.put(key, value);
+                store(new CacheKey(data, key), value);
             }
 
             public void remove(K key) {
-                data.put(key, NULL);
+                store(new CacheKey(data, key), NULL);
                 original.remove(key);
             }
 
@@ -113,7 +147,7 @@ public class InMemoryTaskArtifactCache implements CacheDecorator {
 
                 if (outOfDate) {
                     LOG.info("Invalidating in-memory cache of {}", cacheId);
-                    data.invalidateAll();
+                    invalidate(data);
                 }
             }
 
@@ -125,49 +159,232 @@ public class InMemoryTaskArtifactCache implements CacheDecorator {
         };
     }
 
-    private Cache<Object, Object> loadData(String cacheId, String cacheName) {
-        Cache<Object, Object> theData;
+    /**
+     * Returns the statistics of each cache, ordered by cache id.
+     */
+    public List<InMemoryCacheStatistics> getStatistics() {
+        List<CachePartition> cachePartitions;
         synchronized (lock) {
-            theData = this.cache.getIfPresent(cacheId);
+            cachePartitions = new ArrayList<CachePartition>(partitions.values());
+        }
+        List<InMemoryCacheStatistics> statistics = new ArrayList<InMemoryCacheStatistics>(cachePartitions.size());
+        for (CachePartition partition : cachePartitions) {
+            statistics.add(partition.statistics());
+        }
+        Collections.sort(statistics, new Comparator<InMemoryCacheStatistics>() {
+            public int compare(InMemoryCacheStatistics o1, InMemoryCacheStatistics o2) {
+                return o1.getCacheId().compareTo(o2.getCacheId());
+            }
+        });
+        return statistics;
+    }
+
+    private void store(CacheKey key, Object value) {
+        // Weigh the value once, as the value may change after it has been added, and count the entry before adding it, as the removal
+        // listener may see it as soon as it is added
+        WeighedValue entry = new WeighedValue(value, weigher.estimateWeight(key, value), key.partition.generation.get());
+        key.partition.added(entry.weight);
+        cache.put(key, entry);
+    }
+
+    /**
+     * Discards the given partition once its cache has been closed and it has no entries left in memory.
+     */
+    private void releaseIfUnused(CachePartition partition) {
+        synchronized (lock) {
+            if (partition.openCount == 0 && partition.entries.get() == 0 && partitions.get(partition.cacheId) == partition) {
+                partitions.remove(partition.cacheId);
+            }
+        }
+    }
+
+    /**
+     * Discards the entries of the given partition. The entries are not removed, but are no longer used once the generation of the partition has
+     * changed, and are replaced as they are read again or evicted as they are no longer read.
+     */
+    private void invalidate(CachePartition partition) {
+        partition.generation.incrementAndGet();
+    }
+
+    private CachePartition loadData(String cacheId, String cacheName) {
+        CachePartition theData;
+        synchronized (lock) {
+            theData = partitions.get(cacheId);
             if (theData != null) {
-                LOG.info("In-memory cache of {}: Size{{}}, {}", cacheId, theData.size() , theData.stats());
+                LOG.info("In-memory cache of {}: Hits{{}} Misses{{}} Evictions{{}}", cacheId, theData.hits, theData.misses, theData.evictions);
             } else {
-                Integer maxSize = CACHE_CAPS.get(cacheName);
-                assert maxSize != null : "Unknown cache.";
-                LOG.info("Creating In-memory cache of {}: MaxSize{{}}", cacheId, maxSize);
-                LoggingEvictionListener evictionListener = new LoggingEvictionListener(cacheId, maxSize);
-                theData = CacheBuilder.newBuilder().maximumSize(maxSize).recordStats().removalListener(evictionListener).build();
-                evictionListener.setCache(theData);
-                this.cache.put(cacheId, theData);
+                int defaultEntrySize = CacheCapSizer.getDefaultEntrySize(cacheName);
+                LOG.info("Creating In-memory cache of {}: DefaultEntrySize{{}}", cacheId, defaultEntrySize);
+                theData = new CachePartition(cacheId, defaultEntrySize);
+                partitions.put(cacheId, theData);
             }
+            theData.openCount++;
         }
         return theData;
     }
 
-    private static class LoggingEvictionListener implements RemovalListener<Object, Object> {
+    /**
+     * Returns the estimated heap retained by the given key or value, in bytes.
+     */
+    static long estimateSize(Object value) {
+        if (value instanceof String) {
+            return 40 + 2 * ((String) value).length();
+        }
+        if (value instanceof File) {
+            return OBJECT_OVERHEAD + 8 + estimateSize(((File) value).getPath());
+        }
+        if (value instanceof byte[]) {
+            return OBJECT_OVERHEAD + ((byte[]) value).length;
+        }
+        if (value instanceof CachingFileSnapshotter.FileInfo) {
+            return OBJECT_OVERHEAD + 24 + estimateSize(((CachingFileSnapshotter.FileInfo) value).getHash());
+        }
+        if (value instanceof EstimatedHeapSize) {
+            return ((EstimatedHeapSize) value).getEstimatedHeapSize();
+        }
+        if (value instanceof Number || value instanceof Boolean || value == NULL) {
+            return OBJECT_OVERHEAD;
+        }
+        return -1;
+    }
+
+    /**
+     * The entries of one of the caches. The number and estimated size of the entries are counted as entries are added and removed, so that the
+     * statistics of a cache do not require a scan of all entries.
+     */
+    private static class CachePartition {
+        final String cacheId;
+        final int defaultEntrySize;
+        final AtomicLong hits = new AtomicLong();
+        final AtomicLong misses = new AtomicLong();
+        final AtomicLong evictions = new AtomicLong();
+        final AtomicLong entries = new AtomicLong();
+        final AtomicLong size = new AtomicLong();
+        // Entries added before the last invalidation of the cache are out of date
+        final AtomicInteger generation = new AtomicInteger();
+        // The number of decorators of this cache that are open, guarded by the lock of the owning cache
+        int openCount;
+
+        CachePartition(String cacheId, int defaultEntrySize) {
+            this.cacheId = cacheId;
+            this.defaultEntrySize = defaultEntrySize;
+        }
+
+        void added(int weight) {
+            entries.incrementAndGet();
+            size.addAndGet(weight);
+        }
+
+        /**
+         * Returns true when the partition has no entries left.
+         */
+        boolean removed(int weight) {
+            size.addAndGet(-weight);
+            return entries.decrementAndGet() == 0;
+        }
+
+        InMemoryCacheStatistics statistics() {
+            return new InMemoryCacheStatistics(cacheId, entries.get(), size.get(), hits.get(), misses.get(), evictions.get());
+        }
+    }
+
+    private static class CacheKey {
+        final CachePartition partition;
+        final Object key;
+
+        CacheKey(CachePartition partition, Object key) {
+            this.partition = partition;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey other = (CacheKey) obj;
+            return partition == other.partition && key.equals(other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * partition.hashCode() + key.hashCode();
+        }
+    }
+
+    /**
+     * A value in the cache, along with the weight and the generation of its partition it was added with.
+     */
+    private static class WeighedValue {
+        final Object value;
+        final int weight;
+        final int generation;
+
+        WeighedValue(Object value, int weight, int generation) {
+            this.value = value;
+            this.weight = weight;
+            this.generation = generation;
+        }
+    }
+
+    private static class EntryWeigher implements Weigher<CacheKey, WeighedValue> {
+        public int weigh(CacheKey key, WeighedValue entry) {
+            return entry.weight;
+        }
+
+        int estimateWeight(CacheKey key, Object value) {
+            long keySize = estimateSize(key.key);
+            long valueSize = estimateSize(value);
+            long size = ENTRY_OVERHEAD + (keySize < 0 ? 0 : keySize) + (valueSize < 0 ? key.partition.defaultEntrySize : valueSize);
+            return (int) Math.min(size, Integer.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Updates the counts of a partition when one of its entries is removed for any reason, including when the entry is replaced.
+     */
+    private class PartitionSizeListener implements RemovalListener<CacheKey, WeighedValue> {
+        private final LoggingEvictionListener evictionListener;
+
+        PartitionSizeListener(LoggingEvictionListener evictionListener) {
+            this.evictionListener = evictionListener;
+        }
+
+        @Override
+        public void onRemoval(RemovalNotification<CacheKey, WeighedValue> notification) {
+            CacheKey key = notification.getKey();
+            if (key.partition.removed(notification.getValue().weight)) {
+                releaseIfUnused(key.partition);
+            }
+            evictionListener.onRemoval(notification);
+        }
+    }
+
+    private static class LoggingEvictionListener implements RemovalListener<CacheKey, WeighedValue> {
         private static Logger logger = Logging.getLogger(LoggingEvictionListener.class);
         private static final String EVICTION_MITIGATION_MESSAGE = "\nPerformance may suffer from in-memory cache misses. Increase max heap size of Gradle build process to reduce cache misses.";
+        private static final int LOG_INTERVAL = 1000;
         volatile int evictionCounter;
-        private final String cacheId;
-        private Cache<Object, Object> cache;
-        private final int maxSize;
-        private final int logInterval;
+        private Cache<?, ?> cache;
+        private final long maxSize;
 
-        private LoggingEvictionListener(String cacheId, int maxSize) {
-            this.cacheId = cacheId;
+        private LoggingEvictionListener(long maxSize) {
             this.maxSize = maxSize;
-            this.logInterval = maxSize / 10;
         }
 
-        public void setCache(Cache<Object, Object> cache) {
+        public void setCache(Cache<?, ?> cache) {
             this.cache = cache;
         }
 
         @Override
-        public void onRemoval(RemovalNotification<Object, Object> notification) {
+        public void onRemoval(RemovalNotification<CacheKey, WeighedValue> notification) {
             if (notification.getCause() == RemovalCause.SIZE) {
-                if (evictionCounter % logInterval == 0) {
-                    logger.log(LogLevel.INFO, "Cache entries evicted. In-memory cache of {}: Size{{}} MaxSize{{}}, {} {}", cacheId, cache.size(), maxSize, cache.stats(), EVICTION_MITIGATION_MESSAGE);
+                notification.getKey().partition.evictions.incrementAndGet();
+                if (evictionCounter % LOG_INTERVAL == 0) {
+                    logger.log(LogLevel.INFO, "Cache entries evicted. In-memory task artifact cache: Entries{{}} MaxSize{{}} {}", cache.size(), maxSize, EVICTION_MITIGATION_MESSAGE);
                 }
                 evictionCounter++;
             }
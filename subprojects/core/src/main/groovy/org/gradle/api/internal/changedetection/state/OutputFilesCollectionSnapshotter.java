@@ -93,7 +93,7 @@ public class OutputFilesCollectionSnapshotter implements FileCollectionSnapshott
         return new OutputFilesSnapshot(snapshotDirIds, snapshotter.snapshot(files));
     }
 
-    static class OutputFilesSnapshot implements FileCollectionSnapshot {
+    static class OutputFilesSnapshot implements FileCollectionSnapshot, EstimatedHeapSize {
         final Map<String, Long> rootFileIds;
         final FileCollectionSnapshot filesSnapshot;
 
@@ -106,6 +106,14 @@ public class OutputFilesCollectionSnapshotter implements FileCollectionSnapshott
             return filesSnapshot.getFiles();
         }
 
+        public long getEstimatedHeapSize() {
+            long size = 64 + Math.max(InMemoryTaskArtifactCache.estimateSize(filesSnapshot), 0);
+            for (String rootFile : rootFileIds.keySet()) {
+                size += 48 + InMemoryTaskArtifactCache.estimateSize(rootFile);
+            }
+            return size;
+        }
+
         public FileCollection getAllFiles() {
             return filesSnapshot.getAllFiles();
         }
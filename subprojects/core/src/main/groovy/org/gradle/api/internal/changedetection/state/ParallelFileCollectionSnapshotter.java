@@ -0,0 +1,232 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import com.google.common.collect.Lists;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.FileVisitDetails;
+import org.gradle.api.file.FileVisitor;
+import org.gradle.api.internal.cache.StringInterner;
+import org.gradle.api.internal.file.FileTreeInternal;
+import org.gradle.api.internal.file.collections.DefaultFileCollectionResolveContext;
+import org.gradle.internal.operations.BuildOperation;
+import org.gradle.internal.operations.BuildOperationProcessor;
+import org.gradle.internal.operations.BuildOperationQueue;
+import org.gradle.internal.operations.BuildOperationWorker;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A {@link FileCollectionSnapshotter} that walks file trees and hashes changed files using the build operation worker pool.
+ *
+ * <p>The cache lock is only held while looking up and storing file hashes, one batch at a time. Hashing happens without holding the lock.</p>
+ */
+public class ParallelFileCollectionSnapshotter extends DefaultFileCollectionSnapshotter {
+    public static final String PARALLEL_SNAPSHOTTING_TOGGLE = "org.gradle.snapshotting.parallel";
+
+    static final int BATCH_SIZE = 1000;
+
+    private final CachingFileSnapshotter snapshotter;
+    private final TaskArtifactStateCacheAccess cacheAccess;
+    private final StringInterner stringInterner;
+    private final BuildOperationProcessor buildOperationProcessor;
+
+    public ParallelFileCollectionSnapshotter(CachingFileSnapshotter snapshotter, TaskArtifactStateCacheAccess cacheAccess, StringInterner stringInterner, BuildOperationProcessor buildOperationProcessor) {
+        super(snapshotter, cacheAccess, stringInterner);
+        this.snapshotter = snapshotter;
+        this.cacheAccess = cacheAccess;
+        this.stringInterner = stringInterner;
+        this.buildOperationProcessor = buildOperationProcessor;
+    }
+
+    @Override
+    public FileCollectionSnapshot snapshot(FileCollection input) {
+        List<FileVisitDetails> allFileVisitDetails = Lists.newArrayList();
+        List<File> missingFiles = Lists.newArrayList();
+
+        visitFiles(input, allFileVisitDetails, missingFiles);
+
+        if (allFileVisitDetails.isEmpty() && missingFiles.isEmpty()) {
+            return FileCollectionSnapshotImpl.EMPTY;
+        }
+
+        FileCollectionSnapshotBuilder builder = new FileCollectionSnapshotBuilder(allFileVisitDetails.size() + missingFiles.size());
+        Set<String> paths = new HashSet<String>();
+        List<PendingFile> files = Lists.newArrayList();
+        for (FileVisitDetails fileDetails : allFileVisitDetails) {
+            String absolutePath = stringInterner.intern(fileDetails.getFile().getAbsolutePath());
+            if (paths.add(absolutePath)) {
+                if (fileDetails.isDirectory()) {
+                    builder.addDirectory(absolutePath);
+                } else {
+                    files.add(new PendingFile(absolutePath, fileDetails));
+                }
+            }
+        }
+        for (File missingFile : missingFiles) {
+            String absolutePath = stringInterner.intern(missingFile.getAbsolutePath());
+            if (paths.add(absolutePath)) {
+                builder.addMissingFile(absolutePath);
+            }
+        }
+
+        List<PendingFile> changedFiles = lookupCachedSnapshots(files);
+        if (!changedFiles.isEmpty()) {
+            hash(changedFiles);
+            storeSnapshots(changedFiles);
+        }
+
+        for (PendingFile file : files) {
+            builder.addFile(file.absolutePath, file.info.getHash());
+        }
+        return builder.build();
+    }
+
+    @Override
+    protected void visitFiles(FileCollection input, List<FileVisitDetails> allFileVisitDetails, List<File> missingFiles) {
+        DefaultFileCollectionResolveContext context = new DefaultFileCollectionResolveContext();
+        context.add(input);
+        List<FileTreeInternal> fileTrees = context.resolveAsFileTrees();
+
+        if (fileTrees.size() == 1) {
+            allFileVisitDetails.addAll(new FileTreeWalk(fileTrees.get(0)).walk());
+            return;
+        }
+
+        List<FileTreeWalk> walks = Lists.newArrayListWithCapacity(fileTrees.size());
+        BuildOperationQueue<FileTreeWalk> queue = buildOperationProcessor.newQueue(new FileTreeWalker(), null);
+        for (FileTreeInternal fileTree : fileTrees) {
+            FileTreeWalk walk = new FileTreeWalk(fileTree);
+            walks.add(walk);
+            queue.add(walk);
+        }
+        queue.waitForCompletion();
+
+        // Keep the results in the order of the file trees, so that the first occurrence of a file wins as it does for a serial walk
+        for (FileTreeWalk walk : walks) {
+            allFileVisitDetails.addAll(walk.visited);
+        }
+    }
+
+    private List<PendingFile> lookupCachedSnapshots(List<PendingFile> files) {
+        final List<PendingFile> changedFiles = Lists.newArrayList();
+        for (final List<PendingFile> batch : Lists.partition(files, BATCH_SIZE)) {
+            cacheAccess.useCache("Look up file snapshots", new Runnable() {
+                public void run() {
+                    for (PendingFile file : batch) {
+                        file.info = snapshotter.getCachedSnapshot(file.fileDetails);
+                        if (file.info == null) {
+                            changedFiles.add(file);
+                        }
+                    }
+                }
+            });
+        }
+        return changedFiles;
+    }
+
+    private void hash(List<PendingFile> changedFiles) {
+        FileHasher hasher = new FileHasher();
+        if (changedFiles.size() == 1) {
+            hasher.execute(changedFiles.get(0));
+            return;
+        }
+        BuildOperationQueue<PendingFile> queue = buildOperationProcessor.newQueue(hasher, null);
+        for (PendingFile file : changedFiles) {
+            queue.add(file);
+        }
+        queue.waitForCompletion();
+    }
+
+    private void storeSnapshots(List<PendingFile> changedFiles) {
+        for (final List<PendingFile> batch : Lists.partition(changedFiles, BATCH_SIZE)) {
+            cacheAccess.useCache("Store file snapshots", new Runnable() {
+                public void run() {
+                    for (PendingFile file : batch) {
+                        snapshotter.cacheSnapshot(file.fileDetails, file.info);
+                    }
+                }
+            });
+        }
+    }
+
+    private static class PendingFile implements BuildOperation {
+        final String absolutePath;
+        final FileVisitDetails fileDetails;
+        CachingFileSnapshotter.FileInfo info;
+
+        PendingFile(String absolutePath, FileVisitDetails fileDetails) {
+            this.absolutePath = absolutePath;
+            this.fileDetails = fileDetails;
+        }
+
+        public String getDescription() {
+            return "hash " + absolutePath;
+        }
+    }
+
+    private class FileHasher implements BuildOperationWorker<PendingFile> {
+        public String getDisplayName() {
+            return "file hasher";
+        }
+
+        public void execute(PendingFile file) {
+            file.info = snapshotter.hash(file.fileDetails);
+        }
+    }
+
+    private static class FileTreeWalk implements BuildOperation {
+        final FileTreeInternal fileTree;
+        final List<FileVisitDetails> visited = Lists.newArrayList();
+
+        FileTreeWalk(FileTreeInternal fileTree) {
+            this.fileTree = fileTree;
+        }
+
+        List<FileVisitDetails> walk() {
+            fileTree.visitTreeOrBackingFile(new FileVisitor() {
+                @Override
+                public void visitDir(FileVisitDetails dirDetails) {
+                    visited.add(dirDetails);
+                }
+
+                @Override
+                public void visitFile(FileVisitDetails fileDetails) {
+                    visited.add(fileDetails);
+                }
+            });
+            return visited;
+        }
+
+        public String getDescription() {
+            return "walk " + fileTree;
+        }
+    }
+
+    private static class FileTreeWalker implements BuildOperationWorker<FileTreeWalk> {
+        public String getDisplayName() {
+            return "file tree walker";
+        }
+
+        public void execute(FileTreeWalk walk) {
+            walk.walk();
+        }
+    }
+}
@@ -19,4 +19,14 @@ import java.io.File;
 
 public interface Hasher {
     byte[] hash(File file);
+
+    /**
+     * Hashes the given content. The hash is the same as the hash of a file with this content.
+     */
+    byte[] hash(byte[] content);
+
+    /**
+     * Returns an identifier for the hash algorithm used by this hasher. Hashes created by different algorithms must never be compared with each other.
+     */
+    String getAlgorithm();
 }
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.hash;
+
+import org.gradle.api.UncheckedIOException;
+import org.gradle.internal.os.OperatingSystem;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * A {@link Hasher} that uses the non-cryptographic, 128 bit, x64 variant of MurmurHash3. The hashes are the same as produced by Guava's {@code Hashing.murmur3_128()}.
+ *
+ * <p>Large files are read through memory mapped buffers. Mapping is not used on Windows, where a mapped file cannot be deleted until the buffer is garbage collected.</p>
+ */
+public class Murmur3Hasher implements Hasher {
+    public static final String FAST_HASHING_TOGGLE = "org.gradle.hashing.fast";
+
+    private static final String ALGORITHM = "MURMUR3-128";
+    private static final long MAPPED_FILE_THRESHOLD = 256 * 1024;
+    private static final long MAPPED_REGION_SIZE = 64 * 1024 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final boolean useMappedFiles;
+
+    public Murmur3Hasher() {
+        this(!OperatingSystem.current().isWindows());
+    }
+
+    Murmur3Hasher(boolean useMappedFiles) {
+        this.useMappedFiles = useMappedFiles;
+    }
+
+    public byte[] hash(File file) {
+        try {
+            FileInputStream inputStream = new FileInputStream(file);
+            try {
+                FileChannel channel = inputStream.getChannel();
+                long size = channel.size();
+                if (useMappedFiles && size >= MAPPED_FILE_THRESHOLD) {
+                    return hashMapped(channel, size);
+                }
+                return hashRead(channel, size);
+            } finally {
+                inputStream.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Failed to create %s hash for file %s.", ALGORITHM, file.getAbsolutePath()), e);
+        }
+    }
+
+    public byte[] hash(byte[] content) {
+        Murmur3 hash = new Murmur3();
+        hash.update(ByteBuffer.wrap(content));
+        return hash.digest();
+    }
+
+    public String getAlgorithm() {
+        return ALGORITHM;
+    }
+
+    private byte[] hashMapped(FileChannel channel, long size) throws IOException {
+        Murmur3 hash = new Murmur3();
+        for (long position = 0; position < size; position += MAPPED_REGION_SIZE) {
+            hash.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAPPED_REGION_SIZE, size - position)));
+        }
+        return hash.digest();
+    }
+
+    private byte[] hashRead(FileChannel channel, long size) throws IOException {
+        Murmur3 hash = new Murmur3();
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.max(16, Math.min(BUFFER_SIZE, size)));
+        while (channel.read(buffer) >= 0) {
+            buffer.flip();
+            hash.update(buffer);
+            buffer.clear();
+        }
+        return hash.digest();
+    }
+
+    /**
+     * Streaming MurmurHash3_x64_128 state, with a seed of 0.
+     */
+    static class Murmur3 {
+        private static final long C1 = 0x87c37b91114253d5L;
+        private static final long C2 = 0x4cf5ad432745937fL;
+
+        private final ByteBuffer tail = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+        private long h1;
+        private long h2;
+        private long length;
+
+        void update(ByteBuffer buffer) {
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            length += buffer.remaining();
+
+            // Complete a block left over from the previous update
+            if (tail.position() > 0) {
+                while (tail.hasRemaining() && buffer.hasRemaining()) {
+                    tail.put(buffer.get());
+                }
+                if (tail.hasRemaining()) {
+                    return;
+                }
+                tail.flip();
+                mixBlock(tail.getLong(), tail.getLong());
+                tail.clear();
+            }
+
+            while (buffer.remaining() >= 16) {
+                mixBlock(buffer.getLong(), buffer.getLong());
+            }
+            tail.put(buffer);
+        }
+
+        byte[] digest() {
+            int remaining = tail.position();
+            if (remaining > 0) {
+                long k1 = 0;
+                long k2 = 0;
+                for (int i = remaining - 1; i >= 8; i--) {
+                    k2 = (k2 << 8) | (tail.get(i) & 0xffL);
+                }
+                for (int i = Math.min(remaining, 8) - 1; i >= 0; i--) {
+                    k1 = (k1 << 8) | (tail.get(i) & 0xffL);
+                }
+                h1 ^= mixK1(k1);
+                h2 ^= mixK2(k2);
+            }
+
+            h1 ^= length;
+            h2 ^= length;
+            h1 += h2;
+            h2 += h1;
+            h1 = fmix64(h1);
+            h2 = fmix64(h2);
+            h1 += h2;
+            h2 += h1;
+
+            return ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN).putLong(h1).putLong(h2).array();
+        }
+
+        private void mixBlock(long k1, long k2) {
+            h1 ^= mixK1(k1);
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+
+            h2 ^= mixK2(k2);
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        private static long mixK1(long k1) {
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= C2;
+            return k1;
+        }
+
+        private static long mixK2(long k2) {
+            k2 *= C2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= C1;
+            return k2;
+        }
+
+        private static long fmix64(long k) {
+            k ^= k >>> 33;
+            k *= 0xff51afd7ed558ccdL;
+            k ^= k >>> 33;
+            k *= 0xc4ceb9fe1a85ec53L;
+            k ^= k >>> 33;
+            return k;
+        }
+    }
+}
@@ -16,6 +16,8 @@
 package org.gradle.cache.internal;
 
 import net.jcip.annotations.ThreadSafe;
+import org.gradle.api.GradleException;
+import org.gradle.api.Nullable;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 import org.gradle.cache.CacheOpenException;
@@ -27,11 +29,15 @@ import org.gradle.internal.Factories;
 import org.gradle.internal.Factory;
 import org.gradle.internal.UncheckedException;
 import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.StoppableExecutor;
 import org.gradle.internal.serialize.Serializer;
 
 import java.io.File;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -41,6 +47,11 @@ import static org.gradle.cache.internal.FileLockManager.LockMode.Shared;
 
 @ThreadSafe
 public class DefaultCacheAccess implements CacheCoordinator {
+    /**
+     * When set, changes to the indexed caches are held in memory and written in batches, from a background thread while the cache is not in
+     * use and when the file lock is released. See {@link WriteBehindPersistentIndexedCache}.
+     */
+    public static final String WRITE_BEHIND_TOGGLE = "org.gradle.cache.writeBehind";
 
     private final static Logger LOG = Logging.getLogger(DefaultCacheAccess.class);
 
@@ -51,6 +62,8 @@ public class DefaultCacheAccess implements CacheCoordinator {
     private final CacheInitializationAction initializationAction;
     private final FileAccess fileAccess = new UnitOfWorkFileAccess();
     private final Set<MultiProcessSafePersistentIndexedCache> caches = new HashSet<MultiProcessSafePersistentIndexedCache>();
+    private final List<WriteBehindPersistentIndexedCache<?, ?>> writeBehindCaches = new CopyOnWriteArrayList<WriteBehindPersistentIndexedCache<?, ?>>();
+    private final ExecutorFactory executorFactory;
     private final Lock lock = new ReentrantLock();
     private final Condition condition = lock.newCondition();
     private Thread owner;
@@ -59,14 +72,39 @@ public class DefaultCacheAccess implements CacheCoordinator {
     private FileLock.State stateAtOpen;
     private boolean contended;
     private final CacheAccessOperationsStack operations;
+    private final boolean lockOnAccess;
+    private final boolean writeBehind;
+    private StoppableExecutor writer;
+    private boolean writerIsOwner;
+    private boolean writeDeferred;
+    private Throwable writeFailure;
     private int cacheClosedCount;
 
-    public DefaultCacheAccess(String cacheDisplayName, File lockTarget, File baseDir, FileLockManager lockManager, CacheInitializationAction initializationAction) {
+    public DefaultCacheAccess(String cacheDisplayName, File lockTarget, File baseDir, FileLockManager lockManager, CacheInitializationAction initializationAction,
+                              ExecutorFactory executorFactory) {
+        this(cacheDisplayName, lockTarget, baseDir, lockManager, initializationAction, executorFactory, false);
+    }
+
+    /**
+     * @param lockOnAccess When true, a thread that accesses the files of a cache without first calling {@link #useCache} locks the cache for the
+     * duration of that access, rather than failing. While this process holds the file lock, {@link #useCache} runs the action without taking
+     * ownership of the cache. This allows caches whose entries are mostly served from memory to be used without holding the cache lock. Implies that changes are written behind, so that changes to the caches do not lock the cache either.
+     */
+    public DefaultCacheAccess(String cacheDisplayName, File lockTarget, File baseDir, FileLockManager lockManager, CacheInitializationAction initializationAction,
+                              ExecutorFactory executorFactory, boolean lockOnAccess) {
+        this(cacheDisplayName, lockTarget, baseDir, lockManager, initializationAction, executorFactory, lockOnAccess, lockOnAccess || Boolean.getBoolean(WRITE_BEHIND_TOGGLE));
+    }
+
+    DefaultCacheAccess(String cacheDisplayName, File lockTarget, File baseDir, FileLockManager lockManager, CacheInitializationAction initializationAction,
+                       ExecutorFactory executorFactory, boolean lockOnAccess, boolean writeBehind) {
         this.cacheDisplayName = cacheDisplayName;
         this.lockTarget = lockTarget;
         this.baseDir = baseDir;
         this.lockManager = lockManager;
         this.initializationAction = initializationAction;
+        this.executorFactory = executorFactory;
+        this.lockOnAccess = lockOnAccess;
+        this.writeBehind = writeBehind;
         this.operations = new CacheAccessOperationsStack();
     }
 
@@ -149,8 +187,17 @@ public class DefaultCacheAccess implements CacheCoordinator {
     }
 
     public void close() {
+        StoppableExecutor writer = null;
         lock.lock();
         try {
+            // Let the writer finish, so that it does not write to the caches while they are being closed
+            while (writerIsOwner) {
+                try {
+                    condition.await();
+                } catch (InterruptedException e) {
+                    throw UncheckedException.throwAsUncheckedException(e);
+                }
+            }
             // Take ownership
             if (owner == null) {
                 owner = Thread.currentThread();
@@ -158,16 +205,34 @@ public class DefaultCacheAccess implements CacheCoordinator {
                 // TODO:ADAM - The check for shared mode is a work around. Owner should release the lock
                 throw new IllegalStateException(String.format("Cannot close %s as it is currently being used by another thread.", cacheDisplayName));
             }
+            if (fileLock == null && hasPendingChanges()) {
+                // Lock the cache so that the pending changes can be written
+                operations.pushCacheAction("Close " + cacheDisplayName);
+                try {
+                    onStartWork();
+                } finally {
+                    operations.popCacheAction();
+                }
+            }
             if (fileLock != null) {
                 closeFileLock();
             }
             if (cacheClosedCount != 1) {
                 LOG.debug("Cache {} was closed {} times.", cacheDisplayName, cacheClosedCount);
             }
+            GradleException writeFailure = takeWriteFailure();
+            if (writeFailure != null) {
+                throw writeFailure;
+            }
         } finally {
             lockOptions = null;
             owner = null;
+            writer = this.writer;
+            this.writer = null;
             lock.unlock();
+            if (writer != null) {
+                writer.stop();
+            }
         }
     }
 
@@ -176,6 +241,27 @@ public class DefaultCacheAccess implements CacheCoordinator {
     }
 
     public <T> T useCache(String operationDisplayName, Factory<? extends T> factory) {
+        if (lockOnAccess && canUseWithoutOwnership()) {
+            return factory.create();
+        }
+        return useCacheWithOwnership(operationDisplayName, factory);
+    }
+
+    /**
+     * Returns true when the caches can be used without taking ownership, as this process holds the file lock. While the file lock is held, no
+     * other process can change the caches, so the entries that caches hold in memory are up to date. Once the file lock is released to another
+     * process, the next use locks the cache again, so that the caches can check whether the other process changed them.
+     */
+    private boolean canUseWithoutOwnership() {
+        lock.lock();
+        try {
+            return fileLock != null && writeFailure == null && owner != Thread.currentThread();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private <T> T useCacheWithOwnership(String operationDisplayName, Factory<? extends T> factory) {
         if (lockOptions != null && lockOptions.getMode() == FileLockManager.LockMode.Shared) {
             throw new UnsupportedOperationException("Not implemented yet.");
         }
@@ -184,6 +270,11 @@ public class DefaultCacheAccess implements CacheCoordinator {
         lock.lock();
         try {
             takeOwnership(operationDisplayName);
+            GradleException writeFailure = takeWriteFailure();
+            if (writeFailure != null) {
+                releaseOwnership();
+                throw writeFailure;
+            }
             wasStarted = onStartWork();
         } finally {
             lock.unlock();
@@ -230,6 +321,10 @@ public class DefaultCacheAccess implements CacheCoordinator {
             if (!operations.isInCacheAction()) {
                 owner = null;
                 condition.signalAll();
+                if (writeDeferred) {
+                    writeDeferred = false;
+                    requestWrite();
+                }
             }
         } finally {
             lock.unlock();
@@ -321,13 +416,26 @@ public class DefaultCacheAccess implements CacheCoordinator {
             }
         };
 
-        MultiProcessSafePersistentIndexedCache<K, V> indexedCache = new DefaultMultiProcessSafePersistentIndexedCache<K, V>(indexedCacheFactory, fileAccess);
+        DefaultMultiProcessSafePersistentIndexedCache<K, V> fileCache = new DefaultMultiProcessSafePersistentIndexedCache<K, V>(indexedCacheFactory, fileAccess);
+        WriteBehindPersistentIndexedCache<K, V> writeBehindCache = null;
+        MultiProcessSafePersistentIndexedCache<K, V> indexedCache = fileCache;
+        if (writeBehind && lockOptions.getMode() != Shared) {
+            writeBehindCache = new WriteBehindPersistentIndexedCache<K, V>(fileCache, new Runnable() {
+                public void run() {
+                    requestWrite();
+                }
+            });
+            indexedCache = writeBehindCache;
+        }
         CacheDecorator decorator = parameters.getCacheDecorator();
         indexedCache = decorator == null ? indexedCache : decorator.decorate(cacheFile.getAbsolutePath(), parameters.getCacheName(), indexedCache);
 
         lock.lock();
         try {
             caches.add(indexedCache);
+            if (writeBehindCache != null) {
+                writeBehindCaches.add(writeBehindCache);
+            }
             if (fileLock != null) {
                 String description = operations.isInCacheAction() ? operations.getDescription() : "cache creation";
                 indexedCache.onStartWork(description, stateAtOpen);
@@ -374,6 +482,104 @@ public class DefaultCacheAccess implements CacheCoordinator {
         return true;
     }
 
+    private boolean hasPendingChanges() {
+        for (WriteBehindPersistentIndexedCache<?, ?> cache : writeBehindCaches) {
+            if (cache.hasPendingChanges()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void requestWrite() {
+        lock.lock();
+        try {
+            if (lockOptions == null) {
+                return;
+            }
+            if (writer == null) {
+                writer = executorFactory.create("Write " + cacheDisplayName, 1);
+            }
+            writer.execute(new Runnable() {
+                public void run() {
+                    writePendingChanges();
+                }
+            });
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the pending changes of the caches, if the cache is not in use. Otherwise, defers writing the changes until the current owner
+     * has finished with the cache.
+     */
+    private void writePendingChanges() {
+        lock.lock();
+        try {
+            if (lockOptions == null) {
+                // Closed, and the changes written
+                return;
+            }
+            if (owner != null) {
+                writeDeferred = true;
+                return;
+            }
+            takeOwnership("Write " + cacheDisplayName);
+            writerIsOwner = true;
+        } finally {
+            lock.unlock();
+        }
+
+        boolean wasStarted = false;
+        Throwable failure = null;
+        try {
+            lock.lock();
+            try {
+                wasStarted = onStartWork();
+            } finally {
+                lock.unlock();
+            }
+            for (WriteBehindPersistentIndexedCache<?, ?> cache : writeBehindCaches) {
+                cache.flush();
+            }
+        } catch (Throwable throwable) {
+            // The changes are kept, and written when the cache is closed. The failure is rethrown when the cache is next used or closed
+            LOG.warn("Could not write pending changes of {}.", cacheDisplayName, throwable);
+            failure = throwable;
+        } finally {
+            lock.lock();
+            try {
+                try {
+                    if (wasStarted) {
+                        onEndWork();
+                    }
+                } finally {
+                    if (failure != null && writeFailure == null) {
+                        writeFailure = failure;
+                    }
+                    writerIsOwner = false;
+                    releaseOwnership();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Returns the failure of the background writer, if any, and forgets it, so that it is reported only once.
+     */
+    @Nullable
+    private GradleException takeWriteFailure() {
+        if (writeFailure == null) {
+            return null;
+        }
+        GradleException failure = new GradleException(String.format("Could not write pending changes of %s.", cacheDisplayName), writeFailure);
+        writeFailure = null;
+        return failure;
+    }
+
     private FileLock getLock() {
         lock.lock();
         try {
@@ -386,21 +592,53 @@ public class DefaultCacheAccess implements CacheCoordinator {
         return fileLock;
     }
 
+    private boolean isOwnedByCurrentThread() {
+        lock.lock();
+        try {
+            return owner == Thread.currentThread();
+        } finally {
+            lock.unlock();
+        }
+    }
+
     private class UnitOfWorkFileAccess extends AbstractFileAccess {
         @Override
         public String toString() {
             return cacheDisplayName;
         }
 
-        public <T> T readFile(Factory<? extends T> action) throws LockTimeoutException {
+        public <T> T readFile(final Factory<? extends T> action) throws LockTimeoutException {
+            if (lockOnAccess && !isOwnedByCurrentThread()) {
+                return useCacheWithOwnership("Read " + cacheDisplayName, new Factory<T>() {
+                    public T create() {
+                        return getLock().readFile(action);
+                    }
+                });
+            }
             return getLock().readFile(action);
         }
 
-        public void updateFile(Runnable action) throws LockTimeoutException {
+        public void updateFile(final Runnable action) throws LockTimeoutException {
+            if (lockOnAccess && !isOwnedByCurrentThread()) {
+                useCacheWithOwnership("Update " + cacheDisplayName, Factories.toFactory(new Runnable() {
+                    public void run() {
+                        getLock().updateFile(action);
+                    }
+                }));
+                return;
+            }
             getLock().updateFile(action);
         }
 
-        public void writeFile(Runnable action) throws LockTimeoutException {
+        public void writeFile(final Runnable action) throws LockTimeoutException {
+            if (lockOnAccess && !isOwnedByCurrentThread()) {
+                useCacheWithOwnership("Write " + cacheDisplayName, Factories.toFactory(new Runnable() {
+                    public void run() {
+                        getLock().writeFile(action);
+                    }
+                }));
+                return;
+            }
             getLock().writeFile(action);
         }
     }
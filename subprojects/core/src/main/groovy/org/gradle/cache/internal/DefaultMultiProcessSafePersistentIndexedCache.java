@@ -15,14 +15,16 @@
  */
 package org.gradle.cache.internal;
 
-import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.cache.internal.btree.BTreePersistentIndexedCache;
 import org.gradle.internal.Factory;
 
+import java.util.Map;
+
 public class DefaultMultiProcessSafePersistentIndexedCache<K, V> implements MultiProcessSafePersistentIndexedCache<K, V> {
     private final FileAccess fileAccess;
     private final Factory<BTreePersistentIndexedCache<K, V>> factory;
-    private BTreePersistentIndexedCache<K, V> cache;
+    // Volatile as the cache may be used by several threads, when the cache access locks on demand
+    private volatile BTreePersistentIndexedCache<K, V> cache;
 
     public DefaultMultiProcessSafePersistentIndexedCache(Factory<BTreePersistentIndexedCache<K, V>> factory, FileAccess fileAccess) {
         this.factory = factory;
@@ -30,11 +32,12 @@ public class DefaultMultiProcessSafePersistentIndexedCache<K, V> implements Mult
     }
 
     public V get(final K key) {
-        final PersistentIndexedCache<K, V> cache = getCache();
+        getCache();
         try {
             return fileAccess.readFile(new Factory<V>() {
                 public V create() {
-                    return cache.get(key);
+                    // Look up the cache again while the file is locked, in case it has been closed by another thread
+                    return getCache().get(key);
                 }
             });
         } catch (FileIntegrityViolationException e) {
@@ -43,23 +46,35 @@ public class DefaultMultiProcessSafePersistentIndexedCache<K, V> implements Mult
     }
 
     public void put(final K key, final V value) {
-        final PersistentIndexedCache<K, V> cache = getCache();
+        getCache();
         // Use writeFile because the cache can internally recover from datafile
         // corruption, so we don't care at this level if it's corrupt
         fileAccess.writeFile(new Runnable() {
             public void run() {
-                cache.put(key, value);
+                getCache().put(key, value);
             }
         });
     }
 
     public void remove(final K key) {
-        final PersistentIndexedCache<K, V> cache = getCache();
+        getCache();
         // Use writeFile because the cache can internally recover from datafile
         // corruption, so we don't care at this level if it's corrupt
         fileAccess.writeFile(new Runnable() {
             public void run() {
-                cache.remove(key);
+                getCache().remove(key);
+            }
+        });
+    }
+
+    /**
+     * Adds or removes each of the given entries using a single write to the cache. An entry with a null value is removed.
+     */
+    public void putAll(final Map<K, V> entries) {
+        getCache();
+        fileAccess.writeFile(new Runnable() {
+            public void run() {
+                getCache().putAll(entries);
             }
         });
     }
@@ -84,13 +99,15 @@ public class DefaultMultiProcessSafePersistentIndexedCache<K, V> implements Mult
         }
     }
 
-    private PersistentIndexedCache<K, V> getCache() {
+    private BTreePersistentIndexedCache<K, V> getCache() {
         if (cache == null) {
             // Use writeFile because the cache can internally recover from datafile
             // corruption, so we don't care at this level if it's corrupt
             fileAccess.writeFile(new Runnable() {
                 public void run() {
-                    cache = factory.create();
+                    if (cache == null) {
+                        cache = factory.create();
+                    }
                 }
             });
         }
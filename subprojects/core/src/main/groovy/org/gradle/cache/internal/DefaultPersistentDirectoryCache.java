@@ -19,6 +19,7 @@ import org.gradle.api.Action;
 import org.gradle.cache.CacheValidator;
 import org.gradle.cache.PersistentCache;
 import org.gradle.cache.internal.filelock.LockOptions;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.util.GFileUtils;
 import org.gradle.util.GUtil;
 import org.slf4j.Logger;
@@ -36,8 +37,8 @@ public class DefaultPersistentDirectoryCache extends DefaultPersistentDirectoryS
     private final CacheValidator validator;
     private boolean didRebuild;
 
-    public DefaultPersistentDirectoryCache(File dir, String displayName, CacheValidator validator, Map<String, ?> properties, LockOptions lockOptions, Action<? super PersistentCache> initAction, FileLockManager lockManager) {
-        super(dir, displayName, lockOptions, lockManager);
+    public DefaultPersistentDirectoryCache(File dir, String displayName, CacheValidator validator, Map<String, ?> properties, LockOptions lockOptions, Action<? super PersistentCache> initAction, FileLockManager lockManager, ExecutorFactory executorFactory) {
+        super(dir, displayName, lockOptions, lockManager, executorFactory);
         this.validator = validator;
         this.initAction = initAction;
         propertiesFile = new File(dir, "cache.properties");
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.cache.internal;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Holds the changes made to a cache in memory and writes them to the backing cache in batches. Repeated changes to the same key are merged,
+ * and each batch is written in index order using a single write to the cache, see {@link DefaultMultiProcessSafePersistentIndexedCache#putAll(Map)}.
+ *
+ * <p>Changes are held in a number of stripes, so that threads changing different keys do not contend with each other. Making a change does not
+ * require the cache lock. The pending changes are written by the owner of the cache lock: from a background thread once {@link #BATCH_SIZE}
+ * changes are pending, see {@link DefaultCacheAccess}, and when the cache is closed, which happens before the file lock is released.</p>
+ */
+class WriteBehindPersistentIndexedCache<K, V> implements MultiProcessSafePersistentIndexedCache<K, V> {
+    static final int BATCH_SIZE = 500;
+    private static final int STRIPES = 16;
+    private final DefaultMultiProcessSafePersistentIndexedCache<K, V> delegate;
+    private final Runnable writeRequest;
+    private final List<Map<K, PendingChange<V>>> stripes = new ArrayList<Map<K, PendingChange<V>>>(STRIPES);
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicBoolean writeRequested = new AtomicBoolean();
+
+    /**
+     * @param writeRequest Called when enough changes are pending that they should be written.
+     */
+    WriteBehindPersistentIndexedCache(DefaultMultiProcessSafePersistentIndexedCache<K, V> delegate, Runnable writeRequest) {
+        this.delegate = delegate;
+        this.writeRequest = writeRequest;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes.add(new HashMap<K, PendingChange<V>>());
+        }
+    }
+
+    public V get(K key) {
+        Map<K, PendingChange<V>> stripe = stripe(key);
+        PendingChange<V> pending;
+        synchronized (stripe) {
+            pending = stripe.get(key);
+        }
+        if (pending != null) {
+            return pending.value;
+        }
+        return delegate.get(key);
+    }
+
+    public void put(K key, V value) {
+        addPending(key, value);
+    }
+
+    public void remove(K key) {
+        addPending(key, null);
+    }
+
+    private void addPending(K key, V value) {
+        Map<K, PendingChange<V>> stripe = stripe(key);
+        int count;
+        synchronized (stripe) {
+            if (stripe.put(key, new PendingChange<V>(value)) != null) {
+                return;
+            }
+            count = pendingCount.incrementAndGet();
+        }
+        if (count >= BATCH_SIZE && writeRequested.compareAndSet(false, true)) {
+            writeRequest.run();
+        }
+    }
+
+    boolean hasPendingChanges() {
+        return pendingCount.get() > 0;
+    }
+
+    /**
+     * Writes the pending changes to the backing cache. Must be called by the owner of the cache lock. A change is discarded only once it has
+     * been written, so that it can still be read in the meantime. A change made to a key while it is being written replaces its pending change,
+     * even when the same value instance is put again, and remains pending.
+     */
+    void flush() {
+        writeRequested.set(false);
+        Map<K, PendingChange<V>> written = new HashMap<K, PendingChange<V>>();
+        for (Map<K, PendingChange<V>> stripe : stripes) {
+            synchronized (stripe) {
+                written.putAll(stripe);
+            }
+        }
+        if (written.isEmpty()) {
+            return;
+        }
+
+        Map<K, V> batch = new HashMap<K, V>(written.size());
+        for (Map.Entry<K, PendingChange<V>> entry : written.entrySet()) {
+            batch.put(entry.getKey(), entry.getValue().value);
+        }
+        delegate.putAll(batch);
+
+        for (Map.Entry<K, PendingChange<V>> entry : written.entrySet()) {
+            Map<K, PendingChange<V>> stripe = stripe(entry.getKey());
+            synchronized (stripe) {
+                if (stripe.get(entry.getKey()) == entry.getValue()) {
+                    stripe.remove(entry.getKey());
+                    pendingCount.decrementAndGet();
+                }
+            }
+        }
+    }
+
+    public void close() {
+        try {
+            flush();
+        } finally {
+            delegate.close();
+        }
+    }
+
+    public void onStartWork(String operationDisplayName, FileLock.State currentCacheState) {
+        delegate.onStartWork(operationDisplayName, currentCacheState);
+    }
+
+    public void onEndWork(FileLock.State currentCacheState) {
+        delegate.onEndWork(currentCacheState);
+    }
+
+    private Map<K, PendingChange<V>> stripe(K key) {
+        return stripes.get((key.hashCode() & Integer.MAX_VALUE) % STRIPES);
+    }
+
+    /**
+     * A single put or remove. Each change gets its own instance, so that a write in progress can tell whether the key has been changed since.
+     */
+    private static class PendingChange<V> {
+        /**
+         * The new value, or null when the key has been removed.
+         */
+        final V value;
+
+        PendingChange(V value) {
+            this.value = value;
+        }
+    }
+}
@@ -56,12 +56,17 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
 
     public BTreePersistentIndexedCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer,
                                        short maxChildIndexEntries, int maxFreeListEntries) {
+        this(cacheFile, MappedFileBlockStore.isEnabled() ? new MappedFileBlockStore(cacheFile) : new FileBackedBlockStore(cacheFile), keySerializer, valueSerializer, maxChildIndexEntries, maxFreeListEntries);
+    }
+
+    BTreePersistentIndexedCache(File cacheFile, FileBackedBlockStore fileStore, Serializer<K> keySerializer, Serializer<V> valueSerializer,
+                                short maxChildIndexEntries, int maxFreeListEntries) {
         this.cacheFile = cacheFile;
         this.keySerializer = keySerializer;
         this.serializer = valueSerializer;
         this.maxChildIndexEntries = maxChildIndexEntries;
         this.minIndexChildNodes = maxChildIndexEntries / 2;
-        BlockStore cachingStore = new CachingBlockStore(new FileBackedBlockStore(cacheFile), IndexBlock.class, FreeListBlockStore.FreeListBlock.class);
+        BlockStore cachingStore = new CachingBlockStore(fileStore, IndexBlock.class, FreeListBlockStore.FreeListBlock.class);
         store = new StateCheckBlockStore(new FreeListBlockStore(cachingStore, maxFreeListEntries));
         try {
             open();
@@ -131,25 +136,7 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
 
     public void put(K key, V value) {
         try {
-            MessageDigestStream digestStream = new MessageDigestStream();
-            KryoBackedEncoder encoder = new KryoBackedEncoder(digestStream);
-            keySerializer.write(encoder, key);
-            encoder.flush();
-            long hashCode = digestStream.getChecksum();
-            Lookup lookup = header.getRoot().find(hashCode);
-            boolean needNewBlock = true;
-            if (lookup.entry != null) {
-                DataBlock block = store.read(lookup.entry.dataBlock, DataBlock.class);
-                needNewBlock = !block.useNewValue(value);
-                if (needNewBlock) {
-                    store.remove(block);
-                }
-            }
-            if (needNewBlock) {
-                DataBlock block = new DataBlock(value);
-                store.write(block);
-                lookup.indexBlock.put(hashCode, block.getPos());
-            }
+            doPut(hashKey(key), value);
             store.flush();
         } catch (Exception e) {
             throw new UncheckedIOException(String.format("Could not add entry '%s' to %s.", key, this), e);
@@ -158,19 +145,74 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
 
     public void remove(K key) {
         try {
-            Lookup lookup = header.getRoot().find(key);
-            if (lookup.entry == null) {
-                return;
-            }
-            lookup.indexBlock.remove(lookup.entry);
-            DataBlock block = store.read(lookup.entry.dataBlock, DataBlock.class);
-            store.remove(block);
+            doRemove(hashKey(key));
             store.flush();
         } catch (Exception e) {
             throw new UncheckedIOException(String.format("Could not remove entry '%s' from %s.", key, this), e);
         }
     }
 
+    /**
+     * Adds or removes each of the given entries. An entry with a null value is removed. The entries are applied in index order and the changes
+     * are flushed once, rather than once per entry, so that an index block that is touched by several entries is written only once.
+     */
+    public void putAll(Map<K, V> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        try {
+            SortedMap<Long, V> changes = new TreeMap<Long, V>();
+            for (Map.Entry<K, V> entry : entries.entrySet()) {
+                changes.put(hashKey(entry.getKey()), entry.getValue());
+            }
+            for (Map.Entry<Long, V> change : changes.entrySet()) {
+                if (change.getValue() == null) {
+                    doRemove(change.getKey());
+                } else {
+                    doPut(change.getKey(), change.getValue());
+                }
+            }
+            store.flush();
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not update %s entries of %s.", entries.size(), this), e);
+        }
+    }
+
+    private void doPut(long hashCode, V value) throws Exception {
+        Lookup lookup = header.getRoot().find(hashCode);
+        boolean needNewBlock = true;
+        if (lookup.entry != null) {
+            DataBlock block = store.read(lookup.entry.dataBlock, DataBlock.class);
+            needNewBlock = !block.useNewValue(value);
+            if (needNewBlock) {
+                store.remove(block);
+            }
+        }
+        if (needNewBlock) {
+            DataBlock block = new DataBlock(value);
+            store.write(block);
+            lookup.indexBlock.put(hashCode, block.getPos());
+        }
+    }
+
+    private void doRemove(long hashCode) throws Exception {
+        Lookup lookup = header.getRoot().find(hashCode);
+        if (lookup.entry == null) {
+            return;
+        }
+        lookup.indexBlock.remove(lookup.entry);
+        DataBlock block = store.read(lookup.entry.dataBlock, DataBlock.class);
+        store.remove(block);
+    }
+
+    private long hashKey(K key) throws Exception {
+        MessageDigestStream digestStream = new MessageDigestStream();
+        KryoBackedEncoder encoder = new KryoBackedEncoder(digestStream);
+        keySerializer.write(encoder, key);
+        encoder.flush();
+        return digestStream.getChecksum();
+    }
+
     private IndexBlock load(BlockPointer pos, IndexRoot root, IndexBlock parent, int index) {
         IndexBlock block = store.read(pos, IndexBlock.class);
         block.root = root;
@@ -449,12 +491,7 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
         }
 
         public Lookup find(K key) throws Exception {
-            MessageDigestStream digestStream = new MessageDigestStream();
-            KryoBackedEncoder encoder = new KryoBackedEncoder(digestStream);
-            keySerializer.write(encoder, key);
-            encoder.flush();
-            long checksum = digestStream.getChecksum();
-            return find(checksum);
+            return find(hashKey(key));
         }
 
         private Lookup find(long hashCode) throws Exception {
@@ -62,6 +62,22 @@ public class FileBackedBlockStore implements BlockStore {
         }
     }
 
+    /**
+     * Returns a stream that reads the file starting at the given position.
+     */
+    protected InputStream openInput(RandomAccessFile file, long pos) throws IOException {
+        file.seek(pos);
+        return new BufferedInputStream(new RandomAccessFileInputStream(file));
+    }
+
+    /**
+     * Returns a stream that writes the file starting at the given position. The file has already been extended to include the written bytes.
+     */
+    protected OutputStream openOutput(RandomAccessFile file, long pos) throws IOException {
+        file.seek(pos);
+        return new BufferedOutputStream(new RandomAccessFileOutputStream(file));
+    }
+
     public void clear() {
         try {
             file.setLength(0);
@@ -175,19 +191,22 @@ public class FileBackedBlockStore implements BlockStore {
 
         public void write() throws Exception {
             long pos = getPos().getPos();
-            file.seek(pos);
+            BlockPayload payload = getPayload();
+            long finalSize = pos + HEADER_SIZE + TAIL_SIZE + payloadSize;
 
-            CountingOutputStream countingOutputStream = new CountingOutputStream(new BufferedOutputStream(
-                new RandomAccessFileOutputStream(file)));
-            DataOutputStream outputStream = new DataOutputStream(countingOutputStream);
+            // Pad
+            if (currentFileSize < finalSize) {
+                file.setLength(finalSize);
+                currentFileSize = finalSize;
+            }
 
-            BlockPayload payload = getPayload();
+            CountingOutputStream countingOutputStream = new CountingOutputStream(openOutput(file, pos));
+            DataOutputStream outputStream = new DataOutputStream(countingOutputStream);
 
             // Write header
             outputStream.writeByte(BLOCK_MARKER);
             outputStream.writeByte(payload.getType());
             outputStream.writeInt(payloadSize);
-            long finalSize = pos + HEADER_SIZE + TAIL_SIZE + payloadSize;
 
             // Write body
             payload.write(outputStream);
@@ -195,12 +214,6 @@ public class FileBackedBlockStore implements BlockStore {
             // Write count
             outputStream.writeLong(countingOutputStream.getCount());
             outputStream.close();
-
-            // Pad
-            if (currentFileSize < finalSize) {
-                file.setLength(finalSize);
-                currentFileSize = finalSize;
-            }
         }
 
         public void read() throws Exception {
@@ -209,10 +222,8 @@ public class FileBackedBlockStore implements BlockStore {
             if (pos + HEADER_SIZE >= currentFileSize) {
                 throw blockCorruptedException();
             }
-            file.seek(pos);
 
-            CountingInputStream countingInputStream = new CountingInputStream(new BufferedInputStream(
-                    new RandomAccessFileInputStream(file)));
+            CountingInputStream countingInputStream = new CountingInputStream(openInput(file, pos));
             DataInputStream inputStream = new DataInputStream(countingInputStream);
 
             BlockPayload payload = getPayload();
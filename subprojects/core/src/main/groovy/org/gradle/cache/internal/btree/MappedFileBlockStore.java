@@ -0,0 +1,230 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.btree;
+
+import org.gradle.internal.os.OperatingSystem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A {@link FileBackedBlockStore} that reads and writes blocks through memory mapped regions of the file, rather than seeking and reading the file for
+ * each block. Uses the same file format as {@link FileBackedBlockStore}.
+ *
+ * <p>The file is mapped in fixed size regions, of which only a bounded number of the most recently used are kept. A region at the end of the file is
+ * mapped again when the file grows. Regions that are evicted or mapped again are released when they are garbage collected, as a stream may still be
+ * using them. All regions are unmapped straight away when the store is closed or cleared, as no stream is in use then.</p>
+ *
+ * <p>The regions are kept only while the store is open. The store is opened each time the cache is locked and closed when the lock is released,
+ * and only this store changes the file while the lock is held, so the regions never outlive a change made by something else. Accessing a region
+ * past the end of a file truncated by something else would crash the process.</p>
+ *
+ * <p>Mapping is not supported on Windows, where a mapped file cannot be truncated or deleted until the buffer is garbage collected.</p>
+ */
+public class MappedFileBlockStore extends FileBackedBlockStore {
+    public static final String MAPPED_BLOCK_STORE_TOGGLE = "org.gradle.cache.mapped";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MappedFileBlockStore.class);
+
+    private static final int DEFAULT_REGION_SIZE = 1024 * 1024;
+    private static final int DEFAULT_MAX_REGIONS = 64;
+
+    private final int regionSize;
+    private final Map<Long, MappedByteBuffer> regions;
+
+    public MappedFileBlockStore(File cacheFile) {
+        this(cacheFile, DEFAULT_REGION_SIZE, DEFAULT_MAX_REGIONS);
+    }
+
+    MappedFileBlockStore(File cacheFile, int regionSize, final int maxRegions) {
+        super(cacheFile);
+        this.regionSize = regionSize;
+        this.regions = new LinkedHashMap<Long, MappedByteBuffer>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, MappedByteBuffer> eldest) {
+                return size() > maxRegions;
+            }
+        };
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(MAPPED_BLOCK_STORE_TOGGLE) && !OperatingSystem.current().isWindows();
+    }
+
+    @Override
+    public void open(Runnable initAction, Factory factory) {
+        // The file may have been changed while the store was closed
+        unmapAll();
+        super.open(initAction, factory);
+    }
+
+    @Override
+    public void close() {
+        unmapAll();
+        super.close();
+    }
+
+    @Override
+    public void clear() {
+        unmapAll();
+        super.clear();
+    }
+
+    @Override
+    protected InputStream openInput(RandomAccessFile file, long pos) throws IOException {
+        return new RegionInputStream(file.getChannel(), pos);
+    }
+
+    @Override
+    protected OutputStream openOutput(RandomAccessFile file, long pos) throws IOException {
+        return new RegionOutputStream(file.getChannel(), pos);
+    }
+
+    private void unmapAll() {
+        for (MappedByteBuffer region : new ArrayList<MappedByteBuffer>(regions.values())) {
+            unmap(region);
+        }
+        regions.clear();
+    }
+
+    /**
+     * Releases the given region, if the jvm allows it. Otherwise the region is released when it is garbage collected. The region, and any duplicate
+     * of it, must not be used afterwards, as accessing an unmapped region crashes the process.
+     */
+    private static void unmap(MappedByteBuffer region) {
+        try {
+            Method cleanerMethod = region.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(region);
+            if (cleaner != null) {
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (Exception e) {
+            LOGGER.debug("Could not unmap memory mapped region.", e);
+        }
+    }
+
+    /**
+     * Returns the region containing the given position, positioned at that position, or null when the position is past the end of the file.
+     */
+    private ByteBuffer region(FileChannel channel, long pos) throws IOException {
+        long index = pos / regionSize;
+        int offset = (int) (pos % regionSize);
+        MappedByteBuffer region = regions.get(index);
+        if (region == null || offset >= region.limit()) {
+            long start = index * regionSize;
+            long length = Math.min(regionSize, channel.size() - start);
+            if (length <= offset) {
+                return null;
+            }
+            region = channel.map(FileChannel.MapMode.READ_WRITE, start, length);
+            regions.put(index, region);
+        }
+        ByteBuffer buffer = region.duplicate();
+        buffer.position(offset);
+        return buffer;
+    }
+
+    private class RegionInputStream extends InputStream {
+        private final FileChannel channel;
+        private long pos;
+        private ByteBuffer buffer;
+
+        RegionInputStream(FileChannel channel, long pos) {
+            this.channel = channel;
+            this.pos = pos;
+        }
+
+        private boolean nextRegion() throws IOException {
+            if (buffer == null || !buffer.hasRemaining()) {
+                buffer = region(channel, pos);
+            }
+            return buffer != null;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!nextRegion()) {
+                return -1;
+            }
+            pos++;
+            return buffer.get() & 0xff;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (!nextRegion()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            pos += count;
+            return count;
+        }
+    }
+
+    private class RegionOutputStream extends OutputStream {
+        private final FileChannel channel;
+        private long pos;
+        private ByteBuffer buffer;
+
+        RegionOutputStream(FileChannel channel, long pos) {
+            this.channel = channel;
+            this.pos = pos;
+        }
+
+        private void nextRegion() throws IOException {
+            if (buffer == null || !buffer.hasRemaining()) {
+                buffer = region(channel, pos);
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            nextRegion();
+            buffer.put((byte) b);
+            pos++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            while (length > 0) {
+                nextRegion();
+                int count = Math.min(length, buffer.remaining());
+                buffer.put(bytes, offset, count);
+                pos += count;
+                offset += count;
+                length -= count;
+            }
+        }
+    }
+}
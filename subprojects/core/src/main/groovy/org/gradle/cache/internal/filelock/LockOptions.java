@@ -23,6 +23,12 @@ public interface LockOptions {
 
     boolean isUseCrossVersionImplementation();
 
+    /**
+     * Returns true when a thread that accesses the files of the cache without first calling {@link org.gradle.cache.CacheAccess#useCache} should
+     * lock the cache for the duration of that access, rather than fail.
+     */
+    boolean isLockOnAccess();
+
     /**
      * Creates a copy of these options with the given mode.
      */
@@ -21,14 +21,16 @@ public class LockOptionsBuilder implements LockOptions {
 
     private FileLockManager.LockMode mode;
     private boolean crossVersion;
+    private boolean lockOnAccess;
 
-    private LockOptionsBuilder(FileLockManager.LockMode mode, boolean crossVersion) {
+    private LockOptionsBuilder(FileLockManager.LockMode mode, boolean crossVersion, boolean lockOnAccess) {
         this.mode = mode;
         this.crossVersion = crossVersion;
+        this.lockOnAccess = lockOnAccess;
     }
 
     public static LockOptionsBuilder mode(FileLockManager.LockMode lockMode) {
-        return new LockOptionsBuilder(lockMode, false);
+        return new LockOptionsBuilder(lockMode, false, false);
     }
 
     public LockOptionsBuilder useCrossVersionImplementation() {
@@ -36,6 +38,11 @@ public class LockOptionsBuilder implements LockOptions {
         return this;
     }
 
+    public LockOptionsBuilder lockOnAccess() {
+        lockOnAccess = true;
+        return this;
+    }
+
     public FileLockManager.LockMode getMode() {
         return mode;
     }
@@ -44,13 +51,17 @@ public class LockOptionsBuilder implements LockOptions {
         return crossVersion;
     }
 
+    public boolean isLockOnAccess() {
+        return lockOnAccess;
+    }
+
     public LockOptions withMode(FileLockManager.LockMode mode) {
-        return new LockOptionsBuilder(mode, crossVersion);
+        return new LockOptionsBuilder(mode, crossVersion, lockOnAccess);
     }
 
     @Override
     public String toString() {
-        return mode + " (simple=" + crossVersion + ")";
+        return mode + " (simple=" + crossVersion + ", lockOnAccess=" + lockOnAccess + ")";
     }
 
     @Override
@@ -70,6 +81,9 @@ public class LockOptionsBuilder implements LockOptions {
         if (mode != that.mode) {
             return false;
         }
+        if (lockOnAccess != that.lockOnAccess) {
+            return false;
+        }
 
         return true;
     }
@@ -78,6 +92,7 @@ public class LockOptionsBuilder implements LockOptions {
     public int hashCode() {
         int result = mode.hashCode();
         result = 31 * result + (crossVersion ? 1 : 0);
+        result = 31 * result + (lockOnAccess ? 1 : 0);
         return result;
     }
 }
@@ -41,9 +41,18 @@ abstract class AbstractTaskPlanExecutor implements TaskPlanExecutor {
 
         public void run() {
             long busy = 0;
+            long waiting = 0;
+            int tasks = 0;
             long start = System.currentTimeMillis();
             TaskInfo task;
-            while ((task = taskExecutionPlan.getTaskToExecute()) != null) {
+            while (true) {
+                long startWait = System.currentTimeMillis();
+                task = taskExecutionPlan.getTaskToExecute();
+                waiting += System.currentTimeMillis() - startWait;
+                if (task == null) {
+                    break;
+                }
+                tasks++;
                 final String taskPath = task.getTask().getPath();
                 LOGGER.info("{} ({}) started.", taskPath, Thread.currentThread());
                 long startTask = System.currentTimeMillis();
@@ -55,9 +64,10 @@ abstract class AbstractTaskPlanExecutor implements TaskPlanExecutor {
                 }
             }
             long total = System.currentTimeMillis() - start;
-            //TODO SF it would be nice to print one-line statement that concludes the utilisation of the worker threads
             if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug("Task worker [{}] finished, busy: {}, idle: {}", Thread.currentThread(), prettyTime(busy), prettyTime(total - busy));
+                // Waiting includes both time spent finding the next task and time spent blocked until a task becomes ready
+                LOGGER.debug("Task worker [{}] finished, tasks: {}, busy: {}, idle: {}, waiting for next task: {}, average wait: {}ms",
+                    Thread.currentThread(), tasks, prettyTime(busy), prettyTime(total - busy), prettyTime(waiting), tasks == 0 ? 0 : waiting / tasks);
             }
         }
 
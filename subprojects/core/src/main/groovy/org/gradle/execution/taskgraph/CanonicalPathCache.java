@@ -0,0 +1,51 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.internal.cache.HeapProportionalSizer;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Caches the canonical paths of task output files. Lives as long as the build process, so that a daemon reuses the paths across builds.
+ *
+ * <p>The canonical path of a file only changes when a symbolic link on the path changes, which is not expected to happen for task outputs
+ * while a daemon is running.</p>
+ */
+public class CanonicalPathCache {
+    private final Cache<File, String> canonicalPaths = CacheBuilder.newBuilder()
+        .maximumSize(new HeapProportionalSizer().scaleValue(50000))
+        .build();
+
+    public String getCanonicalPath(File file) {
+        File absoluteFile = file.getAbsoluteFile();
+        String path = canonicalPaths.getIfPresent(absoluteFile);
+        if (path == null) {
+            try {
+                path = absoluteFile.getCanonicalPath();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            canonicalPaths.put(absoluteFile, path);
+        }
+        return path;
+    }
+}
@@ -18,7 +18,6 @@ package org.gradle.execution.taskgraph;
 
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
-import com.google.common.base.StandardSystemProperty;
 import com.google.common.collect.*;
 import org.gradle.api.*;
 import org.gradle.api.internal.TaskInternal;
@@ -40,10 +39,8 @@ import org.gradle.internal.graph.DirectedGraphRenderer;
 import org.gradle.internal.graph.GraphNodeRenderer;
 import org.gradle.logging.StyledTextOutput;
 import org.gradle.util.CollectionUtils;
-import org.gradle.util.TextUtil;
 
 import java.io.File;
-import java.io.IOException;
 import java.io.StringWriter;
 import java.util.*;
 import java.util.concurrent.locks.Condition;
@@ -57,11 +54,13 @@ import java.util.concurrent.locks.ReentrantLock;
 public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
 
     public static final String INTRA_PROJECT_TOGGLE = "org.gradle.parallel.intra";
+    public static final String READY_QUEUE_TOGGLE = "org.gradle.parallel.readyQueue";
 
     private final static Logger LOGGER = Logging.getLogger(DefaultTaskExecutionPlan.class);
 
     private final Lock lock = new ReentrantLock();
     private final Condition condition = lock.newCondition();
+    private final Condition completion = lock.newCondition();
     private final Set<TaskInfo> tasksInUnknownState = new LinkedHashSet<TaskInfo>();
     private final Set<TaskInfo> entryTasks = new LinkedHashSet<TaskInfo>();
     private final TaskDependencyGraph graph = new TaskDependencyGraph();
@@ -75,23 +74,42 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
     private final Multiset<String> projectsWithRunningTasks = HashMultiset.create();
     private final Multiset<String> projectsWithRunningNonParallelizableTasks = HashMultiset.create();
     private final Set<TaskInternal> runningTasks = Sets.newIdentityHashSet();
+    private final Set<TaskInternal> unindexedRunningTasks = Sets.newIdentityHashSet();
+    private final PathTrie<TaskInternal> runningTaskOutputs = new PathTrie<TaskInternal>();
     private final Map<Task, Set<String>> canonicalizedOutputCache = Maps.newIdentityHashMap();
     private final Map<Task, Boolean> isParallelSafeCache = Maps.newIdentityHashMap();
     private boolean tasksCancelled;
 
     private final boolean intraProjectParallelization;
+    private final boolean useReadyQueue;
+    private final CanonicalPathCache canonicalPathCache;
+    private ReadyTaskQueue readyQueue;
 
-    public DefaultTaskExecutionPlan(BuildCancellationToken cancellationToken, boolean intraProjectParallelization) {
+    public DefaultTaskExecutionPlan(BuildCancellationToken cancellationToken, CanonicalPathCache canonicalPathCache, boolean intraProjectParallelization, boolean useReadyQueue) {
         this.cancellationToken = cancellationToken;
+        this.canonicalPathCache = canonicalPathCache;
         this.intraProjectParallelization = intraProjectParallelization;
+        this.useReadyQueue = useReadyQueue;
 
         if (intraProjectParallelization) {
             LOGGER.info("intra project task parallelization is enabled");
         }
     }
 
+    public DefaultTaskExecutionPlan(BuildCancellationToken cancellationToken, boolean intraProjectParallelization, boolean useReadyQueue) {
+        this(cancellationToken, new CanonicalPathCache(), intraProjectParallelization, useReadyQueue);
+    }
+
+    public DefaultTaskExecutionPlan(BuildCancellationToken cancellationToken, boolean intraProjectParallelization) {
+        this(cancellationToken, intraProjectParallelization, false);
+    }
+
+    public DefaultTaskExecutionPlan(BuildCancellationToken cancellationToken, CanonicalPathCache canonicalPathCache) {
+        this(cancellationToken, canonicalPathCache, Boolean.getBoolean(INTRA_PROJECT_TOGGLE), Boolean.getBoolean(READY_QUEUE_TOGGLE));
+    }
+
     public DefaultTaskExecutionPlan(BuildCancellationToken cancellationToken) {
-        this(cancellationToken, Boolean.getBoolean(INTRA_PROJECT_TOGGLE));
+        this(cancellationToken, new CanonicalPathCache());
     }
 
     public void addToTaskGraph(Collection<? extends Task> tasks) {
@@ -307,6 +325,13 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         }
         executionQueue.clear();
         executionQueue.addAll(executionPlan.values());
+        if (useReadyQueue) {
+            readyQueue = new ReadyTaskQueue(executionQueue, new Predicate<TaskInternal>() {
+                public boolean apply(TaskInternal task) {
+                    return isParallelizable(task);
+                }
+            });
+        }
     }
 
     private void maybeRemoveProcessedShouldRunAfterEdge(Stack<GraphEdge> walkedShouldRunAfterEdges, TaskInfo taskNode) {
@@ -434,6 +459,9 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
             canonicalizedOutputCache.clear();
             isParallelSafeCache.clear();
             runningTasks.clear();
+            unindexedRunningTasks.clear();
+            runningTaskOutputs.clear();
+            readyQueue = null;
         } finally {
             lock.unlock();
         }
@@ -454,6 +482,9 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
     public TaskInfo getTaskToExecute() {
         lock.lock();
         try {
+            if (readyQueue != null) {
+                return getTaskToExecuteFromReadyQueue();
+            }
             while (true) {
                 if (cancellationToken.isCancellationRequested()) {
                     if (abortExecution()) {
@@ -489,6 +520,7 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
                     } else {
                         nextMatching.skipExecution();
                         condition.signalAll();
+                        completion.signalAll();
                     }
                 }
             }
@@ -497,6 +529,79 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         }
     }
 
+    private TaskInfo getTaskToExecuteFromReadyQueue() {
+        while (true) {
+            if (cancellationToken.isCancellationRequested()) {
+                if (abortExecution()) {
+                    tasksCancelled = true;
+                    completion.signalAll();
+                }
+            }
+            if (readyQueue.isComplete()) {
+                return null;
+            }
+            TaskInfo nextMatching = null;
+            TaskInfo candidate = readyQueue.getFirstCandidate();
+            if (candidate != null) {
+                if (!readyQueue.isBlocked(candidate)) {
+                    if (firstTaskWithOverlappingOutput(candidate.getTask()) == null) {
+                        nextMatching = candidate;
+                    } else {
+                        readyQueue.markBlocked(candidate);
+                    }
+                }
+                if (nextMatching == null) {
+                    // Fall back to looking at the other ready tasks in plan order, as a later task may not overlap
+                    for (TaskInfo taskInfo : readyQueue.getReadyTasks()) {
+                        if (readyQueue.isBlocked(taskInfo)) {
+                            continue;
+                        }
+                        if (canRunWithWithCurrentlyExecutedTasks(taskInfo)) {
+                            nextMatching = taskInfo;
+                            break;
+                        }
+                        readyQueue.markBlocked(taskInfo);
+                    }
+                }
+            }
+            if (nextMatching == null) {
+                try {
+                    condition.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            } else if (nextMatching.allDependenciesSuccessful()) {
+                nextMatching.startExecution();
+                recordTaskStarted(nextMatching);
+                readyQueue.taskStarted(nextMatching);
+                if (readyQueue.getFirstCandidate() != null) {
+                    // Another task of the same project may now be able to start alongside this one
+                    condition.signal();
+                }
+                return nextMatching;
+            } else {
+                nextMatching.skipExecution();
+                readyQueue.taskSkipped(nextMatching);
+                signalWorkers();
+                completion.signalAll();
+            }
+        }
+    }
+
+    /**
+     * Wakes up one waiting worker for each project that has a task that may start, or all workers when there are no more tasks to start.
+     * A worker that starts a task wakes up another worker when further tasks may start.
+     */
+    private void signalWorkers() {
+        if (readyQueue.isEmpty()) {
+            condition.signalAll();
+            return;
+        }
+        for (int i = 0; i < readyQueue.getCandidateCount(); i++) {
+            condition.signal();
+        }
+    }
+
     private boolean canRunWithWithCurrentlyExecutedTasks(TaskInfo taskInfo) {
         TaskInternal task = taskInfo.getTask();
         String projectPath = task.getProject().getPath();
@@ -524,18 +629,10 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
     private Set<String> canonicalizedOutputPaths(TaskInternal task) {
         Set<String> paths = canonicalizedOutputCache.get(task);
         if (paths == null) {
-            paths = Sets.newHashSet(Iterables.transform(task.getOutputs().getFiles(), new Function<File, String>() {
-                @Override
-                public String apply(File file) {
-                    String path;
-                    try {
-                        path = file.getCanonicalPath();
-                    } catch (IOException e) {
-                        throw new UncheckedIOException(e);
-                    }
-                    return path;
-                }
-            }));
+            paths = Sets.newHashSet();
+            for (File file : task.getOutputs().getFiles()) {
+                paths.add(canonicalPathCache.getCanonicalPath(file));
+            }
             canonicalizedOutputCache.put(task, paths);
         }
 
@@ -548,35 +645,22 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
             return null;
         }
 
-        for (String candidateTaskOutputPath : canonicalizedOutputPaths(candidateTask)) {
-            for (TaskInternal runningTask : runningTasks) {
-                for (String runningTaskOutputPath : canonicalizedOutputPaths(runningTask)) {
-                    if (pathsOverlap(candidateTaskOutputPath, runningTaskOutputPath)) {
-                        return Pair.of(runningTask, TextUtil.shorterOf(candidateTaskOutputPath, runningTaskOutputPath));
-                    }
-                }
+        // Outputs of running tasks are only indexed once there is a candidate to check them against, so that serial execution does not resolve them
+        for (TaskInternal runningTask : unindexedRunningTasks) {
+            for (String path : canonicalizedOutputPaths(runningTask)) {
+                runningTaskOutputs.add(path, runningTask);
             }
         }
+        unindexedRunningTasks.clear();
 
-        return null;
-    }
-
-
-    private boolean pathsOverlap(String firstPath, String secondPath) {
-        if (firstPath.equals(secondPath)) {
-            return true;
+        for (String candidateTaskOutputPath : canonicalizedOutputPaths(candidateTask)) {
+            Pair<TaskInternal, String> overlap = runningTaskOutputs.findOverlapping(candidateTaskOutputPath);
+            if (overlap != null) {
+                return overlap;
+            }
         }
 
-        String shorter;
-        String longer;
-        if (firstPath.length() > secondPath.length()) {
-            shorter = secondPath;
-            longer = firstPath;
-        } else {
-            shorter = firstPath;
-            longer = secondPath;
-        }
-        return longer.startsWith(shorter + StandardSystemProperty.FILE_SEPARATOR.value());
+        return null;
     }
 
     boolean isParallelizable(TaskInternal task) {
@@ -613,6 +697,7 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         }
         projectsWithRunningTasks.add(projectPath);
         runningTasks.add(task);
+        unindexedRunningTasks.add(task);
     }
 
     private void recordTaskCompleted(TaskInfo taskInfo) {
@@ -622,6 +707,11 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
             projectsWithRunningNonParallelizableTasks.remove(projectPath);
         }
         projectsWithRunningTasks.remove(projectPath);
+        if (!unindexedRunningTasks.remove(task)) {
+            for (String path : canonicalizedOutputPaths(task)) {
+                runningTaskOutputs.remove(path, task);
+            }
+        }
         canonicalizedOutputCache.remove(task);
         isParallelSafeCache.remove(task);
         runningTasks.remove(task);
@@ -630,40 +720,57 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
     public void taskComplete(TaskInfo taskInfo) {
         lock.lock();
         try {
-            enforceFinalizerTasks(taskInfo);
+            boolean enforcedTasks = enforceFinalizerTasks(taskInfo);
+            if (enforcedTasks && readyQueue != null) {
+                readyQueue.rebuild();
+            }
             if (taskInfo.isFailed()) {
                 handleFailure(taskInfo);
             }
 
             taskInfo.finishExecution();
             recordTaskCompleted(taskInfo);
-            condition.signalAll();
+            if (readyQueue != null) {
+                readyQueue.taskCompleted(taskInfo);
+                signalWorkers();
+            } else {
+                condition.signalAll();
+            }
+            completion.signalAll();
         } finally {
             lock.unlock();
         }
     }
 
-    private void enforceFinalizerTasks(TaskInfo taskInfo) {
+    /**
+     * Returns true if any task that was not going to run is now going to run.
+     */
+    private boolean enforceFinalizerTasks(TaskInfo taskInfo) {
+        boolean changed = false;
         for (TaskInfo finalizerNode : taskInfo.getFinalizers()) {
             if (finalizerNode.isRequired() || finalizerNode.isMustNotRun()) {
-                enforceWithDependencies(finalizerNode, Sets.<TaskInfo>newHashSet());
+                changed |= enforceWithDependencies(finalizerNode, Sets.<TaskInfo>newHashSet());
             }
         }
+        return changed;
     }
 
-    private void enforceWithDependencies(TaskInfo node, Set<TaskInfo> enforcedTasks) {
+    private boolean enforceWithDependencies(TaskInfo node, Set<TaskInfo> enforcedTasks) {
         if (enforcedTasks.contains(node)) {
-            return;
+            return false;
         }
 
         enforcedTasks.add(node);
 
+        boolean changed = false;
         for (TaskInfo dependencyNode : node.getDependencySuccessors()) {
-            enforceWithDependencies(dependencyNode, enforcedTasks);
+            changed |= enforceWithDependencies(dependencyNode, enforcedTasks);
         }
         if (node.isMustNotRun() || node.isRequired()) {
+            changed |= node.isMustNotRun();
             node.enforceRun();
         }
+        return changed;
     }
 
     private void handleFailure(TaskInfo taskInfo) {
@@ -695,6 +802,9 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
                 aborted = true;
             }
         }
+        if (aborted && readyQueue != null) {
+            readyQueue.rebuild();
+        }
         return aborted;
     }
 
@@ -703,7 +813,7 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         try {
             while (!allTasksComplete()) {
                 try {
-                    condition.await();
+                    completion.await();
                 } catch (InterruptedException e) {
                     throw new RuntimeException(e);
                 }
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.gradle.api.Nullable;
+import org.gradle.internal.Pair;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A trie of file paths, keyed on path segments, where each path is owned by one or more values. Finds an owned path that is the same as, an ancestor
+ * of or a descendant of a given path in time proportional to the depth of the path.
+ *
+ * <p>Paths are expected to be canonical. This class is not thread-safe.</p>
+ */
+class PathTrie<T> {
+    private static final Splitter SEGMENTS = Splitter.on(File.separatorChar).omitEmptyStrings();
+
+    private final Node<T> root = new Node<T>(null, null);
+
+    void add(String path, T owner) {
+        Node<T> node = root;
+        node.ownedPathsInSubtree++;
+        for (String segment : SEGMENTS.split(path)) {
+            Node<T> child = node.children.get(segment);
+            if (child == null) {
+                child = new Node<T>(node, segment);
+                node.children.put(segment, child);
+            }
+            node = child;
+            node.ownedPathsInSubtree++;
+        }
+        node.path = path;
+        node.owners.add(owner);
+    }
+
+    void remove(String path, T owner) {
+        Node<T> node = find(path);
+        if (node == null || !node.owners.remove(owner)) {
+            return;
+        }
+        while (node != null) {
+            node.ownedPathsInSubtree--;
+            if (node.ownedPathsInSubtree == 0 && node.parent != null) {
+                node.parent.children.remove(node.segment);
+            }
+            node = node.parent;
+        }
+    }
+
+    boolean isEmpty() {
+        return root.ownedPathsInSubtree == 0;
+    }
+
+    /**
+     * Returns an owner of a path that overlaps the given path, along with the shorter of the two paths, or null if there is no such path.
+     */
+    @Nullable
+    Pair<T, String> findOverlapping(String path) {
+        Node<T> node = root;
+        for (String segment : SEGMENTS.split(path)) {
+            if (!node.owners.isEmpty()) {
+                return Pair.of(node.owners.get(0), node.path);
+            }
+            node = node.children.get(segment);
+            if (node == null) {
+                return null;
+            }
+        }
+        if (node.ownedPathsInSubtree == 0) {
+            return null;
+        }
+        while (node.owners.isEmpty()) {
+            for (Node<T> child : node.children.values()) {
+                node = child;
+                break;
+            }
+        }
+        return Pair.of(node.owners.get(0), path);
+    }
+
+    void clear() {
+        root.children.clear();
+        root.owners.clear();
+        root.ownedPathsInSubtree = 0;
+    }
+
+    @Nullable
+    private Node<T> find(String path) {
+        Node<T> node = root;
+        for (String segment : SEGMENTS.split(path)) {
+            node = node.children.get(segment);
+            if (node == null) {
+                return null;
+            }
+        }
+        return node;
+    }
+
+    private static class Node<T> {
+        final Node<T> parent;
+        final String segment;
+        final Map<String, Node<T>> children = Maps.newHashMap();
+        final List<T> owners = Lists.newArrayListWithCapacity(1);
+        String path;
+        int ownedPathsInSubtree;
+
+        Node(Node<T> parent, String segment) {
+            this.parent = parent;
+            this.segment = segment;
+        }
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.gradle.api.Nullable;
+import org.gradle.api.internal.TaskInternal;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Keeps track of the tasks of an execution plan that are ready to execute, that is, tasks that should run and whose dependencies are all complete.
+ *
+ * <p>Rather than scanning the whole plan, the number of incomplete dependencies of each task is maintained as tasks complete. Ready tasks are kept
+ * in plan order per project, along with the first ready task of each project that may start given the tasks already running in that project.
+ * The next task to execute is the first of these per-project candidates.</p>
+ *
+ * <p>Ready tasks that were found unable to start alongside the running tasks can be marked as blocked. Starting a task never allows another task
+ * to start, so these are kept until a task completes rather than checked again.</p>
+ *
+ * <p>Changes to task state other than start, skip and completion of ready tasks, such as aborting execution or enforcing finalizers, require a
+ * {@link #rebuild()}. This class is not thread-safe, callers must hold the execution plan lock.</p>
+ */
+class ReadyTaskQueue {
+    private final List<TaskInfo> plan;
+    private final Predicate<TaskInternal> parallelizable;
+    private final Map<TaskInfo, Integer> planIndex = Maps.newIdentityHashMap();
+    private final ListMultimap<TaskInfo, TaskInfo> dependents = ArrayListMultimap.create();
+    private final Map<TaskInfo, Integer> incompleteDependencies = Maps.newIdentityHashMap();
+    private final Map<String, ProjectTasks> projects = Maps.newHashMap();
+    private final Set<TaskInfo> runningNonParallelizable = Sets.newIdentityHashSet();
+    private final Set<TaskInfo> blocked = Sets.newIdentityHashSet();
+    private final Comparator<TaskInfo> planOrder = new Comparator<TaskInfo>() {
+        public int compare(TaskInfo left, TaskInfo right) {
+            return planIndex.get(left).compareTo(planIndex.get(right));
+        }
+    };
+    private final TreeSet<TaskInfo> readyTasks = new TreeSet<TaskInfo>(planOrder);
+    private final TreeSet<TaskInfo> candidates = new TreeSet<TaskInfo>(planOrder);
+    private int pendingTasks;
+    private int runningTasks;
+
+    ReadyTaskQueue(List<TaskInfo> plan, Predicate<TaskInternal> parallelizable) {
+        this.plan = plan;
+        this.parallelizable = parallelizable;
+        for (TaskInfo task : plan) {
+            planIndex.put(task, planIndex.size());
+            for (TaskInfo dependency : dependencies(task)) {
+                dependents.put(dependency, task);
+            }
+        }
+        rebuild();
+    }
+
+    /**
+     * Recalculates the ready tasks from the current state of the tasks in the plan.
+     */
+    void rebuild() {
+        incompleteDependencies.clear();
+        readyTasks.clear();
+        candidates.clear();
+        blocked.clear();
+        pendingTasks = 0;
+        for (ProjectTasks projectTasks : projects.values()) {
+            projectTasks.ready.clear();
+            projectTasks.readyParallelizable.clear();
+            projectTasks.candidate = null;
+        }
+
+        for (TaskInfo task : plan) {
+            if (!task.isReady()) {
+                continue;
+            }
+            pendingTasks++;
+            int count = 0;
+            for (TaskInfo dependency : dependencies(task)) {
+                if (!dependency.isComplete()) {
+                    count++;
+                }
+            }
+            incompleteDependencies.put(task, count);
+            if (count == 0) {
+                addReady(task);
+            }
+        }
+
+        for (ProjectTasks projectTasks : projects.values()) {
+            updateCandidate(projectTasks);
+        }
+    }
+
+    /**
+     * Returns true when there are no more tasks waiting to be started.
+     */
+    boolean isEmpty() {
+        return pendingTasks == 0;
+    }
+
+    /**
+     * Returns true when there are no more tasks waiting to be started or running.
+     */
+    boolean isComplete() {
+        return pendingTasks == 0 && runningTasks == 0;
+    }
+
+    /**
+     * Returns the first ready task, in plan order, that may start given the tasks running in its project. Does not consider overlapping outputs.
+     */
+    @Nullable
+    TaskInfo getFirstCandidate() {
+        return candidates.isEmpty() ? null : candidates.first();
+    }
+
+    /**
+     * Returns the number of projects that have a task that may start.
+     */
+    int getCandidateCount() {
+        return candidates.size();
+    }
+
+    /**
+     * Returns all ready tasks in plan order, regardless of whether they may start.
+     */
+    Iterable<TaskInfo> getReadyTasks() {
+        return readyTasks;
+    }
+
+    /**
+     * Returns true if the given ready task has been marked as unable to start since the last task completed.
+     */
+    boolean isBlocked(TaskInfo task) {
+        return blocked.contains(task);
+    }
+
+    /**
+     * Marks the given ready task as unable to start until a running task completes.
+     */
+    void markBlocked(TaskInfo task) {
+        blocked.add(task);
+    }
+
+    void taskStarted(TaskInfo task) {
+        ProjectTasks projectTasks = removeReady(task);
+        runningTasks++;
+        projectTasks.running++;
+        if (!parallelizable.apply(task.getTask())) {
+            runningNonParallelizable.add(task);
+            projectTasks.runningNonParallelizable++;
+        }
+        updateCandidate(projectTasks);
+    }
+
+    void taskSkipped(TaskInfo task) {
+        updateCandidate(removeReady(task));
+        dependenciesCompleted(task);
+    }
+
+    void taskCompleted(TaskInfo task) {
+        ProjectTasks projectTasks = projectTasks(task);
+        blocked.clear();
+        runningTasks--;
+        projectTasks.running--;
+        if (runningNonParallelizable.remove(task)) {
+            projectTasks.runningNonParallelizable--;
+        }
+        updateCandidate(projectTasks);
+        dependenciesCompleted(task);
+    }
+
+    private void dependenciesCompleted(TaskInfo task) {
+        for (TaskInfo dependent : dependents.get(task)) {
+            Integer count = incompleteDependencies.get(dependent);
+            if (count == null || count == 0) {
+                continue;
+            }
+            incompleteDependencies.put(dependent, --count);
+            if (count == 0 && dependent.isReady()) {
+                ProjectTasks projectTasks = addReady(dependent);
+                updateCandidate(projectTasks);
+            }
+        }
+    }
+
+    private ProjectTasks addReady(TaskInfo task) {
+        ProjectTasks projectTasks = projectTasks(task);
+        readyTasks.add(task);
+        projectTasks.ready.add(task);
+        if (parallelizable.apply(task.getTask())) {
+            projectTasks.readyParallelizable.add(task);
+        }
+        return projectTasks;
+    }
+
+    private ProjectTasks removeReady(TaskInfo task) {
+        ProjectTasks projectTasks = projectTasks(task);
+        pendingTasks--;
+        incompleteDependencies.remove(task);
+        readyTasks.remove(task);
+        blocked.remove(task);
+        projectTasks.ready.remove(task);
+        projectTasks.readyParallelizable.remove(task);
+        return projectTasks;
+    }
+
+    private void updateCandidate(ProjectTasks projectTasks) {
+        if (projectTasks.candidate != null) {
+            candidates.remove(projectTasks.candidate);
+        }
+        projectTasks.candidate = projectTasks.firstStartableTask();
+        if (projectTasks.candidate != null) {
+            candidates.add(projectTasks.candidate);
+        }
+    }
+
+    private ProjectTasks projectTasks(TaskInfo task) {
+        String projectPath = task.getTask().getProject().getPath();
+        ProjectTasks projectTasks = projects.get(projectPath);
+        if (projectTasks == null) {
+            projectTasks = new ProjectTasks();
+            projects.put(projectPath, projectTasks);
+        }
+        return projectTasks;
+    }
+
+    private static Iterable<TaskInfo> dependencies(TaskInfo task) {
+        return Sets.newHashSet(Iterables.concat(task.getMustSuccessors(), task.getDependencySuccessors()));
+    }
+
+    private class ProjectTasks {
+        final TreeSet<TaskInfo> ready = new TreeSet<TaskInfo>(planOrder);
+        final TreeSet<TaskInfo> readyParallelizable = new TreeSet<TaskInfo>(planOrder);
+        int running;
+        int runningNonParallelizable;
+        TaskInfo candidate;
+
+        @Nullable
+        TaskInfo firstStartableTask() {
+            if (runningNonParallelizable > 0) {
+                return null;
+            }
+            TreeSet<TaskInfo> startable = running > 0 ? readyParallelizable : ready;
+            return startable.isEmpty() ? null : startable.first();
+        }
+    }
+}
@@ -38,6 +38,7 @@ import org.gradle.cache.internal.locklistener.FileLockContentionHandler;
 import org.gradle.cli.CommandLineConverter;
 import org.gradle.configuration.DefaultImportsReader;
 import org.gradle.configuration.ImportsReader;
+import org.gradle.execution.taskgraph.CanonicalPathCache;
 import org.gradle.initialization.*;
 import org.gradle.internal.Factory;
 import org.gradle.internal.classloader.ClassLoaderFactory;
@@ -141,8 +142,8 @@ public class GlobalScopeServices {
         return new DefaultPluginModuleRegistry(moduleRegistry);
     }
 
-    protected CacheFactory createCacheFactory(FileLockManager fileLockManager) {
-        return new DefaultCacheFactory(fileLockManager);
+    protected CacheFactory createCacheFactory(FileLockManager fileLockManager, ExecutorFactory executorFactory) {
+        return new DefaultCacheFactory(fileLockManager, executorFactory);
     }
 
     DefaultClassLoaderRegistry createClassLoaderRegistry(ClassPathRegistry classPathRegistry, ClassLoaderFactory classLoaderFactory) {
@@ -188,6 +189,10 @@ public class GlobalScopeServices {
         return new InMemoryTaskArtifactCache();
     }
 
+    CanonicalPathCache createCanonicalPathCache() {
+        return new CanonicalPathCache();
+    }
+
     DefaultFileLockContentionHandler createFileLockContentionHandler(ExecutorFactory executorFactory, MessagingServices messagingServices) {
         return new DefaultFileLockContentionHandler(
             executorFactory,
@@ -24,6 +24,8 @@ import org.gradle.api.internal.changedetection.changes.DefaultTaskArtifactStateR
 import org.gradle.api.internal.changedetection.changes.ShortCircuitTaskArtifactStateRepository;
 import org.gradle.api.internal.changedetection.state.*;
 import org.gradle.api.internal.hash.DefaultHasher;
+import org.gradle.api.internal.hash.Hasher;
+import org.gradle.api.internal.hash.Murmur3Hasher;
 import org.gradle.api.internal.tasks.TaskExecuter;
 import org.gradle.api.internal.tasks.execution.*;
 import org.gradle.api.invocation.Gradle;
@@ -78,15 +80,22 @@ public class TaskExecutionServices {
         } else {
             decorator = new NoOpDecorator();
         }
-        return new DefaultTaskArtifactStateCacheAccess(gradle, cacheRepository, decorator);
+        return new DefaultTaskArtifactStateCacheAccess(gradle, cacheRepository, decorator, Boolean.getBoolean(DefaultTaskArtifactStateCacheAccess.LOCK_ON_ACCESS_TOGGLE));
     }
 
-    FileSnapshotter createFileSnapshotter(TaskArtifactStateCacheAccess cacheAccess, StringInterner stringInterner) {
-        return new CachingFileSnapshotter(new DefaultHasher(), cacheAccess, stringInterner);
+    CachingFileSnapshotter createFileSnapshotter(TaskArtifactStateCacheAccess cacheAccess, StringInterner stringInterner) {
+        Hasher hasher = Boolean.getBoolean(Murmur3Hasher.FAST_HASHING_TOGGLE) ? new Murmur3Hasher() : new DefaultHasher();
+        return new CachingFileSnapshotter(hasher, cacheAccess, stringInterner);
     }
 
-    TaskArtifactStateRepository createTaskArtifactStateRepository(Instantiator instantiator, TaskArtifactStateCacheAccess cacheAccess, StartParameter startParameter, FileSnapshotter fileSnapshotter, StringInterner stringInterner) {
-        FileCollectionSnapshotter fileCollectionSnapshotter = new DefaultFileCollectionSnapshotter(fileSnapshotter, cacheAccess, stringInterner);
+    TaskArtifactStateRepository createTaskArtifactStateRepository(Instantiator instantiator, TaskArtifactStateCacheAccess cacheAccess, StartParameter startParameter, CachingFileSnapshotter fileSnapshotter, StringInterner stringInterner,
+                                                                  BuildOperationProcessor buildOperationProcessor) {
+        FileCollectionSnapshotter fileCollectionSnapshotter;
+        if (Boolean.getBoolean(ParallelFileCollectionSnapshotter.PARALLEL_SNAPSHOTTING_TOGGLE)) {
+            fileCollectionSnapshotter = new ParallelFileCollectionSnapshotter(fileSnapshotter, cacheAccess, stringInterner, buildOperationProcessor);
+        } else {
+            fileCollectionSnapshotter = new DefaultFileCollectionSnapshotter(fileSnapshotter, cacheAccess, stringInterner);
+        }
         FileCollectionSnapshotter discoveredFileCollectionSnapshotter = new MinimalFileSetSnapshotter(fileSnapshotter, cacheAccess, stringInterner);
 
         FileCollectionSnapshotter outputFilesSnapshotter = new OutputFilesCollectionSnapshotter(fileCollectionSnapshotter, new RandomLongIdGenerator(), cacheAccess, stringInterner);
@@ -164,6 +164,15 @@ public class DefaultWorkerProcess implements WorkerProcess {
         }
     }
 
+    public boolean isAlive() {
+        lock.lock();
+        try {
+            return running;
+        } finally {
+            lock.unlock();
+        }
+    }
+
     private void cleanup() {
         CompositeStoppable stoppable;
         lock.lock();
@@ -32,4 +32,9 @@ public interface WorkerProcess {
     ObjectConnection getConnection();
 
     ExecResult waitForStop();
+
+    /**
+     * Returns true when the worker process has been started and has not stopped since.
+     */
+    boolean isAlive();
 }
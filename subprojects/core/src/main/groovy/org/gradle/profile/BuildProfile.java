@@ -16,11 +16,13 @@
 package org.gradle.profile;
 
 import org.gradle.StartParameter;
+import org.gradle.api.internal.changedetection.state.InMemoryCacheStatistics;
 import org.gradle.util.CollectionUtils;
 
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -46,6 +48,7 @@ public class BuildProfile {
 
     private final Map<String, ProjectProfile> projects = new LinkedHashMap<String, ProjectProfile>();
     private final Map<String, ContinuousOperation> dependencySets = new LinkedHashMap<String, ContinuousOperation>();
+    private List<InMemoryCacheStatistics> cacheStatistics = Collections.emptyList();
     private long profilingStarted;
     private long buildStarted;
     private long settingsEvaluated;
@@ -136,6 +139,17 @@ public class BuildProfile {
         return new CompositeOperation<ContinuousOperation>(profiles);
     }
 
+    /**
+     * Get the statistics of the in-memory task artifact caches for this build.
+     */
+    public List<InMemoryCacheStatistics> getCacheStatistics() {
+        return cacheStatistics;
+    }
+
+    public void setCacheStatistics(List<InMemoryCacheStatistics> cacheStatistics) {
+        this.cacheStatistics = cacheStatistics;
+    }
+
     /**
      * Should be set with a time as soon as possible after startup.
      * @param profilingStarted
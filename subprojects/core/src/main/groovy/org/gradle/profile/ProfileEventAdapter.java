@@ -23,6 +23,8 @@ import org.gradle.api.ProjectState;
 import org.gradle.api.Task;
 import org.gradle.api.artifacts.DependencyResolutionListener;
 import org.gradle.api.artifacts.ResolvableDependencies;
+import org.gradle.api.internal.changedetection.state.InMemoryCacheStatistics;
+import org.gradle.api.internal.changedetection.state.InMemoryTaskArtifactCache;
 import org.gradle.api.execution.TaskExecutionListener;
 import org.gradle.api.initialization.Settings;
 import org.gradle.api.invocation.Gradle;
@@ -31,6 +33,11 @@ import org.gradle.initialization.BuildCompletionListener;
 import org.gradle.initialization.BuildRequestMetaData;
 import org.gradle.internal.TimeProvider;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Adapts various events to build a {@link BuildProfile} model, and then notifies a {@link ReportGeneratingProfileListener} when the model is ready.
  */
@@ -38,12 +45,15 @@ public class ProfileEventAdapter implements BuildListener, ProjectEvaluationList
     private final BuildRequestMetaData buildMetaData;
     private final TimeProvider timeProvider;
     private final ProfileListener listener;
+    private final InMemoryTaskArtifactCache taskArtifactCache;
     private BuildProfile buildProfile;
+    private Map<String, InMemoryCacheStatistics> cacheStatisticsAtStart;
 
-    public ProfileEventAdapter(BuildRequestMetaData buildMetaData, TimeProvider timeProvider, ProfileListener listener) {
+    public ProfileEventAdapter(BuildRequestMetaData buildMetaData, TimeProvider timeProvider, ProfileListener listener, InMemoryTaskArtifactCache taskArtifactCache) {
         this.buildMetaData = buildMetaData;
         this.timeProvider = timeProvider;
         this.listener = listener;
+        this.taskArtifactCache = taskArtifactCache;
     }
 
     // BuildListener
@@ -52,6 +62,13 @@ public class ProfileEventAdapter implements BuildListener, ProjectEvaluationList
         buildProfile = new BuildProfile(gradle.getStartParameter());
         buildProfile.setBuildStarted(now);
         buildProfile.setProfilingStarted(buildMetaData.getBuildTimeClock().getStartTime());
+        if (gradle.getStartParameter().isProfile()) {
+            // Only collected for the profile report
+            cacheStatisticsAtStart = new HashMap<String, InMemoryCacheStatistics>();
+            for (InMemoryCacheStatistics statistics : taskArtifactCache.getStatistics()) {
+                cacheStatisticsAtStart.put(statistics.getCacheId(), statistics);
+            }
+        }
     }
 
     public void settingsEvaluated(Settings settings) {
@@ -72,10 +89,19 @@ public class ProfileEventAdapter implements BuildListener, ProjectEvaluationList
 
     public void completed() {
         buildProfile.setBuildFinished(timeProvider.getCurrentTime());
+        if (cacheStatisticsAtStart != null) {
+            List<InMemoryCacheStatistics> cacheStatistics = new ArrayList<InMemoryCacheStatistics>();
+            for (InMemoryCacheStatistics statistics : taskArtifactCache.getStatistics()) {
+                InMemoryCacheStatistics atStart = cacheStatisticsAtStart.get(statistics.getCacheId());
+                cacheStatistics.add(atStart == null ? statistics : statistics.since(atStart));
+            }
+            buildProfile.setCacheStatistics(cacheStatistics);
+        }
         try {
             listener.buildFinished(buildProfile);
         } finally {
             buildProfile = null;
+            cacheStatisticsAtStart = null;
         }
     }
 
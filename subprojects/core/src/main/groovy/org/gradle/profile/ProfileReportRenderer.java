@@ -15,6 +15,7 @@
  */
 package org.gradle.profile;
 
+import org.gradle.api.internal.changedetection.state.InMemoryCacheStatistics;
 import org.gradle.internal.html.SimpleHtmlWriter;
 import org.gradle.reporting.DurationFormatter;
 import org.gradle.reporting.HtmlReportRenderer;
@@ -33,6 +34,10 @@ public class ProfileReportRenderer {
         renderer.renderSinglePage(buildProfile, new ProfilePageRenderer(), file);
     }
 
+    private static String formatSize(long bytes) {
+        return (bytes + 1023) / 1024 + " KB";
+    }
+
     private static class ProfilePageRenderer extends TabbedPageRenderer<BuildProfile> {
         private static final URL STYLE_URL = ProfilePageRenderer.class.getResource("style.css");
 
@@ -71,8 +76,11 @@ public class ProfileReportRenderer {
                             .startElement("li").startElement("a").attribute("href", "#tab0").characters("Summary").endElement().endElement()
                             .startElement("li").startElement("a").attribute("href", "#tab1").characters("Configuration").endElement().endElement()
                             .startElement("li").startElement("a").attribute("href", "#tab2").characters("Dependency Resolution").endElement().endElement()
-                            .startElement("li").startElement("a").attribute("href", "#tab3").characters("Task Execution").endElement().endElement()
-                        .endElement();
+                            .startElement("li").startElement("a").attribute("href", "#tab3").characters("Task Execution").endElement().endElement();
+                        if (!model.getCacheStatistics().isEmpty()) {
+                            htmlWriter.startElement("li").startElement("a").attribute("href", "#tab4").characters("Caches").endElement().endElement();
+                        }
+                        htmlWriter.endElement();
                         htmlWriter.startElement("div").attribute("class", "tab").attribute("id", "tab0");
                             htmlWriter.startElement("h2").characters("Summary").endElement();
                             htmlWriter.startElement("table");
@@ -176,8 +184,35 @@ public class ProfileReportRenderer {
                                     }
                                 }
                             htmlWriter.endElement()
-                        .endElement()
-                    .endElement();
+                        .endElement();
+                        if (!model.getCacheStatistics().isEmpty()) {
+                            htmlWriter.startElement("div").attribute("class", "tab").attribute("id", "tab4");
+                                htmlWriter.startElement("h2").characters("Caches").endElement()
+                                .startElement("table")
+                                    .startElement("thead")
+                                        .startElement("tr")
+                                            .startElement("th").characters("Cache").endElement()
+                                            .startElement("th").attribute("class", "numeric").characters("Entries").endElement()
+                                            .startElement("th").attribute("class", "numeric").characters("Estimated Size").endElement()
+                                            .startElement("th").attribute("class", "numeric").characters("Hits").endElement()
+                                            .startElement("th").attribute("class", "numeric").characters("Misses").endElement()
+                                            .startElement("th").attribute("class", "numeric").characters("Evictions").endElement()
+                                        .endElement()
+                                    .endElement();
+                                    for (InMemoryCacheStatistics statistics : model.getCacheStatistics()) {
+                                        htmlWriter.startElement("tr")
+                                            .startElement("td").characters(statistics.getCacheId()).endElement()
+                                            .startElement("td").attribute("class", "numeric").characters(String.valueOf(statistics.getEntryCount())).endElement()
+                                            .startElement("td").attribute("class", "numeric").characters(formatSize(statistics.getEstimatedSize())).endElement()
+                                            .startElement("td").attribute("class", "numeric").characters(String.valueOf(statistics.getHitCount())).endElement()
+                                            .startElement("td").attribute("class", "numeric").characters(String.valueOf(statistics.getMissCount())).endElement()
+                                            .startElement("td").attribute("class", "numeric").characters(String.valueOf(statistics.getEvictionCount())).endElement()
+                                        .endElement();
+                                    }
+                                htmlWriter.endElement()
+                            .endElement();
+                        }
+                    htmlWriter.endElement();
                 }
             };
         }
@@ -36,6 +36,7 @@ class CachingFileSnapshotterTest extends Specification {
     def setup() {
         file.write("some-content")
         1 * cacheAccess.createCache("fileHashes", _, _) >> cache
+        _ * target.getAlgorithm() >> "MD5"
         hasher = new CachingFileSnapshotter(target, cacheAccess, new StringInterner());
     }
 
@@ -65,7 +66,7 @@ class CachingFileSnapshotterTest extends Specification {
         result.hash == hash
 
         and:
-        1 * cache.get(file.getAbsolutePath()) >> new CachingFileSnapshotter.FileInfo(hash, 1024, file.lastModified())
+        1 * cache.get(file.getAbsolutePath()) >> new CachingFileSnapshotter.FileInfo(hash, "MD5", 1024, file.lastModified())
         1 * target.hash(file) >> hash
         1 * cache.put(file.getAbsolutePath(), _) >> { String key, CachingFileSnapshotter.FileInfo fileInfo ->
             fileInfo.hash == hash
@@ -83,7 +84,7 @@ class CachingFileSnapshotterTest extends Specification {
         result.hash == hash
 
         and:
-        1 * cache.get(file.getAbsolutePath()) >> new CachingFileSnapshotter.FileInfo(hash, file.length(), 124)
+        1 * cache.get(file.getAbsolutePath()) >> new CachingFileSnapshotter.FileInfo(hash, "MD5", file.length(), 124)
         1 * target.hash(file) >> hash
         1 * cache.put(file.getAbsolutePath(), _) >> { String key, CachingFileSnapshotter.FileInfo fileInfo ->
             fileInfo.hash == hash
@@ -101,7 +102,21 @@ class CachingFileSnapshotterTest extends Specification {
         result.hash == hash
 
         and:
-        1 * cache.get(file.getAbsolutePath()) >> new CachingFileSnapshotter.FileInfo(hash, file.length(), file.lastModified())
+        1 * cache.get(file.getAbsolutePath()) >> new CachingFileSnapshotter.FileInfo(hash, "MD5", file.length(), file.lastModified())
+        0 * _._
+    }
+
+    def hashesFileWhenCachedHashWasCreatedUsingDifferentAlgorithm() {
+        when:
+        def result = hasher.snapshot(file)
+
+        then:
+        result.hash == hash
+
+        and:
+        1 * cache.get(file.getAbsolutePath()) >> new CachingFileSnapshotter.FileInfo("old-hash".bytes, "SHA1", file.length(), file.lastModified())
+        1 * target.hash(file) >> hash
+        1 * cache.put(file.getAbsolutePath(), _)
         0 * _._
     }
 }
@@ -66,6 +66,25 @@ public class DefaultFileCollectionSnapshotterTest extends Specification {
         snapshot.files.files as List == [file]
     }
 
+    def hashesFileOnlyOnceWhenItIsIncludedMoreThanOnce() {
+        given:
+        def countingFileSnapshotter = Mock(FileSnapshotter)
+        def countingSnapshotter = new DefaultFileCollectionSnapshotter(countingFileSnapshotter, cacheAccess, new StringInterner())
+        TestFile file = tmpDir.createFile('file1')
+        TestFile noExist = tmpDir.file('file2')
+
+        when:
+        def snapshot = countingSnapshotter.snapshot(files(file, noExist) + files(file, noExist))
+
+        then:
+        1 * countingFileSnapshotter.snapshot(_ as FileTreeElement) >> Stub(FileSnapshot) {
+            getHash() >> HashUtil.sha1(file).asByteArray()
+        }
+        0 * countingFileSnapshotter._
+        snapshot.files.files as List == [file]
+        snapshot.allFiles.files as List == [file, noExist]
+    }
+
     def notifiesListenerWhenFileAdded() {
         given:
         TestFile file1 = tmpDir.createFile('file1')
@@ -371,6 +390,96 @@ public class DefaultFileCollectionSnapshotterTest extends Specification {
         0 * _
     }
 
+    def notifiesListenerOfAllChangesInPathOrder() {
+        TestFile root = tmpDir.createDir('root')
+        def fileCollection = files(root)
+        TestFile removed = root.createFile('a')
+        TestFile changed = root.createFile('b')
+        root.createFile('c')
+        TestFile added = root.file('d')
+
+        when:
+        FileCollectionSnapshot snapshot = snapshotter.snapshot(fileCollection)
+        removed.delete()
+        changed.write('new content')
+        added.createFile()
+        def iterator = snapshotter.snapshot(fileCollection).iterateChangesSince(snapshot)
+        while (iterator.next(listener)) {}
+
+        then:
+        1 * listener.removed(removed.path)
+
+        then:
+        1 * listener.changed(changed.path)
+
+        then:
+        1 * listener.added(added.path)
+        0 * listener._
+    }
+
+    def diffMergesChangesIntoSnapshot() {
+        TestFile root = tmpDir.createDir('root')
+        def fileCollection = files(root)
+        TestFile removed = root.createFile('a')
+        TestFile changed = root.createFile('b')
+        TestFile unchanged = root.createFile('c')
+        TestFile added = root.file('d')
+
+        when:
+        FileCollectionSnapshot original = snapshotter.snapshot(fileCollection)
+        removed.delete()
+        changed.write('new content')
+        added.createFile()
+        FileCollectionSnapshot modified = snapshotter.snapshot(fileCollection)
+        FileCollectionSnapshot target = modified.changesSince(original).applyTo(original)
+
+        then:
+        target.files.files as List == [changed, unchanged, added]
+        target.snapshot.findSnapshot(changed).hash == modified.snapshot.findSnapshot(changed).hash
+        !target.iterateChangesSince(modified).next(listener)
+    }
+
+    def skipsUnchangedDirectoriesAndNotifiesChangesInChangedDirectories() {
+        TestFile root = tmpDir.createDir('root')
+        def fileCollection = files(root)
+        (1..3).each { root.createFile("unchanged/dir$it/file.txt").text = "content $it" }
+        TestFile changed = root.createFile('changed/deep/nested/file.txt')
+        root.createFile('changed.txt')
+
+        when:
+        FileCollectionSnapshot original = snapshotter.snapshot(fileCollection)
+        def unchanged = snapshotter.snapshot(fileCollection)
+        def unchangedHasChanges = unchanged.iterateChangesSince(original).next(listener)
+        changed.write('new content')
+        def iterator = snapshotter.snapshot(fileCollection).iterateChangesSince(original)
+        while (iterator.next(listener)) {}
+
+        then:
+        unchanged.treeHashes.hasSameContents(original.treeHashes)
+        !unchangedHasChanges
+        1 * listener.changed(changed.path)
+        0 * listener._
+    }
+
+    def directoryHashesChangeWhenNestedFileChanges() {
+        TestFile root = tmpDir.createDir('root')
+        TestFile file = root.createFile('a/b/file.txt')
+        root.createFile('c/file.txt')
+
+        when:
+        def original = snapshotter.snapshot(files(root))
+        file.write('new content')
+        def modified = snapshotter.snapshot(files(root))
+
+        then:
+        !modified.treeHashes.hasSameContents(original.treeHashes)
+        !modified.treeHashes.hasSameDirectoryContents(0, original.treeHashes, 0)
+        !modified.treeHashes.hasSameDirectoryContents(1, original.treeHashes, 1)
+        modified.treeHashes.hasSameDirectoryContents(3, original.treeHashes, 3)
+        modified.treeHashes.getDirectoryEnd(0) == 3
+        modified.paths[3] == root.file('c').path
+    }
+
     private FileCollection files(File... files) {
         new SimpleFileCollection(files)
     }
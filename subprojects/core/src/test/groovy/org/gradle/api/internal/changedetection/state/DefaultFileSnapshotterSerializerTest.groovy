@@ -24,16 +24,53 @@ class DefaultFileSnapshotterSerializerTest extends SerializerSpec {
     def serializer = new DefaultFileSnapshotterSerializer(new StringInterner())
 
     def "reads and writes the snapshot"() {
+        given:
+        def builder = new DefaultFileCollectionSnapshotter.FileCollectionSnapshotBuilder(3)
+        builder.addFile("3", "foo".bytes)
+        builder.addDirectory("1")
+        builder.addMissingFile("2")
+        builder.addFile("4", "some hash".bytes)
+
+        when:
+        DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl out = serialize(builder.build(), serializer)
+
+        then:
+        out.paths as List == ["1", "2", "3", "4"]
+        out.types as List == [DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl.DIR, DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl.MISSING,
+                              DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl.FILE, DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl.FILE]
+        out.getHash(0) == [] as byte[]
+        out.getHash(2) == "foo".bytes
+        out.getHash(3) == "some hash".bytes
+    }
+
+    def "reads and writes the directory tree hashes"() {
+        given:
+        def builder = new DefaultFileCollectionSnapshotter.FileCollectionSnapshotBuilder(5)
+        builder.addDirectory("a")
+        builder.addFile("a${File.separator}file", "foo".bytes)
+        builder.addDirectory("a${File.separator}b")
+        builder.addFile("a${File.separator}b${File.separator}file", "bar".bytes)
+        builder.addFile("a.txt", "baz".bytes)
+        def snapshot = builder.build()
+
+        when:
+        DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl out = serialize(snapshot, serializer)
+
+        then:
+        out.paths as List == snapshot.paths as List
+        out.treeHashes.snapshotHash == snapshot.treeHashes.snapshotHash
+        out.paths[4] == "a.txt"
+        out.treeHashes.dirIndexes as List == [0, 1]
+        out.treeHashes.dirEnds as List == [4, 3]
+        out.treeHashes.dirHashes == snapshot.treeHashes.dirHashes
+        out.treeHashes.hasSameContents(snapshot.treeHashes)
+    }
+
+    def "reads and writes empty snapshot"() {
         when:
-        DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl out = serialize(new DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl([
-                "1": DefaultFileCollectionSnapshotter.DirSnapshot.getInstance(),
-                "2": DefaultFileCollectionSnapshotter.MissingFileSnapshot.getInstance(),
-                "3": new DefaultFileCollectionSnapshotter.FileHashSnapshot("foo".bytes)]), serializer)
+        DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl out = serialize(DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl.EMPTY, serializer)
 
         then:
-        out.snapshots.size() == 3
-        out.snapshots['1'] instanceof DefaultFileCollectionSnapshotter.DirSnapshot
-        out.snapshots['2'] instanceof DefaultFileCollectionSnapshotter.MissingFileSnapshot
-        ((DefaultFileCollectionSnapshotter.FileHashSnapshot) out.snapshots['3']).hash == "foo".bytes
+        out.size() == 0
     }
 }
@@ -41,4 +41,26 @@ class DefaultTaskArtifactStateCacheAccessTest extends Specification {
         1 * cacheBuilder.open() >> backingCache
         0 * _._
     }
+
+    def "uses backing cache to run action when locking on demand"() {
+        CacheBuilder cacheBuilder = Mock()
+        PersistentCache backingCache = Mock()
+        Runnable action = Mock()
+        _ * cacheRepository.cache(gradle, "taskArtifacts") >> cacheBuilder
+        _ * cacheBuilder.withDisplayName(_) >> cacheBuilder
+        _ * cacheBuilder.open() >> backingCache
+
+        when:
+        def cacheAccess = new DefaultTaskArtifactStateCacheAccess(gradle, cacheRepository, new NoOpDecorator(), true)
+
+        then:
+        1 * cacheBuilder.withLockOptions(LockOptionsBuilder.mode(FileLockManager.LockMode.None).lockOnAccess()) >> cacheBuilder
+
+        when:
+        cacheAccess.useCache("operation", action)
+
+        then:
+        1 * backingCache.useCache("operation", action)
+        0 * backingCache._
+    }
 }
@@ -16,6 +16,7 @@
 
 package org.gradle.api.internal.changedetection.state
 
+import org.gradle.cache.internal.FileLock
 import org.gradle.cache.internal.MultiProcessSafePersistentIndexedCache
 import spock.lang.Specification
 
@@ -133,4 +134,186 @@ class InMemoryTaskArtifactCacheTest extends Specification {
         0 * target._
     }
 
+    def "keeps entries of caches separate"() {
+        given:
+        def otherTarget = Mock(MultiProcessSafePersistentIndexedCache)
+        def cache = cacheFactory.decorate("path/fileSnapshots.bin", "fileSnapshots", target)
+        def otherCache = cacheFactory.decorate("other/fileSnapshots.bin", "fileSnapshots", otherTarget)
+
+        when:
+        cache.put("key", "value")
+        def result = otherCache.get("key")
+
+        then:
+        result == "other value"
+
+        and:
+        1 * target.put("key", "value")
+        1 * otherTarget.get("key") >> "other value"
+        0 * _
+    }
+
+    def "invalidates entries when backing cache has been updated"() {
+        given:
+        def cache = cacheFactory.decorate("path/fileSnapshots.bin", "fileSnapshots", target)
+        cache.put("key", "value")
+
+        when:
+        cache.onStartWork("operation", Stub(FileLock.State))
+        def result = cache.get("key")
+
+        then:
+        result == "new value"
+
+        and:
+        1 * target.get("key") >> "new value"
+    }
+
+    def "uses entries added after the cache has been invalidated"() {
+        given:
+        def cache = cacheFactory.decorate("path/fileSnapshots.bin", "fileSnapshots", target)
+        cache.put("key", "value")
+        cache.put("other", "value")
+
+        when:
+        cache.onStartWork("operation", Stub(FileLock.State))
+        cache.put("key", "new value")
+
+        then:
+        cache.get("key") == "new value"
+        cache.get("other") == "other value"
+        cacheFactory.statistics*.hitCount == [1]
+        cacheFactory.statistics*.missCount == [1]
+
+        and:
+        1 * target.get("other") >> "other value"
+        0 * target.get(_)
+    }
+
+    def "records hits and misses of each cache"() {
+        given:
+        def cache = cacheFactory.decorate("path/fileSnapshots.bin", "fileSnapshots", target)
+        def otherCache = cacheFactory.decorate("path/fileHashes.bin", "fileHashes", Mock(MultiProcessSafePersistentIndexedCache))
+
+        when:
+        cache.get("key")
+        cache.get("key")
+        cache.get("other")
+        otherCache.put("key", "value")
+        def statistics = cacheFactory.statistics
+
+        then:
+        statistics*.cacheId == ["path/fileHashes.bin", "path/fileSnapshots.bin"]
+        statistics*.entryCount == [1, 2]
+        statistics*.hitCount == [0, 1]
+        statistics*.missCount == [0, 2]
+        statistics*.evictionCount == [0, 0]
+        statistics.every { it.estimatedSize > 0 }
+    }
+
+    def "counts entries of each cache as they are replaced and removed"() {
+        given:
+        def cache = cacheFactory.decorate("path/fileHashes.bin", "fileHashes", target)
+
+        when:
+        cache.put("key", "value")
+        cache.put("key", "other value")
+        cache.put("other", "value")
+        cache.remove("other")
+        def statistics = cacheFactory.statistics
+
+        then:
+        statistics*.entryCount == [2]
+        statistics*.estimatedSize == [(64 + 46 + 62) + (64 + 50 + 16)]
+    }
+
+    def "counts the size an entry was added with when a value changes and is put again"() {
+        given:
+        def cache = cacheFactory.decorate("path/taskArtifacts.bin", "taskArtifacts", target)
+        def value = new SizedValue(size: 100)
+
+        when:
+        cache.put("key", value)
+        value.size = 1000
+        cache.put("key", value)
+        value.size = 10
+        cache.put("key", value)
+        def statistics = cacheFactory.statistics
+
+        then:
+        statistics*.entryCount == [1]
+        statistics*.estimatedSize == [64 + 46 + 10]
+    }
+
+    def "invalidating a cache keeps the entries of other caches"() {
+        given:
+        def otherTarget = Mock(MultiProcessSafePersistentIndexedCache)
+        def cache = cacheFactory.decorate("path/fileSnapshots.bin", "fileSnapshots", target)
+        def otherCache = cacheFactory.decorate("other/fileSnapshots.bin", "fileSnapshots", otherTarget)
+        cache.put("key", "value")
+        otherCache.put("key", "other value")
+
+        when:
+        cache.onStartWork("operation", Stub(FileLock.State))
+
+        then:
+        otherCache.get("key") == "other value"
+        cache.get("key") == "new value"
+        cacheFactory.statistics*.entryCount == [1, 1]
+
+        and:
+        1 * target.get("key") >> "new value"
+        0 * otherTarget.get(_)
+    }
+
+    def "discards a closed cache once all its entries have been evicted"() {
+        given:
+        def cacheFactory = new InMemoryTaskArtifactCache(1024 * 1024)
+        def hashes = cacheFactory.decorate("path/fileHashes.bin", "fileHashes", target)
+        def snapshots = cacheFactory.decorate("path/fileSnapshots.bin", "fileSnapshots", Mock(MultiProcessSafePersistentIndexedCache))
+        hashes.put("file", new byte[16])
+        hashes.close()
+
+        expect:
+        cacheFactory.statistics*.cacheId == ["path/fileHashes.bin", "path/fileSnapshots.bin"]
+
+        when:
+        100.times { snapshots.put(it as Long, new byte[64 * 1024]) }
+
+        then:
+        cacheFactory.statistics*.cacheId == ["path/fileSnapshots.bin"]
+    }
+
+    def "evicts entries when estimated size of all caches exceeds budget"() {
+        given:
+        def budget = 1024 * 1024
+        def cacheFactory = new InMemoryTaskArtifactCache(budget)
+        def hashes = cacheFactory.decorate("path/fileHashes.bin", "fileHashes", target)
+        def snapshots = cacheFactory.decorate("path/fileSnapshots.bin", "fileSnapshots", Mock(MultiProcessSafePersistentIndexedCache))
+
+        when:
+        100.times { hashes.put("file$it".toString(), new byte[16]) }
+        100.times { snapshots.put(it as Long, new byte[64 * 1024]) }
+        def statistics = cacheFactory.statistics
+
+        then:
+        statistics*.evictionCount.sum() > 0
+        statistics*.estimatedSize.sum() <= budget
+    }
+
+    def "estimates size of values"() {
+        expect:
+        InMemoryTaskArtifactCache.estimateSize("abc") == 46
+        InMemoryTaskArtifactCache.estimateSize(new byte[100]) == 116
+        InMemoryTaskArtifactCache.estimateSize(12L) == 16
+        InMemoryTaskArtifactCache.estimateSize(new Object()) == -1
+    }
+
+    static class SizedValue implements EstimatedHeapSize {
+        long size
+
+        long getEstimatedHeapSize() {
+            size
+        }
+    }
 }
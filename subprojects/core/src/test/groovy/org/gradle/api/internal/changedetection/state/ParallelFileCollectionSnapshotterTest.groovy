@@ -0,0 +1,133 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state
+
+import org.gradle.api.internal.cache.StringInterner
+import org.gradle.api.internal.file.collections.SimpleFileCollection
+import org.gradle.api.internal.hash.DefaultHasher
+import org.gradle.api.internal.hash.Hasher
+import org.gradle.cache.internal.MapBackedInMemoryStore
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.operations.DefaultBuildOperationProcessor
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.util.ChangeListener
+import org.gradle.util.UsesNativeServices
+import org.junit.Rule
+import spock.lang.Specification
+
+@UsesNativeServices
+class ParallelFileCollectionSnapshotterTest extends Specification {
+    @Rule
+    final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def executorFactory = new DefaultExecutorFactory()
+    def buildOperationProcessor = new DefaultBuildOperationProcessor(executorFactory, 4)
+    def store = new MapBackedInMemoryStore()
+    def cacheAccess = Stub(TaskArtifactStateCacheAccess) {
+        createCache(_, _, _) >> { String name, Class keyType, serializer -> store.createCache(name, keyType, serializer) }
+        useCache(_, _) >> { String name, Runnable action -> action.run() }
+    }
+    def hasher = Spy(DefaultHasher)
+    def fileSnapshotter = new CachingFileSnapshotter(hasher, cacheAccess, new StringInterner())
+    def serialSnapshotter = new DefaultFileCollectionSnapshotter(new CachingFileSnapshotter(new DefaultHasher(), new MapBackedInMemoryStore(), new StringInterner()), cacheAccess, new StringInterner())
+    def snapshotter = new ParallelFileCollectionSnapshotter(fileSnapshotter, cacheAccess, new StringInterner(), buildOperationProcessor)
+
+    def cleanup() {
+        buildOperationProcessor.stop()
+        executorFactory.stop()
+    }
+
+    def "produces same snapshot as serial snapshotter"() {
+        given:
+        def dir1 = tmpDir.createDir("dir1")
+        def dir2 = tmpDir.createDir("dir2")
+        (1..50).each {
+            dir1.createFile("sub${it % 5}/file${it}.txt").text = "content $it"
+            dir2.createFile("file${it}.txt").text = "other content $it"
+        }
+        def missing = tmpDir.file("missing")
+        def files = new SimpleFileCollection(dir1, dir2, missing)
+
+        when:
+        def parallel = snapshotter.snapshot(files)
+        def serial = serialSnapshotter.snapshot(files)
+
+        then:
+        parallel.paths as List == serial.paths as List
+        parallel.changesSince(serial).applyTo(serialSnapshotter.emptySnapshot()).size() == 0
+        !parallel.iterateChangesSince(serial).next(Mock(ChangeListener))
+    }
+
+    def "only hashes files that are not already cached"() {
+        given:
+        def dir = tmpDir.createDir("dir")
+        def file1 = dir.createFile("file1.txt")
+        def file2 = dir.createFile("file2.txt")
+        file1.text = "content 1"
+        file2.text = "content 2"
+        def files = new SimpleFileCollection(dir)
+
+        when:
+        snapshotter.snapshot(files)
+
+        then:
+        1 * hasher.hash(file1)
+        1 * hasher.hash(file2)
+
+        when:
+        file2.text = "changed content"
+        snapshotter.snapshot(files)
+
+        then:
+        0 * hasher.hash(file1)
+        1 * hasher.hash(file2)
+    }
+
+    def "hashes are stored in file hash cache"() {
+        given:
+        def file = tmpDir.createFile("file.txt")
+        file.text = "content"
+
+        when:
+        def snapshot = snapshotter.snapshot(new SimpleFileCollection(file))
+
+        then:
+        snapshot.snapshot.findSnapshot(file).hash == fileSnapshotter.snapshot(file).hash
+        snapshot.snapshot.findSnapshot(file).hash == new DefaultHasher().hash(file)
+    }
+
+    def "uses cache lock only for lookup and store of each batch"() {
+        given:
+        def hasher = Mock(Hasher) {
+            getAlgorithm() >> "MD5"
+        }
+        def cacheAccess = Mock(TaskArtifactStateCacheAccess)
+        def cache = new MapBackedInMemoryStore()
+        _ * cacheAccess.createCache(_, _, _) >> { String name, Class keyType, serializer -> cache.createCache(name, keyType, serializer) }
+        def snapshotter = new ParallelFileCollectionSnapshotter(new CachingFileSnapshotter(hasher, cacheAccess, new StringInterner()), cacheAccess, new StringInterner(), buildOperationProcessor)
+        def dir = tmpDir.createDir("dir")
+        (1..ParallelFileCollectionSnapshotter.BATCH_SIZE + 1).each { dir.createFile("file${it}.txt") }
+
+        when:
+        snapshotter.snapshot(new SimpleFileCollection(dir))
+
+        then:
+        2 * cacheAccess.useCache("Look up file snapshots", _) >> { String name, Runnable action -> action.run() }
+        2 * cacheAccess.useCache("Store file snapshots", _) >> { String name, Runnable action -> action.run() }
+        (ParallelFileCollectionSnapshotter.BATCH_SIZE + 1) * hasher.hash(_) >> "hash".bytes
+        0 * cacheAccess._
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.hash
+
+import com.google.common.hash.Hashing
+import org.gradle.api.UncheckedIOException
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class Murmur3HasherTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+
+    @Unroll
+    def "creates same hash as Guava for #size byte file (mapped: #mapped)"() {
+        given:
+        def content = new byte[size]
+        new Random(size).nextBytes(content)
+        def file = tmpDir.file("file")
+        file.bytes = content
+
+        expect:
+        new Murmur3Hasher(mapped).hash(file) == Hashing.murmur3_128().hashBytes(content).asBytes()
+
+        where:
+        [size, mapped] << [[0, 1, 15, 16, 17, 4095, 64 * 1024 + 3, 300 * 1024 + 7], [true, false]].combinations()
+    }
+
+    @Unroll
+    def "creates same hash for #size byte array as for file with that content"() {
+        given:
+        def content = new byte[size]
+        new Random(size).nextBytes(content)
+        def file = tmpDir.file("file")
+        file.bytes = content
+
+        expect:
+        new Murmur3Hasher().hash(content) == new Murmur3Hasher().hash(file)
+
+        where:
+        size << [0, 15, 16, 17, 64 * 1024 + 3]
+    }
+
+    def "different content produces different hash"() {
+        given:
+        def file1 = tmpDir.file("file1")
+        def file2 = tmpDir.file("file2")
+        file1.text = "content"
+        file2.text = "other content"
+
+        expect:
+        new Murmur3Hasher().hash(file1) != new Murmur3Hasher().hash(file2)
+    }
+
+    def "includes file path in failure message"() {
+        given:
+        def file = tmpDir.file("missing")
+
+        when:
+        new Murmur3Hasher().hash(file)
+
+        then:
+        UncheckedIOException e = thrown()
+        e.message == "Failed to create MURMUR3-128 hash for file ${file.absolutePath}."
+    }
+}
@@ -15,6 +15,8 @@
  */
 package org.gradle.cache.internal
 
+import org.gradle.api.GradleException
+import org.gradle.api.internal.changedetection.state.InMemoryTaskArtifactCache
 import org.gradle.cache.PersistentIndexedCacheParameters
 import org.gradle.cache.internal.btree.BTreePersistentIndexedCache
 import org.gradle.internal.Factory
@@ -24,6 +26,9 @@ import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.junit.Rule
 import spock.lang.Unroll
 
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
 import static org.gradle.cache.internal.FileLockManager.LockMode.*
 import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode
 
@@ -37,8 +42,8 @@ class DefaultCacheAccessTest extends ConcurrentSpec {
     final BTreePersistentIndexedCache<String, Integer> backingCache = Mock()
     DefaultCacheAccess access = newAccess()
 
-    private DefaultCacheAccess newAccess() {
-        new DefaultCacheAccess("<display-name>", lockFile, cacheDir, lockManager, initializationAction) {
+    private DefaultCacheAccess newAccess(boolean lockOnAccess = false, boolean writeBehind = false) {
+        new DefaultCacheAccess("<display-name>", lockFile, cacheDir, lockManager, initializationAction, executorFactory, lockOnAccess, writeBehind) {
             @Override
             def <K, V> BTreePersistentIndexedCache<K, V> doCreateCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
                 return backingCache
@@ -528,6 +533,209 @@ class DefaultCacheAccessTest extends ConcurrentSpec {
         thrown(IllegalStateException)
     }
 
+    def "file access locks the cache when there is no owner and the cache locks on access"() {
+        def runnable = Mock(Runnable)
+        def access = newAccess(true)
+
+        when:
+        access.open(mode(None))
+        access.fileAccess.updateFile(runnable)
+
+        then:
+        1 * lockManager.lock(lockFile, mode(Exclusive), "<display-name>", "Update <display-name>") >> lock
+        1 * lock.updateFile(runnable)
+
+        and:
+        !access.owner
+    }
+
+    def "file access waits for owner when the cache locks on access"() {
+        def access = newAccess(true)
+        lockManager.lock(lockFile, mode(Exclusive), "<display-name>", _) >> lock
+        lock.readFile(_) >> { Factory f -> f.create() }
+
+        when:
+        access.open(mode(None))
+        async {
+            start {
+                access.useCache("use cache") {
+                    instant.owned
+                    thread.block()
+                    instant.released
+                }
+            }
+            thread.blockUntil.owned
+            access.fileAccess.readFile({
+                instant.read
+            } as Factory)
+        }
+
+        then:
+        instant.read > instant.released
+    }
+
+    def "uses cache without taking ownership while the file lock is held when the cache locks on access"() {
+        Factory<String> action = Mock()
+        def access = newAccess(true)
+
+        when:
+        access.open(mode(None))
+        access.useCache("some operation", action)
+
+        then:
+        1 * lockManager.lock(lockFile, mode(Exclusive), "<display-name>", "some operation") >> lock
+        1 * action.create() >> { assert access.owner == Thread.currentThread() }
+
+        when:
+        access.useCache("some other operation", action)
+
+        then:
+        1 * action.create() >> { assert !access.owner }
+        0 * lockManager._
+
+        when:
+        access.whenContended().run()
+        access.useCache("operation after contention", action)
+
+        then:
+        1 * lock.close()
+        1 * lockManager.lock(lockFile, mode(Exclusive), "<display-name>", "operation after contention") >> lock
+        1 * action.create() >> { assert access.owner == Thread.currentThread() }
+    }
+
+    def "reads entries changed by another process when the cache locks on access"() {
+        def access = newAccess(true)
+        def otherLock = Mock(FileLock)
+        def stateAtFirstUse = Stub(FileLock.State)
+        def stateAfterUpdate = Stub(FileLock.State) {
+            hasBeenUpdatedSince(stateAtFirstUse) >> true
+        }
+        lock.state >> stateAtFirstUse
+        lock.readFile(_) >> { Factory f -> f.create() }
+        lock.writeFile(_) >> { Runnable r -> r.run() }
+        otherLock.state >> stateAfterUpdate
+        otherLock.readFile(_) >> { Factory f -> f.create() }
+        otherLock.writeFile(_) >> { Runnable r -> r.run() }
+        lockManager.lock(lockFile, mode(Exclusive), "<display-name>", _) >>> [lock, otherLock]
+
+        given:
+        access.open(mode(None))
+        def cache = access.newCache(new PersistentIndexedCacheParameters('fileHashes', String.class, Integer.class).cacheDecorator(new InMemoryTaskArtifactCache()))
+
+        when:
+        def values = []
+        access.useCache("first build") { values << cache.get("key") }
+        access.useCache("held lock") { values << cache.get("key") }
+
+        then:
+        values == [1, 1]
+        1 * backingCache.get("key") >> 1
+
+        when:
+        // Another process requests the lock and updates the cache
+        access.whenContended().run()
+        access.useCache("next build") { values << cache.get("key") }
+
+        then:
+        values == [1, 1, 2]
+        1 * backingCache.get("key") >> 2
+    }
+
+    def "changes to cache do not lock the cache when changes are written behind"() {
+        def access = newAccess(false, true)
+
+        when:
+        access.open(mode(None))
+        def cache = access.newCache(new PersistentIndexedCacheParameters('cache', String.class, Integer.class))
+        cache.put("key", 12)
+        cache.remove("other")
+
+        then:
+        cache.get("key") == 12
+        0 * lockManager._
+        0 * backingCache._
+    }
+
+    def "locks the cache and writes pending changes on close when the cache has not been used"() {
+        def access = newAccess(false, true)
+
+        when:
+        access.open(mode(None))
+        def cache = access.newCache(new PersistentIndexedCacheParameters('cache', String.class, Integer.class))
+        cache.put("key", 12)
+        access.close()
+
+        then:
+        1 * lockManager.lock(lockFile, mode(Exclusive), "<display-name>", "Close <display-name>") >> lock
+        _ * lock.writeFile(_) >> { Runnable action -> action.run() }
+        1 * backingCache.putAll([key: 12])
+
+        then:
+        1 * backingCache.close()
+
+        then:
+        1 * lock.close()
+    }
+
+    def "does not lock the cache on close when there are no pending changes"() {
+        def access = newAccess(false, true)
+
+        when:
+        access.open(mode(None))
+        access.newCache(new PersistentIndexedCacheParameters('cache', String.class, Integer.class))
+        access.close()
+
+        then:
+        0 * lockManager._
+    }
+
+    def "writes pending changes in the background once enough changes are pending"() {
+        def access = newAccess(false, true)
+        def written = new CountDownLatch(1)
+
+        when:
+        access.open(mode(None))
+        def cache = access.newCache(new PersistentIndexedCacheParameters('cache', String.class, Integer.class))
+        WriteBehindPersistentIndexedCache.BATCH_SIZE.times { cache.put("key $it".toString(), it) }
+        assert written.await(20, TimeUnit.SECONDS)
+        access.close()
+
+        then:
+        1 * lockManager.lock(lockFile, mode(Exclusive), "<display-name>", "Write <display-name>") >> lock
+        _ * lock.writeFile(_) >> { Runnable action -> action.run() }
+        1 * backingCache.putAll({ it.size() == WriteBehindPersistentIndexedCache.BATCH_SIZE }) >> { written.countDown() }
+        1 * backingCache.close()
+        1 * lock.close()
+    }
+
+    def "rethrows failure to write pending changes in the background when the cache is next used"() {
+        def access = newAccess(false, true)
+        def failure = new RuntimeException("broken")
+        def written = new CountDownLatch(1)
+        _ * lockManager.lock(lockFile, mode(Exclusive), "<display-name>", _) >> lock
+        _ * lock.writeFile(_) >> { Runnable action -> action.run() }
+
+        when:
+        access.open(mode(None))
+        def cache = access.newCache(new PersistentIndexedCacheParameters('cache', String.class, Integer.class))
+        WriteBehindPersistentIndexedCache.BATCH_SIZE.times { cache.put("key $it".toString(), it) }
+        assert written.await(20, TimeUnit.SECONDS)
+        access.useCache("use cache", {} as Runnable)
+
+        then:
+        1 * backingCache.putAll(_) >> { written.countDown(); throw failure }
+        def e = thrown(GradleException)
+        e.message == "Could not write pending changes of <display-name>."
+        e.cause == failure
+
+        when:
+        access.useCache("use cache", {} as Runnable)
+        access.close()
+
+        then:
+        1 * backingCache.putAll({ it.size() == WriteBehindPersistentIndexedCache.BATCH_SIZE })
+    }
+
     def "can close cache when the cache has not been used"() {
         when:
         access.open(mode(None))
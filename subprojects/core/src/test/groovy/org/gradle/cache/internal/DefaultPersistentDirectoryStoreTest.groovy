@@ -15,6 +15,7 @@
  */
 package org.gradle.cache.internal
 
+import org.gradle.internal.concurrent.ExecutorFactory
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.junit.Rule
 import spock.lang.Specification
@@ -28,9 +29,10 @@ class DefaultPersistentDirectoryStoreTest extends Specification {
     public final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider();
     final FileLockManager lockManager = Mock()
     final FileLock lock = Mock()
+    final ExecutorFactory executorFactory = Mock()
     final cacheDir = tmpDir.file("dir")
     final cacheFile = cacheDir.file("some-content.bin")
-    final store = new DefaultPersistentDirectoryStore(cacheDir, "<display>", mode(None), lockManager)
+    final store = new DefaultPersistentDirectoryStore(cacheDir, "<display>", mode(None), lockManager, executorFactory)
 
     def "has useful toString() implementation"() {
         expect:
@@ -60,7 +62,7 @@ class DefaultPersistentDirectoryStoreTest extends Specification {
     }
 
     def "open locks cache directory with requested mode"() {
-        final store = new DefaultPersistentDirectoryStore(cacheDir, "<display>", mode(Shared), lockManager)
+        final store = new DefaultPersistentDirectoryStore(cacheDir, "<display>", mode(Shared), lockManager, executorFactory)
 
         when:
         store.open()
@@ -78,7 +80,7 @@ class DefaultPersistentDirectoryStoreTest extends Specification {
     }
 
     def "open does not lock cache directory when None mode requested"() {
-        final store = new DefaultPersistentDirectoryStore(cacheDir, "<display>", mode(None), lockManager)
+        final store = new DefaultPersistentDirectoryStore(cacheDir, "<display>", mode(None), lockManager, executorFactory)
 
         when:
         store.open()
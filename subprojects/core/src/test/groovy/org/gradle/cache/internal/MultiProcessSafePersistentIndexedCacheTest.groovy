@@ -76,6 +76,20 @@ class MultiProcessSafePersistentIndexedCacheTest extends Specification {
         0 * _._
     }
 
+    def "holds write lock while putting entries into cache"() {
+        given:
+        cacheOpened()
+        def entries = [key: "value", other: null]
+
+        when:
+        cache.putAll(entries)
+
+        then:
+        1 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
+        1 * backingCache.putAll(entries)
+        0 * _._
+    }
+
     def "holds write lock while closing cache"() {
         given:
         cacheOpened()
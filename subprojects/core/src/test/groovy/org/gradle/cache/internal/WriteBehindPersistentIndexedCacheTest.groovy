@@ -0,0 +1,177 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.cache.internal
+
+import spock.lang.Specification
+
+class WriteBehindPersistentIndexedCacheTest extends Specification {
+    final DefaultMultiProcessSafePersistentIndexedCache<String, String> backingCache = Mock()
+    final Runnable writeRequest = Mock()
+    final cache = new WriteBehindPersistentIndexedCache<String, String>(backingCache, writeRequest)
+
+    def "holds changes until flushed"() {
+        when:
+        cache.put("key", "value")
+        cache.remove("removed")
+
+        then:
+        cache.get("key") == "value"
+        cache.get("removed") == null
+        cache.hasPendingChanges()
+        0 * _._
+
+        when:
+        cache.flush()
+
+        then:
+        1 * backingCache.putAll([key: "value", removed: null])
+        0 * _._
+
+        and:
+        !cache.hasPendingChanges()
+    }
+
+    def "reads entry from backing cache when there is no pending change"() {
+        when:
+        def result = cache.get("key")
+
+        then:
+        result == "value"
+        1 * backingCache.get("key") >> "value"
+    }
+
+    def "merges repeated changes to the same key"() {
+        when:
+        cache.put("key", "value 1")
+        cache.put("key", "value 2")
+        cache.remove("other")
+        cache.put("other", "value 3")
+        cache.flush()
+
+        then:
+        1 * backingCache.putAll([key: "value 2", other: "value 3"])
+        0 * _._
+    }
+
+    def "keeps changes made while flushing"() {
+        given:
+        cache.put("key", "value 1")
+
+        when:
+        cache.flush()
+
+        then:
+        1 * backingCache.putAll([key: "value 1"]) >> { cache.put("key", "value 2") }
+
+        and:
+        cache.get("key") == "value 2"
+
+        when:
+        cache.flush()
+
+        then:
+        1 * backingCache.putAll([key: "value 2"])
+    }
+
+    def "keeps value put again while flushing when the same instance is put"() {
+        def value = new StringBuilder("value 1")
+        def mutableBackingCache = Mock(DefaultMultiProcessSafePersistentIndexedCache)
+        def mutableCache = new WriteBehindPersistentIndexedCache<String, StringBuilder>(mutableBackingCache, writeRequest)
+        def written = []
+
+        given:
+        mutableCache.put("key", value)
+
+        when:
+        mutableCache.flush()
+
+        then:
+        1 * mutableBackingCache.putAll(_) >> { Map batch ->
+            written << batch.key.toString()
+            value.append(" changed")
+            mutableCache.put("key", value)
+        }
+
+        and:
+        mutableCache.hasPendingChanges()
+
+        when:
+        mutableCache.flush()
+
+        then:
+        1 * mutableBackingCache.putAll(_) >> { Map batch -> written << batch.key.toString() }
+        written == ["value 1", "value 1 changed"]
+        !mutableCache.hasPendingChanges()
+    }
+
+    def "does not write to backing cache when there are no changes"() {
+        when:
+        cache.flush()
+
+        then:
+        0 * _._
+    }
+
+    def "requests write once enough changes are pending"() {
+        when:
+        (WriteBehindPersistentIndexedCache.BATCH_SIZE - 1).times { cache.put("key $it", "value") }
+
+        then:
+        0 * writeRequest._
+
+        when:
+        cache.put("other", "value")
+        cache.put("another", "value")
+
+        then:
+        1 * writeRequest.run()
+    }
+
+    def "writes changes and closes backing cache on close"() {
+        given:
+        cache.put("key", "value")
+
+        when:
+        cache.close()
+
+        then:
+        1 * backingCache.putAll([key: "value"])
+
+        then:
+        1 * backingCache.close()
+        0 * _._
+    }
+
+    def "closes backing cache when changes cannot be written"() {
+        def failure = new RuntimeException()
+        given:
+        cache.put("key", "value")
+
+        when:
+        cache.close()
+
+        then:
+        def e = thrown(RuntimeException)
+        e == failure
+        1 * backingCache.putAll(_) >> { throw failure }
+        1 * backingCache.close()
+
+        and:
+        cache.hasPendingChanges()
+    }
+}
@@ -46,7 +46,11 @@ public class BTreePersistentIndexedCacheTest {
     }
 
     private void createCache() {
-        cache = new BTreePersistentIndexedCache<String, Integer>(cacheFile, stringSerializer, integerSerializer, (short) 4, 100);
+        cache = new BTreePersistentIndexedCache<String, Integer>(cacheFile, createStore(cacheFile), stringSerializer, integerSerializer, (short) 4, 100);
+    }
+
+    protected FileBackedBlockStore createStore(File cacheFile) {
+        return new FileBackedBlockStore(cacheFile);
     }
 
     private void verifyAndCloseCache() {
@@ -201,6 +205,27 @@ public class BTreePersistentIndexedCacheTest {
         verifyAndCloseCache();
     }
 
+    @Test
+    public void persistsEntriesAddedAndRemovedInBatch() {
+        createCache();
+
+        checkAdds(1, 2, 3, 4, 5, 6, 7, 8);
+
+        Map<String, Integer> changes = new LinkedHashMap<String, Integer>();
+        for (int i = 0; i < 100; i++) {
+            changes.put(String.format("key_%d", i), i % 3 == 0 ? null : i * 10);
+        }
+        cache.putAll(changes);
+
+        cache.reset();
+        cache.verify();
+
+        for (Map.Entry<String, Integer> entry : changes.entrySet()) {
+            assertThat(cache.get(entry.getKey()), equalTo(entry.getValue()));
+        }
+        verifyAndCloseCache();
+    }
+
     @Test
     public void removalRedistributesRemainingEntriesWithLeftSibling() {
         createCache();
@@ -32,4 +32,17 @@ class LockOptionsBuilderTest extends Specification {
         copy.mode == Shared
         copy.useCrossVersionImplementation
     }
+
+    def "copy of options keeps lock on access"() {
+        def builder = LockOptionsBuilder.mode(None).lockOnAccess()
+
+        when:
+        def copy = builder.withMode(Exclusive)
+
+        then:
+        copy.mode == Exclusive
+        copy.lockOnAccess
+        copy == LockOptionsBuilder.mode(Exclusive).lockOnAccess()
+        copy != LockOptionsBuilder.mode(Exclusive)
+    }
 }
@@ -55,7 +55,7 @@ class DefaultTaskExecutionPlanParallelTaskHandlingTest extends Specification {
         allBlockedThreadsFinish()
     }
 
-    private void addToGraphAndPopulate(Task... tasks) {
+    void addToGraphAndPopulate(Task... tasks) {
         executionPlan.addToTaskGraph(Arrays.asList(tasks))
         executionPlan.determineExecutionPlan()
     }
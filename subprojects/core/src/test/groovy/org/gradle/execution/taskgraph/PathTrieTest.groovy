@@ -0,0 +1,108 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph
+
+import org.gradle.internal.Pair
+import spock.lang.Specification
+
+class PathTrieTest extends Specification {
+    def trie = new PathTrie<String>()
+
+    def "finds path that is the same as the given path"() {
+        given:
+        trie.add(path("a/b"), "owner")
+
+        expect:
+        trie.findOverlapping(path("a/b")) == Pair.of("owner", path("a/b"))
+    }
+
+    def "finds path that is an ancestor of the given path"() {
+        given:
+        trie.add(path("a/b"), "owner")
+
+        expect:
+        trie.findOverlapping(path("a/b/c/d")) == Pair.of("owner", path("a/b"))
+    }
+
+    def "finds path that is a descendant of the given path"() {
+        given:
+        trie.add(path("a/b/c/d"), "owner")
+
+        expect:
+        trie.findOverlapping(path("a/b")) == Pair.of("owner", path("a/b"))
+    }
+
+    def "does not find paths that only share a prefix"() {
+        given:
+        trie.add(path("a/b"), "owner")
+        trie.add(path("a/cd"), "other")
+
+        expect:
+        trie.findOverlapping(path("a/bc")) == null
+        trie.findOverlapping(path("a/c")) == null
+        trie.findOverlapping(path("a/c/d")) == null
+        trie.findOverlapping(path("b")) == null
+    }
+
+    def "does not find removed paths"() {
+        given:
+        trie.add(path("a/b"), "owner")
+        trie.add(path("a/b/c"), "other")
+
+        when:
+        trie.remove(path("a/b"), "owner")
+
+        then:
+        trie.findOverlapping(path("a/b/d")) == null
+        trie.findOverlapping(path("a/b")) == Pair.of("other", path("a/b"))
+
+        when:
+        trie.remove(path("a/b/c"), "other")
+
+        then:
+        trie.isEmpty()
+        trie.findOverlapping(path("a")) == null
+    }
+
+    def "path may have multiple owners"() {
+        given:
+        trie.add(path("a/b"), "owner")
+        trie.add(path("a/b"), "other")
+
+        when:
+        trie.remove(path("a/b"), "owner")
+
+        then:
+        trie.findOverlapping(path("a/b")) == Pair.of("other", path("a/b"))
+    }
+
+    def "ignores removal of unknown path"() {
+        given:
+        trie.add(path("a/b"), "owner")
+
+        when:
+        trie.remove(path("a/b/c"), "owner")
+        trie.remove(path("a/b"), "other")
+
+        then:
+        trie.findOverlapping(path("a/b")) == Pair.of("owner", path("a/b"))
+    }
+
+    private static String path(String path) {
+        new File(new File("root").absoluteFile, path).path
+    }
+}
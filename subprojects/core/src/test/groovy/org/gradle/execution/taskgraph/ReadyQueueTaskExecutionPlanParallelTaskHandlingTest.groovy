@@ -0,0 +1,89 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph
+
+import org.gradle.api.Task
+import org.gradle.initialization.BuildCancellationToken
+
+class ReadyQueueTaskExecutionPlanParallelTaskHandlingTest extends DefaultTaskExecutionPlanParallelTaskHandlingTest {
+    def setup() {
+        executionPlan = new DefaultTaskExecutionPlan(Stub(BuildCancellationToken), true, true)
+    }
+
+    def "worker waits for running tasks to complete when no more tasks are waiting to start"() {
+        given:
+        Task a = root.task("a", type: DefaultTaskExecutionPlanParallelTaskHandlingTest.Parallel)
+        def result = []
+
+        when:
+        addToGraphAndPopulate(a)
+        startTasks(1)
+        def worker = blockedThread { result << executionPlan.getTaskToExecute() }
+
+        then:
+        worker.alive
+
+        when:
+        completeAllStartedTasks()
+        worker.join()
+
+        then:
+        result == [null]
+    }
+
+    def "task blocked by overlapping outputs starts once the overlapping task completes"() {
+        given:
+        Task a = taskWithOutputFile("a", file("output"))
+        Task b = taskWithOutputFile("b", file("output"))
+        Task c = taskWithOutputFile("c", file("other"))
+
+        when:
+        addToGraphAndPopulate(a, b, c)
+        startTasks(2)
+
+        then:
+        startedTasks*.task == [a, c]
+
+        when:
+        executionPlan.taskComplete(startedTasks.remove(0))
+        startTasks(1)
+
+        then:
+        startedTasks*.task == [c, b]
+    }
+
+    def "all waiting workers start the independent tasks of a project that become ready"() {
+        given:
+        Task a = root.task("a", type: DefaultTaskExecutionPlanParallelTaskHandlingTest.Parallel)
+        def dependents = (1..4).collect { root.task("b$it", type: DefaultTaskExecutionPlanParallelTaskHandlingTest.Parallel).dependsOn(a) }
+        def started = Collections.synchronizedList([])
+
+        when:
+        addToGraphAndPopulate(dependents as Task[])
+        startTasks(1)
+        def workers = dependents.collect { blockedThread { started << executionPlan.getTaskToExecute() } }
+        completeAllStartedTasks()
+        workers*.join(3000)
+
+        then:
+        workers.every { !it.alive }
+        started*.task as Set == dependents as Set
+
+        cleanup:
+        started.each { executionPlan.taskComplete(it) }
+    }
+}
@@ -19,6 +19,7 @@ package org.gradle.internal.service.scopes
 import org.gradle.StartParameter
 import org.gradle.api.internal.*
 import org.gradle.api.internal.artifacts.DependencyManagementServices
+import org.gradle.api.internal.changedetection.state.InMemoryTaskArtifactCache
 import org.gradle.api.internal.classpath.DefaultModuleRegistry
 import org.gradle.api.internal.classpath.ModuleRegistry
 import org.gradle.api.internal.classpath.PluginModuleRegistry
@@ -260,6 +261,7 @@ public class BuildScopeServicesTest extends Specification {
     def providesAProfileEventAdapter() {
         setup:
         expectParentServiceLocated(BuildRequestMetaData)
+        expectParentServiceLocated(InMemoryTaskArtifactCache)
         expectListenerManagerCreated()
 
         expect:
@@ -186,6 +186,36 @@ class DefaultWorkerProcessTest extends MultithreadedTestCase {
         workerProcess.waitForStop()
     }
 
+    @Test
+    public void isAliveUntilChildProcessStops() {
+        def listener = expectAttachesListener()
+        def execResult = context.mock(ExecResult.class)
+        ConnectionAcceptor acceptor = context.mock(ConnectionAcceptor.class)
+        workerProcess.startAccepting(acceptor)
+
+        context.checking {
+            one(execHandle).start()
+            will {
+                workerProcess.onConnect(connection)
+            }
+            one(acceptor).requestStop()
+            allowing(execResult).rethrowFailure()
+            will(returnValue(execResult))
+            allowing(execResult).assertNormalExitValue()
+            will(returnValue(execResult))
+        }
+
+        assertThat(workerProcess.alive, equalTo(false))
+
+        workerProcess.start()
+
+        assertThat(workerProcess.alive, equalTo(true))
+
+        listener.executionFinished(execHandle, execResult)
+
+        assertThat(workerProcess.alive, equalTo(false))
+    }
+
     private ExecHandleListener expectAttachesListener() {
         ExecHandleListener listener
         context.checking {
@@ -17,6 +17,7 @@
 package org.gradle.profile
 
 import org.gradle.StartParameter
+import org.gradle.api.internal.changedetection.state.InMemoryCacheStatistics
 import org.gradle.api.tasks.TaskState
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.junit.Rule
@@ -218,6 +219,43 @@ class ProfileReportRendererTest extends Specification {
 </div>"""))
     }
 
+    def "renders in-memory cache statistics"() {
+        def model = new BuildProfile(new StartParameter())
+        def file = temp.file("report.html")
+        model.cacheStatistics = [new InMemoryCacheStatistics("path/fileHashes.bin", 12, 3000, 20, 12, 1)]
+
+        when:
+        new ProfileReportRenderer().writeTo(model, file)
+
+        then:
+        file.text.contains(toPlatformLineSeparators("""<li>
+<a href="#tab4">Caches</a>
+</li>"""))
+        file.text.contains(toPlatformLineSeparators("""<div class="tab" id="tab4">
+<h2>Caches</h2>
+<table>
+<thead>
+<tr>
+<th>Cache</th>
+<th class="numeric">Entries</th>
+<th class="numeric">Estimated Size</th>
+<th class="numeric">Hits</th>
+<th class="numeric">Misses</th>
+<th class="numeric">Evictions</th>
+</tr>
+</thead>
+<tr>
+<td>path/fileHashes.bin</td>
+<td class="numeric">12</td>
+<td class="numeric">3 KB</td>
+<td class="numeric">20</td>
+<td class="numeric">12</td>
+<td class="numeric">1</td>
+</tr>
+</table>
+</div>"""))
+    }
+
     private long time(int hour, int mins, int secs, int ms = 0) {
         def cal = new GregorianCalendar(2010, 1, 5, hour, mins, secs)
         cal.add(Calendar.MILLISECOND, ms)
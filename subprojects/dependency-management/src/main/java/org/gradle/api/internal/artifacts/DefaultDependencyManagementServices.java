@@ -146,6 +146,7 @@ public class DefaultDependencyManagementServices implements DependencyManagement
                                                        ComponentIdentifierFactory componentIdentifierFactory,
                                                        CacheLockingManager cacheLockingManager,
                                                        ResolutionResultsStoreFactory resolutionResultsStoreFactory,
+                                                       ConcurrentArtifactDownloader artifactDownloader,
                                                        StartParameter startParameter) {
             return new ErrorHandlingConfigurationResolver(
                     new ShortCircuitEmptyConfigurationResolver(
@@ -156,7 +157,8 @@ public class DefaultDependencyManagementServices implements DependencyManagement
                                             metadataHandler,
                                             cacheLockingManager,
                                             resolutionResultsStoreFactory,
-                                            startParameter.isBuildProjectDependencies())),
+                                            startParameter.isBuildProjectDependencies(),
+                                            artifactDownloader)),
                             componentIdentifierFactory)
             );
         }
@@ -27,13 +27,20 @@ public class DefaultResolvedArtifact implements ResolvedArtifact {
     private final ResolvedModuleVersion owner;
     private final IvyArtifactName artifact;
     private final ComponentArtifactIdentifier artifactId;
+    private final String repositoryId;
     private Factory<File> artifactSource;
     private File file;
+    private RuntimeException failure;
 
     public DefaultResolvedArtifact(ResolvedModuleVersion owner, IvyArtifactName artifact, ComponentArtifactIdentifier artifactId, Factory<File> artifactSource) {
+        this(owner, artifact, artifactId, null, artifactSource);
+    }
+
+    public DefaultResolvedArtifact(ResolvedModuleVersion owner, IvyArtifactName artifact, ComponentArtifactIdentifier artifactId, String repositoryId, Factory<File> artifactSource) {
         this.owner = owner;
         this.artifact = artifact;
         this.artifactId = artifactId;
+        this.repositoryId = repositoryId;
         this.artifactSource = artifactSource;
     }
 
@@ -85,11 +92,43 @@ public class DefaultResolvedArtifact implements ResolvedArtifact {
         return artifact.getClassifier();
     }
 
-    public File getFile() {
+    /**
+     * Returns the id of the repository that the file of this artifact is downloaded from, or null if the file is not downloaded from a repository.
+     */
+    public String getRepositoryId() {
+        return repositoryId;
+    }
+
+    public synchronized boolean isResolved() {
+        return file != null;
+    }
+
+    public synchronized File getFile() {
+        if (failure != null) {
+            RuntimeException e = failure;
+            failure = null;
+            throw e;
+        }
         if (file == null) {
             file = artifactSource.create();
             artifactSource = null;
         }
         return file;
     }
+
+    /**
+     * Resolves the file of this artifact ahead of the first call to {@link #getFile()}. A failure is not thrown, but is held and thrown by the next
+     * call to {@link #getFile()}, so that it is reported in the same place as when the file is resolved on demand.
+     */
+    public synchronized void resolveFile() {
+        if (file != null || failure != null) {
+            return;
+        }
+        try {
+            file = artifactSource.create();
+            artifactSource = null;
+        } catch (RuntimeException e) {
+            failure = e;
+        }
+    }
 }
@@ -35,7 +35,11 @@ import org.gradle.api.internal.artifacts.ivyservice.projectmodule.DefaultProject
 import org.gradle.api.internal.artifacts.ivyservice.projectmodule.DefaultProjectPublicationRegistry;
 import org.gradle.api.internal.artifacts.ivyservice.projectmodule.ProjectDependencyResolver;
 import org.gradle.api.internal.artifacts.ivyservice.projectmodule.ProjectPublicationRegistry;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.ConcurrentComponentMetaDataPrefetcher;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.DefaultArtifactDependencyResolver;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.ComponentMetaDataPrefetcher;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graphcache.CacheEntryTimestamps;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graphcache.ResolvedGraphCache;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.store.ResolutionResultsStoreFactory;
 import org.gradle.api.internal.artifacts.mvnsettings.*;
 import org.gradle.api.internal.artifacts.repositories.transport.RepositoryTransportFactory;
@@ -51,6 +55,7 @@ import org.gradle.api.internal.project.ProjectRegistry;
 import org.gradle.cache.CacheRepository;
 import org.gradle.initialization.ProjectAccessListener;
 import org.gradle.internal.component.external.model.ModuleComponentArtifactMetaData;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.reflect.Instantiator;
 import org.gradle.internal.resource.cached.ByUrlCachedExternalResourceIndex;
 import org.gradle.internal.resource.cached.ivy.ArtifactAtRepositoryCachedArtifactIndex;
@@ -98,11 +103,16 @@ class DependencyManagementBuildScopeServices {
         return new BuildCommencedTimeProvider();
     }
 
-    ModuleVersionsCache createModuleVersionsCache(BuildCommencedTimeProvider timeProvider, CacheLockingManager cacheLockingManager) {
-        return new SingleFileBackedModuleVersionsCache(
+    CacheEntryTimestamps createCacheEntryTimestamps(BuildCommencedTimeProvider timeProvider) {
+        return new CacheEntryTimestamps(timeProvider);
+    }
+
+    ModuleVersionsCache createModuleVersionsCache(BuildCommencedTimeProvider timeProvider, CacheLockingManager cacheLockingManager, CacheEntryTimestamps cacheEntryTimestamps) {
+        ModuleVersionsCache cache = new SingleFileBackedModuleVersionsCache(
             timeProvider,
             cacheLockingManager
         );
+        return ResolvedGraphCache.isEnabled() ? cacheEntryTimestamps.track(cache) : cache;
     }
 
     ModuleArtifactsCache createModuleArtifactsCache(BuildCommencedTimeProvider timeProvider, CacheLockingManager cacheLockingManager) {
@@ -112,12 +122,14 @@ class DependencyManagementBuildScopeServices {
         );
     }
 
-    ModuleMetaDataCache createModuleDescriptorCache(BuildCommencedTimeProvider timeProvider, CacheLockingManager cacheLockingManager, ResolverStrategy resolverStrategy) {
-        return new DefaultModuleMetaDataCache(
+    ModuleMetaDataCache createModuleDescriptorCache(BuildCommencedTimeProvider timeProvider, CacheLockingManager cacheLockingManager, ResolverStrategy resolverStrategy,
+                                                    CacheEntryTimestamps cacheEntryTimestamps) {
+        ModuleMetaDataCache cache = new DefaultModuleMetaDataCache(
             timeProvider,
             cacheLockingManager,
             resolverStrategy
         );
+        return ResolvedGraphCache.isEnabled() ? cacheEntryTimestamps.track(cache) : cache;
     }
 
     ArtifactAtRepositoryCachedArtifactIndex createArtifactAtRepositoryCachedResolutionIndex(BuildCommencedTimeProvider timeProvider, CacheLockingManager cacheLockingManager) {
@@ -207,6 +219,8 @@ class DependencyManagementBuildScopeServices {
                                                                 CacheLockingManager cacheLockingManager,
                                                                 IvyContextManager ivyContextManager,
                                                                 VersionComparator versionComparator,
+                                                                ComponentMetaDataPrefetcher metaDataPrefetcher,
+                                                                ResolvedGraphCache graphCache,
                                                                 ServiceRegistry serviceRegistry) {
         DefaultArtifactDependencyResolver resolver = new DefaultArtifactDependencyResolver(
             serviceRegistry,
@@ -214,11 +228,26 @@ class DependencyManagementBuildScopeServices {
             dependencyDescriptorFactory,
             cacheLockingManager,
             ivyContextManager,
-            versionComparator
+            versionComparator,
+            metaDataPrefetcher,
+            graphCache
         );
         return new CacheLockingArtifactDependencyResolver(cacheLockingManager, resolver);
     }
 
+    ConcurrentArtifactDownloader createConcurrentArtifactDownloader(ExecutorFactory executorFactory, CacheLockingManager cacheLockingManager) {
+        return new ConcurrentArtifactDownloader(executorFactory, cacheLockingManager);
+    }
+
+    ComponentMetaDataPrefetcher createComponentMetaDataPrefetcher(ExecutorFactory executorFactory, CacheLockingManager cacheLockingManager, IvyContextManager ivyContextManager) {
+        return new ConcurrentComponentMetaDataPrefetcher(executorFactory, cacheLockingManager, ivyContextManager);
+    }
+
+    ResolvedGraphCache createResolvedGraphCache(CacheLockingManager cacheLockingManager, BuildCommencedTimeProvider timeProvider, VersionSelectorScheme versionSelectorScheme,
+                                                CacheEntryTimestamps cacheEntryTimestamps) {
+        return new ResolvedGraphCache(cacheLockingManager, timeProvider, versionSelectorScheme, cacheEntryTimestamps);
+    }
+
     ResolutionResultsStoreFactory createResolutionResultsStoreFactory(TemporaryFileProvider temporaryFileProvider) {
         return new ResolutionResultsStoreFactory(temporaryFileProvider);
     }
@@ -24,6 +24,7 @@ import org.gradle.api.internal.notations.ModuleIdentifierNotationConverter;
 import org.gradle.internal.typeconversion.NotationParser;
 import org.gradle.internal.typeconversion.NotationParserBuilder;
 
+import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
@@ -59,6 +60,10 @@ public class ComponentModuleMetadataContainer implements ModuleReplacementsData
         return replacements.get(sourceModule);
     }
 
+    public Map<ModuleIdentifier, ModuleIdentifier> getReplacements() {
+        return Collections.unmodifiableMap(replacements);
+    }
+
     private static void detectCycles(Map<ModuleIdentifier, ModuleIdentifier> replacements, ModuleIdentifier source, ModuleIdentifier target) {
         if (source.equals(target)) {
             throw new InvalidUserDataException(String.format("Cannot declare module replacement that replaces self: %s->%s", source, target));
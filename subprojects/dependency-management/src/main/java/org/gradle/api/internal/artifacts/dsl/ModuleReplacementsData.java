@@ -19,6 +19,9 @@ package org.gradle.api.internal.artifacts.dsl;
 import org.gradle.api.Nullable;
 import org.gradle.api.artifacts.ModuleIdentifier;
 
+import java.util.Collections;
+import java.util.Map;
+
 public interface ModuleReplacementsData {
     ModuleReplacementsData NO_OP = new ModuleReplacementsData() {
         @Nullable
@@ -26,7 +29,17 @@ public interface ModuleReplacementsData {
         public ModuleIdentifier getReplacementFor(ModuleIdentifier sourceModule) {
             return null;
         }
+
+        @Override
+        public Map<ModuleIdentifier, ModuleIdentifier> getReplacements() {
+            return Collections.emptyMap();
+        }
     };
 
     @Nullable ModuleIdentifier getReplacementFor(ModuleIdentifier sourceModule);
+
+    /**
+     * Returns all declared replacements, keyed by the replaced module.
+     */
+    Map<ModuleIdentifier, ModuleIdentifier> getReplacements();
 }
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.gradle.api.artifacts.ResolvedArtifact;
+import org.gradle.api.internal.artifacts.DefaultResolvedArtifact;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.concurrent.StoppableExecutor;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Resolves the files of a set of artifacts using a bounded pool of worker threads, limiting the number of concurrent downloads from each repository.
+ *
+ * <p>The calling thread gives up ownership of the artifact cache while it waits. Each artifact takes ownership of the cache to resolve its file, and
+ * gives it up again while the file is downloaded, so that only the downloads run concurrently.</p>
+ */
+public class ConcurrentArtifactDownloader implements Stoppable {
+    public static final String TOGGLE_PROPERTY = "org.gradle.resolution.parallelartifacts";
+    static final int MAX_CONCURRENT_DOWNLOADS = 8;
+    static final int MAX_CONCURRENT_DOWNLOADS_PER_REPOSITORY = 4;
+
+    private final ExecutorFactory executorFactory;
+    private final CacheLockingManager cacheLockingManager;
+    private StoppableExecutor executor;
+
+    public ConcurrentArtifactDownloader(ExecutorFactory executorFactory, CacheLockingManager cacheLockingManager) {
+        this.executorFactory = executorFactory;
+        this.cacheLockingManager = cacheLockingManager;
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(TOGGLE_PROPERTY);
+    }
+
+    /**
+     * Resolves the file of each of the given artifacts that has not already been resolved. A failure to resolve a file is reported by
+     * {@link ResolvedArtifact#getFile()} for that artifact, rather than by this method.
+     */
+    public void downloadFiles(Collection<? extends ResolvedArtifact> artifacts) {
+        final Map<String, Queue<DefaultResolvedArtifact>> artifactsByRepository = new LinkedHashMap<String, Queue<DefaultResolvedArtifact>>();
+        int count = 0;
+        for (ResolvedArtifact artifact : artifacts) {
+            if (!(artifact instanceof DefaultResolvedArtifact)) {
+                continue;
+            }
+            DefaultResolvedArtifact resolvedArtifact = (DefaultResolvedArtifact) artifact;
+            if (resolvedArtifact.getRepositoryId() == null || resolvedArtifact.isResolved()) {
+                continue;
+            }
+            Queue<DefaultResolvedArtifact> queue = artifactsByRepository.get(resolvedArtifact.getRepositoryId());
+            if (queue == null) {
+                queue = new ConcurrentLinkedQueue<DefaultResolvedArtifact>();
+                artifactsByRepository.put(resolvedArtifact.getRepositoryId(), queue);
+            }
+            queue.add(resolvedArtifact);
+            count++;
+        }
+        if (count < 2) {
+            // Nothing to be gained from resolving a single file up front
+            return;
+        }
+
+        final StoppableExecutor executor = getExecutor();
+        cacheLockingManager.longRunningOperation(String.format("Download %s artifacts", count), new Runnable() {
+            public void run() {
+                List<Future<?>> results = new ArrayList<Future<?>>();
+                for (Queue<DefaultResolvedArtifact> queue : artifactsByRepository.values()) {
+                    // Each worker resolves artifacts from the queue of a single repository until the queue is empty
+                    int workers = Math.min(MAX_CONCURRENT_DOWNLOADS_PER_REPOSITORY, queue.size());
+                    for (int i = 0; i < workers; i++) {
+                        results.add(executor.submit(new RepositoryWorker(queue)));
+                    }
+                }
+                // Wait for every worker before returning, so that none is still using the cache when the caller takes back ownership
+                Throwable failure = null;
+                for (Future<?> result : results) {
+                    try {
+                        result.get();
+                    } catch (InterruptedException e) {
+                        throw UncheckedException.throwAsUncheckedException(e);
+                    } catch (ExecutionException e) {
+                        if (failure == null) {
+                            failure = e.getCause();
+                        }
+                    }
+                }
+                if (failure != null) {
+                    throw UncheckedException.throwAsUncheckedException(failure);
+                }
+            }
+        });
+    }
+
+    private synchronized StoppableExecutor getExecutor() {
+        if (executor == null) {
+            executor = executorFactory.create("Download artifacts", MAX_CONCURRENT_DOWNLOADS);
+        }
+        return executor;
+    }
+
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.stop();
+            executor = null;
+        }
+    }
+
+    private static class RepositoryWorker implements Runnable {
+        private final Queue<DefaultResolvedArtifact> queue;
+
+        RepositoryWorker(Queue<DefaultResolvedArtifact> queue) {
+            this.queue = queue;
+        }
+
+        public void run() {
+            DefaultResolvedArtifact artifact;
+            while ((artifact = queue.poll()) != null) {
+                artifact.resolveFile();
+            }
+        }
+    }
+}
@@ -35,14 +35,25 @@ public class DefaultLenientConfiguration implements LenientConfiguration {
     private final Set<UnresolvedDependency> unresolvedDependencies;
     private final ResolvedArtifacts artifactResults;
     private final Factory<TransientConfigurationResults> transientConfigurationResultsFactory;
+    private final ConcurrentArtifactDownloader artifactDownloader;
 
     public DefaultLenientConfiguration(Configuration configuration, CacheLockingManager cacheLockingManager, Set<UnresolvedDependency> unresolvedDependencies,
                                        ResolvedArtifacts artifactResults, Factory<TransientConfigurationResults> transientConfigurationResultsLoader) {
+        this(configuration, cacheLockingManager, unresolvedDependencies, artifactResults, transientConfigurationResultsLoader, null);
+    }
+
+    /**
+     * @param artifactDownloader Used to download the files of the artifacts before they are returned. May be null, in which case each file is downloaded on demand.
+     */
+    public DefaultLenientConfiguration(Configuration configuration, CacheLockingManager cacheLockingManager, Set<UnresolvedDependency> unresolvedDependencies,
+                                       ResolvedArtifacts artifactResults, Factory<TransientConfigurationResults> transientConfigurationResultsLoader,
+                                       ConcurrentArtifactDownloader artifactDownloader) {
         this.configuration = configuration;
         this.cacheLockingManager = cacheLockingManager;
         this.unresolvedDependencies = unresolvedDependencies;
         this.artifactResults = artifactResults;
         this.transientConfigurationResultsFactory = transientConfigurationResultsLoader;
+        this.artifactDownloader = artifactDownloader;
     }
 
     public boolean hasError() {
@@ -100,6 +111,7 @@ public class DefaultLenientConfiguration implements LenientConfiguration {
         final Set<ResolvedArtifact> allArtifacts = getAllArtifacts(dependencySpec);
         return cacheLockingManager.useCache("retrieve artifacts from " + configuration, new Factory<Set<ResolvedArtifact>>() {
             public Set<ResolvedArtifact> create() {
+                downloadFiles(allArtifacts);
                 return CollectionUtils.filter(allArtifacts, new Spec<ResolvedArtifact>() {
                     public boolean isSatisfiedBy(ResolvedArtifact element) {
                         try {
@@ -118,6 +130,7 @@ public class DefaultLenientConfiguration implements LenientConfiguration {
         final Set<File> files = new LinkedHashSet<File>();
         cacheLockingManager.useCache("resolve files from " + configuration, new Runnable() {
             public void run() {
+                downloadFiles(artifacts);
                 for (ResolvedArtifact artifact : artifacts) {
                     File depFile = artifact.getFile();
                     if (depFile != null) {
@@ -129,6 +142,15 @@ public class DefaultLenientConfiguration implements LenientConfiguration {
         return files;
     }
 
+    /**
+     * Downloads the files of the given artifacts as a batch, when enabled. The files are then collected in the same order as when downloaded on demand.
+     */
+    private void downloadFiles(Set<ResolvedArtifact> artifacts) {
+        if (artifactDownloader != null) {
+            artifactDownloader.downloadFiles(artifacts);
+        }
+    }
+
     /**
      * Recursive, includes unsuccessfully resolved artifacts
      *
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.apache.ivy.core.module.descriptor.DefaultDependencyDescriptor;
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link DefaultDependencyDescriptor} that keeps the configuration mappings as they were added. {@link #getDependencyConfigurations(String)}
+ * interprets mappings such as '*->@' or '*->#', so the added mappings cannot be recovered from it.
+ */
+public class RawMappingDependencyDescriptor extends DefaultDependencyDescriptor {
+    private final Map<String, List<String>> rawMappings = new LinkedHashMap<String, List<String>>();
+
+    public RawMappingDependencyDescriptor(ModuleDescriptor md, ModuleRevisionId mrid, boolean force, boolean changing, boolean transitive) {
+        super(md, mrid, force, changing, transitive);
+    }
+
+    public RawMappingDependencyDescriptor(ModuleDescriptor md, ModuleRevisionId mrid, ModuleRevisionId dynamicConstraint, boolean force, boolean changing, boolean transitive) {
+        super(md, mrid, dynamicConstraint, force, changing, transitive);
+    }
+
+    @Override
+    public void addDependencyConfiguration(String masterConf, String depConf) {
+        super.addDependencyConfiguration(masterConf, depConf);
+        List<String> dependencyConfigurations = rawMappings.get(masterConf);
+        if (dependencyConfigurations == null) {
+            dependencyConfigurations = new ArrayList<String>();
+            rawMappings.put(masterConf, dependencyConfigurations);
+        }
+        dependencyConfigurations.add(depConf);
+    }
+
+    /**
+     * Returns the dependency configurations added for the given module configuration, without interpreting them.
+     */
+    public List<String> getRawDependencyConfigurations(String moduleConfiguration) {
+        List<String> dependencyConfigurations = rawMappings.get(moduleConfiguration);
+        return dependencyConfigurations == null ? Collections.<String>emptyList() : Collections.unmodifiableList(dependencyConfigurations);
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser;
+
+import com.google.common.collect.ImmutableSet;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLResolver;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reads a POM into a tree of {@link PomElement}s using a streaming parser. Only the elements that Gradle uses are kept: the elements
+ * of sections such as {@code build} or {@code reporting} are skipped without being stored.
+ */
+public final class PomStreamingParser {
+    private static final Set<String> PROJECT_ELEMENTS = ImmutableSet.of(
+        "groupId", "artifactId", "version", "packaging", "description", "url", "licenses", "parent",
+        "dependencies", "dependencyManagement", "distributionManagement", "properties", "profiles");
+    private static final Set<String> PROFILE_ELEMENTS = ImmutableSet.of(
+        "id", "activation", "properties", "dependencies", "dependencyManagement");
+    private static final Set<String> ROOT_ELEMENTS = ImmutableSet.of("project", "model");
+
+    // XMLInputFactory instances are not guaranteed to be thread-safe
+    private static final ThreadLocal<XMLInputFactory> INPUT_FACTORY = new ThreadLocal<XMLInputFactory>() {
+        @Override
+        protected XMLInputFactory initialValue() {
+            XMLInputFactory factory = XMLInputFactory.newInstance();
+            factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+            factory.setProperty(XMLInputFactory.IS_VALIDATING, false);
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, true);
+            factory.setProperty(XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, true);
+            factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, true);
+            factory.setXMLResolver(new XMLResolver() {
+                public Object resolveEntity(String publicID, String systemID, String baseURI, String namespace) {
+                    if (systemID != null && systemID.endsWith("m2-entities.ent")) {
+                        return org.apache.ivy.plugins.parser.m2.PomReader.class.getResourceAsStream("m2-entities.ent");
+                    }
+                    return null;
+                }
+            });
+            return factory;
+        }
+    };
+
+    private PomStreamingParser() {}
+
+    /**
+     * Parses the given POM content, returning its root element.
+     */
+    public static PomElement parse(InputStream stream, String systemId) throws IOException, XMLStreamException {
+        XMLStreamReader reader = INPUT_FACTORY.get().createXMLStreamReader(systemId, new AddDTDFilterInputStream(stream));
+        try {
+            return parse(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static PomElement parse(XMLStreamReader reader) throws XMLStreamException {
+        List<PomElement> path = new ArrayList<PomElement>();
+        List<StringBuilder> texts = new ArrayList<StringBuilder>();
+        PomElement root = null;
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    String name = reader.getLocalName();
+                    if (root == null) {
+                        root = new PomElement(name);
+                        path.add(root);
+                        break;
+                    }
+                    PomElement parent = path.get(path.size() - 1);
+                    if (!isUsed(path, name)) {
+                        skipElement(reader);
+                        break;
+                    }
+                    PomElement element = new PomElement(name);
+                    parent.addChild(element);
+                    path.add(element);
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    int depth = path.size() - 1;
+                    PomElement finished = path.remove(depth);
+                    if (depth < texts.size() && texts.get(depth).length() > 0) {
+                        finished.text = texts.get(depth).toString();
+                        texts.get(depth).setLength(0);
+                    }
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    if (!path.isEmpty()) {
+                        textAt(texts, path.size() - 1).append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return root;
+    }
+
+    private static boolean isUsed(List<PomElement> path, String name) {
+        PomElement root = path.get(0);
+        if (!ROOT_ELEMENTS.contains(root.getName())) {
+            return false;
+        }
+        if (path.size() == 1) {
+            return PROJECT_ELEMENTS.contains(name);
+        }
+        if (path.size() == 3 && path.get(1).getName().equals("profiles") && path.get(2).getName().equals("profile")) {
+            return PROFILE_ELEMENTS.contains(name);
+        }
+        return true;
+    }
+
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    private static StringBuilder textAt(List<StringBuilder> texts, int depth) {
+        while (texts.size() <= depth) {
+            texts.add(new StringBuilder());
+        }
+        return texts.get(depth);
+    }
+
+    public static String getTextContent(PomElement element) {
+        return element.text;
+    }
+
+    public static String getFirstChildText(PomElement parentElem, String name) {
+        PomElement node = getFirstChildElement(parentElem, name);
+        if (node != null) {
+            return getTextContent(node);
+        } else {
+            return null;
+        }
+    }
+
+    public static PomElement getFirstChildElement(PomElement parentElem, String name) {
+        if (parentElem == null) {
+            return null;
+        }
+        for (PomElement child : parentElem.children) {
+            if (name.equals(child.getName())) {
+                return child;
+            }
+        }
+        return null;
+    }
+
+    public static List<PomElement> getAllChilds(PomElement parent) {
+        if (parent == null) {
+            return Collections.emptyList();
+        }
+        return parent.children;
+    }
+
+    /**
+     * An element of a POM, with its child elements and the text it directly contains.
+     */
+    public static final class PomElement {
+        private final String name;
+        private String text = "";
+        private List<PomElement> children = Collections.emptyList();
+
+        PomElement(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        private void addChild(PomElement child) {
+            if (children.isEmpty()) {
+                children = new ArrayList<PomElement>(4);
+            }
+            children.add(child);
+        }
+    }
+
+    public static final class AddDTDFilterInputStream extends FilterInputStream {
+        private static final int MARK = 10000;
+        private static final String DOCTYPE = "<!DOCTYPE project SYSTEM \"m2-entities.ent\">\n";
+
+        private int count;
+        private byte[] prefix = DOCTYPE.getBytes();
+
+        public AddDTDFilterInputStream(InputStream in) throws IOException {
+            super(new BufferedInputStream(in));
+
+            this.in.mark(MARK);
+
+            // Insert the DOCTYPE at the byte level rather than using a Reader, so that the parser still detects the encoding from the XML declaration
+            int byte1 = this.in.read();
+            int byte2 = this.in.read();
+            int byte3 = this.in.read();
+
+            if (byte1 == 239 && byte2 == 187 && byte3 == 191) {
+                // skip the UTF-8 BOM
+                this.in.mark(MARK);
+            } else {
+                this.in.reset();
+            }
+
+            int bytesToSkip = 0;
+            LineNumberReader reader = new LineNumberReader(new InputStreamReader(this.in, "UTF-8"), 100);
+            String firstLine = reader.readLine();
+            if (firstLine != null) {
+                String trimmed = firstLine.trim();
+                if (trimmed.startsWith("<?xml ")) {
+                    int endIndex = trimmed.indexOf("?>");
+                    String xmlDecl = trimmed.substring(0, endIndex + 2);
+                    prefix = (xmlDecl + "\n" + DOCTYPE).getBytes();
+                    bytesToSkip = xmlDecl.getBytes().length;
+                }
+            }
+
+            this.in.reset();
+            for (int i = 0; i < bytesToSkip; i++) {
+                this.in.read();
+            }
+        }
+
+        public int read() throws IOException {
+            if (count < prefix.length) {
+                return prefix[count++];
+            }
+
+            return super.read();
+        }
+
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (b == null) {
+                throw new NullPointerException();
+            } else if ((off < 0) || (off > b.length) || (len < 0)
+                    || ((off + len) > b.length) || ((off + len) < 0)) {
+                throw new IndexOutOfBoundsException();
+            } else if (len == 0) {
+                return 0;
+            }
+
+            int nbrBytesCopied = 0;
+
+            if (count < prefix.length) {
+                int nbrBytesFromPrefix = Math.min(prefix.length - count, len);
+                System.arraycopy(prefix, count, b, off, nbrBytesFromPrefix);
+                nbrBytesCopied = nbrBytesFromPrefix;
+            }
+
+            if (nbrBytesCopied < len) {
+                nbrBytesCopied += in.read(b, off + nbrBytesCopied, len - nbrBytesCopied);
+            }
+
+            count += nbrBytesCopied;
+            return nbrBytesCopied;
+        }
+    }
+}
@@ -0,0 +1,376 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.modulecache;
+
+import org.apache.ivy.core.module.descriptor.*;
+import org.apache.ivy.core.module.id.ArtifactId;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.plugins.matcher.PatternMatcher;
+import org.apache.ivy.plugins.parser.xml.XmlModuleDescriptorParser;
+import org.gradle.api.internal.artifacts.ivyservice.IvyUtil;
+import org.gradle.api.internal.artifacts.ivyservice.NamespaceId;
+import org.gradle.api.internal.artifacts.ivyservice.RawMappingDependencyDescriptor;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.ResolverStrategy;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.Encoder;
+import org.gradle.internal.serialize.Serializer;
+
+import java.net.URL;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact binary encoding of a {@link ModuleDescriptor}, so that cached meta-data can be read without parsing an ivy.xml file.
+ * Encodes the same information as {@link org.gradle.api.internal.artifacts.ivyservice.IvyXmlModuleDescriptorWriter}.
+ */
+class ModuleDescriptorSerializer implements Serializer<ModuleDescriptor> {
+    private final ResolverStrategy resolverStrategy;
+
+    public ModuleDescriptorSerializer(ResolverStrategy resolverStrategy) {
+        this.resolverStrategy = resolverStrategy;
+    }
+
+    public void write(Encoder encoder, ModuleDescriptor md) throws Exception {
+        ModuleRevisionId id = md.getModuleRevisionId();
+        ModuleRevisionId resolvedId = md.getResolvedModuleRevisionId();
+        writeModuleRevisionId(encoder, IvyUtil.createModuleRevisionId(id.getOrganisation(), id.getName(), resolvedId.getBranch(), resolvedId.getRevision(), md.getQualifiedExtraAttributes()));
+        encoder.writeString(md.getStatus());
+        Date publicationDate = md.getResolvedPublicationDate();
+        encoder.writeBoolean(publicationDate != null);
+        if (publicationDate != null) {
+            encoder.writeLong(publicationDate.getTime());
+        }
+        encoder.writeBoolean(md.isDefault());
+        writeMap(encoder, md.getExtraAttributesNamespaces());
+        writeLicenses(encoder, md.getLicenses());
+        encoder.writeNullableString(md.getHomePage());
+        encoder.writeNullableString(md.getDescription());
+        writeExtraInfo(encoder, md.getExtraInfo());
+        writeConfigurations(encoder, md.getConfigurations());
+        writeArtifacts(encoder, md.getAllArtifacts());
+        writeDependencies(encoder, md.getDependencies());
+        writeExcludeRules(encoder, md.getAllExcludeRules());
+    }
+
+    public ModuleDescriptor read(Decoder decoder) throws Exception {
+        DefaultModuleDescriptor md = new DefaultModuleDescriptor(XmlModuleDescriptorParser.getInstance(), null);
+        md.setModuleRevisionId(readModuleRevisionId(decoder));
+        md.setStatus(decoder.readString());
+        if (decoder.readBoolean()) {
+            md.setPublicationDate(new Date(decoder.readLong()));
+        }
+        md.setDefault(decoder.readBoolean());
+        for (Map.Entry<String, String> entry : readMap(decoder).entrySet()) {
+            md.addExtraAttributeNamespace(entry.getKey(), entry.getValue());
+        }
+        readLicenses(decoder, md);
+        md.setHomePage(decoder.readNullableString());
+        md.setDescription(decoder.readNullableString());
+        readExtraInfo(decoder, md);
+        readConfigurations(decoder, md);
+        readArtifacts(decoder, md);
+        readDependencies(decoder, md);
+        int excludeCount = decoder.readSmallInt();
+        for (int i = 0; i < excludeCount; i++) {
+            md.addExcludeRule((ExcludeRule) readRule(decoder, true));
+        }
+        return md;
+    }
+
+    private void writeLicenses(Encoder encoder, License[] licenses) throws Exception {
+        encoder.writeSmallInt(licenses.length);
+        for (License license : licenses) {
+            encoder.writeNullableString(license.getName());
+            encoder.writeNullableString(license.getUrl());
+        }
+    }
+
+    private void readLicenses(Decoder decoder, DefaultModuleDescriptor md) throws Exception {
+        int count = decoder.readSmallInt();
+        for (int i = 0; i < count; i++) {
+            md.addLicense(new License(decoder.readNullableString(), decoder.readNullableString()));
+        }
+    }
+
+    private void writeExtraInfo(Encoder encoder, Map<?, ?> extraInfo) throws Exception {
+        Map<NamespaceId, String> entries = new LinkedHashMap<NamespaceId, String>();
+        for (Map.Entry<?, ?> entry : extraInfo.entrySet()) {
+            if (entry.getValue() == null || entry.getValue().toString().length() == 0) {
+                continue;
+            }
+            NamespaceId key = entry.getKey() instanceof NamespaceId ? (NamespaceId) entry.getKey() : new NamespaceId("", entry.getKey().toString());
+            entries.put(key, entry.getValue().toString());
+        }
+        encoder.writeSmallInt(entries.size());
+        for (Map.Entry<NamespaceId, String> entry : entries.entrySet()) {
+            encoder.writeString(entry.getKey().getNamespace());
+            encoder.writeString(entry.getKey().getName());
+            encoder.writeString(entry.getValue());
+        }
+    }
+
+    private void readExtraInfo(Decoder decoder, DefaultModuleDescriptor md) throws Exception {
+        int count = decoder.readSmallInt();
+        for (int i = 0; i < count; i++) {
+            NamespaceId key = new NamespaceId(decoder.readString(), decoder.readString());
+            md.getExtraInfo().put(key, decoder.readString());
+        }
+    }
+
+    private void writeConfigurations(Encoder encoder, Configuration[] configurations) throws Exception {
+        encoder.writeSmallInt(configurations.length);
+        for (Configuration configuration : configurations) {
+            encoder.writeString(configuration.getName());
+            encoder.writeString(configuration.getVisibility().toString());
+            encoder.writeNullableString(configuration.getDescription());
+            writeStrings(encoder, configuration.getExtends());
+            encoder.writeBoolean(configuration.isTransitive());
+            encoder.writeNullableString(configuration.getDeprecated());
+            writeMap(encoder, configuration.getQualifiedExtraAttributes());
+        }
+    }
+
+    private void readConfigurations(Decoder decoder, DefaultModuleDescriptor md) throws Exception {
+        int count = decoder.readSmallInt();
+        for (int i = 0; i < count; i++) {
+            String name = decoder.readString();
+            Configuration.Visibility visibility = Configuration.Visibility.getVisibility(decoder.readString());
+            String description = decoder.readNullableString();
+            String[] extendsFrom = readStrings(decoder);
+            boolean transitive = decoder.readBoolean();
+            String deprecated = decoder.readNullableString();
+            Configuration configuration = new Configuration(name, visibility, description, extendsFrom, transitive, deprecated);
+            for (Map.Entry<String, String> entry : readMap(decoder).entrySet()) {
+                configuration.setExtraAttribute(entry.getKey(), entry.getValue());
+            }
+            md.addConfiguration(configuration);
+        }
+    }
+
+    private void writeArtifacts(Encoder encoder, Artifact[] artifacts) throws Exception {
+        encoder.writeSmallInt(artifacts.length);
+        for (Artifact artifact : artifacts) {
+            encoder.writeString(artifact.getName());
+            encoder.writeString(artifact.getType());
+            encoder.writeNullableString(artifact.getExt());
+            writeMap(encoder, artifact.getQualifiedExtraAttributes());
+            writeStrings(encoder, artifact.getConfigurations());
+        }
+    }
+
+    private void readArtifacts(Decoder decoder, DefaultModuleDescriptor md) throws Exception {
+        int count = decoder.readSmallInt();
+        for (int i = 0; i < count; i++) {
+            String name = decoder.readString();
+            String type = decoder.readString();
+            String ext = decoder.readNullableString();
+            MDArtifact artifact = new MDArtifact(md, name, type, ext, null, readMap(decoder));
+            for (String configuration : readStrings(decoder)) {
+                artifact.addConfiguration(configuration);
+                md.addArtifact(configuration, artifact);
+            }
+        }
+    }
+
+    private void writeDependencies(Encoder encoder, DependencyDescriptor[] dependencies) throws Exception {
+        encoder.writeSmallInt(dependencies.length);
+        for (DependencyDescriptor dependency : dependencies) {
+            writeModuleRevisionId(encoder, dependency.getDependencyRevisionId());
+            writeModuleRevisionId(encoder, dependency.getDynamicConstraintDependencyRevisionId());
+            encoder.writeBoolean(dependency.isForce());
+            encoder.writeBoolean(dependency.isChanging());
+            encoder.writeBoolean(dependency.isTransitive());
+            writeConfigurationMappings(encoder, dependency);
+
+            DependencyArtifactDescriptor[] artifacts = dependency.getAllDependencyArtifacts();
+            encoder.writeSmallInt(artifacts.length);
+            for (DependencyArtifactDescriptor artifact : artifacts) {
+                encoder.writeString(artifact.getName());
+                encoder.writeString(artifact.getType());
+                encoder.writeNullableString(artifact.getExt());
+                encoder.writeNullableString(artifact.getUrl() == null ? null : artifact.getUrl().toString());
+                writeMap(encoder, artifact.getQualifiedExtraAttributes());
+                writeStrings(encoder, artifact.getConfigurations());
+            }
+
+            IncludeRule[] includeRules = dependency.getAllIncludeRules();
+            encoder.writeSmallInt(includeRules.length);
+            for (IncludeRule includeRule : includeRules) {
+                writeRule(encoder, includeRule.getId(), includeRule.getMatcher(), includeRule.getQualifiedExtraAttributes(), includeRule.getConfigurations());
+            }
+
+            writeExcludeRules(encoder, dependency.getAllExcludeRules());
+        }
+    }
+
+    private void readDependencies(Decoder decoder, DefaultModuleDescriptor md) throws Exception {
+        int count = decoder.readSmallInt();
+        for (int i = 0; i < count; i++) {
+            ModuleRevisionId id = readModuleRevisionId(decoder);
+            ModuleRevisionId dynamicId = readModuleRevisionId(decoder);
+            boolean force = decoder.readBoolean();
+            boolean changing = decoder.readBoolean();
+            boolean transitive = decoder.readBoolean();
+            DefaultDependencyDescriptor dependency = new RawMappingDependencyDescriptor(md, id, dynamicId, force, changing, transitive);
+            md.addDependency(dependency);
+            readConfigurationMappings(decoder, dependency);
+
+            int artifactCount = decoder.readSmallInt();
+            for (int j = 0; j < artifactCount; j++) {
+                String name = decoder.readString();
+                String type = decoder.readString();
+                String ext = decoder.readNullableString();
+                String url = decoder.readNullableString();
+                DefaultDependencyArtifactDescriptor artifact = new DefaultDependencyArtifactDescriptor(dependency, name, type, ext, url == null ? null : new URL(url), readMap(decoder));
+                for (String configuration : readStrings(decoder)) {
+                    artifact.addConfiguration(configuration);
+                    dependency.addDependencyArtifact(configuration, artifact);
+                }
+            }
+
+            int includeCount = decoder.readSmallInt();
+            for (int j = 0; j < includeCount; j++) {
+                DefaultIncludeRule rule = (DefaultIncludeRule) readRule(decoder, false);
+                for (String configuration : rule.getConfigurations()) {
+                    dependency.addIncludeRule(configuration, rule);
+                }
+            }
+
+            int excludeCount = decoder.readSmallInt();
+            for (int j = 0; j < excludeCount; j++) {
+                DefaultExcludeRule rule = (DefaultExcludeRule) readRule(decoder, true);
+                for (String configuration : rule.getConfigurations()) {
+                    dependency.addExcludeRule(configuration, rule);
+                }
+            }
+        }
+    }
+
+    private void writeConfigurationMappings(Encoder encoder, DependencyDescriptor dependency) throws Exception {
+        String[] moduleConfigurations = dependency.getModuleConfigurations();
+        encoder.writeSmallInt(moduleConfigurations.length);
+        for (String moduleConfiguration : moduleConfigurations) {
+            encoder.writeString(moduleConfiguration);
+            if (dependency instanceof RawMappingDependencyDescriptor) {
+                // Use the raw mappings, as getDependencyConfigurations() interprets mappings such as '*->@' or '*->#'
+                List<String> dependencyConfigurations = ((RawMappingDependencyDescriptor) dependency).getRawDependencyConfigurations(moduleConfiguration);
+                writeStrings(encoder, dependencyConfigurations.toArray(new String[dependencyConfigurations.size()]));
+            } else {
+                writeStrings(encoder, dependency.getDependencyConfigurations(moduleConfiguration));
+            }
+        }
+    }
+
+    private void readConfigurationMappings(Decoder decoder, DefaultDependencyDescriptor dependency) throws Exception {
+        int count = decoder.readSmallInt();
+        for (int i = 0; i < count; i++) {
+            String moduleConfiguration = decoder.readString();
+            for (String dependencyConfiguration : readStrings(decoder)) {
+                dependency.addDependencyConfiguration(moduleConfiguration, dependencyConfiguration);
+            }
+        }
+    }
+
+    private void writeExcludeRules(Encoder encoder, ExcludeRule[] excludeRules) throws Exception {
+        encoder.writeSmallInt(excludeRules.length);
+        for (ExcludeRule excludeRule : excludeRules) {
+            writeRule(encoder, excludeRule.getId(), excludeRule.getMatcher(), excludeRule.getQualifiedExtraAttributes(), excludeRule.getConfigurations());
+        }
+    }
+
+    private void writeRule(Encoder encoder, ArtifactId id, PatternMatcher matcher, Map<?, ?> extraAttributes, String[] configurations) throws Exception {
+        encoder.writeString(id.getModuleId().getOrganisation());
+        encoder.writeString(id.getModuleId().getName());
+        encoder.writeString(id.getName());
+        encoder.writeString(id.getType());
+        encoder.writeString(id.getExt());
+        encoder.writeString(matcher.getName());
+        writeMap(encoder, extraAttributes);
+        writeStrings(encoder, configurations);
+    }
+
+    private Object readRule(Decoder decoder, boolean exclude) throws Exception {
+        ArtifactId id = IvyUtil.createArtifactId(decoder.readString(), decoder.readString(), decoder.readString(), decoder.readString(), decoder.readString());
+        PatternMatcher matcher = resolverStrategy.getPatternMatcher(decoder.readString());
+        Map<String, String> extraAttributes = readMap(decoder);
+        String[] configurations = readStrings(decoder);
+        if (exclude) {
+            DefaultExcludeRule rule = new DefaultExcludeRule(id, matcher, extraAttributes);
+            for (String configuration : configurations) {
+                rule.addConfiguration(configuration);
+            }
+            return rule;
+        }
+        DefaultIncludeRule rule = new DefaultIncludeRule(id, matcher, extraAttributes);
+        for (String configuration : configurations) {
+            rule.addConfiguration(configuration);
+        }
+        return rule;
+    }
+
+    private void writeModuleRevisionId(Encoder encoder, ModuleRevisionId id) throws Exception {
+        encoder.writeString(id.getOrganisation());
+        encoder.writeString(id.getName());
+        encoder.writeNullableString(id.getBranch());
+        encoder.writeNullableString(id.getRevision());
+        writeMap(encoder, id.getQualifiedExtraAttributes());
+    }
+
+    private ModuleRevisionId readModuleRevisionId(Decoder decoder) throws Exception {
+        String organisation = decoder.readString();
+        String name = decoder.readString();
+        String branch = decoder.readNullableString();
+        String revision = decoder.readNullableString();
+        Map<String, String> extraAttributes = readMap(decoder);
+        return IvyUtil.createModuleRevisionId(organisation, name, branch, revision, extraAttributes, false);
+    }
+
+    private void writeMap(Encoder encoder, Map<?, ?> map) throws Exception {
+        encoder.writeSmallInt(map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            encoder.writeString(entry.getKey().toString());
+            encoder.writeString(entry.getValue().toString());
+        }
+    }
+
+    private Map<String, String> readMap(Decoder decoder) throws Exception {
+        int count = decoder.readSmallInt();
+        Map<String, String> map = new LinkedHashMap<String, String>(count);
+        for (int i = 0; i < count; i++) {
+            map.put(decoder.readString(), decoder.readString());
+        }
+        return map;
+    }
+
+    private void writeStrings(Encoder encoder, String[] values) throws Exception {
+        encoder.writeSmallInt(values.length);
+        for (String value : values) {
+            encoder.writeString(value);
+        }
+    }
+
+    private String[] readStrings(Decoder decoder) throws Exception {
+        String[] values = new String[decoder.readSmallInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = decoder.readString();
+        }
+        return values;
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine;
+
+import org.apache.ivy.Ivy;
+import org.gradle.api.Action;
+import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager;
+import org.gradle.api.internal.artifacts.ivyservice.IvyContextManager;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.ComponentMetaDataPrefetcher;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.concurrent.StoppableExecutor;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Runs meta-data resolve operations using a bounded pool of worker threads.
+ *
+ * <p>The calling thread gives up ownership of the artifact cache while it waits, and each operation takes ownership of the cache in turn, so that
+ * only the remote requests made by the operations run concurrently.</p>
+ */
+public class ConcurrentComponentMetaDataPrefetcher implements ComponentMetaDataPrefetcher, Stoppable {
+    public static final String TOGGLE_PROPERTY = "org.gradle.resolution.parallelmetadata";
+    static final int MAX_CONCURRENT_REQUESTS = 8;
+
+    private final ExecutorFactory executorFactory;
+    private final CacheLockingManager cacheLockingManager;
+    private final IvyContextManager ivyContextManager;
+    private StoppableExecutor executor;
+
+    public ConcurrentComponentMetaDataPrefetcher(ExecutorFactory executorFactory, CacheLockingManager cacheLockingManager, IvyContextManager ivyContextManager) {
+        this.executorFactory = executorFactory;
+        this.cacheLockingManager = cacheLockingManager;
+        this.ivyContextManager = ivyContextManager;
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(TOGGLE_PROPERTY);
+    }
+
+    public void prefetch(final Collection<? extends Runnable> operations) {
+        final StoppableExecutor executor = getExecutor();
+        cacheLockingManager.longRunningOperation(String.format("Resolve meta-data for %s components", operations.size()), new Runnable() {
+            public void run() {
+                List<Future<?>> results = new ArrayList<Future<?>>(operations.size());
+                for (Runnable operation : operations) {
+                    results.add(executor.submit(new ContextualOperation(operation)));
+                }
+                // Wait for every operation before returning, so that none is still using the cache when the caller takes back ownership
+                Throwable failure = null;
+                for (Future<?> result : results) {
+                    try {
+                        result.get();
+                    } catch (InterruptedException e) {
+                        throw UncheckedException.throwAsUncheckedException(e);
+                    } catch (ExecutionException e) {
+                        if (failure == null) {
+                            failure = e.getCause();
+                        }
+                    }
+                }
+                if (failure != null) {
+                    throw UncheckedException.throwAsUncheckedException(failure);
+                }
+            }
+        });
+    }
+
+    private synchronized StoppableExecutor getExecutor() {
+        if (executor == null) {
+            executor = executorFactory.create("Resolve meta-data", MAX_CONCURRENT_REQUESTS);
+        }
+        return executor;
+    }
+
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.stop();
+            executor = null;
+        }
+    }
+
+    private class ContextualOperation implements Runnable {
+        private final Runnable operation;
+
+        ContextualOperation(Runnable operation) {
+            this.operation = operation;
+        }
+
+        public void run() {
+            cacheLockingManager.useCache("Resolve meta-data", new Runnable() {
+                public void run() {
+                    ivyContextManager.withIvy(new Action<Ivy>() {
+                        public void execute(Ivy ivy) {
+                            operation.run();
+                        }
+                    });
+                }
+            });
+        }
+    }
+}
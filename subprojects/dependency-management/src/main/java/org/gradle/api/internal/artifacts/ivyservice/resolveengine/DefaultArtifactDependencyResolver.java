@@ -36,11 +36,16 @@ import org.gradle.api.internal.artifacts.ivyservice.moduleconverter.dependencies
 import org.gradle.api.internal.artifacts.ivyservice.resolutionstrategy.StrictConflictResolution;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.DependencyArtifactsVisitor;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.ResolvedArtifactsGraphVisitor;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.ComponentMetaDataPrefetcher;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.CompositeDependencyArtifactsVisitor;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.CompositeDependencyGraphVisitor;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphBuilder;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphVisitor;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.conflicts.ConflictHandler;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.conflicts.DefaultConflictHandler;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graphcache.ResolvedGraphCache;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graphcache.ResolvedGraphInputs;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graphcache.ResolvedGraphRecorder;
 import org.gradle.api.internal.artifacts.repositories.ResolutionAwareRepository;
 import org.gradle.internal.resolve.resolver.ArtifactResolver;
 import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver;
@@ -61,15 +66,20 @@ public class DefaultArtifactDependencyResolver implements ArtifactDependencyReso
     private final CacheLockingManager cacheLockingManager;
     private final IvyContextManager ivyContextManager;
     private final VersionComparator versionComparator;
+    private final ComponentMetaDataPrefetcher metaDataPrefetcher;
+    private final ResolvedGraphCache graphCache;
 
     public DefaultArtifactDependencyResolver(ServiceRegistry serviceRegistry, ResolveIvyFactory ivyFactory, DependencyDescriptorFactory dependencyDescriptorFactory,
-                                             CacheLockingManager cacheLockingManager, IvyContextManager ivyContextManager, VersionComparator versionComparator) {
+                                             CacheLockingManager cacheLockingManager, IvyContextManager ivyContextManager, VersionComparator versionComparator,
+                                             ComponentMetaDataPrefetcher metaDataPrefetcher, ResolvedGraphCache graphCache) {
         this.serviceRegistry = serviceRegistry;
         this.ivyFactory = ivyFactory;
         this.dependencyDescriptorFactory = dependencyDescriptorFactory;
         this.cacheLockingManager = cacheLockingManager;
         this.ivyContextManager = ivyContextManager;
         this.versionComparator = versionComparator;
+        this.metaDataPrefetcher = metaDataPrefetcher;
+        this.graphCache = graphCache;
     }
 
     @Override
@@ -79,13 +89,25 @@ public class DefaultArtifactDependencyResolver implements ArtifactDependencyReso
             public void execute(Ivy ivy) {
                 LOGGER.debug("Resolving {}", resolveContext);
                 ComponentResolvers componentSource = createComponentSource(resolveContext, repositories, metadataHandler);
-                DependencyGraphBuilder builder = createDependencyGraphBuilder(componentSource, resolveContext.getResolutionStrategy(), metadataHandler);
-
                 ArtifactResolver artifactResolver = new ErrorHandlingArtifactResolver(new ContextualArtifactResolver(cacheLockingManager, ivyContextManager, componentSource.getArtifactResolver()));
-                DependencyGraphVisitor artifactsGraphVisitor = new ResolvedArtifactsGraphVisitor(artifactsVisitor, artifactResolver);
+
+                ResolvedGraphInputs graphInputs = ResolvedGraphCache.isEnabled() ? graphCache.fingerprint(resolveContext, repositories, metadataHandler) : null;
+                if (graphInputs != null && graphCache.replay(graphInputs, artifactResolver, graphVisitor, artifactsVisitor)) {
+                    return;
+                }
+
+                DependencyGraphBuilder builder = createDependencyGraphBuilder(componentSource, resolveContext.getResolutionStrategy(), metadataHandler);
+                DependencyGraphVisitor modelVisitor;
+                if (graphInputs == null) {
+                    modelVisitor = new CompositeDependencyGraphVisitor(graphVisitor, new ResolvedArtifactsGraphVisitor(artifactsVisitor, artifactResolver));
+                } else {
+                    ResolvedGraphRecorder recorder = graphCache.createRecorder(graphInputs);
+                    DependencyGraphVisitor artifactsGraphVisitor = new ResolvedArtifactsGraphVisitor(new CompositeDependencyArtifactsVisitor(artifactsVisitor, recorder), artifactResolver);
+                    modelVisitor = new CompositeDependencyGraphVisitor(graphVisitor, recorder, artifactsGraphVisitor);
+                }
 
                 // Resolve the dependency graph
-                builder.resolve(resolveContext, new CompositeDependencyGraphVisitor(graphVisitor, artifactsGraphVisitor));
+                builder.resolve(resolveContext, modelVisitor);
             }
         });
     }
@@ -99,7 +121,9 @@ public class DefaultArtifactDependencyResolver implements ArtifactDependencyReso
         ResolveContextToComponentResolver requestResolver = createResolveContextConverter();
         ConflictHandler conflictHandler = createConflictHandler(resolutionStrategy, metadataHandler);
 
-        return new DependencyGraphBuilder(componentIdResolver, componentMetaDataResolver, requestResolver, dependencyToConfigurationResolver, conflictHandler);
+        ComponentMetaDataPrefetcher prefetcher = ConcurrentComponentMetaDataPrefetcher.isEnabled() ? metaDataPrefetcher : null;
+
+        return new DependencyGraphBuilder(componentIdResolver, componentMetaDataResolver, requestResolver, dependencyToConfigurationResolver, conflictHandler, prefetcher);
     }
 
     private ComponentResolversChain createComponentSource(ResolveContext resolveContext, List<? extends ResolutionAwareRepository> repositories, GlobalDependencyResolutionRules metadataHandler) {
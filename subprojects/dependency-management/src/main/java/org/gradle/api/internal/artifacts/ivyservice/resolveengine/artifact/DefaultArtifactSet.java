@@ -21,6 +21,7 @@ import org.gradle.api.artifacts.ResolvedArtifact;
 import org.gradle.api.artifacts.component.ComponentArtifactIdentifier;
 import org.gradle.api.internal.artifacts.DefaultResolvedArtifact;
 import org.gradle.api.internal.artifacts.ivyservice.dynamicversions.DefaultResolvedModuleVersion;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.RepositoryChainModuleSource;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.ModuleResolutionFilter;
 import org.gradle.internal.Factory;
 import org.gradle.internal.component.model.ComponentArtifactMetaData;
@@ -58,6 +59,27 @@ public class DefaultArtifactSet implements ArtifactSet {
         return id;
     }
 
+    public ModuleVersionIdentifier getOwnerId() {
+        return moduleVersionIdentifier;
+    }
+
+    public ModuleSource getModuleSource() {
+        return moduleSource;
+    }
+
+    /**
+     * Returns the artifacts of this set that are accepted by its selector, without resolving them.
+     */
+    public Set<ComponentArtifactMetaData> getSelectedArtifacts() {
+        Set<ComponentArtifactMetaData> selectedArtifacts = new LinkedHashSet<ComponentArtifactMetaData>(artifacts.size());
+        for (ComponentArtifactMetaData artifact : artifacts) {
+            if (selector.acceptArtifact(moduleVersionIdentifier.getModule(), artifact.getName())) {
+                selectedArtifacts.add(artifact);
+            }
+        }
+        return selectedArtifacts;
+    }
+
     public Set<ResolvedArtifact> getArtifacts() {
         Set<ResolvedArtifact> resolvedArtifacts = new LinkedHashSet<ResolvedArtifact>(artifacts.size());
         for (ComponentArtifactMetaData artifact : artifacts) {
@@ -69,7 +91,7 @@ public class DefaultArtifactSet implements ArtifactSet {
             ResolvedArtifact resolvedArtifact = allResolvedArtifacts.get(artifact.getId());
             if (resolvedArtifact == null) {
                 Factory<File> artifactSource = new LazyArtifactSource(artifact, moduleSource, artifactResolver);
-                resolvedArtifact = new DefaultResolvedArtifact(new DefaultResolvedModuleVersion(moduleVersionIdentifier), artifactName, artifact.getId(), artifactSource);
+                resolvedArtifact = new DefaultResolvedArtifact(new DefaultResolvedModuleVersion(moduleVersionIdentifier), artifactName, artifact.getId(), getRepositoryId(), artifactSource);
                 allResolvedArtifacts.put(artifact.getId(), resolvedArtifact);
             }
             resolvedArtifacts.add(resolvedArtifact);
@@ -77,6 +99,10 @@ public class DefaultArtifactSet implements ArtifactSet {
         return resolvedArtifacts;
     }
 
+    private String getRepositoryId() {
+        return moduleSource instanceof RepositoryChainModuleSource ? ((RepositoryChainModuleSource) moduleSource).getRepositoryId() : null;
+    }
+
     private static class LazyArtifactSource implements Factory<File> {
         private final ArtifactResolver artifactResolver;
         private final ModuleSource moduleSource;
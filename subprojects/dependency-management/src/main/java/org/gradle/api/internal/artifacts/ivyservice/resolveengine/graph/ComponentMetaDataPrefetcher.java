@@ -0,0 +1,32 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph;
+
+import java.util.Collection;
+
+/**
+ * Runs a batch of component meta-data resolve operations ahead of the point where the dependency graph builder requires the meta-data.
+ */
+public interface ComponentMetaDataPrefetcher {
+    /**
+     * Runs the given operations, blocking until all have completed. The operations may run concurrently and in any order. Operations should
+     * report resolve failures via their results. When an operation does throw, the remaining operations still run to completion and the
+     * first failure is then rethrown.
+     */
+    void prefetch(Collection<? extends Runnable> operations);
+}
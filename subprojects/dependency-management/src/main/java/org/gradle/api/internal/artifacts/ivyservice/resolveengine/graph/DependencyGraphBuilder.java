@@ -23,6 +23,7 @@ import org.gradle.api.artifacts.ModuleVersionIdentifier;
 import org.gradle.api.artifacts.ModuleVersionSelector;
 import org.gradle.api.artifacts.component.ComponentIdentifier;
 import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
 import org.gradle.api.artifacts.result.ComponentSelectionReason;
 import org.gradle.api.internal.artifacts.DefaultModuleIdentifier;
 import org.gradle.api.internal.artifacts.ResolveContext;
@@ -54,15 +55,26 @@ public class DependencyGraphBuilder {
     private final ResolveContextToComponentResolver moduleResolver;
     private final DependencyToComponentIdResolver idResolver;
     private final ComponentMetaDataResolver metaDataResolver;
+    private final ComponentMetaDataPrefetcher metaDataPrefetcher;
 
     public DependencyGraphBuilder(DependencyToComponentIdResolver componentIdResolver, ComponentMetaDataResolver componentMetaDataResolver,
                                   ResolveContextToComponentResolver resolveContextToComponentResolver, DependencyToConfigurationResolver dependencyToConfigurationResolver,
                                   ConflictHandler conflictHandler) {
+        this(componentIdResolver, componentMetaDataResolver, resolveContextToComponentResolver, dependencyToConfigurationResolver, conflictHandler, null);
+    }
+
+    /**
+     * @param metaDataPrefetcher Used to resolve the meta-data for the targets of newly discovered edges as a batch. May be null, in which case meta-data is resolved on demand.
+     */
+    public DependencyGraphBuilder(DependencyToComponentIdResolver componentIdResolver, ComponentMetaDataResolver componentMetaDataResolver,
+                                  ResolveContextToComponentResolver resolveContextToComponentResolver, DependencyToConfigurationResolver dependencyToConfigurationResolver,
+                                  ConflictHandler conflictHandler, ComponentMetaDataPrefetcher metaDataPrefetcher) {
         this.idResolver = componentIdResolver;
         this.metaDataResolver = componentMetaDataResolver;
         this.moduleResolver = resolveContextToComponentResolver;
         this.conflictHandler = conflictHandler;
         this.dependencyToConfigurationResolver = dependencyToConfigurationResolver;
+        this.metaDataPrefetcher = metaDataPrefetcher;
     }
 
     public void resolve(ResolveContext resolveContext, DependencyGraphVisitor modelVisitor) {
@@ -93,6 +105,10 @@ public class DependencyGraphBuilder {
                 dependencies.clear();
                 node.visitOutgoingDependencies(dependencies);
 
+                if (metaDataPrefetcher != null) {
+                    prefetchMetaData(resolveState, dependencies);
+                }
+
                 for (DependencyEdge dependency : dependencies) {
                     LOGGER.debug("Visiting dependency {}", dependency);
 
@@ -154,6 +170,40 @@ public class DependencyGraphBuilder {
         }
     }
 
+    /**
+     * Resolves the meta-data for the components that the given edges will be attached to, so that the remote requests for the meta-data can be made
+     * concurrently. Does not change the graph: each result is held by the selector of the edge and used when the graph is next traversed, in the same
+     * order as if the meta-data had been resolved on demand.
+     */
+    private void prefetchMetaData(ResolveState resolveState, List<DependencyEdge> dependencies) {
+        Map<ModuleVersionIdentifier, MetaDataPrefetch> prefetches = new LinkedHashMap<ModuleVersionIdentifier, MetaDataPrefetch>();
+        for (DependencyEdge dependency : dependencies) {
+            ModuleVersionSelectorResolveState selector = dependency.selector;
+            if (selector.targetModuleRevision != null || selector.failure != null || selector.prefetchedMetaData != null) {
+                continue;
+            }
+            ComponentIdResolveResult idResolveResult = selector.resolveComponentId();
+            if (idResolveResult.getFailure() != null || idResolveResult.getMetaData() != null || !(idResolveResult.getId() instanceof ModuleComponentIdentifier)) {
+                continue;
+            }
+            ModuleVersionIdentifier id = idResolveResult.getModuleVersionId();
+            if (resolveState.hasRevision(id) || prefetches.containsKey(id)) {
+                continue;
+            }
+            prefetches.put(id, new MetaDataPrefetch(selector, metaDataResolver));
+        }
+        if (prefetches.size() < 2) {
+            // Nothing to be gained from resolving a single component up front
+            return;
+        }
+
+        LOGGER.debug("Prefetching meta-data for {}", prefetches.keySet());
+        metaDataPrefetcher.prefetch(prefetches.values());
+        for (MetaDataPrefetch prefetch : prefetches.values()) {
+            prefetch.complete();
+        }
+    }
+
     /**
      * Populates the result from the graph traversal state.
      */
@@ -343,6 +393,11 @@ public class DependencyGraphBuilder {
             return getModule(id.getModule()).getVersion(id);
         }
 
+        public boolean hasRevision(ModuleVersionIdentifier id) {
+            ModuleResolveState module = modules.get(id.getModule());
+            return module != null && module.versions.containsKey(id);
+        }
+
         public Collection<ConfigurationNode> getConfigurationNodes() {
             return nodes.values();
         }
@@ -556,8 +611,14 @@ public class DependencyGraphBuilder {
                 return;
             }
 
-            DefaultBuildableComponentResolveResult result = new DefaultBuildableComponentResolveResult();
-            resolver.resolve(idResolveResult.getId(), DefaultComponentOverrideMetadata.forDependency(firstReference.dependencyMetaData), result);
+            ComponentResolveResult result = firstReference.prefetchedMetaData;
+            if (result != null) {
+                firstReference.prefetchedMetaData = null;
+            } else {
+                DefaultBuildableComponentResolveResult resolveResult = new DefaultBuildableComponentResolveResult();
+                resolver.resolve(idResolveResult.getId(), DefaultComponentOverrideMetadata.forDependency(firstReference.dependencyMetaData), resolveResult);
+                result = resolveResult;
+            }
             if (result.getFailure() != null) {
                 failure = result.getFailure();
                 return;
@@ -824,6 +885,7 @@ public class DependencyGraphBuilder {
         ModuleResolveState targetModule;
         ModuleVersionResolveState targetModuleRevision;
         BuildableComponentIdResolveResult idResolveResult;
+        ComponentResolveResult prefetchedMetaData;
 
         private ModuleVersionSelectorResolveState(DependencyMetaData dependencyMetaData, DependencyToComponentIdResolver resolver, ResolveState resolveState) {
             this.dependencyMetaData = dependencyMetaData;
@@ -864,8 +926,7 @@ public class DependencyGraphBuilder {
                 return null;
             }
 
-            idResolveResult = new DefaultBuildableComponentIdResolveResult();
-            resolver.resolve(dependencyMetaData, idResolveResult);
+            resolveComponentId();
             if (idResolveResult.getFailure() != null) {
                 failure = idResolveResult.getFailure();
                 return null;
@@ -880,12 +941,58 @@ public class DependencyGraphBuilder {
             return targetModuleRevision;
         }
 
+        /**
+         * Resolves this selector to a component id, without adding the component to the graph.
+         */
+        public ComponentIdResolveResult resolveComponentId() {
+            if (idResolveResult == null) {
+                idResolveResult = new DefaultBuildableComponentIdResolveResult();
+                resolver.resolve(dependencyMetaData, idResolveResult);
+            }
+            return idResolveResult;
+        }
+
         public void restart(ModuleVersionResolveState moduleRevision) {
             this.targetModuleRevision = moduleRevision;
             this.targetModule = moduleRevision.module;
         }
     }
 
+    /**
+     * Resolves the meta-data for the component selected by a selector. Runs on a worker thread, so does not touch the graph until completed.
+     */
+    private static class MetaDataPrefetch implements Runnable {
+        private final ModuleVersionSelectorResolveState selector;
+        private final ComponentMetaDataResolver resolver;
+        private final ComponentIdentifier componentId;
+        private final ComponentOverrideMetadata componentOverrideMetadata;
+        private final DefaultBuildableComponentResolveResult result = new DefaultBuildableComponentResolveResult();
+        private volatile boolean resolved;
+
+        private MetaDataPrefetch(ModuleVersionSelectorResolveState selector, ComponentMetaDataResolver resolver) {
+            this.selector = selector;
+            this.resolver = resolver;
+            this.componentId = selector.idResolveResult.getId();
+            this.componentOverrideMetadata = DefaultComponentOverrideMetadata.forDependency(selector.dependencyMetaData);
+        }
+
+        public void run() {
+            try {
+                resolver.resolve(componentId, componentOverrideMetadata, result);
+                resolved = true;
+            } catch (Throwable t) {
+                // Discard, the meta-data is resolved again when required and the failure reported then
+                LOGGER.debug("Could not prefetch meta-data for {}.", componentId, t);
+            }
+        }
+
+        public void complete() {
+            if (resolved) {
+                selector.prefetchedMetaData = result;
+            }
+        }
+    }
+
     private static class DirectDependencyForcingResolver implements ModuleConflictResolver {
         private final ModuleVersionResolveState root;
 
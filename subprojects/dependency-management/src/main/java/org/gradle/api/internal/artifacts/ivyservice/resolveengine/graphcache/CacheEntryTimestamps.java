@@ -0,0 +1,141 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graphcache;
+
+import org.gradle.api.artifacts.ModuleIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.internal.artifacts.ivyservice.dynamicversions.ModuleVersionsCache;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ModuleComponentRepository;
+import org.gradle.api.internal.artifacts.ivyservice.modulecache.ModuleMetaDataCache;
+import org.gradle.internal.component.external.model.ModuleComponentResolveMetaData;
+import org.gradle.util.BuildCommencedTimeProvider;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Remembers when the module meta-data and version list cache entries used during this build were created, so that a graph resolved from these
+ * entries can be aged from the oldest of them rather than from the time it was resolved.
+ *
+ * <p>The most recent access to an entry wins: an entry that has expired is read first and then replaced with a fresh one.</p>
+ */
+public class CacheEntryTimestamps {
+    private final BuildCommencedTimeProvider timeProvider;
+    private final Map<ModuleComponentIdentifier, Map<String, Long>> metaData = new HashMap<ModuleComponentIdentifier, Map<String, Long>>();
+    private final Map<ModuleIdentifier, Map<String, Long>> versionLists = new HashMap<ModuleIdentifier, Map<String, Long>>();
+
+    public CacheEntryTimestamps(BuildCommencedTimeProvider timeProvider) {
+        this.timeProvider = timeProvider;
+    }
+
+    /**
+     * Returns a cache that records the creation time of the entries that are read from or written to the given cache.
+     */
+    public ModuleMetaDataCache track(ModuleMetaDataCache cache) {
+        return new TrackingModuleMetaDataCache(cache);
+    }
+
+    /**
+     * Returns a cache that records the creation time of the entries that are read from or written to the given cache.
+     */
+    public ModuleVersionsCache track(ModuleVersionsCache cache) {
+        return new TrackingModuleVersionsCache(cache);
+    }
+
+    /**
+     * Returns the creation time of the oldest entry used for any of the given components or version lists in any repository, or the current time
+     * when none was used.
+     */
+    public synchronized long getOldestTimestamp(Iterable<ModuleComponentIdentifier> components, Iterable<ModuleIdentifier> modules) {
+        long oldest = timeProvider.getCurrentTime();
+        for (ModuleComponentIdentifier component : components) {
+            oldest = oldest(oldest, metaData.get(component));
+        }
+        for (ModuleIdentifier module : modules) {
+            oldest = oldest(oldest, versionLists.get(module));
+        }
+        return oldest;
+    }
+
+    private static long oldest(long oldest, Map<String, Long> timestampsByRepository) {
+        if (timestampsByRepository != null) {
+            for (Long timestamp : timestampsByRepository.values()) {
+                oldest = Math.min(oldest, timestamp);
+            }
+        }
+        return oldest;
+    }
+
+    private synchronized <K> void entryUsed(Map<K, Map<String, Long>> entries, K key, ModuleComponentRepository repository, long ageMillis) {
+        Map<String, Long> timestampsByRepository = entries.get(key);
+        if (timestampsByRepository == null) {
+            timestampsByRepository = new HashMap<String, Long>();
+            entries.put(key, timestampsByRepository);
+        }
+        timestampsByRepository.put(repository.getId(), timeProvider.getCurrentTime() - ageMillis);
+    }
+
+    private class TrackingModuleMetaDataCache implements ModuleMetaDataCache {
+        private final ModuleMetaDataCache delegate;
+
+        TrackingModuleMetaDataCache(ModuleMetaDataCache delegate) {
+            this.delegate = delegate;
+        }
+
+        public CachedMetaData cacheMissing(ModuleComponentRepository repository, ModuleComponentIdentifier id) {
+            return used(repository, id, delegate.cacheMissing(repository, id));
+        }
+
+        public CachedMetaData cacheMetaData(ModuleComponentRepository repository, ModuleComponentResolveMetaData metaData) {
+            return used(repository, metaData.getComponentId(), delegate.cacheMetaData(repository, metaData));
+        }
+
+        public CachedMetaData getCachedModuleDescriptor(ModuleComponentRepository repository, ModuleComponentIdentifier id) {
+            return used(repository, id, delegate.getCachedModuleDescriptor(repository, id));
+        }
+
+        private CachedMetaData used(ModuleComponentRepository repository, ModuleComponentIdentifier id, CachedMetaData cachedMetaData) {
+            if (cachedMetaData != null) {
+                entryUsed(metaData, id, repository, cachedMetaData.getAgeMillis());
+            }
+            return cachedMetaData;
+        }
+    }
+
+    private class TrackingModuleVersionsCache implements ModuleVersionsCache {
+        private final ModuleVersionsCache delegate;
+
+        TrackingModuleVersionsCache(ModuleVersionsCache delegate) {
+            this.delegate = delegate;
+        }
+
+        public void cacheModuleVersionList(ModuleComponentRepository repository, ModuleIdentifier moduleId, Set<String> listedVersions) {
+            delegate.cacheModuleVersionList(repository, moduleId, listedVersions);
+            entryUsed(versionLists, moduleId, repository, 0);
+        }
+
+        public CachedModuleVersionList getCachedModuleResolution(ModuleComponentRepository repository, ModuleIdentifier moduleId) {
+            CachedModuleVersionList cachedModuleVersionList = delegate.getCachedModuleResolution(repository, moduleId);
+            if (cachedModuleVersionList != null) {
+                entryUsed(versionLists, moduleId, repository, cachedModuleVersionList.getAgeMillis());
+            }
+            return cachedModuleVersionList;
+        }
+    }
+}
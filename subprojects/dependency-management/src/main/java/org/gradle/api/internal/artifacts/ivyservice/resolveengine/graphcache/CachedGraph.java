@@ -0,0 +1,340 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graphcache;
+
+import org.gradle.api.artifacts.ModuleDependency;
+import org.gradle.api.artifacts.ModuleIdentifier;
+import org.gradle.api.artifacts.ModuleVersionIdentifier;
+import org.gradle.api.artifacts.ModuleVersionSelector;
+import org.gradle.api.artifacts.ResolvedArtifact;
+import org.gradle.api.artifacts.component.ComponentArtifactIdentifier;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentSelector;
+import org.gradle.api.artifacts.result.ComponentSelectionReason;
+import org.gradle.api.internal.artifacts.DefaultModuleIdentifier;
+import org.gradle.api.internal.artifacts.DefaultModuleVersionSelector;
+import org.gradle.api.internal.artifacts.ResolvedConfigurationIdentifier;
+import org.gradle.api.internal.artifacts.configurations.dynamicversion.CachePolicy;
+import org.gradle.api.internal.artifacts.ivyservice.dynamicversions.DefaultResolvedModuleVersion;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelectorScheme;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.DefaultModuleResolutionFilter;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.ModuleResolutionFilter;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.ArtifactSet;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.DefaultArtifactSet;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.DependencyArtifactsVisitor;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphEdge;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphNode;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphVisitor;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ModuleVersionSelection;
+import org.gradle.internal.component.external.model.DefaultModuleComponentArtifactMetaData;
+import org.gradle.internal.component.external.model.ModuleComponentArtifactIdentifier;
+import org.gradle.internal.component.model.ComponentArtifactMetaData;
+import org.gradle.internal.component.model.ConfigurationMetaData;
+import org.gradle.internal.component.model.ModuleSource;
+import org.gradle.internal.resolve.ModuleVersionResolveException;
+import org.gradle.internal.resolve.resolver.ArtifactResolver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A resolved dependency graph as it was presented to the graph and artifact visitors, in a form that can be persisted and replayed to other visitors.
+ * Nodes, edges and artifact sets refer to each other by their index.
+ */
+class CachedGraph {
+    /**
+     * When the oldest cache entry that the graph was resolved from was created.
+     */
+    final long timestamp;
+    final byte[] hash;
+    final int rootIndex;
+    final List<Node> nodes;
+    final List<Edge> edges;
+    final List<Artifacts> artifactSets;
+
+    CachedGraph(long timestamp, byte[] hash, int rootIndex, List<Node> nodes, List<Edge> edges, List<Artifacts> artifactSets) {
+        this.timestamp = timestamp;
+        this.hash = hash;
+        this.rootIndex = rootIndex;
+        this.nodes = nodes;
+        this.edges = edges;
+        this.artifactSets = artifactSets;
+    }
+
+    /**
+     * Checks whether a resolution that happened now would be allowed to reuse everything this graph was built from: none of the modules or dynamic
+     * versions may have expired according to the cache policy.
+     */
+    boolean isUpToDate(ResolvedGraphInputs inputs, VersionSelectorScheme versionSelectorScheme, long now) {
+        CachePolicy cachePolicy = inputs.getCachePolicy();
+        long ageMillis = now - timestamp;
+        for (int i = 0; i < nodes.size(); i++) {
+            if (i == rootIndex) {
+                continue;
+            }
+            Node node = nodes.get(i);
+            ModuleComponentIdentifier componentId = (ModuleComponentIdentifier) node.selection.getComponentId();
+            DefaultResolvedModuleVersion resolvedModuleVersion = new DefaultResolvedModuleVersion(node.id.getId());
+            boolean expired = node.changing
+                ? cachePolicy.mustRefreshChangingModule(componentId, resolvedModuleVersion, ageMillis)
+                : cachePolicy.mustRefreshModule(componentId, resolvedModuleVersion, ageMillis);
+            if (expired) {
+                return false;
+            }
+        }
+        for (Edge edge : edges) {
+            ModuleComponentSelector requested = (ModuleComponentSelector) edge.requested;
+            if (versionSelectorScheme.parseSelector(requested.getVersion()).isDynamic()) {
+                ModuleIdentifier module = DefaultModuleIdentifier.newId(requested.getGroup(), requested.getModule());
+                if (cachePolicy.mustRefreshVersionList(module, Collections.singleton(edge.selected), ageMillis)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Presents this graph to the given visitors, in the same order as the graph builder and the artifacts graph visitor would have done.
+     */
+    void replay(ResolvedGraphInputs inputs, ArtifactResolver artifactResolver, DependencyGraphVisitor graphVisitor, DependencyArtifactsVisitor artifactsVisitor) {
+        List<ReplayedNode> replayedNodes = new ArrayList<ReplayedNode>(nodes.size());
+        for (Node node : nodes) {
+            ConfigurationMetaData metaData = replayedNodes.size() == rootIndex ? inputs.getRootConfiguration() : null;
+            replayedNodes.add(new ReplayedNode(node, metaData));
+        }
+        List<ReplayedEdge> replayedEdges = new ArrayList<ReplayedEdge>(edges.size());
+        for (Edge edge : edges) {
+            ModuleDependency moduleDependency = edge.dependency < 0 ? null : inputs.getRootDependencies().get(edge.dependency);
+            replayedEdges.add(new ReplayedEdge(edge, replayedNodes.get(edge.from), moduleDependency));
+        }
+        for (int i = 0; i < nodes.size(); i++) {
+            Node node = nodes.get(i);
+            ReplayedNode replayedNode = replayedNodes.get(i);
+            for (int edge : node.outgoingEdges) {
+                replayedNode.outgoingEdges.add(replayedEdges.get(edge));
+            }
+            for (int edge : node.incomingEdges) {
+                replayedNode.incomingEdges.add(replayedEdges.get(edge));
+            }
+        }
+        Map<ComponentArtifactIdentifier, ResolvedArtifact> allResolvedArtifacts = new HashMap<ComponentArtifactIdentifier, ResolvedArtifact>();
+        List<ArtifactSet> replayedArtifactSets = new ArrayList<ArtifactSet>(artifactSets.size());
+        ModuleResolutionFilter acceptAll = DefaultModuleResolutionFilter.all();
+        for (Artifacts artifacts : artifactSets) {
+            Set<ComponentArtifactMetaData> artifactMetaData = new LinkedHashSet<ComponentArtifactMetaData>(artifacts.artifacts.size());
+            for (ModuleComponentArtifactIdentifier artifactId : artifacts.artifacts) {
+                artifactMetaData.add(new DefaultModuleComponentArtifactMetaData(artifactId));
+            }
+            replayedArtifactSets.add(new DefaultArtifactSet(artifacts.owner, artifacts.source, acceptAll, artifactMetaData, artifactResolver, allResolvedArtifacts, replayedArtifactSets.size() + 1));
+        }
+
+        ReplayedNode root = replayedNodes.get(rootIndex);
+        graphVisitor.start(root);
+        for (ReplayedNode node : replayedNodes) {
+            graphVisitor.visitNode(node);
+        }
+        for (int i = 0; i < nodes.size(); i++) {
+            Node node = nodes.get(i);
+            ReplayedNode replayedNode = replayedNodes.get(i);
+            graphVisitor.visitEdge(replayedNode);
+            for (int j = 0; j < node.artifactParents.length; j++) {
+                ResolvedConfigurationIdentifier parent = replayedNodes.get(node.artifactParents[j]).getNodeId();
+                artifactsVisitor.visitArtifacts(parent, replayedNode.getNodeId(), replayedArtifactSets.get(node.artifactSets[j]));
+            }
+        }
+        graphVisitor.finish(root);
+        artifactsVisitor.finishArtifacts();
+    }
+
+    static class Node {
+        final ResolvedConfigurationIdentifier id;
+        final ModuleVersionSelection selection;
+        final boolean changing;
+        final int[] outgoingEdges;
+        final int[] incomingEdges;
+        final int[] artifactParents;
+        final int[] artifactSets;
+
+        Node(ResolvedConfigurationIdentifier id, ModuleVersionSelection selection, boolean changing, int[] outgoingEdges, int[] incomingEdges, int[] artifactParents, int[] artifactSets) {
+            this.id = id;
+            this.selection = selection;
+            this.changing = changing;
+            this.outgoingEdges = outgoingEdges;
+            this.incomingEdges = incomingEdges;
+            this.artifactParents = artifactParents;
+            this.artifactSets = artifactSets;
+        }
+    }
+
+    static class Edge {
+        final int from;
+        final ComponentSelector requested;
+        final ModuleVersionIdentifier selected;
+        final ComponentSelectionReason reason;
+        /**
+         * The index of the root dependency this edge was created from, or -1.
+         */
+        final int dependency;
+
+        Edge(int from, ComponentSelector requested, ModuleVersionIdentifier selected, ComponentSelectionReason reason, int dependency) {
+            this.from = from;
+            this.requested = requested;
+            this.selected = selected;
+            this.reason = reason;
+            this.dependency = dependency;
+        }
+    }
+
+    static class Artifacts {
+        final ModuleVersionIdentifier owner;
+        final ModuleSource source;
+        final List<ModuleComponentArtifactIdentifier> artifacts;
+
+        Artifacts(ModuleVersionIdentifier owner, ModuleSource source, List<ModuleComponentArtifactIdentifier> artifacts) {
+            this.owner = owner;
+            this.source = source;
+            this.artifacts = artifacts;
+        }
+    }
+
+    /**
+     * A node of a replayed graph. The meta-data of the components in the graph is not loaded when it is replayed, so only the root node has meta-data.
+     * This is why {@link ResolvedGraphCache} replays graphs to the visitors that build the results of a configuration only, as these do not need it.
+     */
+    private static class ReplayedNode implements DependencyGraphNode {
+        private final Node node;
+        private final ConfigurationMetaData metaData;
+        private final Set<DependencyGraphEdge> incomingEdges = new LinkedHashSet<DependencyGraphEdge>();
+        private final Set<DependencyGraphEdge> outgoingEdges = new LinkedHashSet<DependencyGraphEdge>();
+
+        ReplayedNode(Node node, ConfigurationMetaData metaData) {
+            this.node = node;
+            this.metaData = metaData;
+        }
+
+        @Override
+        public ResolvedConfigurationIdentifier getNodeId() {
+            return node.id;
+        }
+
+        @Override
+        public ModuleVersionIdentifier toId() {
+            return node.id.getId();
+        }
+
+        @Override
+        public ComponentIdentifier getComponentId() {
+            return node.selection.getComponentId();
+        }
+
+        @Override
+        public ModuleVersionSelection getSelection() {
+            return node.selection;
+        }
+
+        @Override
+        public Set<DependencyGraphEdge> getIncomingEdges() {
+            return incomingEdges;
+        }
+
+        @Override
+        public Set<DependencyGraphEdge> getOutgoingEdges() {
+            return outgoingEdges;
+        }
+
+        @Override
+        public ConfigurationMetaData getMetaData() {
+            return metaData;
+        }
+
+        @Override
+        public String toString() {
+            return node.id.toString();
+        }
+    }
+
+    /**
+     * An edge of a replayed graph. The selector and artifacts of an edge are used only to find the artifacts of the graph, which are replayed as they
+     * were recorded, so they are not available.
+     */
+    private static class ReplayedEdge implements DependencyGraphEdge {
+        private final Edge edge;
+        private final ReplayedNode from;
+        private final ModuleDependency moduleDependency;
+
+        ReplayedEdge(Edge edge, ReplayedNode from, ModuleDependency moduleDependency) {
+            this.edge = edge;
+            this.from = from;
+            this.moduleDependency = moduleDependency;
+        }
+
+        @Override
+        public DependencyGraphNode getFrom() {
+            return from;
+        }
+
+        @Override
+        public ModuleVersionSelector getRequestedModuleVersion() {
+            ModuleComponentSelector requested = (ModuleComponentSelector) edge.requested;
+            return DefaultModuleVersionSelector.newSelector(requested.getGroup(), requested.getModule(), requested.getVersion());
+        }
+
+        @Override
+        public ModuleResolutionFilter getSelector() {
+            throw new UnsupportedOperationException("The selector of a replayed dependency edge is not available.");
+        }
+
+        @Override
+        public Set<ComponentArtifactMetaData> getArtifacts(ConfigurationMetaData metaData) {
+            throw new UnsupportedOperationException("The artifacts of a replayed dependency edge are not available.");
+        }
+
+        @Override
+        public ModuleDependency getModuleDependency() {
+            return moduleDependency;
+        }
+
+        @Override
+        public ComponentSelector getRequested() {
+            return edge.requested;
+        }
+
+        @Override
+        public ModuleVersionResolveException getFailure() {
+            return null;
+        }
+
+        @Override
+        public ModuleVersionIdentifier getSelected() {
+            return edge.selected;
+        }
+
+        @Override
+        public ComponentSelectionReason getReason() {
+            return edge.reason;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graphcache;
+
+import org.gradle.api.artifacts.ModuleVersionIdentifier;
+import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.result.ComponentSelectionReason;
+import org.gradle.api.internal.artifacts.ModuleVersionIdentifierSerializer;
+import org.gradle.api.internal.artifacts.ResolvedConfigurationIdentifier;
+import org.gradle.api.internal.artifacts.ResolvedConfigurationIdentifierSerializer;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ComponentSelectionReasonSerializer;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ComponentSelectorSerializer;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ModuleVersionSelection;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ModuleVersionSelectionSerializer;
+import org.gradle.api.internal.artifacts.metadata.ModuleVersionArtifactIdentifierSerializer;
+import org.gradle.internal.component.external.model.ModuleComponentArtifactIdentifier;
+import org.gradle.internal.component.model.ModuleSource;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.DefaultSerializer;
+import org.gradle.internal.serialize.Encoder;
+import org.gradle.internal.serialize.Serializer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class CachedGraphSerializer implements Serializer<CachedGraph> {
+    private final ResolvedConfigurationIdentifierSerializer nodeIdSerializer = new ResolvedConfigurationIdentifierSerializer();
+    private final ModuleVersionSelectionSerializer selectionSerializer = new ModuleVersionSelectionSerializer();
+    private final ComponentSelectorSerializer selectorSerializer = new ComponentSelectorSerializer();
+    private final ModuleVersionIdentifierSerializer idSerializer = new ModuleVersionIdentifierSerializer();
+    private final ComponentSelectionReasonSerializer reasonSerializer = new ComponentSelectionReasonSerializer();
+    private final ModuleVersionArtifactIdentifierSerializer artifactIdSerializer = new ModuleVersionArtifactIdentifierSerializer();
+    private final DefaultSerializer<ModuleSource> moduleSourceSerializer = new DefaultSerializer<ModuleSource>(ModuleSource.class.getClassLoader());
+
+    public void write(Encoder encoder, CachedGraph value) throws Exception {
+        encoder.writeLong(value.timestamp);
+        encoder.writeBinary(value.hash);
+        encoder.writeSmallInt(value.rootIndex);
+
+        encoder.writeSmallInt(value.nodes.size());
+        for (CachedGraph.Node node : value.nodes) {
+            nodeIdSerializer.write(encoder, node.id);
+            selectionSerializer.write(encoder, node.selection);
+            encoder.writeBoolean(node.changing);
+            writeInts(encoder, node.outgoingEdges);
+            writeInts(encoder, node.incomingEdges);
+            writeInts(encoder, node.artifactParents);
+            writeInts(encoder, node.artifactSets);
+        }
+
+        encoder.writeSmallInt(value.edges.size());
+        for (CachedGraph.Edge edge : value.edges) {
+            encoder.writeSmallInt(edge.from);
+            selectorSerializer.write(encoder, edge.requested);
+            idSerializer.write(encoder, edge.selected);
+            reasonSerializer.write(encoder, edge.reason);
+            encoder.writeInt(edge.dependency);
+        }
+
+        encoder.writeSmallInt(value.artifactSets.size());
+        for (CachedGraph.Artifacts artifacts : value.artifactSets) {
+            idSerializer.write(encoder, artifacts.owner);
+            moduleSourceSerializer.write(encoder, artifacts.source);
+            encoder.writeSmallInt(artifacts.artifacts.size());
+            for (ModuleComponentArtifactIdentifier artifact : artifacts.artifacts) {
+                artifactIdSerializer.write(encoder, artifact);
+            }
+        }
+    }
+
+    public CachedGraph read(Decoder decoder) throws Exception {
+        long timestamp = decoder.readLong();
+        byte[] hash = decoder.readBinary();
+        int rootIndex = decoder.readSmallInt();
+
+        int nodeCount = decoder.readSmallInt();
+        List<CachedGraph.Node> nodes = new ArrayList<CachedGraph.Node>(nodeCount);
+        for (int i = 0; i < nodeCount; i++) {
+            ResolvedConfigurationIdentifier id = nodeIdSerializer.read(decoder);
+            ModuleVersionSelection selection = selectionSerializer.read(decoder);
+            boolean changing = decoder.readBoolean();
+            nodes.add(new CachedGraph.Node(id, selection, changing, readInts(decoder), readInts(decoder), readInts(decoder), readInts(decoder)));
+        }
+
+        int edgeCount = decoder.readSmallInt();
+        List<CachedGraph.Edge> edges = new ArrayList<CachedGraph.Edge>(edgeCount);
+        for (int i = 0; i < edgeCount; i++) {
+            int from = decoder.readSmallInt();
+            ComponentSelector requested = selectorSerializer.read(decoder);
+            ModuleVersionIdentifier selected = idSerializer.read(decoder);
+            ComponentSelectionReason reason = reasonSerializer.read(decoder);
+            int dependency = decoder.readInt();
+            edges.add(new CachedGraph.Edge(from, requested, selected, reason, dependency));
+        }
+
+        int artifactSetCount = decoder.readSmallInt();
+        List<CachedGraph.Artifacts> artifactSets = new ArrayList<CachedGraph.Artifacts>(artifactSetCount);
+        for (int i = 0; i < artifactSetCount; i++) {
+            ModuleVersionIdentifier owner = idSerializer.read(decoder);
+            ModuleSource source = moduleSourceSerializer.read(decoder);
+            int artifactCount = decoder.readSmallInt();
+            List<ModuleComponentArtifactIdentifier> artifacts = new ArrayList<ModuleComponentArtifactIdentifier>(artifactCount);
+            for (int j = 0; j < artifactCount; j++) {
+                artifacts.add(artifactIdSerializer.read(decoder));
+            }
+            artifactSets.add(new CachedGraph.Artifacts(owner, source, artifacts));
+        }
+        return new CachedGraph(timestamp, hash, rootIndex, nodes, edges, artifactSets);
+    }
+
+    private static void writeInts(Encoder encoder, int[] values) throws Exception {
+        encoder.writeSmallInt(values.length);
+        for (int value : values) {
+            encoder.writeSmallInt(value);
+        }
+    }
+
+    private static int[] readInts(Decoder decoder) throws Exception {
+        int[] values = new int[decoder.readSmallInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = decoder.readSmallInt();
+        }
+        return values;
+    }
+}
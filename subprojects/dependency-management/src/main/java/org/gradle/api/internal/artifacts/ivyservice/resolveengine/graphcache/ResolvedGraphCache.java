@@ -0,0 +1,124 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graphcache;
+
+import org.gradle.api.Nullable;
+import org.gradle.api.artifacts.ModuleIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.internal.artifacts.GlobalDependencyResolutionRules;
+import org.gradle.api.internal.artifacts.ResolveContext;
+import org.gradle.api.internal.artifacts.configurations.ConfigurationInternal;
+import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelectorScheme;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.DependencyArtifactsVisitor;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphVisitor;
+import org.gradle.api.internal.artifacts.repositories.ResolutionAwareRepository;
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.internal.resolve.resolver.ArtifactResolver;
+import org.gradle.internal.serialize.BaseSerializerFactory;
+import org.gradle.util.BuildCommencedTimeProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Persists resolved dependency graphs in the artifact cache, keyed by the configuration they were resolved for, so that a later build that resolves the
+ * same configuration with the same inputs can replay the graph to the visitors instead of traversing it again.
+ *
+ * <p>A cached graph is reused only when the fingerprint of its inputs is unchanged and, according to the cache policy of the configuration, none of
+ * the changing modules and dynamic versions it contains would have to be checked again, counting from when the oldest cache entry it was
+ * resolved from was created. Only the graphs of configurations are cached, and configurations whose outcome depends on rules, project
+ * dependencies or local repositories are not.</p>
+ */
+public class ResolvedGraphCache {
+    public static final String TOGGLE_PROPERTY = "org.gradle.resolution.graphcache";
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResolvedGraphCache.class);
+
+    private final CacheLockingManager cacheLockingManager;
+    private final BuildCommencedTimeProvider timeProvider;
+    private final VersionSelectorScheme versionSelectorScheme;
+    private final CacheEntryTimestamps cacheEntryTimestamps;
+    private PersistentIndexedCache<String, CachedGraph> cache;
+
+    public ResolvedGraphCache(CacheLockingManager cacheLockingManager, BuildCommencedTimeProvider timeProvider, VersionSelectorScheme versionSelectorScheme,
+                              CacheEntryTimestamps cacheEntryTimestamps) {
+        this.cacheLockingManager = cacheLockingManager;
+        this.timeProvider = timeProvider;
+        this.versionSelectorScheme = versionSelectorScheme;
+        this.cacheEntryTimestamps = cacheEntryTimestamps;
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(TOGGLE_PROPERTY);
+    }
+
+    private PersistentIndexedCache<String, CachedGraph> getCache() {
+        if (cache == null) {
+            cache = cacheLockingManager.createCache("resolved-graphs", BaseSerializerFactory.STRING_SERIALIZER, new CachedGraphSerializer());
+        }
+        return cache;
+    }
+
+    /**
+     * Calculates the inputs of the given resolution, or returns null when its graph cannot be cached.
+     */
+    @Nullable
+    public ResolvedGraphInputs fingerprint(ResolveContext resolveContext, List<? extends ResolutionAwareRepository> repositories, GlobalDependencyResolutionRules metadataHandler) {
+        // A replayed graph has no meta-data for its components and no selectors or artifacts for its edges. The visitors that build the results of
+        // a configuration do not use these, but the visitors of other resolve contexts may
+        if (!(resolveContext instanceof ConfigurationInternal)) {
+            return null;
+        }
+        return ResolvedGraphInputs.of(resolveContext, repositories, metadataHandler);
+    }
+
+    /**
+     * Replays the cached graph for the given inputs to the visitors, if there is one that is still up-to-date.
+     *
+     * @return true when the graph was replayed, false when it has to be resolved.
+     */
+    public boolean replay(ResolvedGraphInputs inputs, ArtifactResolver artifactResolver, DependencyGraphVisitor graphVisitor, DependencyArtifactsVisitor artifactsVisitor) {
+        CachedGraph graph = getCache().get(inputs.getKey());
+        if (graph == null || !Arrays.equals(graph.hash, inputs.getHash()) || !graph.isUpToDate(inputs, versionSelectorScheme, timeProvider.getCurrentTime())) {
+            return false;
+        }
+        LOGGER.debug("Using cached dependency graph for {}.", inputs.getKey());
+        graph.replay(inputs, artifactResolver, graphVisitor, artifactsVisitor);
+        return true;
+    }
+
+    /**
+     * Creates a visitor that records the graph presented to it, and stores it for the given inputs once its artifacts have been visited.
+     */
+    public ResolvedGraphRecorder createRecorder(ResolvedGraphInputs inputs) {
+        return new ResolvedGraphRecorder(this, inputs);
+    }
+
+    void store(ResolvedGraphInputs inputs, CachedGraph graph) {
+        getCache().put(inputs.getKey(), graph);
+    }
+
+    /**
+     * Returns the creation time of the oldest meta-data or version list cache entry used for the given components and modules in this build.
+     */
+    long getOldestTimestamp(Iterable<ModuleComponentIdentifier> components, Iterable<ModuleIdentifier> modules) {
+        return cacheEntryTimestamps.getOldestTimestamp(components, modules);
+    }
+}
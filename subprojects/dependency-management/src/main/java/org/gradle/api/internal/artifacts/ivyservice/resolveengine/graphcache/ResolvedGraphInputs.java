@@ -0,0 +1,207 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graphcache;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.apache.ivy.core.module.descriptor.ExcludeRule;
+import org.gradle.api.Nullable;
+import org.gradle.api.artifacts.ClientModule;
+import org.gradle.api.artifacts.ModuleDependency;
+import org.gradle.api.artifacts.ModuleIdentifier;
+import org.gradle.api.artifacts.ModuleVersionIdentifier;
+import org.gradle.api.artifacts.ModuleVersionSelector;
+import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.component.ModuleComponentSelector;
+import org.gradle.api.internal.artifacts.GlobalDependencyResolutionRules;
+import org.gradle.api.internal.artifacts.ResolveContext;
+import org.gradle.api.internal.artifacts.configurations.ResolutionStrategyInternal;
+import org.gradle.api.internal.artifacts.configurations.dynamicversion.CachePolicy;
+import org.gradle.api.internal.artifacts.repositories.ResolutionAwareRepository;
+import org.gradle.internal.component.local.model.DslOriginDependencyMetaData;
+import org.gradle.internal.component.model.ComponentResolveMetaData;
+import org.gradle.internal.component.model.ConfigurationMetaData;
+import org.gradle.internal.component.model.DependencyMetaData;
+import org.gradle.internal.component.model.IvyArtifactName;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The inputs of a dependency graph resolution, reduced to a fingerprint that changes whenever the declared dependencies, the resolution strategy or the
+ * repositories change.
+ */
+public class ResolvedGraphInputs {
+    private final String key;
+    private final byte[] hash;
+    private final ConfigurationMetaData rootConfiguration;
+    private final List<ModuleDependency> rootDependencies;
+    private final CachePolicy cachePolicy;
+
+    ResolvedGraphInputs(String key, byte[] hash, ConfigurationMetaData rootConfiguration, List<ModuleDependency> rootDependencies, CachePolicy cachePolicy) {
+        this.key = key;
+        this.hash = hash;
+        this.rootConfiguration = rootConfiguration;
+        this.rootDependencies = rootDependencies;
+        this.cachePolicy = cachePolicy;
+    }
+
+    /**
+     * Returns the inputs of the given resolution, or null when its outcome depends on something that cannot be fingerprinted: rules, project or
+     * client module dependencies, or repositories whose content is not cached by Gradle.
+     */
+    @Nullable
+    static ResolvedGraphInputs of(ResolveContext resolveContext, List<? extends ResolutionAwareRepository> repositories, GlobalDependencyResolutionRules metadataHandler) {
+        ResolutionStrategyInternal resolutionStrategy = resolveContext.getResolutionStrategy();
+        if (resolutionStrategy.getDependencySubstitution().hasRules()
+            || !resolutionStrategy.getComponentSelection().getRules().isEmpty()
+            || metadataHandler.getComponentMetadataProcessor().hasRules()) {
+            return null;
+        }
+
+        Hasher hasher = Hashing.md5().newHasher();
+        for (ResolutionAwareRepository repository : repositories) {
+            String configurationId = repository.getConfigurationId();
+            if (configurationId == null) {
+                return null;
+            }
+            putString(hasher, configurationId);
+        }
+
+        putString(hasher, resolutionStrategy.getConflictResolution().getClass().getName());
+        Set<String> forcedModules = new TreeSet<String>();
+        for (ModuleVersionSelector forcedModule : resolutionStrategy.getForcedModules()) {
+            forcedModules.add(forcedModule.getGroup() + ":" + forcedModule.getName() + ":" + forcedModule.getVersion());
+        }
+        putStrings(hasher, forcedModules);
+        Set<String> moduleReplacements = new TreeSet<String>();
+        for (Map.Entry<ModuleIdentifier, ModuleIdentifier> replacement : metadataHandler.getModuleMetadataProcessor().getModuleReplacements().getReplacements().entrySet()) {
+            moduleReplacements.add(replacement.getKey() + "->" + replacement.getValue());
+        }
+        putStrings(hasher, moduleReplacements);
+
+        ComponentResolveMetaData rootComponent = resolveContext.toRootComponentMetaData();
+        ModuleVersionIdentifier rootId = rootComponent.getId();
+        putString(hasher, rootComponent.getComponentId().getDisplayName());
+        putString(hasher, rootId.getGroup());
+        putString(hasher, rootId.getName());
+        putString(hasher, rootId.getVersion());
+        putString(hasher, resolveContext.getName());
+        for (String configurationName : new TreeSet<String>(rootComponent.getConfigurationNames())) {
+            ConfigurationMetaData configuration = rootComponent.getConfiguration(configurationName);
+            putString(hasher, configurationName);
+            putStrings(hasher, new TreeSet<String>(configuration.getHierarchy()));
+            hasher.putBoolean(configuration.isTransitive());
+            hasher.putBoolean(configuration.isVisible());
+            putExcludeRules(hasher, configuration.getExcludeRules().toArray(new ExcludeRule[0]));
+        }
+
+        List<ModuleDependency> rootDependencies = new ArrayList<ModuleDependency>();
+        for (DependencyMetaData dependency : rootComponent.getDependencies()) {
+            ComponentSelector selector = dependency.getSelector();
+            if (!(selector instanceof ModuleComponentSelector)) {
+                return null;
+            }
+            ModuleDependency source = dependency instanceof DslOriginDependencyMetaData ? ((DslOriginDependencyMetaData) dependency).getSource() : null;
+            if (source instanceof ClientModule) {
+                return null;
+            }
+            rootDependencies.add(source);
+
+            ModuleComponentSelector moduleSelector = (ModuleComponentSelector) selector;
+            putString(hasher, moduleSelector.getGroup());
+            putString(hasher, moduleSelector.getModule());
+            putString(hasher, moduleSelector.getVersion());
+            putString(hasher, dependency.getDynamicConstraintVersion());
+            hasher.putBoolean(dependency.isChanging());
+            hasher.putBoolean(dependency.isTransitive());
+            hasher.putBoolean(dependency.isForce());
+            String[] moduleConfigurations = dependency.getModuleConfigurations();
+            for (String moduleConfiguration : moduleConfigurations) {
+                putString(hasher, moduleConfiguration);
+                putStrings(hasher, Arrays.asList(dependency.getDependencyConfigurations(moduleConfiguration, moduleConfiguration)));
+            }
+            putExcludeRules(hasher, dependency.getExcludeRules(Arrays.asList(moduleConfigurations)));
+            for (IvyArtifactName artifact : dependency.getArtifacts()) {
+                putString(hasher, artifact.getName());
+                putString(hasher, artifact.getType());
+                putString(hasher, artifact.getExtension());
+                putString(hasher, artifact.getClassifier());
+            }
+            hasher.putByte((byte) 0);
+        }
+
+        String key = rootComponent.getComponentId().getDisplayName() + " " + resolveContext.getName();
+        return new ResolvedGraphInputs(key, hasher.hash().asBytes(), rootComponent.getConfiguration(resolveContext.getName()), rootDependencies,
+            resolutionStrategy.getCachePolicy());
+    }
+
+    private static void putExcludeRules(Hasher hasher, ExcludeRule[] excludeRules) {
+        for (ExcludeRule excludeRule : excludeRules) {
+            putString(hasher, excludeRule.getId().toString());
+            putString(hasher, excludeRule.getMatcher().getName());
+            putStrings(hasher, Arrays.asList(excludeRule.getConfigurations()));
+        }
+        hasher.putByte((byte) 0);
+    }
+
+    private static void putStrings(Hasher hasher, Iterable<String> values) {
+        for (String value : values) {
+            putString(hasher, value);
+        }
+        hasher.putByte((byte) 0);
+    }
+
+    private static void putString(Hasher hasher, @Nullable String value) {
+        if (value == null) {
+            hasher.putByte((byte) 1);
+        } else {
+            hasher.putByte((byte) 2);
+            hasher.putUnencodedChars(value);
+            hasher.putByte((byte) 0);
+        }
+    }
+
+    String getKey() {
+        return key;
+    }
+
+    byte[] getHash() {
+        return hash;
+    }
+
+    ConfigurationMetaData getRootConfiguration() {
+        return rootConfiguration;
+    }
+
+    /**
+     * The declared dependencies of the root component, in the order of its dependency meta-data. Entries are null for dependencies that were not declared
+     * in the build script.
+     */
+    List<ModuleDependency> getRootDependencies() {
+        return rootDependencies;
+    }
+
+    CachePolicy getCachePolicy() {
+        return cachePolicy;
+    }
+}
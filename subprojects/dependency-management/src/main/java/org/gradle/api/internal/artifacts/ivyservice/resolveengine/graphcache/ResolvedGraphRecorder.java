@@ -0,0 +1,220 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graphcache;
+
+import com.google.common.primitives.Ints;
+import org.gradle.api.artifacts.ModuleDependency;
+import org.gradle.api.artifacts.ModuleIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentSelector;
+import org.gradle.api.internal.artifacts.DefaultModuleIdentifier;
+import org.gradle.api.internal.artifacts.ResolvedConfigurationIdentifier;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.ArtifactSet;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.DefaultArtifactSet;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.DependencyArtifactsVisitor;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphEdge;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphNode;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphVisitor;
+import org.gradle.internal.component.external.model.ModuleComponentArtifactMetaData;
+import org.gradle.internal.component.external.model.ModuleComponentArtifactIdentifier;
+import org.gradle.internal.component.model.ComponentArtifactMetaData;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Records the graph presented to the visitors while a configuration is resolved, and stores it in the {@link ResolvedGraphCache} once the artifacts
+ * have been visited. Recording is abandoned as soon as the graph contains something that cannot be replayed: failed dependencies, components that are
+ * not external modules, or artifacts that are not module artifacts.
+ */
+public class ResolvedGraphRecorder implements DependencyGraphVisitor, DependencyArtifactsVisitor {
+    private final ResolvedGraphCache cache;
+    private final ResolvedGraphInputs inputs;
+    private final Map<ModuleDependency, Integer> rootDependencies = new IdentityHashMap<ModuleDependency, Integer>();
+    private final Map<ResolvedConfigurationIdentifier, Integer> nodeIndexes = new HashMap<ResolvedConfigurationIdentifier, Integer>();
+    private final Map<DependencyGraphEdge, Integer> edgeIndexes = new IdentityHashMap<DependencyGraphEdge, Integer>();
+    private final Map<Long, Integer> artifactSetIndexes = new HashMap<Long, Integer>();
+    private final List<NodeBuilder> nodes = new ArrayList<NodeBuilder>();
+    private final List<CachedGraph.Edge> edges = new ArrayList<CachedGraph.Edge>();
+    private final List<CachedGraph.Artifacts> artifactSets = new ArrayList<CachedGraph.Artifacts>();
+    private DependencyGraphNode root;
+    private NodeBuilder currentNode;
+    private boolean edgesRecorded;
+    private boolean cacheable = true;
+
+    ResolvedGraphRecorder(ResolvedGraphCache cache, ResolvedGraphInputs inputs) {
+        this.cache = cache;
+        this.inputs = inputs;
+        List<ModuleDependency> dependencies = inputs.getRootDependencies();
+        for (int i = 0; i < dependencies.size(); i++) {
+            if (dependencies.get(i) != null) {
+                rootDependencies.put(dependencies.get(i), i);
+            }
+        }
+    }
+
+    @Override
+    public void start(DependencyGraphNode root) {
+        this.root = root;
+    }
+
+    @Override
+    public void visitNode(DependencyGraphNode node) {
+        if (!cacheable) {
+            return;
+        }
+        boolean changing = false;
+        if (node != root) {
+            if (!(node.getComponentId() instanceof ModuleComponentIdentifier)) {
+                cacheable = false;
+                return;
+            }
+            changing = node.getMetaData().getComponent().isChanging();
+        }
+        nodeIndexes.put(node.getNodeId(), nodes.size());
+        nodes.add(new NodeBuilder(node, changing));
+    }
+
+    @Override
+    public void visitEdge(DependencyGraphNode node) {
+        if (!cacheable) {
+            return;
+        }
+        if (!edgesRecorded) {
+            // All nodes are known by now, so the edges can refer to them
+            edgesRecorded = true;
+            for (NodeBuilder builder : nodes) {
+                addOutgoingEdges(builder);
+            }
+            if (!cacheable) {
+                return;
+            }
+        }
+        currentNode = nodes.get(nodeIndexes.get(node.getNodeId()));
+        for (DependencyGraphEdge edge : node.getIncomingEdges()) {
+            Integer edgeIndex = edgeIndexes.get(edge);
+            if (edgeIndex == null) {
+                cacheable = false;
+                return;
+            }
+            currentNode.incomingEdges.add(edgeIndex);
+        }
+    }
+
+    private void addOutgoingEdges(NodeBuilder builder) {
+        int from = nodeIndexes.get(builder.node.getNodeId());
+        for (DependencyGraphEdge edge : builder.node.getOutgoingEdges()) {
+            if (edge.getFailure() != null || !(edge.getRequested() instanceof ModuleComponentSelector)) {
+                cacheable = false;
+                return;
+            }
+            ModuleDependency moduleDependency = edge.getModuleDependency();
+            int dependency = -1;
+            if (moduleDependency != null) {
+                Integer index = rootDependencies.get(moduleDependency);
+                if (index == null) {
+                    cacheable = false;
+                    return;
+                }
+                dependency = index;
+            }
+            edgeIndexes.put(edge, edges.size());
+            builder.outgoingEdges.add(edges.size());
+            edges.add(new CachedGraph.Edge(from, edge.getRequested(), edge.getSelected(), edge.getReason(), dependency));
+        }
+    }
+
+    @Override
+    public void finish(DependencyGraphNode root) {
+    }
+
+    @Override
+    public void visitArtifacts(ResolvedConfigurationIdentifier parent, ResolvedConfigurationIdentifier child, ArtifactSet artifacts) {
+        if (!cacheable) {
+            return;
+        }
+        Integer artifactSetIndex = artifactSetIndexes.get(artifacts.getId());
+        if (artifactSetIndex == null) {
+            if (!(artifacts instanceof DefaultArtifactSet)) {
+                cacheable = false;
+                return;
+            }
+            DefaultArtifactSet artifactSet = (DefaultArtifactSet) artifacts;
+            List<ModuleComponentArtifactIdentifier> artifactIds = new ArrayList<ModuleComponentArtifactIdentifier>();
+            for (ComponentArtifactMetaData artifact : artifactSet.getSelectedArtifacts()) {
+                if (!(artifact instanceof ModuleComponentArtifactMetaData)) {
+                    cacheable = false;
+                    return;
+                }
+                artifactIds.add(((ModuleComponentArtifactMetaData) artifact).getId());
+            }
+            artifactSetIndex = artifactSets.size();
+            artifactSetIndexes.put(artifacts.getId(), artifactSetIndex);
+            artifactSets.add(new CachedGraph.Artifacts(artifactSet.getOwnerId(), artifactSet.getModuleSource(), artifactIds));
+        }
+        currentNode.artifactParents.add(nodeIndexes.get(parent));
+        currentNode.artifactSets.add(artifactSetIndex);
+    }
+
+    @Override
+    public void finishArtifacts() {
+        if (!cacheable) {
+            return;
+        }
+        List<CachedGraph.Node> cachedNodes = new ArrayList<CachedGraph.Node>(nodes.size());
+        List<ModuleComponentIdentifier> components = new ArrayList<ModuleComponentIdentifier>(nodes.size());
+        for (NodeBuilder builder : nodes) {
+            cachedNodes.add(builder.build());
+            if (builder.node != root) {
+                components.add((ModuleComponentIdentifier) builder.node.getComponentId());
+            }
+        }
+        Set<ModuleIdentifier> modules = new HashSet<ModuleIdentifier>();
+        for (CachedGraph.Edge edge : edges) {
+            ModuleComponentSelector requested = (ModuleComponentSelector) edge.requested;
+            modules.add(DefaultModuleIdentifier.newId(requested.getGroup(), requested.getModule()));
+        }
+        // Age the graph from the oldest cache entry it was resolved from, as that is what the cache policy would check when resolving it again
+        long timestamp = cache.getOldestTimestamp(components, modules);
+        cache.store(inputs, new CachedGraph(timestamp, inputs.getHash(), nodeIndexes.get(root.getNodeId()), cachedNodes, edges, artifactSets));
+    }
+
+    private static class NodeBuilder {
+        private final DependencyGraphNode node;
+        private final boolean changing;
+        private final List<Integer> outgoingEdges = new ArrayList<Integer>();
+        private final List<Integer> incomingEdges = new ArrayList<Integer>();
+        private final List<Integer> artifactParents = new ArrayList<Integer>();
+        private final List<Integer> artifactSets = new ArrayList<Integer>();
+
+        NodeBuilder(DependencyGraphNode node, boolean changing) {
+            this.node = node;
+            this.changing = changing;
+        }
+
+        CachedGraph.Node build() {
+            return new CachedGraph.Node(node.getNodeId(), node.getSelection(), changing, Ints.toArray(outgoingEdges), Ints.toArray(incomingEdges),
+                Ints.toArray(artifactParents), Ints.toArray(artifactSets));
+        }
+    }
+}
@@ -76,6 +76,11 @@ public class DefaultFlatDirArtifactRepository extends AbstractArtifactRepository
         return createRealResolver();
     }
 
+    public String getConfigurationId() {
+        // Flat directories are always local
+        return null;
+    }
+
     private IvyResolver createRealResolver() {
         Set<File> dirs = getDirs();
         if (dirs.isEmpty()) {
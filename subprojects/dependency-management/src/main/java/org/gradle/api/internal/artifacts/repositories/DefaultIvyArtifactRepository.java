@@ -18,6 +18,7 @@ package org.gradle.api.internal.artifacts.repositories;
 import groovy.lang.Closure;
 import org.gradle.api.Action;
 import org.gradle.api.InvalidUserDataException;
+import org.gradle.api.Nullable;
 import org.gradle.api.artifacts.repositories.IvyArtifactRepository;
 import org.gradle.api.artifacts.repositories.IvyArtifactRepositoryMetaDataProvider;
 import org.gradle.api.artifacts.repositories.RepositoryLayout;
@@ -36,9 +37,13 @@ import org.gradle.internal.component.external.model.ModuleComponentArtifactMetaD
 import org.gradle.internal.reflect.Instantiator;
 import org.gradle.internal.resource.local.FileStore;
 import org.gradle.internal.resource.local.LocallyAvailableResourceFinder;
+import org.gradle.util.CollectionUtils;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 
 public class DefaultIvyArtifactRepository extends AbstractAuthenticationSupportedRepository implements IvyArtifactRepository, ResolutionAwareRepository, PublicationAwareRepository {
@@ -91,6 +96,26 @@ public class DefaultIvyArtifactRepository extends AbstractAuthenticationSupporte
         return resolver;
     }
 
+    @Nullable
+    public String getConfigurationId() {
+        URI uri = getUrl();
+
+        Set<String> schemes = new LinkedHashSet<String>();
+        layout.addSchemes(uri, schemes);
+        additionalPatternsLayout.addSchemes(uri, schemes);
+        if (schemes.isEmpty() || Collections.singleton("file").containsAll(schemes)) {
+            return null;
+        }
+
+        PatternCollector patterns = new PatternCollector();
+        patterns.parts.add("ivy");
+        patterns.parts.add(getName());
+        patterns.parts.add(String.valueOf(metaDataProvider.dynamicResolve));
+        layout.apply(uri, patterns);
+        additionalPatternsLayout.apply(uri, patterns);
+        return CollectionUtils.join("::", patterns.parts);
+    }
+
     private IvyResolver createResolver(Set<String> schemes) {
         if (schemes.isEmpty()) {
             throw new InvalidUserDataException("You must specify a base url or at least one artifact pattern for an Ivy repository.");
@@ -182,6 +207,25 @@ public class DefaultIvyArtifactRepository extends AbstractAuthenticationSupporte
         }
     }
 
+    /**
+     * Collects the locations that a layout applies to a resolver, so that they can be identified without creating the resolver.
+     */
+    private static class PatternCollector implements PatternBasedResolver {
+        private final List<String> parts = new ArrayList<String>();
+
+        public void setM2compatible(boolean m2compatible) {
+            parts.add("m2compatible=" + m2compatible);
+        }
+
+        public void addArtifactLocation(URI baseUri, String pattern) {
+            parts.add("artifact=" + baseUri + " " + pattern);
+        }
+
+        public void addDescriptorLocation(URI baseUri, String pattern) {
+            parts.add("ivy=" + baseUri + " " + pattern);
+        }
+    }
+
     private static class MetaDataProvider implements IvyArtifactRepositoryMetaDataProvider {
         boolean dynamicResolve;
 
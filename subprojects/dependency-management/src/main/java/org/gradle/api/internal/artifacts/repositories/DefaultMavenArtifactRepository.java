@@ -17,6 +17,7 @@ package org.gradle.api.internal.artifacts.repositories;
 
 import com.google.common.collect.Lists;
 import org.gradle.api.InvalidUserDataException;
+import org.gradle.api.Nullable;
 import org.gradle.api.artifacts.repositories.MavenArtifactRepository;
 import org.gradle.api.artifacts.repositories.AuthenticationContainer;
 import org.gradle.api.internal.artifacts.ModuleVersionPublisher;
@@ -31,6 +32,7 @@ import org.gradle.internal.component.external.model.ModuleComponentArtifactMetaD
 import org.gradle.internal.reflect.Instantiator;
 import org.gradle.internal.resource.local.FileStore;
 import org.gradle.internal.resource.local.LocallyAvailableResourceFinder;
+import org.gradle.util.CollectionUtils;
 
 import java.net.URI;
 import java.util.ArrayList;
@@ -93,6 +95,23 @@ public class DefaultMavenArtifactRepository extends AbstractAuthenticationSuppor
         return createRealResolver();
     }
 
+    @Nullable
+    public String getConfigurationId() {
+        URI rootUri = getUrl();
+        // The transport of the resolver, and so whether its content is cached, depends on the root URL only
+        if (rootUri == null || "file".equals(rootUri.getScheme())) {
+            return null;
+        }
+        List<String> parts = new ArrayList<String>();
+        parts.add("maven");
+        parts.add(getName());
+        parts.add(rootUri.toString());
+        for (URI repoUrl : getArtifactUrls()) {
+            parts.add(repoUrl.toString());
+        }
+        return CollectionUtils.join("::", parts);
+    }
+
     protected MavenResolver createRealResolver() {
         URI rootUri = getUrl();
         if (rootUri == null) {
@@ -16,6 +16,7 @@
 
 package org.gradle.api.internal.artifacts.repositories;
 
+import org.gradle.api.Nullable;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ConfiguredModuleComponentRepository;
 
 public interface ResolutionAwareRepository {
@@ -23,4 +24,13 @@ public interface ResolutionAwareRepository {
      * Creates a resolver for this repository.
      */
     ConfiguredModuleComponentRepository createResolver();
+
+    /**
+     * Returns an identifier for the configuration of this repository, calculated without creating a resolver for it. The identifier changes whenever
+     * the resolver for this repository would look for modules and artifacts in different locations.
+     *
+     * @return the identifier, or null when the repository is local or cannot be identified, as its content is not cached.
+     */
+    @Nullable
+    String getConfigurationId();
 }
@@ -44,6 +44,53 @@ class DefaultResolvedArtifactTest extends Specification {
         artifact != differentId
     }
 
+    def "resolves file once"() {
+        def file = new File("file.jar")
+        def artifact = new DefaultResolvedArtifact(dep("group", "module1", "1.2"), Mock(IvyArtifactName), Stub(ComponentArtifactIdentifier), "repo", artifactSource)
+
+        when:
+        artifact.resolveFile()
+
+        then:
+        1 * artifactSource.create() >> file
+        artifact.resolved
+
+        when:
+        def result = artifact.file
+
+        then:
+        result == file
+        0 * artifactSource._
+    }
+
+    def "failure to resolve file ahead of time is thrown by next request for file"() {
+        def failure = new RuntimeException("broken")
+        def file = new File("file.jar")
+        def artifact = new DefaultResolvedArtifact(dep("group", "module1", "1.2"), Mock(IvyArtifactName), Stub(ComponentArtifactIdentifier), "repo", artifactSource)
+
+        when:
+        artifact.resolveFile()
+
+        then:
+        1 * artifactSource.create() >> { throw failure }
+        !artifact.resolved
+
+        when:
+        artifact.file
+
+        then:
+        def e = thrown(RuntimeException)
+        e == failure
+        0 * artifactSource._
+
+        when:
+        def result = artifact.file
+
+        then:
+        1 * artifactSource.create() >> file
+        result == file
+    }
+
     def dep(String group, String moduleName, String version) {
         ResolvedModuleVersion module = Mock()
         _ * module.id >> new DefaultModuleVersionIdentifier(group, moduleName, version)
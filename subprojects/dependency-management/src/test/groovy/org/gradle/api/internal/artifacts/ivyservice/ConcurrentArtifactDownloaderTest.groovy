@@ -0,0 +1,123 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice
+
+import org.gradle.api.artifacts.ResolvedArtifact
+import org.gradle.api.artifacts.ResolvedModuleVersion
+import org.gradle.api.artifacts.component.ComponentArtifactIdentifier
+import org.gradle.api.internal.artifacts.DefaultResolvedArtifact
+import org.gradle.internal.Factory
+import org.gradle.internal.component.model.IvyArtifactName
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import spock.lang.Specification
+
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.atomic.AtomicInteger
+
+class ConcurrentArtifactDownloaderTest extends Specification {
+    def executorFactory = new DefaultExecutorFactory()
+    def cacheLockingManager = Mock(CacheLockingManager)
+    def downloader = new ConcurrentArtifactDownloader(executorFactory, cacheLockingManager)
+
+    def cleanup() {
+        downloader.stop()
+        executorFactory.stop()
+    }
+
+    def "resolves files of artifacts on worker threads while cache lock is released"() {
+        def threads = new CopyOnWriteArrayList<Thread>()
+        def artifacts = (1..4).collect { i -> artifact("repo", { threads << Thread.currentThread(); new File("file${i}.jar") }) }
+
+        when:
+        downloader.downloadFiles(artifacts)
+
+        then:
+        1 * cacheLockingManager.longRunningOperation("Download 4 artifacts", _) >> { String name, Runnable action -> action.run() }
+        0 * cacheLockingManager._
+
+        and:
+        artifacts.every { it.resolved }
+        threads.size() == 4
+        !threads.contains(Thread.currentThread())
+    }
+
+    def "limits the number of concurrent downloads from each repository"() {
+        def active = [repo1: new AtomicInteger(), repo2: new AtomicInteger()]
+        def maxActive = [repo1: new AtomicInteger(), repo2: new AtomicInteger()]
+        def artifacts = (1..20).collect { i ->
+            def repo = i % 2 ? "repo1" : "repo2"
+            artifact(repo, {
+                def count = active[repo].incrementAndGet()
+                synchronized (maxActive) {
+                    maxActive[repo].set(Math.max(maxActive[repo].get(), count))
+                }
+                Thread.sleep(20)
+                active[repo].decrementAndGet()
+                new File("file${i}.jar")
+            })
+        }
+        _ * cacheLockingManager.longRunningOperation(_, _) >> { String name, Runnable action -> action.run() }
+
+        when:
+        downloader.downloadFiles(artifacts)
+
+        then:
+        artifacts.every { it.resolved }
+        maxActive.repo1.get() <= ConcurrentArtifactDownloader.MAX_CONCURRENT_DOWNLOADS_PER_REPOSITORY
+        maxActive.repo2.get() <= ConcurrentArtifactDownloader.MAX_CONCURRENT_DOWNLOADS_PER_REPOSITORY
+    }
+
+    def "does not download files of artifacts that are already resolved or are not from a repository"() {
+        def resolved = artifact("repo", { new File("resolved.jar") })
+        resolved.file
+        def local = artifact(null, { throw new UnsupportedOperationException() })
+        def artifacts = [resolved, local, artifact("repo", { new File("other.jar") }), Stub(ResolvedArtifact)]
+
+        when:
+        downloader.downloadFiles(artifacts)
+
+        then:
+        0 * cacheLockingManager._
+        !local.resolved
+    }
+
+    def "failure to download a file is reported when the file is requested"() {
+        def failure = new RuntimeException("broken")
+        def broken = artifact("repo", { throw failure })
+        def ok = artifact("repo", { new File("file.jar") })
+        _ * cacheLockingManager.longRunningOperation(_, _) >> { String name, Runnable action -> action.run() }
+
+        when:
+        downloader.downloadFiles([broken, ok])
+
+        then:
+        ok.resolved
+        !broken.resolved
+
+        when:
+        broken.file
+
+        then:
+        def e = thrown(RuntimeException)
+        e == failure
+    }
+
+    def artifact(String repositoryId, Closure<File> source) {
+        return new DefaultResolvedArtifact(Stub(ResolvedModuleVersion), Stub(IvyArtifactName), Stub(ComponentArtifactIdentifier), repositoryId, source as Factory<File>)
+    }
+}
@@ -880,4 +880,71 @@ class PomReaderTest extends AbstractPomReaderTest {
         pomReader.artifactId == pomReader.parentArtifactId
         pomReader.version == pomReader.parentVersion
     }
+
+    def "resolves Maven entities and CDATA sections in text"() {
+        when:
+        pomFile << """<?xml version="1.0" encoding="UTF-8"?>
+<project>
+    <modelVersion>4.0.0</modelVersion>
+    <groupId>group-one</groupId>
+    <artifactId>artifact-one</artifactId>
+    <version>version-one</version>
+    <description>Caf&eacute; &copy; <![CDATA[<b>bold</b>]]> text</description>
+</project>
+"""
+        pomReader = new PomReader(locallyAvailableExternalResource)
+
+        then:
+        pomReader.description == 'Caf\u00e9 \u00a9 <b>bold</b> text'
+    }
+
+    def "ignores elements of sections that are not used"() {
+        when:
+        pomFile << """
+<project>
+    <modelVersion>4.0.0</modelVersion>
+    <groupId>group-one</groupId>
+    <artifactId>artifact-one</artifactId>
+    <version>version-one</version>
+    <build>
+        <plugins>
+            <plugin>
+                <groupId>plugin-group</groupId>
+                <artifactId>plugin-artifact</artifactId>
+                <dependencies>
+                    <dependency>
+                        <groupId>group-two</groupId>
+                        <artifactId>artifact-two</artifactId>
+                        <version>version-two</version>
+                    </dependency>
+                </dependencies>
+            </plugin>
+        </plugins>
+    </build>
+    <profiles>
+        <profile>
+            <id>profile-1</id>
+            <activation>
+                <activeByDefault>true</activeByDefault>
+            </activation>
+            <build>
+                <properties>
+                    <some.prop>ignored</some.prop>
+                </properties>
+            </build>
+            <properties>
+                <some.prop>used</some.prop>
+            </properties>
+        </profile>
+    </profiles>
+</project>
+"""
+        pomReader = new PomReader(locallyAvailableExternalResource)
+
+        then:
+        pomReader.groupId == 'group-one'
+        pomReader.artifactId == 'artifact-one'
+        pomReader.dependencies.isEmpty()
+        pomReader.properties['some.prop'] == 'used'
+    }
 }
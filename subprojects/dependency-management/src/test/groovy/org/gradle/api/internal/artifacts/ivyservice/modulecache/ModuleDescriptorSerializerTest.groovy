@@ -0,0 +1,124 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.modulecache
+
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor
+import org.apache.ivy.plugins.matcher.ExactPatternMatcher
+import org.apache.ivy.plugins.matcher.GlobPatternMatcher
+import org.apache.ivy.plugins.matcher.RegexpPatternMatcher
+import org.gradle.api.internal.artifacts.ivyservice.IvyXmlModuleDescriptorWriter
+import org.gradle.api.internal.artifacts.ivyservice.NamespaceId
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.DescriptorParseContext
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.IvyXmlModuleDescriptorParser
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.ResolverStrategy
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class ModuleDescriptorSerializerTest extends Specification {
+    @Rule TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider()
+    ResolverStrategy resolverStrategy = Stub() {
+        getPatternMatcher("exact") >> ExactPatternMatcher.INSTANCE
+        getPatternMatcher("glob") >> GlobPatternMatcher.INSTANCE
+        getPatternMatcher("regexp") >> RegexpPatternMatcher.INSTANCE
+    }
+    def serializer = new ModuleDescriptorSerializer(resolverStrategy)
+    def writer = new IvyXmlModuleDescriptorWriter()
+
+    def "round trips a full Ivy descriptor"() {
+        given:
+        def file = temporaryFolder.file("ivy.xml")
+        file.text = getClass().getResource("/org/gradle/api/internal/artifacts/ivyservice/ivyresolve/parser/test-full.xml").text
+        def original = new IvyXmlModuleDescriptorParser(resolverStrategy).parseMetaData(Stub(DescriptorParseContext), file, false).descriptor
+
+        when:
+        def result = roundTrip(original)
+
+        then:
+        result.moduleRevisionId == original.moduleRevisionId
+        result.moduleRevisionId.branch == "branch"
+        result.configurationsNames as List == original.configurationsNames as List
+        result.dependencies.length == original.dependencies.length
+        result.allArtifacts.length == original.allArtifacts.length
+        result.allExcludeRules.length == original.allExcludeRules.length
+        result.extraInfo == original.extraInfo
+        asXml(result) == asXml(original)
+    }
+
+    def "round trips extra info with and without namespace"() {
+        given:
+        def original = new IvyXmlModuleDescriptorParser(resolverStrategy).parseMetaData(Stub(DescriptorParseContext), temporaryFolder.file("ivy.xml") << """
+<ivy-module version="2.0" xmlns:e="http://ant.apache.org/ivy/extra">
+    <info organisation="myorg" module="mymodule" revision="1.2" e:custom="value">
+        <e:ns-info>namespaced</e:ns-info>
+    </info>
+</ivy-module>
+""", false).descriptor
+
+        when:
+        def result = roundTrip(original)
+
+        then:
+        result.extraInfo == [(new NamespaceId("http://ant.apache.org/ivy/extra", "ns-info")): "namespaced"]
+        result.moduleRevisionId.qualifiedExtraAttributes == ["e:custom": "value"]
+        result.extraAttributesNamespaces == original.extraAttributesNamespaces
+        asXml(result) == asXml(original)
+    }
+
+    def "round trips configuration mappings that are interpreted by the dependency"() {
+        given:
+        def original = new IvyXmlModuleDescriptorParser(resolverStrategy).parseMetaData(Stub(DescriptorParseContext), temporaryFolder.file("ivy.xml") << """
+<ivy-module version="2.0">
+    <info organisation="myorg" module="mymodule" revision="1.2"/>
+    <configurations>
+        <conf name="a"/>
+        <conf name="b"/>
+    </configurations>
+    <dependencies>
+        <dependency org="org" name="self" rev="1.0" conf="*->@"/>
+        <dependency org="org" name="same" rev="1.0" conf="a->#"/>
+    </dependencies>
+</ivy-module>
+""", false).descriptor
+
+        when:
+        def result = roundTrip(original)
+
+        then:
+        result.dependencies[0].getDependencyConfigurations("a") == ["a"] as String[]
+        result.dependencies[0].getDependencyConfigurations("b") == ["b"] as String[]
+        result.dependencies[1].getDependencyConfigurations("a") == ["a"] as String[]
+        asXml(result) == asXml(original)
+    }
+
+    private ModuleDescriptor roundTrip(ModuleDescriptor descriptor) {
+        def outstr = new ByteArrayOutputStream()
+        def encoder = new KryoBackedEncoder(outstr)
+        serializer.write(encoder, descriptor)
+        encoder.flush()
+        return serializer.read(new KryoBackedDecoder(new ByteArrayInputStream(outstr.toByteArray())))
+    }
+
+    private String asXml(ModuleDescriptor descriptor) {
+        def file = temporaryFolder.file("descriptor.xml")
+        writer.write(descriptor, file)
+        return file.text
+    }
+}
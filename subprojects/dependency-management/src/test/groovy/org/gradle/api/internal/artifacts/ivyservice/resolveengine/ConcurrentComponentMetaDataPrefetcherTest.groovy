@@ -0,0 +1,73 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine
+
+import org.gradle.api.Action
+import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager
+import org.gradle.api.internal.artifacts.ivyservice.IvyContextManager
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import spock.lang.Specification
+
+import java.util.concurrent.CopyOnWriteArrayList
+
+class ConcurrentComponentMetaDataPrefetcherTest extends Specification {
+    def executorFactory = new DefaultExecutorFactory()
+    def cacheLockingManager = Mock(CacheLockingManager)
+    def ivyContextManager = Mock(IvyContextManager)
+    def prefetcher = new ConcurrentComponentMetaDataPrefetcher(executorFactory, cacheLockingManager, ivyContextManager)
+
+    def cleanup() {
+        prefetcher.stop()
+        executorFactory.stop()
+    }
+
+    def "runs each operation on a worker thread with the cache and Ivy context and waits for all to complete"() {
+        def threads = new CopyOnWriteArrayList<Thread>()
+        def operations = (1..4).collect { { -> Thread.sleep(20); threads << Thread.currentThread() } as Runnable }
+
+        when:
+        prefetcher.prefetch(operations)
+
+        then:
+        1 * cacheLockingManager.longRunningOperation("Resolve meta-data for 4 components", _) >> { String name, Runnable action -> action.run() }
+        4 * cacheLockingManager.useCache("Resolve meta-data", _) >> { String name, Runnable action -> action.run() }
+        4 * ivyContextManager.withIvy(_ as Action) >> { Action action -> action.execute(null) }
+        0 * _
+
+        and:
+        threads.size() == 4
+        !threads.contains(Thread.currentThread())
+    }
+
+    def "rethrows failure after all operations have completed"() {
+        def failure = new RuntimeException("broken")
+        def completed = new CopyOnWriteArrayList<Integer>()
+        def operations = [{ -> throw failure } as Runnable] + (1..3).collect { i -> { -> Thread.sleep(20); completed << i } as Runnable }
+        _ * cacheLockingManager.longRunningOperation(_, _) >> { String name, Runnable action -> action.run() }
+        _ * cacheLockingManager.useCache(_, _) >> { String name, Runnable action -> action.run() }
+        _ * ivyContextManager.withIvy(_ as Action) >> { Action action -> action.execute(null) }
+
+        when:
+        prefetcher.prefetch(operations)
+
+        then:
+        def e = thrown(RuntimeException)
+        e == failure
+        completed.size() == 3
+    }
+}
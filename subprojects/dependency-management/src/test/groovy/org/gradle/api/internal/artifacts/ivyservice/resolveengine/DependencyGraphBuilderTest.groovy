@@ -31,6 +31,7 @@ import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager
 import org.gradle.api.internal.artifacts.ivyservice.DefaultLenientConfiguration
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.DefaultResolvedArtifactsBuilder
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.ResolvedArtifactsGraphVisitor
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.ComponentMetaDataPrefetcher
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.CompositeDependencyArtifactsVisitor
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.CompositeDependencyGraphVisitor
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphBuilder
@@ -90,6 +91,10 @@ class DependencyGraphBuilderTest extends Specification {
         builder = new DependencyGraphBuilder(idResolver, metaDataResolver, moduleResolver, dependencyToConfigurationResolver, new DefaultConflictHandler(conflictResolver, moduleReplacements))
     }
 
+    private DependencyGraphBuilder createBuilder(ComponentMetaDataPrefetcher prefetcher) {
+        new DependencyGraphBuilder(idResolver, metaDataResolver, moduleResolver, dependencyToConfigurationResolver, new DefaultConflictHandler(conflictResolver, moduleReplacements), prefetcher)
+    }
+
     private DefaultLenientConfiguration resolve() {
         def transientConfigurationResultsBuilder = new TransientConfigurationResultsBuilder(new DummyBinaryStore(), new DummyStore())
         def modelBuilder = new DefaultResolvedConfigurationBuilder(transientConfigurationResultsBuilder)
@@ -940,6 +945,55 @@ class DependencyGraphBuilderTest extends Specification {
         modules(result) == ids(forced, b)
     }
 
+    def "resolves meta-data for the targets of newly discovered dependencies as a batch"() {
+        given:
+        def prefetcher = Mock(ComponentMetaDataPrefetcher)
+        builder = createBuilder(prefetcher)
+        def a = revision("a")
+        def b = revision("b")
+        def c = revision("c")
+        def d = revision("d")
+        traverses root, a
+        traverses root, b
+        traverses root, c
+        traverses a, d
+        traverses b, d
+
+        when:
+        def result = resolve()
+        result.rethrowFailure()
+
+        then:
+        1 * prefetcher.prefetch({ it.size() == 3 }) >> { Collection<Runnable> operations -> operations*.run() }
+        0 * prefetcher._
+
+        and:
+        modules(result) == ids(a, d, b, c)
+    }
+
+    def "resolves meta-data on demand for components whose meta-data was not prefetched"() {
+        given:
+        def prefetcher = Mock(ComponentMetaDataPrefetcher)
+        builder = createBuilder(prefetcher)
+        def a = revision("a")
+        def b = revision("b")
+        def c = revision("c")
+        traverses root, a
+        traverses root, b
+        traversesMissing root, c
+
+        when:
+        def result = resolve()
+
+        then:
+        1 * prefetcher.prefetch({ it.size() == 3 })
+
+        and:
+        modules(result) == ids(a, b)
+        result.unresolvedModuleDependencies.size() == 1
+        result.unresolvedModuleDependencies.iterator().next().selector == new DefaultModuleVersionSelector('group', 'c', '1.0')
+    }
+
     def revision(String name, String revision = '1.0') {
         // TODO Shouldn't really be using the local component implementation here
         def id = newId("group", name, revision)
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graphcache
+
+import org.gradle.api.internal.artifacts.DefaultModuleIdentifier
+import org.gradle.api.internal.artifacts.ivyservice.dynamicversions.ModuleVersionsCache
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ModuleComponentRepository
+import org.gradle.api.internal.artifacts.ivyservice.modulecache.ModuleMetaDataCache
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
+import org.gradle.util.BuildCommencedTimeProvider
+import spock.lang.Specification
+
+class CacheEntryTimestampsTest extends Specification {
+    def timeProvider = Stub(BuildCommencedTimeProvider) {
+        getCurrentTime() >> 1000000
+    }
+    def timestamps = new CacheEntryTimestamps(timeProvider)
+    def repo1 = Stub(ModuleComponentRepository) {
+        getId() >> "repo1"
+    }
+    def repo2 = Stub(ModuleComponentRepository) {
+        getId() >> "repo2"
+    }
+    def component = DefaultModuleComponentIdentifier.newId("org", "a", "1.0")
+    def module = DefaultModuleIdentifier.newId("org", "a")
+
+    def "returns current time when no entry was used"() {
+        expect:
+        timestamps.getOldestTimestamp([component], [module]) == 1000000
+    }
+
+    def "returns creation time of oldest entry used in any repository"() {
+        def metaDataCache = timestamps.track(Stub(ModuleMetaDataCache) {
+            getCachedModuleDescriptor(repo1, component) >> cachedMetaData(300)
+            getCachedModuleDescriptor(repo2, component) >> cachedMetaData(100)
+        })
+        def versionsCache = timestamps.track(Stub(ModuleVersionsCache) {
+            getCachedModuleResolution(repo1, module) >> Stub(ModuleVersionsCache.CachedModuleVersionList) {
+                getAgeMillis() >> 500
+            }
+        })
+
+        when:
+        metaDataCache.getCachedModuleDescriptor(repo1, component)
+        metaDataCache.getCachedModuleDescriptor(repo2, component)
+
+        then:
+        timestamps.getOldestTimestamp([component], []) == 1000000 - 300
+        timestamps.getOldestTimestamp([], [module]) == 1000000
+
+        when:
+        versionsCache.getCachedModuleResolution(repo1, module)
+
+        then:
+        timestamps.getOldestTimestamp([component], [module]) == 1000000 - 500
+    }
+
+    def "uses creation time of entry that replaced an expired entry"() {
+        def metaDataCache = timestamps.track(Stub(ModuleMetaDataCache) {
+            getCachedModuleDescriptor(repo1, component) >> cachedMetaData(300)
+            cacheMissing(repo1, component) >> cachedMetaData(0)
+        })
+        def versionsCache = timestamps.track(Stub(ModuleVersionsCache) {
+            getCachedModuleResolution(repo1, module) >> Stub(ModuleVersionsCache.CachedModuleVersionList) {
+                getAgeMillis() >> 500
+            }
+        })
+
+        when:
+        metaDataCache.getCachedModuleDescriptor(repo1, component)
+        metaDataCache.cacheMissing(repo1, component)
+        versionsCache.getCachedModuleResolution(repo1, module)
+        versionsCache.cacheModuleVersionList(repo1, module, ["1.0"] as Set)
+
+        then:
+        timestamps.getOldestTimestamp([component], [module]) == 1000000
+    }
+
+    private ModuleMetaDataCache.CachedMetaData cachedMetaData(long ageMillis) {
+        return Stub(ModuleMetaDataCache.CachedMetaData) {
+            getAgeMillis() >> ageMillis
+        }
+    }
+}
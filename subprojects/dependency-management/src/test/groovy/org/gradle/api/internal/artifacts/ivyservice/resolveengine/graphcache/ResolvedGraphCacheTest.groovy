@@ -0,0 +1,235 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graphcache
+
+import org.gradle.api.artifacts.ModuleDependency
+import org.gradle.api.internal.artifacts.ComponentModuleMetadataProcessor
+import org.gradle.api.internal.artifacts.GlobalDependencyResolutionRules
+import org.gradle.api.internal.artifacts.ResolveContext
+import org.gradle.api.internal.artifacts.ResolvedConfigurationIdentifier
+import org.gradle.api.internal.artifacts.configurations.ConfigurationInternal
+import org.gradle.api.internal.artifacts.dsl.ComponentModuleMetadataContainer
+import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager
+import org.gradle.api.internal.artifacts.ivyservice.dynamicversions.ModuleVersionsCache
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ModuleComponentRepository
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.RepositoryChainModuleSource
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionComparator
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionSelectorScheme
+import org.gradle.api.internal.artifacts.ivyservice.resolutionstrategy.DefaultCachePolicy
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.DefaultModuleResolutionFilter
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.DefaultArtifactSet
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.DependencyArtifactsVisitor
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphEdge
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphNode
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphVisitor
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.DefaultModuleVersionSelection
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.VersionSelectionReasons
+import org.gradle.internal.component.external.model.DefaultModuleComponentArtifactMetaData
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
+import org.gradle.internal.component.external.model.DefaultModuleComponentSelector
+import org.gradle.internal.component.local.model.DefaultProjectComponentIdentifier
+import org.gradle.internal.component.model.ComponentResolveMetaData
+import org.gradle.internal.component.model.ConfigurationMetaData
+import org.gradle.internal.component.model.DefaultIvyArtifactName
+import org.gradle.internal.resolve.ModuleVersionResolveException
+import org.gradle.internal.resolve.resolver.ArtifactResolver
+import org.gradle.testfixtures.internal.InMemoryIndexedCache
+import org.gradle.util.BuildCommencedTimeProvider
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+
+import static org.gradle.api.internal.artifacts.DefaultModuleVersionIdentifier.newId
+
+class ResolvedGraphCacheTest extends Specification {
+    def cacheLockingManager = Stub(CacheLockingManager) {
+        createCache(_, _, _) >> { String name, keySerializer, valueSerializer -> new InMemoryIndexedCache(valueSerializer) }
+    }
+    long now = 1000000
+    def timeProvider = Stub(BuildCommencedTimeProvider) {
+        getCurrentTime() >> { now }
+    }
+    def cacheEntryTimestamps = new CacheEntryTimestamps(timeProvider)
+    def cache = new ResolvedGraphCache(cacheLockingManager, timeProvider, new DefaultVersionSelectorScheme(new DefaultVersionComparator()), cacheEntryTimestamps)
+    def rootConfiguration = Stub(ConfigurationMetaData)
+    def dependency = Stub(ModuleDependency)
+    def artifactResolver = Stub(ArtifactResolver)
+    def graphVisitor = Mock(DependencyGraphVisitor)
+    def artifactsVisitor = Mock(DependencyArtifactsVisitor)
+
+    def rootId = new ResolvedConfigurationIdentifier(newId("org", "root", "1.0"), "compile")
+    def moduleId = new ResolvedConfigurationIdentifier(newId("org", "a", "1.2"), "default")
+    def moduleComponentId = DefaultModuleComponentIdentifier.newId("org", "a", "1.2")
+    def artifactId = new DefaultModuleComponentArtifactMetaData(moduleComponentId, new DefaultIvyArtifactName("a", "jar", "jar")).id
+
+    def "replays recorded graph to visitors"() {
+        given:
+        def inputs = inputs()
+        record(inputs)
+
+        when:
+        def replayed = cache.replay(inputs, artifactResolver, graphVisitor, artifactsVisitor)
+
+        then:
+        replayed
+        1 * graphVisitor.start({ it.nodeId == rootId && it.metaData == rootConfiguration })
+
+        then:
+        1 * graphVisitor.visitNode({ it.nodeId == rootId && it.outgoingEdges*.requested == [DefaultModuleComponentSelector.newSelector("org", "a", "1.+")] })
+
+        then:
+        1 * graphVisitor.visitNode({ it.nodeId == moduleId && it.componentId == moduleComponentId && it.selection.selectionReason == VersionSelectionReasons.REQUESTED })
+
+        then:
+        1 * graphVisitor.visitEdge({ it.nodeId == rootId })
+
+        then:
+        1 * graphVisitor.visitEdge({ it.nodeId == moduleId && it.incomingEdges*.moduleDependency == [dependency] && it.incomingEdges*.from*.nodeId == [rootId] && it.incomingEdges*.reason == [VersionSelectionReasons.REQUESTED] })
+
+        then:
+        1 * artifactsVisitor.visitArtifacts(rootId, moduleId, { it.selectedArtifacts*.id == [artifactId] })
+
+        then:
+        1 * graphVisitor.finish({ it.nodeId == rootId })
+
+        then:
+        1 * artifactsVisitor.finishArtifacts()
+        0 * _
+    }
+
+    def "does not reuse graph when inputs change"() {
+        given:
+        record(inputs())
+
+        expect:
+        !cache.replay(inputs([4, 5, 6] as byte[]), artifactResolver, graphVisitor, artifactsVisitor)
+    }
+
+    def "does not reuse graph once dynamic versions have expired"() {
+        given:
+        def inputs = inputs()
+        record(inputs)
+
+        when:
+        now += TimeUnit.HOURS.toMillis(1)
+
+        then:
+        cache.replay(inputs, artifactResolver, Stub(DependencyGraphVisitor), Stub(DependencyArtifactsVisitor))
+
+        when:
+        now += TimeUnit.DAYS.toMillis(1)
+
+        then:
+        !cache.replay(inputs, artifactResolver, Stub(DependencyGraphVisitor), Stub(DependencyArtifactsVisitor))
+    }
+
+    def "ages graph from the oldest cache entry it was resolved from"() {
+        given:
+        def versionsCache = cacheEntryTimestamps.track(Stub(ModuleVersionsCache) {
+            getCachedModuleResolution(_, _) >> Stub(ModuleVersionsCache.CachedModuleVersionList) {
+                getAgeMillis() >> TimeUnit.HOURS.toMillis(23)
+            }
+        })
+        versionsCache.getCachedModuleResolution(Stub(ModuleComponentRepository) { getId() >> "repo" }, moduleId.id.module)
+        def inputs = inputs()
+        record(inputs)
+
+        when:
+        now += TimeUnit.HOURS.toMillis(2)
+
+        then:
+        !cache.replay(inputs, artifactResolver, graphVisitor, artifactsVisitor)
+    }
+
+    def "fingerprint changes when module replacements change"() {
+        given:
+        def configuration = Stub(ConfigurationInternal)
+        def replacements = new ComponentModuleMetadataContainer()
+        def rules = Stub(GlobalDependencyResolutionRules) {
+            getModuleMetadataProcessor() >> Stub(ComponentModuleMetadataProcessor) {
+                getModuleReplacements() >> replacements
+            }
+        }
+
+        when:
+        def before = cache.fingerprint(configuration, [], rules)
+        replacements.module("org:other").replacedBy("org:replacement")
+        def after = cache.fingerprint(configuration, [], rules)
+
+        then:
+        before.hash != after.hash
+    }
+
+    def "does not record graph with failed dependencies"() {
+        given:
+        def inputs = inputs()
+        record(inputs, new ModuleVersionResolveException(moduleId.id, "broken"))
+
+        expect:
+        !cache.replay(inputs, artifactResolver, graphVisitor, artifactsVisitor)
+    }
+
+    def "does not cache graphs of resolve contexts other than configurations"() {
+        expect:
+        cache.fingerprint(Stub(ResolveContext), [], Stub(GlobalDependencyResolutionRules)) == null
+    }
+
+    private ResolvedGraphInputs inputs(byte[] hash = [1, 2, 3] as byte[]) {
+        return new ResolvedGraphInputs("project : compile", hash, rootConfiguration, [dependency], new DefaultCachePolicy())
+    }
+
+    private void record(ResolvedGraphInputs inputs, ModuleVersionResolveException failure = null) {
+        def root = Stub(DependencyGraphNode)
+        def module = Stub(DependencyGraphNode)
+        def edge = Stub(DependencyGraphEdge) {
+            getFrom() >> root
+            getRequested() >> DefaultModuleComponentSelector.newSelector("org", "a", "1.+")
+            getSelected() >> moduleId.id
+            getReason() >> VersionSelectionReasons.REQUESTED
+            getFailure() >> failure
+            getModuleDependency() >> dependency
+        }
+        root.getNodeId() >> rootId
+        root.toId() >> rootId.id
+        root.getComponentId() >> DefaultProjectComponentIdentifier.newId(":")
+        root.getSelection() >> new DefaultModuleVersionSelection(rootId.id, VersionSelectionReasons.ROOT, DefaultProjectComponentIdentifier.newId(":"))
+        root.getOutgoingEdges() >> ([edge] as Set)
+        root.getIncomingEdges() >> ([] as Set)
+        module.getNodeId() >> moduleId
+        module.toId() >> moduleId.id
+        module.getComponentId() >> moduleComponentId
+        module.getSelection() >> new DefaultModuleVersionSelection(moduleId.id, VersionSelectionReasons.REQUESTED, moduleComponentId)
+        module.getMetaData() >> Stub(ConfigurationMetaData) {
+            getComponent() >> Stub(ComponentResolveMetaData)
+        }
+        module.getOutgoingEdges() >> ([] as Set)
+        module.getIncomingEdges() >> ([edge] as Set)
+        def artifacts = new DefaultArtifactSet(moduleId.id, new RepositoryChainModuleSource("repo", null), DefaultModuleResolutionFilter.all(),
+            [new DefaultModuleComponentArtifactMetaData(artifactId)] as Set, artifactResolver, [:], 12)
+
+        def recorder = cache.createRecorder(inputs)
+        recorder.start(root)
+        recorder.visitNode(root)
+        recorder.visitNode(module)
+        recorder.visitEdge(root)
+        recorder.visitEdge(module)
+        recorder.visitArtifacts(rootId, moduleId, artifacts)
+        recorder.finish(root)
+        recorder.finishArtifacts()
+    }
+}
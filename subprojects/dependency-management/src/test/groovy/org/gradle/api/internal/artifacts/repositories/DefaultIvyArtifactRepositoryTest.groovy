@@ -274,6 +274,34 @@ class DefaultIvyArtifactRepositoryTest extends Specification {
         e.message == 'You must specify a base url or at least one artifact pattern for an Ivy repository.'
     }
 
+    def "identifies configuration of remote repository without creating a transport"() {
+        repository.name = 'name'
+        repository.url = 'http://host'
+
+        given:
+        fileResolver.resolveUri('http://host') >> new URI('http://host/')
+
+        when:
+        def id = repository.configurationId
+        repository.layout 'maven'
+
+        then:
+        id != null
+        repository.configurationId != id
+        0 * transportFactory._
+    }
+
+    def "has no configuration id for local repository"() {
+        repository.name = 'name'
+        repository.artifactPattern 'repo/[organisation]/[artifact]-[revision].[ext]'
+
+        given:
+        fileResolver.resolveUri('repo/') >> new File("test").toURI()
+
+        expect:
+        repository.configurationId == null
+    }
+
     private RepositoryTransport transport() {
         return Mock(RepositoryTransport) {
             getRepository() >> resourceRepository
@@ -131,6 +131,37 @@ class DefaultMavenArtifactRepositoryTest extends Specification {
         e.message == 'You must specify a URL for a Maven repository.'
     }
 
+    def "identifies configuration of remote repository without creating a transport"() {
+        given:
+        _ * resolver.resolveUri('repo-dir') >> new URI("http://localhost:9090/repo")
+        _ * resolver.resolveUri('repo1') >> new URI("http://localhost:9090/repo1")
+
+        and:
+        repository.name = 'repo'
+        repository.url = 'repo-dir'
+
+        when:
+        def id = repository.configurationId
+        repository.artifactUrls('repo1')
+
+        then:
+        id != null
+        repository.configurationId != id
+        0 * transportFactory._
+    }
+
+    def "has no configuration id for local repository"() {
+        given:
+        _ * resolver.resolveUri('repo-dir') >> new File('repo').toURI()
+
+        and:
+        repository.name = 'repo'
+        repository.url = 'repo-dir'
+
+        expect:
+        repository.configurationId == null
+    }
+
     private RepositoryTransport transport() {
         return Mock(RepositoryTransport) {
             getRepository() >> resourceRepository
@@ -41,4 +41,13 @@ public class CachingClassDependenciesAnalyzer implements ClassDependenciesAnalyz
             }
         });
     }
+
+    public ClassAnalysis getClassAnalysis(final String className, final byte[] classContent) {
+        byte[] hash = hasher.hash(classContent);
+        return cache.get(hash, new Factory<ClassAnalysis>() {
+            public ClassAnalysis create() {
+                return analyzer.getClassAnalysis(className, classContent);
+            }
+        });
+    }
 }
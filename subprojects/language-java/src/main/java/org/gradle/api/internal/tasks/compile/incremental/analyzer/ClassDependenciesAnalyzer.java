@@ -20,4 +20,6 @@ import java.io.File;
 
 public interface ClassDependenciesAnalyzer {
     ClassAnalysis getClassAnalysis(String className, File classFile);
+
+    ClassAnalysis getClassAnalysis(String className, byte[] classContent);
 }
@@ -55,6 +55,18 @@ public class ClassFilesAnalyzer implements FileVisitor {
         accumulator.addClass(className, analysis.isDependencyToAll(), analysis.getClassDependencies());
     }
 
+    /**
+     * Analyzes a class read from an archive, rather than from a class file.
+     */
+    public void visitClass(String className, byte[] classContent) {
+        if (!className.startsWith(packagePrefix)) {
+            return;
+        }
+
+        ClassAnalysis analysis = analyzer.getClassAnalysis(className, classContent);
+        accumulator.addClass(className, analysis.isDependencyToAll(), analysis.getClassDependencies());
+    }
+
     public ClassSetAnalysisData getAnalysis() {
         return new ClassSetAnalysisData(accumulator.getDependentsMap());
     }
@@ -20,6 +20,7 @@ import org.gradle.util.GFileUtils;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.Type;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -74,4 +75,12 @@ public class DefaultClassDependenciesAnalyzer implements ClassDependenciesAnalyz
             GFileUtils.closeInputStream(input);
         }
     }
+
+    public ClassAnalysis getClassAnalysis(String className, byte[] classContent) {
+        try {
+            return getClassAnalysis(className, new ByteArrayInputStream(classContent));
+        } catch (IOException e) {
+            throw new RuntimeException("Problems loading class analysis for '" + className + "'");
+        }
+    }
 }
@@ -15,15 +15,20 @@
  */
 package org.gradle.api.internal.tasks.compile.incremental.jar;
 
-import org.gradle.api.file.FileTree;
-import org.gradle.api.file.FileVisitDetails;
-import org.gradle.api.file.FileVisitor;
+import com.google.common.io.ByteStreams;
+import org.gradle.api.UncheckedIOException;
 import org.gradle.api.internal.hash.Hasher;
 import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassDependenciesAnalyzer;
 import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassFilesAnalyzer;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 class DefaultJarSnapshotter {
 
@@ -36,23 +41,46 @@ class DefaultJarSnapshotter {
     }
 
     public JarSnapshot createSnapshot(byte[] hash, JarArchive jarArchive) {
-        return createSnapshot(hash, jarArchive.contents, new ClassFilesAnalyzer(analyzer));
+        return createSnapshot(hash, jarArchive.file, new ClassFilesAnalyzer(analyzer));
     }
 
-    JarSnapshot createSnapshot(byte[] hash, FileTree classes, final ClassFilesAnalyzer analyzer) {
-        final Map<String, byte[]> hashes = new HashMap<String, byte[]>();
-        classes.visit(new FileVisitor() {
-            public void visitDir(FileVisitDetails dirDetails) {
+    /**
+     * Reads the classes straight from the jar, without extracting them. Only the class entries are hashed and analyzed, as when the classes were
+     * visited through a zip tree matching {@code **}{@code /*.class}. Other entries, such as resources, are covered by the given hash of the whole
+     * jar, so a change to a resource still changes the hash of the snapshot but not its classes.
+     */
+    JarSnapshot createSnapshot(byte[] hash, File jar, ClassFilesAnalyzer analyzer) {
+        Map<String, byte[]> hashes = new HashMap<String, byte[]>();
+        try {
+            ZipFile zipFile = new ZipFile(jar);
+            try {
+                Enumeration<? extends ZipEntry> entries = zipFile.entries();
+                while (entries.hasMoreElements()) {
+                    ZipEntry entry = entries.nextElement();
+                    if (entry.isDirectory() || !entry.getName().endsWith(".class")) {
+                        continue;
+                    }
+                    byte[] content = readEntry(zipFile, entry);
+                    String className = entry.getName().replaceAll("/", ".").replaceAll("\\.class$", "");
+                    analyzer.visitClass(className, content);
+                    hashes.put(className, hasher.hash(content));
+                }
+            } finally {
+                zipFile.close();
             }
-
-            public void visitFile(FileVisitDetails fileDetails) {
-                analyzer.visitFile(fileDetails);
-                String className = fileDetails.getPath().replaceAll("/", ".").replaceAll("\\.class$", "");
-                byte[] classHash = hasher.hash(fileDetails.getFile());
-                hashes.put(className, classHash);
-            }
-        });
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Could not read classes from %s.", jar), e);
+        }
 
         return new JarSnapshot(new JarSnapshotData(hash, hashes, analyzer.getAnalysis()));
     }
-}
\ No newline at end of file
+
+    private static byte[] readEntry(ZipFile zipFile, ZipEntry entry) throws IOException {
+        InputStream inputStream = zipFile.getInputStream(entry);
+        try {
+            return ByteStreams.toByteArray(inputStream);
+        } finally {
+            inputStream.close();
+        }
+    }
+}
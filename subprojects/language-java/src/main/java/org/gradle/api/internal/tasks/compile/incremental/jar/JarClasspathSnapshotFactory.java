@@ -16,28 +16,40 @@
 
 package org.gradle.api.internal.tasks.compile.incremental.jar;
 
+import org.gradle.internal.operations.BuildOperation;
+import org.gradle.internal.operations.BuildOperationProcessor;
+import org.gradle.internal.operations.BuildOperationQueue;
+import org.gradle.internal.operations.BuildOperationWorker;
+
 import java.io.File;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 public class JarClasspathSnapshotFactory {
 
     private final JarSnapshotter jarSnapshotter;
+    private final BuildOperationProcessor buildOperationProcessor;
 
-    public JarClasspathSnapshotFactory(JarSnapshotter jarSnapshotter) {
+    public JarClasspathSnapshotFactory(JarSnapshotter jarSnapshotter, BuildOperationProcessor buildOperationProcessor) {
         this.jarSnapshotter = jarSnapshotter;
+        this.buildOperationProcessor = buildOperationProcessor;
     }
 
     JarClasspathSnapshot createSnapshot(Iterable<JarArchive> jarArchives) {
+        List<JarSnapshotOperation> operations = snapshotJars(jarArchives);
+
         Map<File, JarSnapshot> jarSnapshots = new HashMap<File, JarSnapshot>();
         Map<File, byte[]> jarHashes = new HashMap<File, byte[]>();
         Set<String> allClasses = new HashSet<String>();
         Set<String> duplicateClasses = new HashSet<String>();
 
-        for (JarArchive jar : jarArchives) {
-            JarSnapshot snapshot = jarSnapshotter.createSnapshot(jar);
+        for (JarSnapshotOperation operation : operations) {
+            JarArchive jar = operation.jar;
+            JarSnapshot snapshot = operation.snapshot;
             jarSnapshots.put(jar.file, snapshot);
             jarHashes.put(jar.file, snapshot.getHash());
             for (String c : snapshot.getClasses()) {
@@ -49,4 +61,48 @@ public class JarClasspathSnapshotFactory {
         JarClasspathSnapshotData jarClasspathSnapshotData = new JarClasspathSnapshotData(jarHashes, duplicateClasses);
         return new JarClasspathSnapshot(jarSnapshots, jarClasspathSnapshotData);
     }
+
+    /**
+     * Snapshots the given jars concurrently. The results are in classpath order.
+     */
+    private List<JarSnapshotOperation> snapshotJars(Iterable<JarArchive> jarArchives) {
+        List<JarSnapshotOperation> operations = new ArrayList<JarSnapshotOperation>();
+        for (JarArchive jar : jarArchives) {
+            operations.add(new JarSnapshotOperation(jar));
+        }
+        JarSnapshotWorker worker = new JarSnapshotWorker();
+        if (operations.size() == 1) {
+            worker.execute(operations.get(0));
+            return operations;
+        }
+        BuildOperationQueue<JarSnapshotOperation> queue = buildOperationProcessor.newQueue(worker, null);
+        for (JarSnapshotOperation operation : operations) {
+            queue.add(operation);
+        }
+        queue.waitForCompletion();
+        return operations;
+    }
+
+    private static class JarSnapshotOperation implements BuildOperation {
+        final JarArchive jar;
+        JarSnapshot snapshot;
+
+        JarSnapshotOperation(JarArchive jar) {
+            this.jar = jar;
+        }
+
+        public String getDescription() {
+            return "snapshot " + jar.file;
+        }
+    }
+
+    private class JarSnapshotWorker implements BuildOperationWorker<JarSnapshotOperation> {
+        public String getDisplayName() {
+            return "jar snapshotter";
+        }
+
+        public void execute(JarSnapshotOperation operation) {
+            operation.snapshot = jarSnapshotter.createSnapshot(operation.jar);
+        }
+    }
 }
@@ -24,6 +24,7 @@ import org.gradle.api.internal.tasks.compile.JavaCompilerFactory;
 import org.gradle.api.internal.tasks.compile.JavaHomeBasedJavaCompilerFactory;
 import org.gradle.api.internal.tasks.compile.daemon.CompilerClientsManager;
 import org.gradle.api.internal.tasks.compile.daemon.CompilerDaemonManager;
+import org.gradle.api.internal.tasks.compile.daemon.CompilerDaemonPool;
 import org.gradle.api.internal.tasks.compile.daemon.CompilerDaemonStarter;
 import org.gradle.internal.Factory;
 import org.gradle.internal.service.ServiceRegistration;
@@ -36,6 +37,7 @@ import javax.tools.JavaCompiler;
 
 public class JavaToolChainServiceRegistry implements PluginServiceRegistry {
     public void registerGlobalServices(ServiceRegistration registration) {
+        registration.addProvider(new GlobalScopeCompileServices());
     }
 
     public void registerBuildSessionServices(ServiceRegistration registration) {
@@ -52,9 +54,19 @@ public class JavaToolChainServiceRegistry implements PluginServiceRegistry {
         registration.addProvider(new ProjectScopeCompileServices());
     }
 
+    private static class GlobalScopeCompileServices {
+        CompilerDaemonPool createCompilerDaemonPool() {
+            return new CompilerDaemonPool();
+        }
+    }
+
     private static class BuildSessionScopeCompileServices {
-        CompilerDaemonManager createCompilerDaemonManager(Factory<WorkerProcessBuilder> workerFactory, StartParameter startParameter) {
-            return new CompilerDaemonManager(new CompilerClientsManager(new CompilerDaemonStarter(workerFactory, startParameter)));
+        CompilerDaemonManager createCompilerDaemonManager(Factory<WorkerProcessBuilder> workerFactory, StartParameter startParameter, CompilerDaemonPool compilerDaemonPool) {
+            CompilerDaemonStarter compilerDaemonStarter = new CompilerDaemonStarter(workerFactory, startParameter);
+            if (CompilerDaemonPool.isEnabled()) {
+                return new CompilerDaemonManager(new CompilerClientsManager(compilerDaemonStarter, compilerDaemonPool, startParameter.getLogLevel()));
+            }
+            return new CompilerDaemonManager(new CompilerClientsManager(compilerDaemonStarter));
         }
 
         Factory<JavaCompiler> createJavaHomeBasedJavaCompilerFactory() {
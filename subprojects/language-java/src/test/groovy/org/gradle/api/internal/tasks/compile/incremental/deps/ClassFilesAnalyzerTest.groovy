@@ -59,4 +59,18 @@ class ClassFilesAnalyzerTest extends Specification {
         1 * accumulator.addClass("org.foo.Foo", true, new HashSet(["A"]))
         0 * _
     }
+
+    def "accumulates dependencies of class read from archive"() {
+        def content = [1, 2, 3] as byte[]
+        when: analyzer.visitClass("org.foo.Foo", content)
+        then:
+        1 * classAnalyzer.getClassAnalysis("org.foo.Foo", content) >> new ClassAnalysis(new HashSet(["A"]), false)
+        1 * accumulator.addClass("org.foo.Foo", false, new HashSet(["A"]))
+        0 * _
+    }
+
+    def "is sensitive to package prefix for class read from archive"() {
+        when: analyzer.visitClass("com.foo.Foo", [1, 2, 3] as byte[])
+        then: 0 * _
+    }
 }
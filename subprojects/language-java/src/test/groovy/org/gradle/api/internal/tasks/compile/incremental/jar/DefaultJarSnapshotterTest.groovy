@@ -18,18 +18,21 @@
 
 package org.gradle.api.internal.tasks.compile.incremental.jar
 
-import org.gradle.api.internal.file.collections.DirectoryFileTree
-import org.gradle.api.internal.file.collections.FileTreeAdapter
+import org.gradle.api.UncheckedIOException
 import org.gradle.api.internal.hash.Hasher
 import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassDependenciesAnalyzer
 import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassFilesAnalyzer
 import org.gradle.api.internal.tasks.compile.incremental.deps.ClassSetAnalysisData
+import org.gradle.test.fixtures.file.TestFile
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.gradle.util.UsesNativeServices
 import org.junit.Rule
 import spock.lang.Specification
 import spock.lang.Subject
 
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
 @UsesNativeServices
 class DefaultJarSnapshotterTest extends Specification {
 
@@ -38,30 +41,81 @@ class DefaultJarSnapshotterTest extends Specification {
 
     @Subject snapshotter = new DefaultJarSnapshotter(hasher, Mock(ClassDependenciesAnalyzer))
 
-    def "creates snapshot for an empty jar"() {
+    def "creates snapshot for a jar without classes"() {
+        def jar = jar("META-INF/": null, "META-INF/MANIFEST.MF": "Manifest-Version: 1.0")
+
         expect:
-        def snapshot = snapshotter.createSnapshot(new byte[0], new JarArchive(new File("a.jar"), new FileTreeAdapter(new DirectoryFileTree(new File("missing")))))
+        def snapshot = snapshotter.createSnapshot(new byte[0], new JarArchive(jar))
         snapshot.hashes.isEmpty()
         snapshot.analysis
     }
 
     def "creates snapshot of a jar with classes"() {
-        def f1 = temp.createFile("foo/Foo.class")
-        def f2 = temp.createFile("foo/com/Foo2.class")
+        def jar = jar("Foo.class": "foo", "com/": null, "com/Foo2.class": "foo2", "com/foo.txt": "text")
         def analyzer = Mock(ClassFilesAnalyzer)
 
         when:
-        def snapshot = snapshotter.createSnapshot(new byte[0], new FileTreeAdapter(new DirectoryFileTree(temp.file("foo"))), analyzer)
+        def snapshot = snapshotter.createSnapshot(new byte[0], jar, analyzer)
 
         then:
-        2 * analyzer.visitFile(_)
-        1 * hasher.hash(f1)
-        1 * hasher.hash(f2)
+        1 * analyzer.visitClass("Foo", "foo".bytes)
+        1 * analyzer.visitClass("com.Foo2", "foo2".bytes)
+        1 * hasher.hash("foo".bytes) >> [1] as byte[]
+        1 * hasher.hash("foo2".bytes) >> [2] as byte[]
         1 * analyzer.getAnalysis() >> Stub(ClassSetAnalysisData)
         0 * _._
 
         and:
         snapshot.hashes.keySet() == ["Foo", "com.Foo2"] as Set
+        snapshot.hashes["com.Foo2"] == [2] as byte[]
         snapshot.analysis
     }
+
+    def "keeps the hash of the whole jar but only hashes and analyzes its classes"() {
+        def jar = jar("Foo.class": "foo", "foo.properties": "resource", "META-INF/MANIFEST.MF": "Manifest-Version: 1.0")
+        def analyzer = Mock(ClassFilesAnalyzer)
+
+        when:
+        def snapshot = snapshotter.createSnapshot([9] as byte[], jar, analyzer)
+
+        then:
+        1 * analyzer.visitClass("Foo", "foo".bytes)
+        1 * hasher.hash("foo".bytes) >> [1] as byte[]
+        0 * hasher.hash("resource".bytes)
+        1 * analyzer.getAnalysis() >> Stub(ClassSetAnalysisData)
+        0 * _._
+
+        and:
+        snapshot.hash == [9] as byte[]
+        snapshot.classes == ["Foo"] as Set
+    }
+
+    def "reports jar that cannot be read"() {
+        def jar = temp.file("broken.jar")
+        jar.text = "not a jar"
+
+        when:
+        snapshotter.createSnapshot(new byte[0], new JarArchive(jar))
+
+        then:
+        UncheckedIOException e = thrown()
+        e.message == "Could not read classes from ${jar}."
+    }
+
+    private TestFile jar(Map<String, String> entries) {
+        def jar = temp.file("test.jar")
+        def zip = new ZipOutputStream(jar.newOutputStream())
+        try {
+            entries.each { name, content ->
+                zip.putNextEntry(new ZipEntry(name))
+                if (content != null) {
+                    zip.write(content.bytes)
+                }
+                zip.closeEntry()
+            }
+        } finally {
+            zip.close()
+        }
+        return jar
+    }
 }
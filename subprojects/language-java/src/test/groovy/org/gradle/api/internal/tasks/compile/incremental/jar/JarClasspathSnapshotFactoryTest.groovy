@@ -16,14 +16,22 @@
 
 package org.gradle.api.internal.tasks.compile.incremental.jar
 
-import org.gradle.api.file.FileTree
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.operations.DefaultBuildOperationProcessor
 import spock.lang.Specification
 import spock.lang.Subject
 
 class JarClasspathSnapshotFactoryTest extends Specification {
 
     def snapshotter = Mock(JarSnapshotter)
-    @Subject factory = new JarClasspathSnapshotFactory(snapshotter)
+    def executorFactory = new DefaultExecutorFactory()
+    def buildOperationProcessor = new DefaultBuildOperationProcessor(executorFactory, 4)
+    @Subject factory = new JarClasspathSnapshotFactory(snapshotter, buildOperationProcessor)
+
+    def cleanup() {
+        buildOperationProcessor.stop()
+        executorFactory.stop()
+    }
 
     def "creates classpath snapshot with correct duplicate classes"() {
         def jar1 = Stub(JarArchive); def jar2 = Stub(JarArchive); def jar3 = Stub(JarArchive)
@@ -45,8 +53,8 @@ class JarClasspathSnapshotFactoryTest extends Specification {
     }
 
     def "creates classpath snapshot with correct hashes"() {
-        def jar1 = new JarArchive(new File("f1"), Stub(FileTree))
-        def jar2 = new JarArchive(new File("f2"), Stub(FileTree))
+        def jar1 = new JarArchive(new File("f1"))
+        def jar2 = new JarArchive(new File("f2"))
 
         def sn1 = Stub(JarSnapshot) { getHash() >> new byte[1] }
         def sn2 = Stub(JarSnapshot) { getHash() >> new byte[2] }
@@ -62,4 +70,22 @@ class JarClasspathSnapshotFactoryTest extends Specification {
         s.data.jarHashes[new File("f1")] == new byte[1]
         s.data.jarHashes[new File("f2")] == new byte[2]
     }
+
+    def "snapshots jars concurrently and keeps the snapshot of each jar"() {
+        def jars = (1..10).collect { new JarArchive(new File("f$it")) }
+        def snapshots = jars.collect { jar -> Stub(JarSnapshot) { getClasses() >> ["A"]; getHash() >> jar.file.name.bytes } }
+
+        when:
+        def s = factory.createSnapshot(jars)
+
+        then:
+        10 * snapshotter.createSnapshot(_) >> { JarArchive jar ->
+            Thread.sleep(new Random().nextInt(20))
+            snapshots[jars.indexOf(jar)]
+        }
+
+        s.data.duplicateClasses == ["A"] as Set
+        s.data.jarHashes.size() == 10
+        jars.every { s.getSnapshot(it).is(snapshots[jars.indexOf(it)]) }
+    }
 }
@@ -15,15 +15,23 @@
  */
 package org.gradle.api.internal.tasks.compile.daemon;
 
+import org.gradle.api.Nullable;
+import org.gradle.api.logging.LogLevel;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 import org.gradle.internal.concurrent.CompositeStoppable;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * Manages the compiler daemons used by a build. When a {@link CompilerDaemonPool} is given, the idle daemons are handed over to the pool at the end of
+ * the build instead of being stopped, and new daemons are taken from the pool when it has a matching one.
+ */
 public class CompilerClientsManager {
 
     private static final Logger LOGGER = Logging.getLogger(CompilerDaemonManager.class);
@@ -32,10 +40,21 @@ public class CompilerClientsManager {
     private final List<CompilerDaemonClient> allClients = new ArrayList<CompilerDaemonClient>();
     private final List<CompilerDaemonClient> idleClients = new ArrayList<CompilerDaemonClient>();
 
+    // The pool key of each client, when the clients are pooled
+    private final Map<CompilerDaemonClient, CompilerDaemonKey> keys = new IdentityHashMap<CompilerDaemonClient, CompilerDaemonKey>();
+
     private CompilerDaemonStarter compilerDaemonStarter;
+    private final CompilerDaemonPool daemonPool;
+    private final LogLevel logLevel;
 
     public CompilerClientsManager(CompilerDaemonStarter compilerDaemonStarter) {
+        this(compilerDaemonStarter, null, null);
+    }
+
+    public CompilerClientsManager(CompilerDaemonStarter compilerDaemonStarter, @Nullable CompilerDaemonPool daemonPool, @Nullable LogLevel logLevel) {
         this.compilerDaemonStarter = compilerDaemonStarter;
+        this.daemonPool = daemonPool;
+        this.logLevel = logLevel;
     }
 
     public CompilerDaemonClient reserveIdleClient(DaemonForkOptions forkOptions) {
@@ -57,10 +76,21 @@ public class CompilerClientsManager {
     }
 
     public CompilerDaemonClient reserveNewClient(File workingDir, DaemonForkOptions forkOptions) {
-        //allow the daemon to be started concurrently
-        CompilerDaemonClient client = compilerDaemonStarter.startDaemon(workingDir, forkOptions);
+        CompilerDaemonKey key = null;
+        CompilerDaemonClient client = null;
+        if (daemonPool != null) {
+            key = new CompilerDaemonKey(logLevel, workingDir, forkOptions);
+            client = daemonPool.reserve(key);
+        }
+        if (client == null) {
+            //allow the daemon to be started concurrently
+            client = compilerDaemonStarter.startDaemon(workingDir, forkOptions);
+        }
         synchronized (lock) {
             allClients.add(client);
+            if (key != null) {
+                keys.put(client, key);
+            }
         }
         return client;
     }
@@ -73,6 +103,16 @@ public class CompilerClientsManager {
 
     public void stop() {
         synchronized (lock) {
+            if (daemonPool != null) {
+                // Keep the idle daemons for the next build. Any daemon that is still busy is stopped below
+                for (CompilerDaemonClient client : idleClients) {
+                    daemonPool.release(keys.get(client), client);
+                    allClients.remove(client);
+                }
+                LOGGER.info("Kept {} idle compiler daemon(s) for later builds.", idleClients.size());
+                idleClients.clear();
+                keys.clear();
+            }
             LOGGER.debug("Stopping {} compiler daemon(s).", allClients.size());
             CompositeStoppable.stoppable(allClients).stop();
             LOGGER.info("Stopped {} compiler daemon(s).", allClients.size());
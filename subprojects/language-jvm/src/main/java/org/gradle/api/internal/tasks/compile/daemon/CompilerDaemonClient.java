@@ -51,6 +51,13 @@ class CompilerDaemonClient implements CompilerDaemon, CompilerDaemonClientProtoc
         return forkOptions.isCompatibleWith(required);
     }
 
+    /**
+     * Returns true when the daemon process is still running. A daemon may stop while it is idle, for example when it is killed.
+     */
+    public boolean isAlive() {
+        return workerProcess.isAlive();
+    }
+
     public void stop() {
         server.stop();
         workerProcess.waitForStop();
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile.daemon;
+
+import com.google.common.base.Objects;
+import org.gradle.api.logging.LogLevel;
+
+import java.io.File;
+
+/**
+ * Identifies the compiler daemons that can be reused for a compilation: those started with the same log level, working directory and equivalent
+ * fork options.
+ */
+class CompilerDaemonKey {
+    private final LogLevel logLevel;
+    private final File workingDir;
+    private final Object forkOptionsFingerprint;
+    private final int maxHeapSizeMb;
+
+    CompilerDaemonKey(LogLevel logLevel, File workingDir, DaemonForkOptions forkOptions) {
+        this.logLevel = logLevel;
+        this.workingDir = workingDir;
+        this.forkOptionsFingerprint = forkOptions.getFingerprint();
+        this.maxHeapSizeMb = forkOptions.getMaxHeapSizeMb();
+    }
+
+    /**
+     * Returns the maximum heap size of the daemon in megabytes, or -1 when not specified.
+     */
+    int getMaxHeapSizeMb() {
+        return maxHeapSizeMb;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (obj == null || obj.getClass() != getClass()) {
+            return false;
+        }
+        CompilerDaemonKey other = (CompilerDaemonKey) obj;
+        return logLevel == other.logLevel && Objects.equal(workingDir, other.workingDir) && forkOptionsFingerprint.equals(other.forkOptionsFingerprint);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(logLevel, workingDir, forkOptionsFingerprint);
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this).add("logLevel", logLevel).add("workingDir", workingDir).add("forkOptions", forkOptionsFingerprint).toString();
+    }
+}
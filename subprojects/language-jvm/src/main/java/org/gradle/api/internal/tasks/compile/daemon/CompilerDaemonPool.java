@@ -0,0 +1,213 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile.daemon;
+
+import net.jcip.annotations.ThreadSafe;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.internal.TimeProvider;
+import org.gradle.internal.TrueTimeProvider;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.Stoppable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps idle compiler daemons alive between builds run by the same Gradle daemon, so that a later build does not have to start a new JVM and warm it
+ * up again. Idle daemons are looked up by their {@link CompilerDaemonKey}.
+ *
+ * <p>A daemon is stopped when it has been idle for longer than the idle timeout, or when the heap sizes of all idle daemons add up to more than the
+ * memory limit, in which case the daemons that have been idle the longest are stopped first. Expiry is checked whenever the pool is used, and all
+ * idle daemons are stopped when the pool is stopped.</p>
+ */
+@ThreadSafe
+public class CompilerDaemonPool implements Stoppable {
+    public static final String TOGGLE_PROPERTY = "org.gradle.compiler.daemon.keepalive";
+    public static final String IDLE_TIMEOUT_PROPERTY = "org.gradle.compiler.daemon.idletimeout";
+    public static final String MAX_IDLE_HEAP_PROPERTY = "org.gradle.compiler.daemon.maxidleheap";
+    public static final long DEFAULT_IDLE_TIMEOUT = TimeUnit.MINUTES.toMillis(30);
+    public static final int DEFAULT_MAX_IDLE_HEAP_MB = 2048;
+    // Used for daemons without a max heap size. The JVM default depends on the physical memory of the machine, so this is only a rough guess
+    static final int UNSPECIFIED_HEAP_SIZE_MB = 512;
+
+    private static final Logger LOGGER = Logging.getLogger(CompilerDaemonPool.class);
+
+    private final long idleTimeoutMillis;
+    private final int maxIdleHeapMb;
+    private final TimeProvider timeProvider;
+    private final Object lock = new Object();
+    private final Map<CompilerDaemonKey, Deque<IdleDaemon>> idleDaemonsByKey = new HashMap<CompilerDaemonKey, Deque<IdleDaemon>>();
+    // All idle daemons, in the order they were released
+    private final Set<IdleDaemon> idleDaemons = new LinkedHashSet<IdleDaemon>();
+    private int idleHeapMb;
+
+    public CompilerDaemonPool() {
+        this(Long.getLong(IDLE_TIMEOUT_PROPERTY, DEFAULT_IDLE_TIMEOUT), Integer.getInteger(MAX_IDLE_HEAP_PROPERTY, DEFAULT_MAX_IDLE_HEAP_MB), new TrueTimeProvider());
+    }
+
+    CompilerDaemonPool(long idleTimeoutMillis, int maxIdleHeapMb, TimeProvider timeProvider) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.maxIdleHeapMb = maxIdleHeapMb;
+        this.timeProvider = timeProvider;
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(TOGGLE_PROPERTY);
+    }
+
+    /**
+     * Removes an idle daemon with the given key from the pool and returns it, or returns null when there is none. Idle daemons whose process
+     * has stopped are discarded.
+     */
+    CompilerDaemonClient reserve(CompilerDaemonKey key) {
+        List<CompilerDaemonClient> expired = new ArrayList<CompilerDaemonClient>();
+        List<CompilerDaemonClient> dead = new ArrayList<CompilerDaemonClient>();
+        CompilerDaemonClient client = null;
+        synchronized (lock) {
+            expire(expired);
+            Deque<IdleDaemon> candidates = idleDaemonsByKey.get(key);
+            if (candidates != null) {
+                while (client == null && !candidates.isEmpty()) {
+                    // Prefer the most recently used daemon, which is the least likely to expire
+                    IdleDaemon idleDaemon = candidates.removeLast();
+                    idleDaemons.remove(idleDaemon);
+                    idleHeapMb -= idleDaemon.heapMb;
+                    if (idleDaemon.client.isAlive()) {
+                        client = idleDaemon.client;
+                    } else {
+                        dead.add(idleDaemon.client);
+                    }
+                }
+                if (candidates.isEmpty()) {
+                    idleDaemonsByKey.remove(key);
+                }
+            }
+        }
+        stop(expired);
+        discard(dead);
+        if (client != null) {
+            LOGGER.debug("Reusing idle compiler daemon for {}.", key);
+        }
+        return client;
+    }
+
+    /**
+     * Adds an idle daemon to the pool. The daemon may be stopped straight away, when it does not fit into the memory limit.
+     */
+    void release(CompilerDaemonKey key, CompilerDaemonClient client) {
+        List<CompilerDaemonClient> expired = new ArrayList<CompilerDaemonClient>();
+        synchronized (lock) {
+            IdleDaemon idleDaemon = new IdleDaemon(key, client, timeProvider.getCurrentTime());
+            Deque<IdleDaemon> daemons = idleDaemonsByKey.get(key);
+            if (daemons == null) {
+                daemons = new ArrayDeque<IdleDaemon>();
+                idleDaemonsByKey.put(key, daemons);
+            }
+            daemons.addLast(idleDaemon);
+            idleDaemons.add(idleDaemon);
+            idleHeapMb += idleDaemon.heapMb;
+            expire(expired);
+        }
+        stop(expired);
+    }
+
+    /**
+     * Returns the number of idle daemons in the pool.
+     */
+    int getIdleCount() {
+        synchronized (lock) {
+            return idleDaemons.size();
+        }
+    }
+
+    private void expire(List<CompilerDaemonClient> expired) {
+        long now = timeProvider.getCurrentTime();
+        Iterator<IdleDaemon> iterator = idleDaemons.iterator();
+        while (iterator.hasNext()) {
+            IdleDaemon idleDaemon = iterator.next();
+            if (now - idleDaemon.releasedAt < idleTimeoutMillis && idleHeapMb <= maxIdleHeapMb) {
+                // Daemons are ordered by the time they were released, so all remaining daemons are more recent
+                break;
+            }
+            iterator.remove();
+            Deque<IdleDaemon> daemons = idleDaemonsByKey.get(idleDaemon.key);
+            daemons.remove(idleDaemon);
+            if (daemons.isEmpty()) {
+                idleDaemonsByKey.remove(idleDaemon.key);
+            }
+            idleHeapMb -= idleDaemon.heapMb;
+            expired.add(idleDaemon.client);
+        }
+    }
+
+    private void stop(List<CompilerDaemonClient> clients) {
+        if (clients.isEmpty()) {
+            return;
+        }
+        LOGGER.debug("Stopping {} idle compiler daemon(s).", clients.size());
+        CompositeStoppable.stoppable(clients).stop();
+        LOGGER.info("Stopped {} idle compiler daemon(s).", clients.size());
+    }
+
+    private void discard(List<CompilerDaemonClient> clients) {
+        for (CompilerDaemonClient client : clients) {
+            LOGGER.info("Discarding idle compiler daemon that is no longer running.");
+            try {
+                client.stop();
+            } catch (Exception e) {
+                // The process has already stopped, so a failure to clean up after it does not affect the build
+                LOGGER.debug("Could not clean up compiler daemon that is no longer running.", e);
+            }
+        }
+    }
+
+    public void stop() {
+        List<CompilerDaemonClient> clients = new ArrayList<CompilerDaemonClient>();
+        synchronized (lock) {
+            for (IdleDaemon idleDaemon : idleDaemons) {
+                clients.add(idleDaemon.client);
+            }
+            idleDaemons.clear();
+            idleDaemonsByKey.clear();
+            idleHeapMb = 0;
+        }
+        stop(clients);
+    }
+
+    private static class IdleDaemon {
+        final CompilerDaemonKey key;
+        final CompilerDaemonClient client;
+        final long releasedAt;
+        final int heapMb;
+
+        IdleDaemon(CompilerDaemonKey key, CompilerDaemonClient client, long releasedAt) {
+            this.key = key;
+            this.client = client;
+            this.releasedAt = releasedAt;
+            this.heapMb = key.getMaxHeapSizeMb() < 0 ? UNSPECIFIED_HEAP_SIZE_MB : key.getMaxHeapSizeMb();
+        }
+    }
+}
@@ -16,6 +16,8 @@
 package org.gradle.api.internal.tasks.compile.daemon;
 
 import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedSet;
 import com.google.common.collect.Sets;
 
 import org.gradle.api.InvalidUserDataException;
@@ -73,6 +75,26 @@ public class DaemonForkOptions {
                 && getNormalizedSharedPackages(sharedPackages).containsAll(getNormalizedSharedPackages(other.sharedPackages));
     }
 
+    /**
+     * Returns a value that is equal for any two fork options that start equivalent daemons. Heap sizes are compared in megabytes, and the order of
+     * the JVM arguments and shared packages is ignored, as it is by {@link #isCompatibleWith(DaemonForkOptions)}.
+     */
+    public Object getFingerprint() {
+        return ImmutableList.of(
+                getHeapSizeMb(minHeapSize),
+                getHeapSizeMb(maxHeapSize),
+                ImmutableSortedSet.copyOf(getNormalizedJvmArgs(jvmArgs)),
+                ImmutableList.copyOf(getNormalizedClasspath(classpath)),
+                ImmutableSortedSet.copyOf(getNormalizedSharedPackages(sharedPackages)));
+    }
+
+    /**
+     * Returns the maximum heap size in megabytes, or -1 when not specified.
+     */
+    public int getMaxHeapSizeMb() {
+        return getHeapSizeMb(maxHeapSize);
+    }
+
     // one way to merge fork options, good for current use case
     public DaemonForkOptions mergeWith(DaemonForkOptions other) {
         String mergedMinHeapSize = mergeHeapSize(minHeapSize, other.minHeapSize);
@@ -16,6 +16,8 @@
 
 package org.gradle.api.internal.tasks.compile.daemon
 
+import org.gradle.api.logging.LogLevel
+import org.gradle.internal.TrueTimeProvider
 import org.gradle.util.ConcurrentSpecification
 import spock.lang.Subject
 
@@ -94,4 +96,58 @@ class CompilerClientsManagerTest extends ConcurrentSpecification {
         then:
         manager.reserveIdleClient(options) == client
     }
+
+    def "hands idle clients over to the pool when stopped"() {
+        def pool = new CompilerDaemonPool(60000, 2048, new TrueTimeProvider())
+        def client = Mock(CompilerDaemonClient)
+        def forkOptions = new DaemonForkOptions("128m", "1g", [])
+        def manager = new CompilerClientsManager(starter, pool, LogLevel.LIFECYCLE)
+        starter.startDaemon(workingDir, forkOptions) >> client
+
+        when:
+        manager.reserveNewClient(workingDir, forkOptions)
+        manager.release(client)
+        manager.stop()
+
+        then:
+        0 * client.stop()
+        pool.idleCount == 1
+
+        when:
+        def nextManager = new CompilerClientsManager(starter, pool, LogLevel.LIFECYCLE)
+
+        then:
+        nextManager.reserveNewClient(workingDir, new DaemonForkOptions("128m", "1024m", [])) == client
+        pool.idleCount == 0
+    }
+
+    def "does not reuse pooled client for different log level or working directory"() {
+        def pool = new CompilerDaemonPool(60000, 2048, new TrueTimeProvider())
+        def client = Stub(CompilerDaemonClient)
+        def other = Stub(CompilerDaemonClient)
+        def forkOptions = new DaemonForkOptions("128m", "1g", [])
+        pool.release(new CompilerDaemonKey(LogLevel.LIFECYCLE, workingDir, forkOptions), client)
+        starter.startDaemon(_, forkOptions) >> other
+
+        expect:
+        new CompilerClientsManager(starter, pool, LogLevel.DEBUG).reserveNewClient(workingDir, forkOptions) == other
+        new CompilerClientsManager(starter, pool, LogLevel.LIFECYCLE).reserveNewClient(new File("other-dir"), forkOptions) == other
+        pool.idleCount == 1
+    }
+
+    def "stops clients that are still busy when stopped"() {
+        def pool = new CompilerDaemonPool(60000, 2048, new TrueTimeProvider())
+        def client = Mock(CompilerDaemonClient)
+        def forkOptions = new DaemonForkOptions("128m", "1g", [])
+        def manager = new CompilerClientsManager(starter, pool, LogLevel.LIFECYCLE)
+        starter.startDaemon(workingDir, forkOptions) >> client
+
+        when:
+        manager.reserveNewClient(workingDir, forkOptions)
+        manager.stop()
+
+        then:
+        1 * client.stop()
+        pool.idleCount == 0
+    }
 }
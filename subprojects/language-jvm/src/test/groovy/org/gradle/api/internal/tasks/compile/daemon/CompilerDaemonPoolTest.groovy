@@ -0,0 +1,192 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile.daemon
+
+import org.gradle.api.logging.LogLevel
+import org.gradle.internal.TimeProvider
+import spock.lang.Specification
+
+class CompilerDaemonPoolTest extends Specification {
+    def workingDir = new File("some-dir")
+    long now = 1000
+    def timeProvider = { now } as TimeProvider
+    def pool = new CompilerDaemonPool(10000, 1024, timeProvider)
+
+    def "returns null when there is no idle daemon with the given key"() {
+        pool.release(key("128m", "256m"), Stub(CompilerDaemonClient))
+
+        expect:
+        pool.reserve(key("128m", "512m")) == null
+        pool.idleCount == 1
+    }
+
+    def "reserves idle daemon with equal key"() {
+        def client = liveClient()
+        pool.release(key("128m", "256m", ["-server", "-esa"]), client)
+
+        expect:
+        pool.reserve(key("128m", "256m", ["-esa", "-server"])) == client
+        pool.reserve(key("128m", "256m", ["-esa", "-server"])) == null
+        pool.idleCount == 0
+    }
+
+    def "reserves most recently released daemon first"() {
+        def client1 = liveClient()
+        def client2 = liveClient()
+        pool.release(key("128m", "256m"), client1)
+        pool.release(key("128m", "256m"), client2)
+
+        expect:
+        pool.reserve(key("128m", "256m")) == client2
+        pool.reserve(key("128m", "256m")) == client1
+    }
+
+    def "stops daemons that have been idle for longer than the timeout"() {
+        def client1 = Mock(CompilerDaemonClient)
+        def client2 = Mock(CompilerDaemonClient) {
+            isAlive() >> true
+        }
+        pool.release(key("128m", "256m"), client1)
+        now += 5000
+        pool.release(key("128m", "256m"), client2)
+
+        when:
+        now += 6000
+        def reserved = pool.reserve(key("128m", "256m"))
+
+        then:
+        1 * client1.stop()
+        0 * client2.stop()
+        reserved == client2
+        pool.idleCount == 0
+    }
+
+    def "stops the least recently released daemons when over the memory limit"() {
+        def client1 = Mock(CompilerDaemonClient)
+        def client2 = Mock(CompilerDaemonClient)
+        def client3 = Mock(CompilerDaemonClient)
+
+        when:
+        pool.release(key("128m", "512m"), client1)
+        pool.release(key("128m", "256m"), client2)
+        pool.release(key("128m", "512m"), client3)
+
+        then:
+        1 * client1.stop()
+        0 * client2.stop()
+        0 * client3.stop()
+        pool.idleCount == 2
+    }
+
+    def "daemons without max heap size count towards the memory limit"() {
+        def client1 = Mock(CompilerDaemonClient)
+        def client2 = Mock(CompilerDaemonClient)
+        def client3 = Mock(CompilerDaemonClient)
+
+        when:
+        pool.release(key(null, null), client1)
+        pool.release(key(null, null), client2)
+        pool.release(key(null, null), client3)
+
+        then:
+        1 * client1.stop()
+        pool.idleCount == 1024.intdiv(CompilerDaemonPool.UNSPECIFIED_HEAP_SIZE_MB)
+    }
+
+    def "stops all idle daemons when stopped"() {
+        def client1 = Mock(CompilerDaemonClient)
+        def client2 = Mock(CompilerDaemonClient)
+        pool.release(key("128m", "256m"), client1)
+        pool.release(key("128m", "512m"), client2)
+
+        when:
+        pool.stop()
+
+        then:
+        1 * client1.stop()
+        1 * client2.stop()
+        pool.idleCount == 0
+    }
+
+    def "discards idle daemon that is no longer running and reserves the next one"() {
+        def client1 = Mock(CompilerDaemonClient) {
+            isAlive() >> true
+        }
+        def client2 = Mock(CompilerDaemonClient) {
+            isAlive() >> false
+        }
+        pool.release(key("128m", "256m"), client1)
+        pool.release(key("128m", "256m"), client2)
+
+        when:
+        def reserved = pool.reserve(key("128m", "256m"))
+
+        then:
+        1 * client2.stop()
+        0 * client1.stop()
+        reserved == client1
+        pool.idleCount == 0
+    }
+
+    def "returns null when no idle daemon with the given key is still running"() {
+        def client1 = Mock(CompilerDaemonClient) {
+            isAlive() >> false
+        }
+        def client2 = Mock(CompilerDaemonClient) {
+            isAlive() >> false
+        }
+        def other = liveClient()
+        pool.release(key("128m", "256m"), client1)
+        pool.release(key("128m", "256m"), client2)
+        pool.release(key("128m", "512m"), other)
+
+        when:
+        def reserved = pool.reserve(key("128m", "256m"))
+
+        then:
+        1 * client1.stop()
+        1 * client2.stop()
+        reserved == null
+        pool.idleCount == 1
+        pool.reserve(key("128m", "512m")) == other
+    }
+
+    def "ignores failure to stop idle daemon that is no longer running"() {
+        def client = Mock(CompilerDaemonClient) {
+            isAlive() >> false
+        }
+        pool.release(key("128m", "256m"), client)
+
+        when:
+        def reserved = pool.reserve(key("128m", "256m"))
+
+        then:
+        1 * client.stop() >> { throw new RuntimeException("broken") }
+        reserved == null
+        pool.idleCount == 0
+    }
+
+    private CompilerDaemonClient liveClient() {
+        return Stub(CompilerDaemonClient) {
+            isAlive() >> true
+        }
+    }
+
+    private CompilerDaemonKey key(String minHeapSize, String maxHeapSize, List<String> jvmArgs = []) {
+        return new CompilerDaemonKey(LogLevel.LIFECYCLE, workingDir, new DaemonForkOptions(minHeapSize, maxHeapSize, jvmArgs))
+    }
+}
@@ -173,4 +173,23 @@ class DaemonForkOptionsTest extends Specification {
         settings1.isCompatibleWith(settings2)
         !settings1.isCompatibleWith(settings3)
     }
+
+    def "fingerprint is equal for equivalent settings"() {
+        def settings1 = new DaemonForkOptions("1024m", "2g", [" -server", "-esa"], [new File("lib/lib1.jar"), new File("lib/lib2.jar")], ["foo.bar", "foo.baz"])
+        def settings2 = new DaemonForkOptions("1g", "2048m", ["-esa", "-server"], [new File("lib/lib1.jar"), new File("lib/lib2.jar")], ["foo.baz", "foo.bar"])
+
+        expect:
+        settings1.fingerprint == settings2.fingerprint
+        settings1.fingerprint.hashCode() == settings2.fingerprint.hashCode()
+    }
+
+    def "fingerprint differs for different settings"() {
+        def settings = new DaemonForkOptions("128m", "1g", ["-server"], [new File("lib/lib1.jar"), new File("lib/lib2.jar")], ["foo.bar"])
+
+        expect:
+        settings.fingerprint != new DaemonForkOptions("128m", "2g", ["-server"], [new File("lib/lib1.jar"), new File("lib/lib2.jar")], ["foo.bar"]).fingerprint
+        settings.fingerprint != new DaemonForkOptions("128m", "1g", ["-server", "-esa"], [new File("lib/lib1.jar"), new File("lib/lib2.jar")], ["foo.bar"]).fingerprint
+        settings.fingerprint != new DaemonForkOptions("128m", "1g", ["-server"], [new File("lib/lib2.jar"), new File("lib/lib1.jar")], ["foo.bar"]).fingerprint
+        settings.fingerprint != new DaemonForkOptions("128m", "1g", ["-server"], [new File("lib/lib1.jar"), new File("lib/lib2.jar")], []).fingerprint
+    }
 }
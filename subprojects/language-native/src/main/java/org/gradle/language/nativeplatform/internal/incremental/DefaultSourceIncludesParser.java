@@ -42,4 +42,24 @@ public class DefaultSourceIncludesParser implements SourceIncludesParser {
         }
     }
 
+    /**
+     * Parsers are equal when they produce the same includes for a given file, so that they can share cached results.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        DefaultSourceIncludesParser other = (DefaultSourceIncludesParser) o;
+        return importAware == other.importAware && sourceParser.getClass().equals(other.sourceParser.getClass());
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * sourceParser.getClass().hashCode() + (importAware ? 1 : 0);
+    }
+
 }
@@ -21,49 +21,117 @@ import org.gradle.util.GFileUtils;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class DefaultSourceIncludesResolver implements SourceIncludesResolver {
     private final List<File> includePaths;
+    private final IncludeDirectoryCache includeDirectoryCache;
+    private final ResolvedIncludesCache resolvedIncludesCache;
+    // The contents of each directory are checked for changes once by each resolver
+    private final ConcurrentMap<File, IncludeDirectoryCache.DirectoryContents> directories = new ConcurrentHashMap<File, IncludeDirectoryCache.DirectoryContents>();
 
     public DefaultSourceIncludesResolver(List<File> includePaths) {
+        this(includePaths, new IncludeDirectoryCache(), new ResolvedIncludesCache());
+    }
+
+    public DefaultSourceIncludesResolver(List<File> includePaths, IncludeDirectoryCache includeDirectoryCache, ResolvedIncludesCache resolvedIncludesCache) {
         this.includePaths = includePaths;
+        this.includeDirectoryCache = includeDirectoryCache;
+        this.resolvedIncludesCache = resolvedIncludesCache;
     }
 
     public Set<ResolvedInclude> resolveIncludes(File sourceFile, SourceIncludes includes, Set<File> candidates) {
-        Set<ResolvedInclude> dependencies = new LinkedHashSet<ResolvedInclude>();
-        searchForDependencies(dependencies, prependSourceDir(sourceFile, includePaths), includes.getQuotedIncludes(), candidates);
-        searchForDependencies(dependencies, includePaths, includes.getSystemIncludes(), candidates);
+        File sourceDir = sourceFile.getParentFile();
+        ResolvedIncludesCache.Entry cached = resolvedIncludesCache.get(sourceDir, includePaths, includes);
+        if (cached != null && isUpToDate(cached)) {
+            candidates.addAll(cached.getCandidates());
+            return cached.getDependencies();
+        }
+
+        Resolution resolution = new Resolution();
+        searchForDependencies(resolution, prependSourceDir(sourceDir, includePaths), includes.getQuotedIncludes());
+        searchForDependencies(resolution, includePaths, includes.getSystemIncludes());
         if (!includes.getMacroIncludes().isEmpty()) {
-            dependencies.add(new ResolvedInclude(includes.getMacroIncludes().get(0).getValue(), null));
+            resolution.dependencies.add(new ResolvedInclude(includes.getMacroIncludes().get(0).getValue(), null));
         }
 
+        Set<ResolvedInclude> dependencies = Collections.unmodifiableSet(resolution.dependencies);
+        if (resolution.cacheable) {
+            resolvedIncludesCache.put(sourceDir, includePaths, includes, new ResolvedIncludesCache.Entry(dependencies, resolution.candidates, new ArrayList<IncludeDirectoryCache.DirectoryContents>(resolution.directories)));
+        }
+        candidates.addAll(resolution.candidates);
         return dependencies;
     }
 
-    private List<File> prependSourceDir(File sourceFile, List<File> includePaths) {
+    private boolean isUpToDate(ResolvedIncludesCache.Entry entry) {
+        for (IncludeDirectoryCache.DirectoryContents contents : entry.getDirectories()) {
+            if (getContents(contents.getDirectory()) != contents) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private List<File> prependSourceDir(File sourceDir, List<File> includePaths) {
         List<File> quotedSearchPath = new ArrayList<File>(includePaths.size() + 1);
-        quotedSearchPath.add(sourceFile.getParentFile());
+        quotedSearchPath.add(sourceDir);
         quotedSearchPath.addAll(includePaths);
         return quotedSearchPath;
     }
 
-    private void searchForDependencies(Set<ResolvedInclude> dependencies, List<File> searchPath, List<Include> includes, Set<File> candidates) {
+    private void searchForDependencies(Resolution resolution, List<File> searchPath, List<Include> includes) {
         for (Include include : includes) {
-            searchForDependency(dependencies, searchPath, include.getValue(), candidates);
+            searchForDependency(resolution, searchPath, include.getValue());
         }
     }
 
-    private void searchForDependency(Set<ResolvedInclude> dependencies, List<File> searchPath, String include, Set<File> candidates) {
+    private void searchForDependency(Resolution resolution, List<File> searchPath, String include) {
         for (File searchDir : searchPath) {
             File candidate = new File(searchDir, include);
-            candidates.add(candidate);
-            if (candidate.isFile()) {
-                dependencies.add(new ResolvedInclude(include, GFileUtils.canonicalise(candidate)));
+            resolution.candidates.add(candidate);
+            File includeFile = locateFile(resolution, candidate);
+            if (includeFile != null) {
+                resolution.dependencies.add(new ResolvedInclude(include, includeFile));
                 return;
             }
         }
     }
+
+    private File locateFile(Resolution resolution, File candidate) {
+        File directory = candidate.getParentFile();
+        if (directory == null) {
+            resolution.cacheable = false;
+            return candidate.isFile() ? GFileUtils.canonicalise(candidate) : null;
+        }
+        IncludeDirectoryCache.DirectoryContents contents = getContents(directory);
+        resolution.directories.add(contents);
+        return contents.getFile(candidate.getName());
+    }
+
+    private IncludeDirectoryCache.DirectoryContents getContents(File directory) {
+        IncludeDirectoryCache.DirectoryContents contents = directories.get(directory);
+        if (contents == null) {
+            contents = includeDirectoryCache.getContents(directory);
+            IncludeDirectoryCache.DirectoryContents existing = directories.putIfAbsent(directory, contents);
+            if (existing != null) {
+                contents = existing;
+            }
+        }
+        return contents;
+    }
+
+    /**
+     * The result of resolving the includes of a file, along with the directory contents that the result depends on.
+     */
+    private static class Resolution {
+        final Set<ResolvedInclude> dependencies = new LinkedHashSet<ResolvedInclude>();
+        final Set<File> candidates = new LinkedHashSet<File>();
+        final Set<IncludeDirectoryCache.DirectoryContents> directories = new LinkedHashSet<IncludeDirectoryCache.DirectoryContents>();
+        boolean cacheable = true;
+    }
 }
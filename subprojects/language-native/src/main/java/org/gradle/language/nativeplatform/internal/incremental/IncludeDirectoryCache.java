@@ -0,0 +1,122 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.language.nativeplatform.internal.incremental;
+
+import com.google.common.base.Optional;
+import net.jcip.annotations.ThreadSafe;
+import org.gradle.api.Nullable;
+import org.gradle.util.GFileUtils;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Caches the contents of the directories that include files are looked up in, so that most lookups do not need to touch the file system.
+ * Is shared by all native compile tasks of a build.
+ *
+ * <p>The contents of a directory are listed again when the timestamp of the directory changes. Contents that were listed shortly after the
+ * directory was changed may be missing a later change with the same timestamp, so are listed again each time they are requested.</p>
+ */
+@ThreadSafe
+public class IncludeDirectoryCache {
+    static final long TIMESTAMP_RESOLUTION = 2000;
+
+    private final ConcurrentMap<File, DirectoryContents> directories = new ConcurrentHashMap<File, DirectoryContents>();
+
+    /**
+     * Returns the current contents of the given directory, which does not need to exist.
+     */
+    public DirectoryContents getContents(File directory) {
+        long lastModified = directory.lastModified();
+        DirectoryContents contents = directories.get(directory);
+        if (contents == null || !contents.isUpToDate(lastModified)) {
+            contents = new DirectoryContents(directory, lastModified);
+            directories.put(directory, contents);
+        }
+        return contents;
+    }
+
+    @ThreadSafe
+    public static class DirectoryContents {
+        private final File directory;
+        private final long lastModified;
+        private final boolean racy;
+        // Null when the directory could not be listed
+        private final Set<String> names;
+        private final Set<String> lowerCaseNames;
+        private final ConcurrentMap<String, Optional<File>> files = new ConcurrentHashMap<String, Optional<File>>();
+
+        DirectoryContents(File directory, long lastModified) {
+            this.directory = directory;
+            this.lastModified = lastModified;
+            this.racy = System.currentTimeMillis() - lastModified < TIMESTAMP_RESOLUTION;
+            String[] children = directory.list();
+            if (children == null) {
+                names = directory.exists() ? null : Collections.<String>emptySet();
+                lowerCaseNames = names;
+            } else {
+                names = new HashSet<String>(children.length);
+                lowerCaseNames = new HashSet<String>(children.length);
+                for (String child : children) {
+                    names.add(child);
+                    lowerCaseNames.add(child.toLowerCase(Locale.ENGLISH));
+                }
+            }
+        }
+
+        public File getDirectory() {
+            return directory;
+        }
+
+        boolean isUpToDate(long currentLastModified) {
+            return !racy && currentLastModified == lastModified;
+        }
+
+        /**
+         * Returns the canonical form of the file with the given name in this directory, or null when there is no such file.
+         */
+        @Nullable
+        public File getFile(String name) {
+            if (names != null && !names.contains(name) && isAscii(name) && !lowerCaseNames.contains(name.toLowerCase(Locale.ENGLISH))) {
+                // Check case insensitively as well, as the file system may be case insensitive
+                return null;
+            }
+            Optional<File> file = files.get(name);
+            if (file == null) {
+                File candidate = new File(directory, name);
+                file = candidate.isFile() ? Optional.of(GFileUtils.canonicalise(candidate)) : Optional.<File>absent();
+                files.putIfAbsent(name, file);
+            }
+            return file.orNull();
+        }
+
+        private static boolean isAscii(String name) {
+            for (int i = 0; i < name.length(); i++) {
+                if (name.charAt(i) > 127) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -15,9 +15,15 @@
  */
 package org.gradle.language.nativeplatform.internal.incremental;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import org.gradle.api.Nullable;
 import org.gradle.api.internal.changedetection.state.FileSnapshotter;
 import org.gradle.cache.PersistentStateCache;
+import org.gradle.internal.operations.BuildOperation;
+import org.gradle.internal.operations.BuildOperationProcessor;
+import org.gradle.internal.operations.BuildOperationQueue;
+import org.gradle.internal.operations.BuildOperationWorker;
 import org.gradle.language.nativeplatform.internal.SourceIncludes;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,19 +32,41 @@ import java.io.File;
 import java.util.*;
 
 public class IncrementalCompileProcessor {
+    /**
+     * When set, the include graph of the source files is scanned using the build operation worker pool.
+     */
+    public static final String PARALLEL_SCANNING_TOGGLE = "org.gradle.native.parallelincludes";
+
     private static final Logger LOGGER = LoggerFactory.getLogger(IncrementalCompileProcessor.class);
 
     private final PersistentStateCache<CompilationState> previousCompileStateCache;
     private final SourceIncludesParser sourceIncludesParser;
     private final SourceIncludesResolver sourceIncludesResolver;
     private final FileSnapshotter snapshotter;
+    private final BuildOperationProcessor buildOperationProcessor;
+    private final ParsedIncludesCache parsedIncludesCache;
 
     public IncrementalCompileProcessor(PersistentStateCache<CompilationState> previousCompileStateCache, SourceIncludesResolver sourceIncludesResolver, SourceIncludesParser sourceIncludesParser,
                                        FileSnapshotter snapshotter) {
+        this(previousCompileStateCache, sourceIncludesResolver, sourceIncludesParser, snapshotter, null, null);
+    }
+
+    /**
+     * @param buildOperationProcessor When not null, the files are parsed and their includes resolved using this processor. The parser and resolver must be thread-safe.
+     * @param parsedIncludesCache When not null, the includes of changed files are taken from this cache, which parses each file using the parser when required.
+     */
+    public IncrementalCompileProcessor(PersistentStateCache<CompilationState> previousCompileStateCache, SourceIncludesResolver sourceIncludesResolver, SourceIncludesParser sourceIncludesParser,
+                                       FileSnapshotter snapshotter, @Nullable BuildOperationProcessor buildOperationProcessor, @Nullable ParsedIncludesCache parsedIncludesCache) {
         this.previousCompileStateCache = previousCompileStateCache;
         this.sourceIncludesResolver = sourceIncludesResolver;
         this.sourceIncludesParser = sourceIncludesParser;
         this.snapshotter = snapshotter;
+        this.buildOperationProcessor = buildOperationProcessor;
+        this.parsedIncludesCache = parsedIncludesCache;
+    }
+
+    public static boolean isParallelScanningEnabled() {
+        return Boolean.getBoolean(PARALLEL_SCANNING_TOGGLE);
     }
 
     public IncrementalCompilation processSourceFiles(Collection<File> sourceFiles) {
@@ -46,6 +74,10 @@ public class IncrementalCompileProcessor {
         final Set<File> candidates = Sets.newHashSet();
         final IncrementalCompileFiles result = new IncrementalCompileFiles(previousCompileState, candidates);
 
+        if (buildOperationProcessor != null) {
+            result.scanAll(sourceFiles);
+        }
+
         for (File sourceFile : sourceFiles) {
             result.processSource(sourceFile);
         }
@@ -60,6 +92,7 @@ public class IncrementalCompileProcessor {
         private final CompilationState previous;
         private final CompilationState current = new CompilationState();
         private final Map<File, Boolean> processed = new HashMap<File, Boolean>();
+        private final Map<File, CompilationFileState> scanned = new HashMap<File, CompilationFileState>();
         private final Set<File> candidates;
 
         public IncrementalCompileFiles(CompilationState previousCompileState, Set<File> candidates) {
@@ -89,16 +122,16 @@ public class IncrementalCompileProcessor {
             processed.put(file, false);
 
             CompilationFileState previousState = previous.getState(file);
-            CompilationFileState newState = new CompilationFileState(snapshotter.snapshot(file).getHash());
+            CompilationFileState newState = scanned.get(file);
+            if (newState == null) {
+                newState = new CompilationFileState(snapshotter.snapshot(file).getHash());
+                parseAndResolve(file, previousState, newState, candidates);
+            }
 
             if (!sameHash(previousState, newState)) {
                 changed = true;
-                newState.setSourceIncludes(sourceIncludesParser.parseIncludes(file));
-            } else {
-                newState.setSourceIncludes(previousState.getSourceIncludes());
             }
 
-            newState.setResolvedIncludes(resolveIncludes(file, newState.getSourceIncludes(), candidates));
             // Compare the previous resolved includes with resolving now.
             if (!sameResolved(previousState, newState)) {
                 changed = true;
@@ -121,6 +154,60 @@ public class IncrementalCompileProcessor {
             return changed;
         }
 
+        /**
+         * Scans every file reachable from the given source files, one level of the include graph at a time, so that each file is scanned once regardless of how many
+         * source files include it. The files are hashed by the calling thread, which holds the cache lock, and then parsed and resolved using the worker pool.
+         * The results are then used by {@link #checkChangedAndUpdateState(File)}, which walks the graph in the same order as for a serial scan.
+         */
+        public void scanAll(Collection<File> sourceFiles) {
+            List<File> level = Lists.newArrayList(sourceFiles);
+            while (!level.isEmpty()) {
+                List<FileScan> scans = Lists.newArrayList();
+                for (File file : level) {
+                    if (!scanned.containsKey(file) && file.exists()) {
+                        CompilationFileState newState = new CompilationFileState(snapshotter.snapshot(file).getHash());
+                        scanned.put(file, newState);
+                        scans.add(new FileScan(file, previous.getState(file), newState));
+                    }
+                }
+                if (scans.size() == 1) {
+                    scans.get(0).run();
+                } else if (!scans.isEmpty()) {
+                    BuildOperationQueue<FileScan> queue = buildOperationProcessor.newQueue(new FileScanner(), null);
+                    for (FileScan scan : scans) {
+                        queue.add(scan);
+                    }
+                    queue.waitForCompletion();
+                }
+
+                level = Lists.newArrayList();
+                for (FileScan scan : scans) {
+                    candidates.addAll(scan.candidates);
+                    for (ResolvedInclude dep : scan.newState.getResolvedIncludes()) {
+                        if (!dep.isUnknown() && !scanned.containsKey(dep.getFile())) {
+                            level.add(dep.getFile());
+                        }
+                    }
+                }
+            }
+        }
+
+        private void parseAndResolve(File file, CompilationFileState previousState, CompilationFileState newState, Set<File> candidates) {
+            if (!sameHash(previousState, newState)) {
+                newState.setSourceIncludes(parseIncludes(file, newState.getHash()));
+            } else {
+                newState.setSourceIncludes(previousState.getSourceIncludes());
+            }
+            newState.setResolvedIncludes(resolveIncludes(file, newState.getSourceIncludes(), candidates));
+        }
+
+        private SourceIncludes parseIncludes(File file, byte[] hash) {
+            if (parsedIncludesCache == null) {
+                return sourceIncludesParser.parseIncludes(file);
+            }
+            return parsedIncludesCache.getIncludes(file, hash, sourceIncludesParser);
+        }
+
         private boolean sameHash(CompilationFileState previousState, CompilationFileState newState) {
             return previousState != null && Arrays.equals(newState.getHash(), previousState.getHash());
         }
@@ -146,5 +233,39 @@ public class IncrementalCompileProcessor {
             }
             return removed;
         }
+
+        private class FileScan implements BuildOperation, Runnable {
+            private final File file;
+            private final CompilationFileState previousState;
+            private final CompilationFileState newState;
+            private final Set<File> candidates = Sets.newHashSet();
+
+            FileScan(File file, CompilationFileState previousState, CompilationFileState newState) {
+                this.file = file;
+                this.previousState = previousState;
+                this.newState = newState;
+            }
+
+            public void run() {
+                parseAndResolve(file, previousState, newState, candidates);
+            }
+
+            @Override
+            public String getDescription() {
+                return "Scan includes of " + file;
+            }
+        }
+    }
+
+    private static class FileScanner implements BuildOperationWorker<IncrementalCompileFiles.FileScan> {
+        @Override
+        public String getDisplayName() {
+            return "include scanner";
+        }
+
+        @Override
+        public void execute(IncrementalCompileFiles.FileScan scan) {
+            scan.run();
+        }
     }
 }
@@ -18,6 +18,7 @@ package org.gradle.language.nativeplatform.internal.incremental;
 import org.gradle.api.internal.TaskInternal;
 import org.gradle.api.internal.changedetection.state.FileSnapshotter;
 import org.gradle.api.internal.changedetection.state.TaskArtifactStateCacheAccess;
+import org.gradle.internal.operations.BuildOperationProcessor;
 import org.gradle.language.base.internal.compile.Compiler;
 import org.gradle.nativeplatform.toolchain.NativeToolChain;
 import org.gradle.nativeplatform.toolchain.internal.NativeCompileSpec;
@@ -26,14 +27,25 @@ public class IncrementalCompilerBuilder {
     private final TaskArtifactStateCacheAccess cacheAccess;
     private final FileSnapshotter fileSnapshotter;
     private final CompilationStateCacheFactory compilationStateCacheFactory;
+    private final BuildOperationProcessor buildOperationProcessor;
+    private final IncludeDirectoryCache includeDirectoryCache;
+    private final ResolvedIncludesCache resolvedIncludesCache;
+    private final ParsedIncludesCache parsedIncludesCache;
 
-    public IncrementalCompilerBuilder(TaskArtifactStateCacheAccess cacheAccess, FileSnapshotter fileSnapshotter, CompilationStateCacheFactory compilationStateCacheFactory) {
+    public IncrementalCompilerBuilder(TaskArtifactStateCacheAccess cacheAccess, FileSnapshotter fileSnapshotter, CompilationStateCacheFactory compilationStateCacheFactory,
+                                      BuildOperationProcessor buildOperationProcessor, IncludeDirectoryCache includeDirectoryCache, ResolvedIncludesCache resolvedIncludesCache,
+                                      ParsedIncludesCache parsedIncludesCache) {
         this.cacheAccess = cacheAccess;
         this.fileSnapshotter = fileSnapshotter;
         this.compilationStateCacheFactory = compilationStateCacheFactory;
+        this.buildOperationProcessor = buildOperationProcessor;
+        this.includeDirectoryCache = includeDirectoryCache;
+        this.resolvedIncludesCache = resolvedIncludesCache;
+        this.parsedIncludesCache = parsedIncludesCache;
     }
 
     public <T extends NativeCompileSpec> Compiler<T> createIncrementalCompiler(TaskInternal task, Compiler<T> compiler, NativeToolChain toolchain) {
-        return new IncrementalNativeCompiler<T>(task, cacheAccess, fileSnapshotter, compilationStateCacheFactory, compiler, toolchain);
+        BuildOperationProcessor processor = IncrementalCompileProcessor.isParallelScanningEnabled() ? buildOperationProcessor : null;
+        return new IncrementalNativeCompiler<T>(task, cacheAccess, fileSnapshotter, compilationStateCacheFactory, compiler, toolchain, processor, includeDirectoryCache, resolvedIncludesCache, parsedIncludesCache);
     }
 }
@@ -15,6 +15,7 @@
  */
 package org.gradle.language.nativeplatform.internal.incremental;
 
+import org.gradle.api.Nullable;
 import org.gradle.api.Transformer;
 import org.gradle.api.file.FileVisitDetails;
 import org.gradle.api.file.FileVisitor;
@@ -30,11 +31,12 @@ import org.gradle.api.specs.Spec;
 import org.gradle.api.tasks.WorkResult;
 import org.gradle.cache.PersistentStateCache;
 import org.gradle.internal.Factory;
+import org.gradle.internal.operations.BuildOperationProcessor;
 import org.gradle.language.base.internal.compile.Compiler;
 import org.gradle.language.base.internal.tasks.SimpleStaleClassCleaner;
 import org.gradle.language.nativeplatform.internal.SourceIncludes;
 import org.gradle.language.nativeplatform.internal.incremental.sourceparser.CSourceParser;
-import org.gradle.language.nativeplatform.internal.incremental.sourceparser.RegexBackedCSourceParser;
+import org.gradle.language.nativeplatform.internal.incremental.sourceparser.DirectiveScanningCSourceParser;
 import org.gradle.nativeplatform.toolchain.Clang;
 import org.gradle.nativeplatform.toolchain.Gcc;
 import org.gradle.nativeplatform.toolchain.NativeToolChain;
@@ -52,17 +54,31 @@ public class IncrementalNativeCompiler<T extends NativeCompileSpec> implements C
     private final TaskArtifactStateCacheAccess cacheAccess;
     private final FileSnapshotter fileSnapshotter;
     private final CompilationStateCacheFactory compilationStateCacheFactory;
+    private final BuildOperationProcessor buildOperationProcessor;
+    private final IncludeDirectoryCache includeDirectoryCache;
+    private final ResolvedIncludesCache resolvedIncludesCache;
+    private final ParsedIncludesCache parsedIncludesCache;
     private final Logger logger = Logging.getLogger(IncrementalNativeCompiler.class);
 
-    private final CSourceParser sourceParser = new RegexBackedCSourceParser();
+    private final CSourceParser sourceParser = new DirectiveScanningCSourceParser();
 
     public IncrementalNativeCompiler(TaskInternal task, TaskArtifactStateCacheAccess cacheAccess, FileSnapshotter fileSnapshotter, CompilationStateCacheFactory compilationStateCacheFactory,
                                      Compiler<T> delegateCompiler, NativeToolChain toolChain) {
+        this(task, cacheAccess, fileSnapshotter, compilationStateCacheFactory, delegateCompiler, toolChain, null, new IncludeDirectoryCache(), new ResolvedIncludesCache(), null);
+    }
+
+    public IncrementalNativeCompiler(TaskInternal task, TaskArtifactStateCacheAccess cacheAccess, FileSnapshotter fileSnapshotter, CompilationStateCacheFactory compilationStateCacheFactory,
+                                     Compiler<T> delegateCompiler, NativeToolChain toolChain, @Nullable BuildOperationProcessor buildOperationProcessor,
+                                     IncludeDirectoryCache includeDirectoryCache, ResolvedIncludesCache resolvedIncludesCache, @Nullable ParsedIncludesCache parsedIncludesCache) {
         this.task = task;
         this.cacheAccess = cacheAccess;
         this.fileSnapshotter = fileSnapshotter;
         this.compilationStateCacheFactory = compilationStateCacheFactory;
         this.delegateCompiler = delegateCompiler;
+        this.buildOperationProcessor = buildOperationProcessor;
+        this.includeDirectoryCache = includeDirectoryCache;
+        this.resolvedIncludesCache = resolvedIncludesCache;
+        this.parsedIncludesCache = parsedIncludesCache;
         this.importsAreIncludes = Clang.class.isAssignableFrom(toolChain.getClass()) || Gcc.class.isAssignableFrom(toolChain.getClass());
     }
 
@@ -172,8 +188,8 @@ public class IncrementalNativeCompiler<T extends NativeCompileSpec> implements C
     }
 
     private IncrementalCompileProcessor createProcessor(PersistentStateCache<CompilationState> compileStateCache, SourceIncludesParser sourceIncludesParser, Iterable<File> includes) {
-        DefaultSourceIncludesResolver dependencyParser = new DefaultSourceIncludesResolver(CollectionUtils.toList(includes));
+        DefaultSourceIncludesResolver dependencyParser = new DefaultSourceIncludesResolver(CollectionUtils.toList(includes), includeDirectoryCache, resolvedIncludesCache);
 
-        return new IncrementalCompileProcessor(compileStateCache, dependencyParser, sourceIncludesParser, fileSnapshotter);
+        return new IncrementalCompileProcessor(compileStateCache, dependencyParser, sourceIncludesParser, fileSnapshotter, buildOperationProcessor, parsedIncludesCache);
     }
 }
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.language.nativeplatform.internal.incremental;
+
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import net.jcip.annotations.ThreadSafe;
+import org.gradle.internal.UncheckedException;
+import org.gradle.language.nativeplatform.internal.SourceIncludes;
+
+import java.io.File;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Caches the includes parsed from source and header files, so that a header that is included by many compile tasks is parsed once, rather than
+ * once by each task. Is shared by all builds run by a process.
+ *
+ * <p>Entries are keyed by the hash of the file contents, so that an entry is not used once the file has changed.</p>
+ */
+@ThreadSafe
+public class ParsedIncludesCache {
+    static final int MAX_ENTRIES = 50000;
+
+    private final Cache<Key, SourceIncludes> includes = CacheBuilder.newBuilder().maximumSize(MAX_ENTRIES).softValues().build();
+
+    /**
+     * Returns the includes of the given file, which has the given content hash, using the given parser to parse the file when not cached.
+     * Parsers are expected to implement {@link Object#equals(Object)} so that parsers that produce the same includes share cache entries.
+     */
+    public SourceIncludes getIncludes(final File file, byte[] hash, final SourceIncludesParser parser) {
+        try {
+            return includes.get(new Key(file, HashCode.fromBytes(hash), parser), new Callable<SourceIncludes>() {
+                public SourceIncludes call() {
+                    return parser.parseIncludes(file);
+                }
+            });
+        } catch (ExecutionException e) {
+            throw UncheckedException.throwAsUncheckedException(e.getCause());
+        } catch (UncheckedExecutionException e) {
+            throw UncheckedException.throwAsUncheckedException(e.getCause());
+        }
+    }
+
+    private static class Key {
+        private final File file;
+        private final HashCode hash;
+        private final SourceIncludesParser parser;
+
+        Key(File file, HashCode hash, SourceIncludesParser parser) {
+            this.file = file;
+            this.hash = hash;
+            this.parser = parser;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key other = (Key) o;
+            return file.equals(other.file) && hash.equals(other.hash) && parser.equals(other.parser);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(file, hash, parser);
+        }
+    }
+}
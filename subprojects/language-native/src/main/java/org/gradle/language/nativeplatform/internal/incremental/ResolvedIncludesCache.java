@@ -0,0 +1,104 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.language.nativeplatform.internal.incremental;
+
+import com.google.common.base.Objects;
+import net.jcip.annotations.ThreadSafe;
+import org.gradle.api.Nullable;
+import org.gradle.language.nativeplatform.internal.SourceIncludes;
+
+import java.io.File;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Caches the includes resolved for source and header files, so that the includes of a header that is included by many compile tasks with the same
+ * include path are resolved once. Is shared by all native compile tasks of a build.
+ *
+ * <p>An entry records the contents of each directory that was looked in to resolve the includes, and should be used only while each of these
+ * directories has the same {@link IncludeDirectoryCache.DirectoryContents}.</p>
+ */
+@ThreadSafe
+public class ResolvedIncludesCache {
+    private final ConcurrentMap<Key, Entry> entries = new ConcurrentHashMap<Key, Entry>();
+
+    @Nullable
+    public Entry get(@Nullable File sourceDir, List<File> includePaths, SourceIncludes includes) {
+        return entries.get(new Key(sourceDir, includePaths, includes));
+    }
+
+    public void put(@Nullable File sourceDir, List<File> includePaths, SourceIncludes includes, Entry entry) {
+        entries.put(new Key(sourceDir, includePaths, includes), entry);
+    }
+
+    public static class Entry {
+        private final Set<ResolvedInclude> dependencies;
+        private final Set<File> candidates;
+        private final List<IncludeDirectoryCache.DirectoryContents> directories;
+
+        public Entry(Set<ResolvedInclude> dependencies, Set<File> candidates, List<IncludeDirectoryCache.DirectoryContents> directories) {
+            this.dependencies = dependencies;
+            this.candidates = candidates;
+            this.directories = directories;
+        }
+
+        public Set<ResolvedInclude> getDependencies() {
+            return dependencies;
+        }
+
+        public Set<File> getCandidates() {
+            return candidates;
+        }
+
+        public List<IncludeDirectoryCache.DirectoryContents> getDirectories() {
+            return directories;
+        }
+    }
+
+    private static class Key {
+        private final File sourceDir;
+        private final List<File> includePaths;
+        private final SourceIncludes includes;
+        private final int hashCode;
+
+        Key(File sourceDir, List<File> includePaths, SourceIncludes includes) {
+            this.sourceDir = sourceDir;
+            this.includePaths = includePaths;
+            this.includes = includes;
+            this.hashCode = Objects.hashCode(sourceDir, includePaths, includes);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hashCode == other.hashCode && Objects.equal(sourceDir, other.sourceDir) && includePaths.equals(other.includePaths) && includes.equals(other.includes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
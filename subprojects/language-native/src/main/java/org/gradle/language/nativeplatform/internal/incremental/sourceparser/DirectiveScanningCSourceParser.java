@@ -0,0 +1,476 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.language.nativeplatform.internal.incremental.sourceparser;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.language.nativeplatform.internal.Include;
+import org.gradle.language.nativeplatform.internal.IncludeType;
+import org.gradle.language.nativeplatform.internal.SourceIncludes;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link CSourceParser} that scans the bytes of a file for preprocessor directives, without creating a string for each line.
+ *
+ * <p>Finds the same include and import directives as {@link RegexBackedCSourceParser}. Comments and line continuations are handled as
+ * by {@link PreprocessingReader}, and each line is matched as by the regular expression of that parser.</p>
+ *
+ * <p>In addition, an include of a macro that is defined as a quoted or system include path earlier in the same file is replaced with an include of that path.
+ * This is only done when the macro is defined once and is never undefined in the file, and is defined in the same conditional block as the include, or in
+ * a block that encloses it.</p>
+ *
+ * <p>The file is expected to use an ASCII compatible encoding. Include paths are decoded using the default character set, as for {@link RegexBackedCSourceParser}.</p>
+ */
+public class DirectiveScanningCSourceParser implements CSourceParser {
+    private static final int EOF = -1;
+
+    public SourceIncludes parseSource(File sourceFile) {
+        byte[] content;
+        try {
+            content = Files.toByteArray(sourceFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        DefaultSourceIncludes sourceIncludes = new DefaultSourceIncludes();
+        sourceIncludes.addAll(new Scanner(content).scan());
+        return sourceIncludes;
+    }
+
+    /**
+     * Scans the content of a single file. Not thread-safe.
+     */
+    private static class Scanner {
+        private final byte[] content;
+        private int pos;
+        private final int[] readAheadChars = {EOF, EOF};
+        private boolean inString;
+        private boolean quoted;
+
+        private final Buffer word = new Buffer();
+        private final Buffer value = new Buffer();
+
+        private final List<Include> includes = Lists.newArrayList();
+        private List<MacroInclude> macroIncludes;
+        private Map<String, MacroDefinition> definitions;
+
+        // The id of each enclosing conditional block, with the file itself at depth 0
+        private int[] blocks = new int[8];
+        private int depth;
+        private int lastBlockId;
+
+        Scanner(byte[] content) {
+            this.content = content;
+        }
+
+        List<Include> scan() {
+            int ch = read();
+            while (ch != EOF) {
+                ch = scanLine(ch);
+            }
+            if (macroIncludes != null) {
+                for (MacroInclude macroInclude : macroIncludes) {
+                    // Check that the macro is not defined again or undefined later in the file
+                    MacroDefinition definition = macroInclude.definition;
+                    if (definition != null && definition.changes == 1) {
+                        includes.set(macroInclude.index, DefaultInclude.parse(definition.value, macroInclude.include.isImport()));
+                    }
+                }
+            }
+            return includes;
+        }
+
+        /**
+         * Scans the line that starts with the given character, and returns the first character of the next line.
+         */
+        private int scanLine(int ch) {
+            // Leading characters are trimmed as by String.trim()
+            while (ch <= ' ' && !isLineEnd(ch)) {
+                ch = read();
+            }
+            if (ch != '#') {
+                return skipLine(ch);
+            }
+            ch = skipWhitespace(read());
+            ch = readWord(ch, word);
+            if (word.startsWithIgnoreCase("include") || word.startsWithIgnoreCase("import")) {
+                ch = scanInclude(ch);
+            } else if (word.is("define")) {
+                ch = scanDefine(ch);
+            } else if (word.is("undef")) {
+                ch = readWord(skipWhitespace(ch), word);
+                if (word.length > 0) {
+                    changed(word.toString(), null);
+                }
+            } else if (word.is("if") || word.is("ifdef") || word.is("ifndef")) {
+                enterBlock();
+            } else if (word.is("elif") || word.is("else")) {
+                if (depth > 0) {
+                    blocks[depth] = ++lastBlockId;
+                }
+            } else if (word.is("endif")) {
+                if (depth > 0) {
+                    depth--;
+                }
+            }
+            return skipLine(ch);
+        }
+
+        private int scanInclude(int ch) {
+            // The directive may run into a macro name, as for the regular expression '#\s*(include|import)\s*(\w+)'
+            int keywordLength = word.startsWithIgnoreCase("include") ? 7 : 6;
+            boolean isImport = keywordLength == 6 && word.startsWith("import");
+            value.clear();
+            if (word.length > keywordLength) {
+                value.append(word, keywordLength);
+            } else {
+                ch = skipWhitespace(ch);
+                if (ch == '<' || ch == '"') {
+                    ch = readDelimited(ch, value);
+                } else if (isWordChar(ch)) {
+                    ch = readWord(ch, value);
+                }
+            }
+            ch = skipTrailingWhitespace(ch);
+            if (value.length == 0 || !isLineEnd(ch)) {
+                return ch;
+            }
+            Include include = DefaultInclude.parse(value.decode(), isImport);
+            if (include.getType() == IncludeType.MACRO) {
+                macroInclude(include);
+            }
+            includes.add(include);
+            return ch;
+        }
+
+        private int scanDefine(int ch) {
+            ch = readWord(skipWhitespace(ch), word);
+            if (word.length == 0) {
+                return ch;
+            }
+            String name = word.toString();
+            value.clear();
+            if (ch != '(') {
+                ch = skipWhitespace(ch);
+                if (ch == '<' || ch == '"') {
+                    ch = readDelimited(ch, value);
+                }
+            }
+            ch = skipTrailingWhitespace(ch);
+            changed(name, value.length > 0 && isLineEnd(ch) ? value.decode() : null);
+            return ch;
+        }
+
+        private void enterBlock() {
+            depth++;
+            if (depth == blocks.length) {
+                int[] newBlocks = new int[blocks.length * 2];
+                System.arraycopy(blocks, 0, newBlocks, 0, blocks.length);
+                blocks = newBlocks;
+            }
+            blocks[depth] = ++lastBlockId;
+        }
+
+        /**
+         * Records a definition of the given macro, or that it is undefined when the value is null.
+         */
+        private void changed(String name, String value) {
+            if (definitions == null) {
+                definitions = Maps.newHashMap();
+            }
+            MacroDefinition definition = definitions.get(name);
+            if (definition == null) {
+                definitions.put(name, new MacroDefinition(value, depth, blocks[depth]));
+            } else {
+                definition.changes++;
+            }
+        }
+
+        private void macroInclude(Include include) {
+            if (macroIncludes == null) {
+                macroIncludes = Lists.newArrayList();
+            }
+            MacroDefinition definition = definitions == null ? null : definitions.get(include.getValue());
+            if (definition != null && (definition.value == null || definition.depth > depth || blocks[definition.depth] != definition.block)) {
+                definition = null;
+            }
+            macroIncludes.add(new MacroInclude(includes.size(), include, definition));
+        }
+
+        /**
+         * Reads a '<...>' or '"..."' path, including the delimiters, and returns the character following it. Leaves the buffer empty when there is no
+         * closing delimiter on this line, or nothing between the delimiters.
+         */
+        private int readDelimited(int start, Buffer buffer) {
+            int end = start == '<' ? '>' : '"';
+            buffer.clear();
+            buffer.append(start);
+            int ch = read();
+            while (ch != end) {
+                if (isLineEnd(ch)) {
+                    buffer.clear();
+                    return ch;
+                }
+                buffer.append(ch);
+                ch = read();
+            }
+            if (buffer.length == 1) {
+                buffer.clear();
+                return ch;
+            }
+            buffer.append(ch);
+            return read();
+        }
+
+        private int readWord(int ch, Buffer buffer) {
+            buffer.clear();
+            while (isWordChar(ch)) {
+                buffer.append(ch);
+                ch = read();
+            }
+            return ch;
+        }
+
+        /**
+         * Skips characters matched by the regular expression '\s'.
+         */
+        private int skipWhitespace(int ch) {
+            while (ch == ' ' || ch == '\t' || ch == 0x0B || ch == '\f') {
+                ch = read();
+            }
+            return ch;
+        }
+
+        /**
+         * Skips characters that would be removed by String.trim() at the end of a line.
+         */
+        private int skipTrailingWhitespace(int ch) {
+            while (ch <= ' ' && !isLineEnd(ch)) {
+                ch = read();
+            }
+            return ch;
+        }
+
+        private int skipLine(int ch) {
+            while (!isLineEnd(ch)) {
+                ch = read();
+            }
+            return ch == EOF ? EOF : read();
+        }
+
+        private static boolean isLineEnd(int ch) {
+            return ch == '\n' || ch == '\r' || ch == EOF;
+        }
+
+        private static boolean isWordChar(int ch) {
+            return (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z') || (ch >= '0' && ch <= '9') || ch == '_';
+        }
+
+        /**
+         * Returns the next character with comments replaced by a single space and line continuations removed, as for {@link PreprocessingReader#read()}.
+         */
+        private int read() {
+            int ch = next();
+            while (ch == '\\' && discardNewLine()) {
+                ch = next();
+            }
+
+            if (ch == '"' && !quoted) {
+                inString = !inString;
+                quoted = false;
+            } else if (ch == '\\') {
+                quoted = !quoted;
+            } else {
+                quoted = false;
+                if (!inString) {
+                    if (ch == '/') {
+                        ch = next();
+                        if (ch == '/') {
+                            while (ch != '\n' && ch != EOF && ch != '\r') {
+                                ch = next();
+                            }
+                        } else if (ch == '*') {
+                            while (ch != EOF) {
+                                ch = next();
+                                if (ch == '*') {
+                                    ch = next();
+                                    while (ch == '*') {
+                                        ch = next();
+                                    }
+
+                                    if (ch == '/') {
+                                        ch = ' ';
+                                        break;
+                                    }
+                                }
+                            }
+                        } else {
+                            pushBack(ch);
+                            ch = '/';
+                        }
+                    }
+                }
+            }
+
+            return ch;
+        }
+
+        private boolean discardNewLine() {
+            int nextChar = next();
+            if (nextChar == '\n') {
+                return true;
+            } else if (nextChar == '\r') {
+                int followingChar = next();
+                if (followingChar == '\n') {
+                    return true;
+                }
+                pushBack(nextChar);
+                pushBack(followingChar);
+                return false;
+            } else {
+                pushBack(nextChar);
+                return false;
+            }
+        }
+
+        private int next() {
+            if (readAheadChars[0] != EOF) {
+                int ch = readAheadChars[0];
+                readAheadChars[0] = readAheadChars[1];
+                readAheadChars[1] = EOF;
+                return ch;
+            }
+            return pos < content.length ? content[pos++] & 0xFF : EOF;
+        }
+
+        private void pushBack(int ch) {
+            if (readAheadChars[1] != EOF) {
+                throw new IllegalStateException();
+            }
+            if (readAheadChars[0] != EOF) {
+                readAheadChars[1] = ch;
+            } else {
+                readAheadChars[0] = ch;
+            }
+        }
+    }
+
+    private static class MacroDefinition {
+        // Null when the macro is not defined as an include path
+        final String value;
+        final int depth;
+        final int block;
+        // The number of times the macro is defined or undefined in the file
+        int changes = 1;
+
+        MacroDefinition(String value, int depth, int block) {
+            this.value = value;
+            this.depth = depth;
+            this.block = block;
+        }
+    }
+
+    private static class MacroInclude {
+        final int index;
+        final Include include;
+        // The definition that applies to this include, if any
+        final MacroDefinition definition;
+
+        MacroInclude(int index, Include include, MacroDefinition definition) {
+            this.index = index;
+            this.include = include;
+            this.definition = definition;
+        }
+    }
+
+    /**
+     * A reusable buffer of bytes.
+     */
+    private static class Buffer {
+        private static final Charset CHARSET = Charset.defaultCharset();
+
+        byte[] bytes = new byte[64];
+        int length;
+
+        void clear() {
+            length = 0;
+        }
+
+        void append(int ch) {
+            if (length == bytes.length) {
+                byte[] newBytes = new byte[bytes.length * 2];
+                System.arraycopy(bytes, 0, newBytes, 0, length);
+                bytes = newBytes;
+            }
+            bytes[length++] = (byte) ch;
+        }
+
+        void append(Buffer other, int offset) {
+            for (int i = offset; i < other.length; i++) {
+                append(other.bytes[i]);
+            }
+        }
+
+        boolean is(String ascii) {
+            return length == ascii.length() && startsWith(ascii);
+        }
+
+        boolean startsWith(String ascii) {
+            if (length < ascii.length()) {
+                return false;
+            }
+            for (int i = 0; i < ascii.length(); i++) {
+                if (bytes[i] != ascii.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean startsWithIgnoreCase(String lowerCaseAscii) {
+            if (length < lowerCaseAscii.length()) {
+                return false;
+            }
+            for (int i = 0; i < lowerCaseAscii.length(); i++) {
+                int ch = bytes[i];
+                if (ch >= 'A' && ch <= 'Z') {
+                    ch += 'a' - 'A';
+                }
+                if (ch != lowerCaseAscii.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        String decode() {
+            return new String(bytes, 0, length, CHARSET);
+        }
+
+        @Override
+        public String toString() {
+            return decode();
+        }
+    }
+}
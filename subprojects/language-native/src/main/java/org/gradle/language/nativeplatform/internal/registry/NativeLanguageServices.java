@@ -19,16 +19,22 @@ package org.gradle.language.nativeplatform.internal.registry;
 import org.gradle.internal.service.ServiceRegistration;
 import org.gradle.internal.service.scopes.PluginServiceRegistry;
 import org.gradle.language.nativeplatform.internal.incremental.DefaultCompilationStateCacheFactory;
+import org.gradle.language.nativeplatform.internal.incremental.IncludeDirectoryCache;
 import org.gradle.language.nativeplatform.internal.incremental.IncrementalCompilerBuilder;
+import org.gradle.language.nativeplatform.internal.incremental.ParsedIncludesCache;
+import org.gradle.language.nativeplatform.internal.incremental.ResolvedIncludesCache;
 
 public class NativeLanguageServices implements PluginServiceRegistry {
     public void registerGlobalServices(ServiceRegistration registration) {
+        registration.add(ParsedIncludesCache.class);
     }
 
     public void registerBuildSessionServices(ServiceRegistration registration) {
     }
 
     public void registerBuildServices(ServiceRegistration registration) {
+        registration.add(IncludeDirectoryCache.class);
+        registration.add(ResolvedIncludesCache.class);
     }
 
     public void registerGradleServices(ServiceRegistration registration) {
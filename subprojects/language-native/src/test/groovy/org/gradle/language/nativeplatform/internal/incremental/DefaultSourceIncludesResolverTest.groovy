@@ -149,6 +149,81 @@ class DefaultSourceIncludesResolverTest extends Specification {
         }
     }
 
+    def "reuses includes resolved by another resolver with the same include path"() {
+        given:
+        def includeDirectoryCache = new IncludeDirectoryCache()
+        def resolvedIncludesCache = new ResolvedIncludesCache()
+        def includeDir = testDirectory.createDir("include")
+        final header = sourceDirectory.createFile("test.h")
+        makeOld(sourceDirectory)
+        makeOld(includeDir)
+
+        and:
+        includePaths << includeDir
+        quotedIncludes << "test.h" << "missing.h"
+
+        when:
+        def first = new DefaultSourceIncludesResolver(includePaths, includeDirectoryCache, resolvedIncludesCache).resolveIncludes(sourceFile, includes, candidates)
+        def otherCandidates = [] as Set
+        def second = new DefaultSourceIncludesResolver(includePaths, includeDirectoryCache, resolvedIncludesCache).resolveIncludes(sourceFile, includes, otherCandidates)
+
+        then:
+        first as List == quotedDeps(header)
+        second.is(first)
+        otherCandidates == candidates
+        candidates == [sourceDirectory.file("test.h"), sourceDirectory.file("missing.h"), includeDir.file("missing.h")] as Set
+    }
+
+    def "resolves includes again when an include directory has changed"() {
+        given:
+        def includeDirectoryCache = new IncludeDirectoryCache()
+        def resolvedIncludesCache = new ResolvedIncludesCache()
+        def includeDir = testDirectory.createDir("include")
+        makeOld(sourceDirectory)
+        makeOld(includeDir)
+
+        and:
+        includePaths << includeDir
+        quotedIncludes << "test.h"
+
+        when:
+        def first = new DefaultSourceIncludesResolver(includePaths, includeDirectoryCache, resolvedIncludesCache).resolveIncludes(sourceFile, includes, candidates)
+        final header = includeDir.createFile("test.h")
+        def second = new DefaultSourceIncludesResolver(includePaths, includeDirectoryCache, resolvedIncludesCache).resolveIncludes(sourceFile, includes, candidates)
+
+        then:
+        first.empty
+        second as List == quotedDeps(header)
+    }
+
+    def "does not reuse includes resolved with a different include path"() {
+        given:
+        def includeDirectoryCache = new IncludeDirectoryCache()
+        def resolvedIncludesCache = new ResolvedIncludesCache()
+        def includeDir1 = testDirectory.createDir("include1")
+        def includeDir2 = testDirectory.createDir("include2")
+        final header1 = includeDir1.createFile("test.h")
+        final header2 = includeDir2.createFile("test.h")
+        makeOld(sourceDirectory)
+        makeOld(includeDir1)
+        makeOld(includeDir2)
+
+        and:
+        systemIncludes << "test.h"
+
+        when:
+        def first = new DefaultSourceIncludesResolver([includeDir1], includeDirectoryCache, resolvedIncludesCache).resolveIncludes(sourceFile, includes, candidates)
+        def second = new DefaultSourceIncludesResolver([includeDir2], includeDirectoryCache, resolvedIncludesCache).resolveIncludes(sourceFile, includes, candidates)
+
+        then:
+        first as List == systemDeps(header1)
+        second as List == systemDeps(header2)
+    }
+
+    private static void makeOld(TestFile dir) {
+        dir.setLastModified(System.currentTimeMillis() - 10 * IncludeDirectoryCache.TIMESTAMP_RESOLUTION)
+    }
+
     def include(String value) {
         return DefaultInclude.parse(value, false)
     }
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.language.nativeplatform.internal.incremental
+
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class IncludeDirectoryCacheTest extends Specification {
+    @Rule final TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider()
+    def cache = new IncludeDirectoryCache()
+    def dir = temporaryFolder.createDir("include")
+
+    def "locates files in directory"() {
+        given:
+        def header = dir.createFile("test.h")
+        dir.createDir("nested")
+        makeOld(dir)
+
+        when:
+        def contents = cache.getContents(dir)
+
+        then:
+        contents.getFile("test.h") == header.canonicalFile
+        contents.getFile("nested") == null
+        contents.getFile("missing.h") == null
+    }
+
+    def "does not locate files in missing directory"() {
+        expect:
+        cache.getContents(dir.file("missing")).getFile("test.h") == null
+    }
+
+    def "reuses contents when directory has not changed"() {
+        given:
+        makeOld(dir)
+        def timestamp = dir.lastModified()
+        def contents = cache.getContents(dir)
+
+        expect:
+        cache.getContents(dir).is(contents)
+
+        when:
+        dir.createFile("test.h")
+        dir.setLastModified(timestamp)
+
+        then:
+        cache.getContents(dir).is(contents)
+        contents.getFile("test.h") == null
+    }
+
+    def "lists directory again when its timestamp changes"() {
+        given:
+        makeOld(dir)
+        def contents = cache.getContents(dir)
+
+        when:
+        def header = dir.createFile("test.h")
+        dir.setLastModified(dir.lastModified() + 1000)
+
+        then:
+        !cache.getContents(dir).is(contents)
+        cache.getContents(dir).getFile("test.h") == header.canonicalFile
+    }
+
+    def "lists recently changed directory each time"() {
+        given:
+        def contents = cache.getContents(dir)
+
+        when:
+        def header = dir.createFile("test.h")
+
+        then:
+        contents.getFile("test.h") == null
+        cache.getContents(dir).getFile("test.h") == header.canonicalFile
+    }
+
+    def "lists directory again once it is created"() {
+        given:
+        def missing = dir.file("missing")
+        cache.getContents(missing)
+
+        when:
+        def header = missing.createFile("test.h")
+        makeOld(missing)
+
+        then:
+        cache.getContents(missing).getFile("test.h") == header.canonicalFile
+    }
+
+    private static void makeOld(TestFile dir) {
+        dir.setLastModified(System.currentTimeMillis() - 10 * IncludeDirectoryCache.TIMESTAMP_RESOLUTION)
+    }
+}
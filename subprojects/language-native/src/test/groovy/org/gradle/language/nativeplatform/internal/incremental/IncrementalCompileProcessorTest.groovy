@@ -33,7 +33,7 @@ class IncrementalCompileProcessorTest extends Specification {
     def dependencyParser = Mock(SourceIncludesResolver)
     def fileSnapshotter = Stub(FileSnapshotter)
     def stateCache = new DummyPersistentStateCache()
-    def incrementalCompileProcessor = new IncrementalCompileProcessor(stateCache, dependencyParser, includesParser, fileSnapshotter)
+    def incrementalCompileProcessor = createProcessor()
 
     def source1 = sourceFile("source1")
     def source2 = sourceFile("source2")
@@ -68,6 +68,10 @@ class IncrementalCompileProcessorTest extends Specification {
         graph[dep4] = []
     }
 
+    IncrementalCompileProcessor createProcessor() {
+        return new IncrementalCompileProcessor(stateCache, dependencyParser, includesParser, fileSnapshotter)
+    }
+
     def initialFiles() {
 
         graph.keySet().each { TestFile sourceFile ->
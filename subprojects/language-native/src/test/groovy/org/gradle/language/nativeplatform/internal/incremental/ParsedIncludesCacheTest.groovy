@@ -0,0 +1,102 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.language.nativeplatform.internal.incremental
+
+import org.gradle.api.UncheckedIOException
+import org.gradle.language.nativeplatform.internal.SourceIncludes
+import org.gradle.language.nativeplatform.internal.incremental.sourceparser.CSourceParser
+import spock.lang.Specification
+
+class ParsedIncludesCacheTest extends Specification {
+    def cache = new ParsedIncludesCache()
+    def parser = Mock(SourceIncludesParser)
+    def file = new File("test.h")
+    def includes = Stub(SourceIncludes)
+
+    def "parses file once for each content hash"() {
+        def otherIncludes = Stub(SourceIncludes)
+
+        when:
+        def result1 = cache.getIncludes(file, [1, 2] as byte[], parser)
+        def result2 = cache.getIncludes(file, [1, 2] as byte[], parser)
+
+        then:
+        1 * parser.parseIncludes(file) >> includes
+        0 * parser._
+        result1.is(includes)
+        result2.is(includes)
+
+        when:
+        def result3 = cache.getIncludes(file, [3, 4] as byte[], parser)
+
+        then:
+        1 * parser.parseIncludes(file) >> otherIncludes
+        result3.is(otherIncludes)
+    }
+
+    def "parses each file separately"() {
+        def otherFile = new File("other.h")
+
+        when:
+        cache.getIncludes(file, [1, 2] as byte[], parser)
+        cache.getIncludes(otherFile, [1, 2] as byte[], parser)
+
+        then:
+        1 * parser.parseIncludes(file) >> includes
+        1 * parser.parseIncludes(otherFile) >> includes
+    }
+
+    def "shares results between parsers that produce the same includes"() {
+        def sourceParser = Mock(CSourceParser)
+        def parsedIncludes = Stub(SourceIncludes)
+
+        when:
+        def result1 = cache.getIncludes(file, [1, 2] as byte[], new DefaultSourceIncludesParser(sourceParser, true))
+        def result2 = cache.getIncludes(file, [1, 2] as byte[], new DefaultSourceIncludesParser(sourceParser, true))
+
+        then:
+        1 * sourceParser.parseSource(file) >> parsedIncludes
+        result1.is(parsedIncludes)
+        result2.is(parsedIncludes)
+
+        when:
+        def result3 = cache.getIncludes(file, [1, 2] as byte[], new DefaultSourceIncludesParser(sourceParser, false))
+
+        then:
+        1 * sourceParser.parseSource(file) >> parsedIncludes
+        !result3.is(parsedIncludes)
+    }
+
+    def "propagates parse failure and parses again on next request"() {
+        def failure = new UncheckedIOException("broken")
+
+        when:
+        cache.getIncludes(file, [1, 2] as byte[], parser)
+
+        then:
+        1 * parser.parseIncludes(file) >> { throw failure }
+        def e = thrown(UncheckedIOException)
+        e.is(failure)
+
+        when:
+        def result = cache.getIncludes(file, [1, 2] as byte[], parser)
+
+        then:
+        1 * parser.parseIncludes(file) >> includes
+        result.is(includes)
+    }
+}
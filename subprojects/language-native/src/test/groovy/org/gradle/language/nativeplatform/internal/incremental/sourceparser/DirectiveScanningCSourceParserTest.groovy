@@ -0,0 +1,86 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.language.nativeplatform.internal.incremental.sourceparser
+
+import spock.lang.Unroll
+
+class DirectiveScanningCSourceParserTest extends RegexBackedCSourceParserTest {
+    @Override
+    protected CSourceParser createParser() {
+        return new DirectiveScanningCSourceParser()
+    }
+
+    def "finds include of macro defined as quoted include path"() {
+        when:
+        sourceFile << """
+    #define HEADER "test.h"
+    #include HEADER
+"""
+
+        then:
+        includes == ['"test.h"'].collect { include(it) }
+    }
+
+    def "finds import of macro defined as system include path"() {
+        when:
+        sourceFile << """
+    #define HEADER <test.h>
+    #import HEADER
+"""
+
+        then:
+        imports == ['<test.h>'].collect { include(it, true) }
+    }
+
+    def "finds include of macro defined in enclosing conditional block"() {
+        when:
+        sourceFile << """
+#ifndef TEST_H
+#define TEST_H
+#define HEADER "test.h" // the header
+#if defined(SOMETHING)
+#include HEADER
+#else
+#include <other.h>
+#endif
+#endif
+"""
+
+        then:
+        includes == ['"test.h"', '<other.h>'].collect { include(it) }
+    }
+
+    @Unroll
+    def "does not use macro definition that may not apply to include when #condition"() {
+        when:
+        sourceFile << source
+
+        then:
+        includes == ['HEADER'].collect { include(it) }
+
+        where:
+        condition                          | source
+        "defined after include"            | '#include HEADER\n#define HEADER "test.h"\n'
+        "defined in conditional block"     | '#ifndef HEADER\n#define HEADER "test.h"\n#endif\n#include HEADER\n'
+        "defined in other branch"          | '#if A\n#define HEADER "test.h"\n#else\n#include HEADER\n#endif\n'
+        "defined more than once"           | '#define HEADER "test.h"\n#include HEADER\n#undef HEADER\n#define HEADER "other.h"\n'
+        "undefined"                        | '#define HEADER "test.h"\n#include HEADER\n#undef HEADER\n'
+        "defined as other macro"           | '#define HEADER OTHER\n#include HEADER\n'
+        "defined as function-like macro"   | '#define HEADER(x) "test.h"\n#include HEADER\n'
+        "defined with trailing content"    | '#define HEADER "test.h" + 1\n#include HEADER\n'
+    }
+}
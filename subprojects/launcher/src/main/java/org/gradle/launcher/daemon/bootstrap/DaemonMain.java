@@ -29,6 +29,7 @@ import org.gradle.launcher.daemon.configuration.DaemonServerConfiguration;
 import org.gradle.launcher.daemon.configuration.DefaultDaemonServerConfiguration;
 import org.gradle.launcher.daemon.context.DaemonContext;
 import org.gradle.launcher.daemon.logging.DaemonMessages;
+import org.gradle.launcher.daemon.registry.DaemonRegistry;
 import org.gradle.launcher.daemon.server.Daemon;
 import org.gradle.launcher.daemon.server.DaemonServices;
 import org.gradle.logging.LoggingManagerInternal;
@@ -70,6 +71,7 @@ public class DaemonMain extends EntryPoint {
         int idleTimeoutMs;
         String daemonUid;
         List<File> additionalClassPath;
+        boolean spare;
 
         KryoBackedDecoder decoder = new KryoBackedDecoder(new EncodedStream.EncodedInput(System.in));
         try {
@@ -87,6 +89,7 @@ public class DaemonMain extends EntryPoint {
             for (int i = 0; i < additionalClassPathLength; i++) {
                 additionalClassPath.add(new File(decoder.readString()));
             }
+            spare = decoder.readBoolean();
         } catch (EOFException e) {
             throw new UncheckedIOException(e);
         }
@@ -106,6 +109,10 @@ public class DaemonMain extends EntryPoint {
         daemon.start();
 
         try {
+            if (spare) {
+                // Nobody is waiting to connect to a spare daemon, so make it available to all clients
+                daemonServices.get(DaemonRegistry.class).markIdle(daemon.getAddress());
+            }
             DaemonContext daemonContext = daemonServices.get(DaemonContext.class);
             Long pid = daemonContext.getPid();
             daemonStarted(pid, daemon.getUid(), daemon.getAddress(), daemonLog);
@@ -84,7 +84,9 @@ abstract public class DaemonClientServicesSupport extends DefaultServiceRegistry
         return new TcpOutgoingConnector();
     }
 
-    DaemonConnector createDaemonConnector(DaemonRegistry daemonRegistry, OutgoingConnector outgoingConnector, DaemonStarter daemonStarter) {
-        return new DefaultDaemonConnector(daemonRegistry, outgoingConnector, daemonStarter);
+    DaemonConnector createDaemonConnector(DaemonRegistry daemonRegistry, OutgoingConnector outgoingConnector, DaemonStarter daemonStarter, DaemonContext daemonContext, ExecutorFactory executorFactory) {
+        SpareDaemonPool spareDaemons = SpareDaemonPool.maybeCreate(daemonRegistry, daemonStarter, daemonContext, executorFactory);
+        // The connector stops the pool when these services are closed
+        return new DefaultDaemonConnector(daemonRegistry, outgoingConnector, daemonStarter, spareDaemons);
     }
 }
\ No newline at end of file
@@ -19,4 +19,9 @@ import org.gradle.launcher.daemon.diagnostics.DaemonStartupInfo;
 
 public interface DaemonStarter {
     DaemonStartupInfo startDaemon();
+
+    /**
+     * Starts a daemon that advertises itself as idle once started, so that it can be used by any compatible client.
+     */
+    DaemonStartupInfo startSpareDaemon();
 }
@@ -15,10 +15,12 @@
  */
 package org.gradle.launcher.daemon.client;
 
+import org.gradle.api.Nullable;
 import org.gradle.api.internal.specs.ExplainingSpec;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.internal.serialize.Serializers;
 import org.gradle.launcher.daemon.context.DaemonContext;
 import org.gradle.launcher.daemon.context.DaemonInstanceDetails;
@@ -35,7 +37,7 @@ import java.util.List;
 /**
  * Provides the mechanics of connecting to a daemon, starting one via a given runnable if no suitable daemons are already available.
  */
-public class DefaultDaemonConnector implements DaemonConnector {
+public class DefaultDaemonConnector implements DaemonConnector, Stoppable {
     private static final Logger LOGGER = Logging.getLogger(DefaultDaemonConnector.class);
     public static final int DEFAULT_CONNECT_TIMEOUT = 30000;
     public static final String STARTING_DAEMON_MESSAGE = "Starting a new Gradle Daemon for this build (subsequent builds will be faster).";
@@ -43,12 +45,21 @@ public class DefaultDaemonConnector implements DaemonConnector {
     private final DaemonRegistry daemonRegistry;
     protected final OutgoingConnector connector;
     private final DaemonStarter daemonStarter;
+    private final SpareDaemonPool spareDaemons;
     private long connectTimeout = DefaultDaemonConnector.DEFAULT_CONNECT_TIMEOUT;
 
     public DefaultDaemonConnector(DaemonRegistry daemonRegistry, OutgoingConnector connector, DaemonStarter daemonStarter) {
+        this(daemonRegistry, connector, daemonStarter, null);
+    }
+
+    /**
+     * @param spareDaemons When not null, spare daemons are started in the background each time a client connects, so that later builds can use them.
+     */
+    public DefaultDaemonConnector(DaemonRegistry daemonRegistry, OutgoingConnector connector, DaemonStarter daemonStarter, @Nullable SpareDaemonPool spareDaemons) {
         this.daemonRegistry = daemonRegistry;
         this.connector = connector;
         this.daemonStarter = daemonStarter;
+        this.spareDaemons = spareDaemons;
     }
 
     public void setConnectTimeout(long connectTimeout) {
@@ -63,6 +74,15 @@ public class DefaultDaemonConnector implements DaemonConnector {
         return daemonRegistry;
     }
 
+    /**
+     * Stops starting spare daemons, see {@link SpareDaemonPool#stop()}.
+     */
+    public void stop() {
+        if (spareDaemons != null) {
+            spareDaemons.stop();
+        }
+    }
+
     public DaemonClientConnection maybeConnect(ExplainingSpec<DaemonContext> constraint) {
         return findConnection(daemonRegistry.getAll(), constraint);
     }
@@ -78,14 +98,17 @@ public class DefaultDaemonConnector implements DaemonConnector {
 
     public DaemonClientConnection connect(ExplainingSpec<DaemonContext> constraint) {
         DaemonClientConnection connection = findConnection(daemonRegistry.getIdle(), constraint);
-        if (connection != null) {
-            return connection;
+        if (connection == null) {
+            if (!Boolean.getBoolean(DISABLE_STARTING_DAEMON_MESSAGE_PROPERTY)) {
+                LOGGER.lifecycle(STARTING_DAEMON_MESSAGE);
+            }
+            connection = startDaemon(constraint);
         }
 
-        if (!Boolean.getBoolean(DISABLE_STARTING_DAEMON_MESSAGE_PROPERTY)) {
-            LOGGER.lifecycle(STARTING_DAEMON_MESSAGE);
+        if (spareDaemons != null) {
+            spareDaemons.replenish(constraint, connection.getDaemon());
         }
-        return startDaemon(constraint);
+        return connection;
     }
 
     private DaemonClientConnection findConnection(List<DaemonInfo> daemons, ExplainingSpec<DaemonContext> constraint) {
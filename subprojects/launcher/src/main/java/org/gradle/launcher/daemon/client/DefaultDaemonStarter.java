@@ -66,6 +66,14 @@ public class DefaultDaemonStarter implements DaemonStarter {
     }
 
     public DaemonStartupInfo startDaemon() {
+        return startDaemon(false);
+    }
+
+    public DaemonStartupInfo startSpareDaemon() {
+        return startDaemon(true);
+    }
+
+    private DaemonStartupInfo startDaemon(boolean spare) {
         ModuleRegistry registry = new DefaultModuleRegistry();
         ClassPath classpath;
         List<File> searchClassPath;
@@ -121,6 +129,7 @@ public class DefaultDaemonStarter implements DaemonStarter {
             for (File file : searchClassPath) {
                 encoder.writeString(file.getAbsolutePath());
             }
+            encoder.writeBoolean(spare);
             encoder.flush();
         } catch (IOException e) {
             throw new UncheckedIOException(e);
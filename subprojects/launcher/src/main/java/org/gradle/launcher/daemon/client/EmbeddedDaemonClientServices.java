@@ -105,7 +105,7 @@ public class EmbeddedDaemonClientServices extends DaemonClientServicesSupport {
         return new DaemonTcpServerConnector(get(ExecutorFactory.class), get(MessagingServices.class).get(InetAddressFactory.class));
     }
 
-    protected DaemonStarter createDaemonStarter() {
-        return new EmbeddedDaemonStarter(getFactory(Daemon.class));
+    protected DaemonStarter createDaemonStarter(DaemonRegistry daemonRegistry) {
+        return new EmbeddedDaemonStarter(getFactory(Daemon.class), daemonRegistry);
     }
 }
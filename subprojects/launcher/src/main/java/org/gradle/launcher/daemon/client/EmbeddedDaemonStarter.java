@@ -19,6 +19,7 @@ import org.gradle.internal.concurrent.CompositeStoppable;
 import org.gradle.internal.Factory;
 import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.launcher.daemon.diagnostics.DaemonStartupInfo;
+import org.gradle.launcher.daemon.registry.DaemonRegistry;
 import org.gradle.launcher.daemon.server.Daemon;
 
 import java.util.ArrayList;
@@ -28,11 +29,13 @@ import java.util.concurrent.locks.ReentrantLock;
 
 class EmbeddedDaemonStarter implements DaemonStarter, Stoppable {
     private final Factory<Daemon> daemonFactory;
+    private final DaemonRegistry daemonRegistry;
     private final List<Daemon> daemons = new ArrayList<Daemon>();
     private final Lock daemonsLock = new ReentrantLock();
 
-    public EmbeddedDaemonStarter(Factory<Daemon> daemonFactory) {
+    public EmbeddedDaemonStarter(Factory<Daemon> daemonFactory, DaemonRegistry daemonRegistry) {
         this.daemonFactory = daemonFactory;
+        this.daemonRegistry = daemonRegistry;
     }
 
     public DaemonStartupInfo startDaemon() {
@@ -41,6 +44,13 @@ class EmbeddedDaemonStarter implements DaemonStarter, Stoppable {
         return new DaemonStartupInfo(daemon.getUid(), daemon.getAddress(), null);
     }
 
+    public DaemonStartupInfo startSpareDaemon() {
+        Daemon daemon = daemonFactory.create();
+        startDaemon(daemon);
+        daemonRegistry.markIdle(daemon.getAddress());
+        return new DaemonStartupInfo(daemon.getUid(), daemon.getAddress(), null);
+    }
+
     public void startDaemon(Daemon daemon) {
         daemonsLock.lock();
         try {
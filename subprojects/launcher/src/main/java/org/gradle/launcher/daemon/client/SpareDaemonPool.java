@@ -0,0 +1,208 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.launcher.daemon.client;
+
+import org.gradle.api.internal.specs.ExplainingSpec;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.concurrent.StoppableExecutor;
+import org.gradle.launcher.daemon.context.DaemonContext;
+import org.gradle.launcher.daemon.context.DaemonInstanceDetails;
+import org.gradle.launcher.daemon.diagnostics.DaemonStartupInfo;
+import org.gradle.launcher.daemon.registry.DaemonInfo;
+import org.gradle.launcher.daemon.registry.DaemonRegistry;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Keeps a number of spare daemons running for the daemon context of this client, so that a build that finds no compatible idle daemon can usually
+ * use a spare rather than wait for a new daemon to start. Spares advertise themselves as idle in the daemon registry once started, so that a spare
+ * started by one client can be used by any compatible client. Replacements for spares that have been used are started in the background.
+ *
+ * <p>A spare is not started when the maximum heap of the daemons in the registry, plus that of the spare, would exceed the configured limit.</p>
+ *
+ * <p>The pool is stopped with the client services. Stopping waits for a spare that is being started to finish starting, so that it is not left
+ * half-started, but no further spares are started.</p>
+ */
+public class SpareDaemonPool implements Stoppable {
+    /**
+     * The number of spare daemons to keep for each daemon context. No spares are kept when not set.
+     */
+    public static final String SPARE_DAEMONS_PROPERTY = "org.gradle.daemon.spares";
+    /**
+     * The maximum heap, in megabytes, of all daemons in the registry, beyond which no spare daemons are started. No limit applies when not set.
+     */
+    public static final String MAX_HEAP_PROPERTY = "org.gradle.daemon.spares.maxheap";
+    // The heap assumed for a daemon whose jvm arguments do not set one, which is the default used for daemons
+    static final long DEFAULT_DAEMON_HEAP_MB = 1024;
+
+    private static final Logger LOGGER = Logging.getLogger(SpareDaemonPool.class);
+
+    private final DaemonRegistry daemonRegistry;
+    private final DaemonStarter daemonStarter;
+    private final DaemonContext daemonContext;
+    private final int spareCount;
+    private final long maxHeapMb;
+    private final StoppableExecutor executor;
+    private boolean replenishing;
+    private boolean stopped;
+
+    public SpareDaemonPool(DaemonRegistry daemonRegistry, DaemonStarter daemonStarter, DaemonContext daemonContext, ExecutorFactory executorFactory, int spareCount, long maxHeapMb) {
+        this.daemonRegistry = daemonRegistry;
+        this.daemonStarter = daemonStarter;
+        this.daemonContext = daemonContext;
+        this.spareCount = spareCount;
+        this.maxHeapMb = maxHeapMb;
+        this.executor = executorFactory.create("Spare daemon starter");
+    }
+
+    /**
+     * Returns a pool configured using system properties, or null when no spare daemons should be kept.
+     */
+    public static SpareDaemonPool maybeCreate(DaemonRegistry daemonRegistry, DaemonStarter daemonStarter, DaemonContext daemonContext, ExecutorFactory executorFactory) {
+        int spareCount = Integer.getInteger(SPARE_DAEMONS_PROPERTY, 0);
+        if (spareCount <= 0) {
+            return null;
+        }
+        return new SpareDaemonPool(daemonRegistry, daemonStarter, daemonContext, executorFactory, spareCount, Long.getLong(MAX_HEAP_PROPERTY, 0));
+    }
+
+    /**
+     * Starts spare daemons in the background, until there are the configured number of idle daemons that satisfy the given constraint, not counting
+     * the given daemon that is about to be used. Does nothing when spares are already being started by this pool.
+     */
+    public synchronized void replenish(final ExplainingSpec<DaemonContext> constraint, final DaemonInstanceDetails inUse) {
+        if (stopped || replenishing) {
+            return;
+        }
+        replenishing = true;
+        executor.execute(new Runnable() {
+            public void run() {
+                try {
+                    startSpares(constraint, inUse);
+                } catch (Exception e) {
+                    LOGGER.info("Could not start a spare Gradle daemon.", e);
+                } finally {
+                    replenished();
+                }
+            }
+        });
+    }
+
+    private void startSpares(ExplainingSpec<DaemonContext> constraint, DaemonInstanceDetails inUse) {
+        int required = spareCount - countSpares(constraint, inUse);
+        for (int i = 0; i < required; i++) {
+            if (isStopped()) {
+                return;
+            }
+            if (!hasHeapForSpare()) {
+                LOGGER.info("Not starting a spare Gradle daemon, as the daemons would use more than {} MB of heap.", maxHeapMb);
+                return;
+            }
+            DaemonStartupInfo startupInfo = daemonStarter.startSpareDaemon();
+            LOGGER.info("Started spare Gradle daemon {}", startupInfo);
+        }
+    }
+
+    private int countSpares(ExplainingSpec<DaemonContext> constraint, DaemonInstanceDetails inUse) {
+        int count = 0;
+        for (DaemonInfo daemon : daemonRegistry.getIdle()) {
+            if (!daemon.getAddress().equals(inUse.getAddress()) && constraint.isSatisfiedBy(daemon.getContext())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private boolean hasHeapForSpare() {
+        if (maxHeapMb <= 0) {
+            return true;
+        }
+        long heapMb = maxHeapMb(daemonContext.getDaemonOpts());
+        for (DaemonInfo daemon : daemonRegistry.getAll()) {
+            heapMb += maxHeapMb(daemon.getContext().getDaemonOpts());
+        }
+        return heapMb <= maxHeapMb;
+    }
+
+    /**
+     * Returns the maximum heap, in megabytes, set by the given jvm arguments.
+     */
+    static long maxHeapMb(List<String> jvmArgs) {
+        String size = null;
+        for (String jvmArg : jvmArgs) {
+            if (jvmArg.startsWith("-Xmx")) {
+                size = jvmArg.substring(4).toLowerCase(Locale.ENGLISH);
+            }
+        }
+        if (size == null || size.length() == 0) {
+            return DEFAULT_DAEMON_HEAP_MB;
+        }
+        long scale;
+        char unit = size.charAt(size.length() - 1);
+        if (unit == 'k') {
+            scale = 1024;
+        } else if (unit == 'm') {
+            scale = 1024 * 1024;
+        } else if (unit == 'g') {
+            scale = 1024 * 1024 * 1024;
+        } else if (unit == 't') {
+            scale = 1024L * 1024 * 1024 * 1024;
+        } else {
+            scale = 1;
+        }
+        try {
+            long value = Long.parseLong(scale == 1 ? size : size.substring(0, size.length() - 1));
+            return value * scale / (1024 * 1024);
+        } catch (NumberFormatException e) {
+            return DEFAULT_DAEMON_HEAP_MB;
+        }
+    }
+
+    private synchronized void replenished() {
+        replenishing = false;
+        notifyAll();
+    }
+
+    /**
+     * Waits until this pool has finished starting spares in the background, if it is doing so.
+     */
+    synchronized void waitForReplenish() {
+        while (replenishing) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+        }
+    }
+
+    private synchronized boolean isStopped() {
+        return stopped;
+    }
+
+    public void stop() {
+        synchronized (this) {
+            stopped = true;
+        }
+        executor.stop();
+    }
+}
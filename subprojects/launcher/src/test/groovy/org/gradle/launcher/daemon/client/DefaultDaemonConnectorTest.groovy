@@ -17,6 +17,7 @@ package org.gradle.launcher.daemon.client
 
 import org.gradle.api.internal.specs.ExplainingSpec
 import org.gradle.api.internal.specs.ExplainingSpecs
+import org.gradle.internal.concurrent.DefaultExecutorFactory
 import org.gradle.launcher.daemon.context.DaemonContext
 import org.gradle.launcher.daemon.context.DefaultDaemonContext
 import org.gradle.launcher.daemon.diagnostics.DaemonStartupInfo
@@ -77,7 +78,30 @@ class DefaultDaemonConnectorTest extends Specification {
         registry.store(address, context, "password", true)
     }
 
+    def createConnectorWithSpares(int spareCount, long maxHeapMb) {
+        def registry = new EmbeddedDaemonRegistry()
+        def starter = [startDaemon: { startBusyDaemon() }, startSpareDaemon: { startSpareDaemon() }] as DaemonStarter
+        def context = new DefaultDaemonContext("client", javaHome, javaHome, 0, 1000, [])
+        spareDaemons = new SpareDaemonPool(registry, starter, context, new DefaultExecutorFactory(), spareCount, maxHeapMb)
+        theConnector = new DefaultDaemonConnector(registry, new OutgoingConnectorStub(), starter, spareDaemons)
+        theConnector.connectTimeout = connectTimeoutSecs * 1000
+        theConnector
+    }
+
+    def startSpareDaemon() {
+        sparesStarted++
+        def daemonNum = daemonCounter
+        startIdleDaemon()
+        return new DaemonStartupInfo(daemonNum.toString(), null, null)
+    }
+
     def theConnector
+    SpareDaemonPool spareDaemons
+    int sparesStarted
+
+    def cleanup() {
+        spareDaemons?.stop()
+    }
 
     def DefaultDaemonConnector getConnector() {
         if (theConnector == null) {
@@ -174,6 +198,80 @@ class DefaultDaemonConnectorTest extends Specification {
         thrown(DaemonConnectionException)
     }
 
+    def "connect() starts spare daemons in the background until enough compatible daemons are idle"() {
+        given:
+        createConnectorWithSpares(2, 0)
+
+        when:
+        def connection = connector.connect({ true } as DummyExplainingSpec)
+        spareDaemons.waitForReplenish()
+
+        then:
+        connection.connection.num == 0
+        numAllDaemons == 3
+        registry.idle.size() == 2
+        sparesStarted == 2
+    }
+
+    def "connect() does not count the daemon it connects to as a spare"() {
+        given:
+        createConnectorWithSpares(1, 0)
+        startIdleDaemon()
+
+        when:
+        connector.connect({ true } as DummyExplainingSpec)
+        spareDaemons.waitForReplenish()
+
+        then:
+        numAllDaemons == 2
+        sparesStarted == 1
+    }
+
+    def "connect() does not start spare daemons when enough compatible daemons are idle"() {
+        given:
+        createConnectorWithSpares(2, 0)
+        startIdleDaemon()
+        startIdleDaemon()
+        startIdleDaemon()
+
+        when:
+        connector.connect({ true } as DummyExplainingSpec)
+        spareDaemons.waitForReplenish()
+
+        then:
+        numAllDaemons == 3
+        sparesStarted == 0
+    }
+
+    def "connect() only counts daemons that match spec as spares"() {
+        given:
+        createConnectorWithSpares(1, 0)
+        startIdleDaemon()
+        startIdleDaemon()
+
+        when:
+        connector.connect({ it.pid != 0 } as DummyExplainingSpec)
+        spareDaemons.waitForReplenish()
+
+        then:
+        numAllDaemons == 3
+        sparesStarted == 1
+    }
+
+    def "connect() does not start spare daemons that would exceed the heap limit"() {
+        given:
+        createConnectorWithSpares(3, 2 * SpareDaemonPool.DEFAULT_DAEMON_HEAP_MB)
+
+        when:
+        connector.connect({ true } as DummyExplainingSpec)
+        spareDaemons.waitForReplenish()
+
+        then:
+        numAllDaemons == 2
+        registry.idle.size() == 1
+        sparesStarted == 1
+    }
+
     def "suspect address is removed from the registry on connect failure"() {
         given:
         startIdleDaemon()
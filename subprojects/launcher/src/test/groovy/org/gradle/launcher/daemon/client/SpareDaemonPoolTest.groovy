@@ -0,0 +1,79 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.launcher.daemon.client
+
+import org.gradle.api.internal.specs.ExplainingSpecs
+import org.gradle.launcher.daemon.context.DaemonContext
+import org.gradle.launcher.daemon.context.DaemonInstanceDetails
+import org.gradle.launcher.daemon.diagnostics.DaemonStartupInfo
+import org.gradle.launcher.daemon.registry.EmbeddedDaemonRegistry
+import org.gradle.test.fixtures.concurrent.ConcurrentSpec
+import spock.lang.Unroll
+
+class SpareDaemonPoolTest extends ConcurrentSpec {
+    def starter = Mock(DaemonStarter)
+    def pool = new SpareDaemonPool(new EmbeddedDaemonRegistry(), starter, Stub(DaemonContext), executorFactory, 2, 0)
+
+    def "stop waits for the spare that is being started and starts no more spares"() {
+        when:
+        async {
+            pool.replenish(ExplainingSpecs.satisfyAll(), Stub(DaemonInstanceDetails))
+            thread.blockUntil.starting
+            pool.stop()
+            instant.stopped
+        }
+
+        then:
+        1 * starter.startSpareDaemon() >> {
+            instant.starting
+            thread.block()
+            instant.started
+            new DaemonStartupInfo("1", null, null)
+        }
+        0 * starter._
+
+        and:
+        instant.stopped > instant.started
+    }
+
+    def "does not start spares once stopped"() {
+        when:
+        pool.stop()
+        pool.replenish(ExplainingSpecs.satisfyAll(), Stub(DaemonInstanceDetails))
+
+        then:
+        0 * starter._
+    }
+
+    @Unroll
+    def "determines maximum heap from jvm args #jvmArgs"() {
+        expect:
+        SpareDaemonPool.maxHeapMb(jvmArgs) == heapMb
+
+        where:
+        jvmArgs                                    | heapMb
+        []                                         | SpareDaemonPool.DEFAULT_DAEMON_HEAP_MB
+        ["-Xms256m", "-XX:MaxPermSize=256m"]       | SpareDaemonPool.DEFAULT_DAEMON_HEAP_MB
+        ["-Xmx512m"]                               | 512
+        ["-Xmx512M"]                               | 512
+        ["-Xmx2g"]                                 | 2048
+        ["-Xmx1048576k"]                           | 1024
+        ["-Xmx1073741824"]                         | 1024
+        ["-Xmx512m", "-Xmx3g"]                     | 3072
+        ["-Xmxbroken"]                             | SpareDaemonPool.DEFAULT_DAEMON_HEAP_MB
+    }
+}
@@ -69,6 +69,10 @@ abstract class AbstractMavenResolver extends AbstractArtifactRepository implemen
         throw new UnsupportedOperationException("A Maven deployer cannot be used to resolve dependencies. It can only be used to publish artifacts.");
     }
 
+    public String getConfigurationId() {
+        return null;
+    }
+
     public ModuleVersionPublisher createPublisher() {
         return this;
     }
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.performance
+
+import org.gradle.language.nativeplatform.internal.incremental.sourceparser.CSourceParser
+import org.gradle.language.nativeplatform.internal.incremental.sourceparser.DirectiveScanningCSourceParser
+import org.gradle.language.nativeplatform.internal.incremental.sourceparser.RegexBackedCSourceParser
+import org.gradle.performance.categories.Experiment
+import org.gradle.performance.fixture.OperationTimer
+import org.gradle.performance.fixture.TestProjectLocator
+import org.gradle.performance.measure.DataSeries
+import org.gradle.performance.measure.Duration
+import org.junit.experimental.categories.Category
+import spock.lang.Specification
+
+/**
+ * Parses the headers of the generated native header tree with the regex backed parser and with the directive scanning parser.
+ */
+@Category(Experiment)
+class CSourceParserPerformanceTest extends Specification {
+    private static final int RUNS = 10
+
+    def timer = new OperationTimer()
+    def headers = new File(new TestProjectLocator().findProjectDir("nativeHeaderTree"), "src/lib/headers/lib").listFiles().findAll { it.name.endsWith(".hpp") }
+
+    def "directive scanning parser finds the same includes as the regex backed parser"() {
+        given:
+        def regexBacked = new RegexBackedCSourceParser()
+        def directiveScanning = new DirectiveScanningCSourceParser()
+
+        expect:
+        !headers.empty
+        headers.each { header ->
+            assert directiveScanning.parseSource(header).includesAndImports == regexBacked.parseSource(header).includesAndImports
+        }
+    }
+
+    def "parse all headers with directive scanning parser"() {
+        when:
+        def baseline = measure(new RegexBackedCSourceParser())
+        def directiveScanning = measure(new DirectiveScanningCSourceParser())
+        println "Regex backed: average ${baseline.average}, min ${baseline.min}, max ${baseline.max}"
+        println "Directive scanning: average ${directiveScanning.average}, min ${directiveScanning.min}, max ${directiveScanning.max}"
+
+        then:
+        directiveScanning.average <= baseline.average
+    }
+
+    private DataSeries<Duration> measure(CSourceParser parser) {
+        // Warm up
+        parseAll(parser)
+        def results = (1..RUNS).collect {
+            def operation = timer.measure { parseAll(parser) }
+            assert operation.exception == null
+            operation.totalTime
+        }
+        return new DataSeries<Duration>(results)
+    }
+
+    private void parseAll(CSourceParser parser) {
+        for (File header : headers) {
+            parser.parseSource(header)
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.performance
+
+import org.gradle.performance.categories.Experiment
+import org.junit.experimental.categories.Category
+
+import static org.gradle.performance.measure.DataAmount.mbytes
+import static org.gradle.performance.measure.Duration.millis
+
+/**
+ * Resolves a graph of 10000 modules for each project, to measure the time and heap used by the dependency graph builder.
+ */
+@Category(Experiment)
+class DependencyGraphPerformanceTest extends AbstractCrossVersionPerformanceTest {
+    def "resolve huge dependency graph"() {
+        given:
+        runner.testId = "dependencyReport hugeDependencyGraph"
+        runner.testProject = "hugeDependencyGraph"
+        runner.tasksToRun = ['dependencyReport']
+        runner.maxExecutionTimeRegression = millis(1000)
+        runner.maxMemoryRegression = mbytes(20)
+        runner.targetVersions = ['last']
+
+        when:
+        def result = runner.run()
+
+        then:
+        result.assertCurrentVersionHasNotRegressed()
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.performance
+
+import org.gradle.cache.internal.btree.BTreePersistentIndexedCache
+import org.gradle.cache.internal.btree.MappedFileBlockStore
+import org.gradle.internal.serialize.BaseSerializerFactory
+import org.gradle.performance.categories.Experiment
+import org.gradle.performance.fixture.OperationTimer
+import org.gradle.performance.measure.DataSeries
+import org.gradle.performance.measure.Duration
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.util.Requires
+import org.gradle.util.TestPrecondition
+import org.junit.Rule
+import org.junit.experimental.categories.Category
+import spock.lang.Specification
+
+/**
+ * Runs random gets and puts against an indexed cache, with the blocks of the cache file read and written through memory mapped regions and through
+ * a random access file.
+ */
+@Category(Experiment)
+@Requires(TestPrecondition.NOT_WINDOWS)
+class IndexedCacheStorePerformanceTest extends Specification {
+    private static final int ENTRIES = 100000
+    private static final int OPERATIONS = 200000
+    private static final int RUNS = 5
+
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def timer = new OperationTimer()
+
+    def "random gets and puts with memory mapped store"() {
+        when:
+        def baseline = measure("random-access-file.bin", false)
+        def mapped = measure("mapped.bin", true)
+        println "Random access file: average ${baseline.average}, min ${baseline.min}, max ${baseline.max}"
+        println "Memory mapped: average ${mapped.average}, min ${mapped.min}, max ${mapped.max}"
+
+        then:
+        mapped.average <= baseline.average
+    }
+
+    private DataSeries<Duration> measure(String fileName, boolean mapped) {
+        def cache = createCache(tmpDir.file(fileName), mapped)
+        try {
+            def random = new Random(42)
+            ENTRIES.times { cache.put(it as Long, value(random)) }
+            // Warm up
+            operations(cache, random)
+            def results = (1..RUNS).collect {
+                def operation = timer.measure { operations(cache, random) }
+                assert operation.exception == null
+                operation.totalTime
+            }
+            return new DataSeries<Duration>(results)
+        } finally {
+            cache.close()
+        }
+    }
+
+    private static BTreePersistentIndexedCache<Long, byte[]> createCache(File cacheFile, boolean mapped) {
+        // The store is chosen when the cache is created
+        System.setProperty(MappedFileBlockStore.MAPPED_BLOCK_STORE_TOGGLE, String.valueOf(mapped))
+        try {
+            return new BTreePersistentIndexedCache<Long, byte[]>(cacheFile, BaseSerializerFactory.LONG_SERIALIZER, BaseSerializerFactory.BYTE_ARRAY_SERIALIZER)
+        } finally {
+            System.clearProperty(MappedFileBlockStore.MAPPED_BLOCK_STORE_TOGGLE)
+        }
+    }
+
+    private static void operations(BTreePersistentIndexedCache<Long, byte[]> cache, Random random) {
+        for (int i = 0; i < OPERATIONS; i++) {
+            long key = random.nextInt(ENTRIES)
+            if (random.nextInt(5) == 0) {
+                cache.put(key, value(random))
+            } else {
+                assert cache.get(key) != null
+            }
+        }
+    }
+
+    private static byte[] value(Random random) {
+        def value = new byte[100]
+        random.nextBytes(value)
+        return value
+    }
+}
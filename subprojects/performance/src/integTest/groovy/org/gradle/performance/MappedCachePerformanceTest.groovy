@@ -0,0 +1,47 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.performance
+
+import org.gradle.performance.categories.Experiment
+import org.junit.experimental.categories.Category
+import spock.lang.Unroll
+
+@Category(Experiment)
+class MappedCachePerformanceTest extends AbstractCrossBuildPerformanceTest {
+    @Unroll
+    def "#testProject up-to-date build without daemon with memory mapped caches"() {
+        when:
+        runner.testId = "memory mapped caches $testProject"
+        runner.testGroup = "persistent caches"
+        runner.buildSpec {
+            projectName(testProject).displayName("mapped").invocation {
+                tasksToRun("build").gradleOpts("-Dorg.gradle.cache.mapped=true")
+            }
+        }
+        runner.baseline {
+            projectName(testProject).displayName("random access file").invocation {
+                tasksToRun("build")
+            }
+        }
+
+        then:
+        runner.run()
+
+        where:
+        testProject << ["multi", "largeSrc10k"]
+    }
+}
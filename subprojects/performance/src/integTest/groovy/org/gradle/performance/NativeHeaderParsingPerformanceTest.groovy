@@ -0,0 +1,54 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.performance
+
+import org.gradle.performance.categories.Experiment
+import org.gradle.performance.fixture.BuildExperimentInvocationInfo
+import org.gradle.performance.fixture.BuildExperimentListenerAdapter
+import org.junit.experimental.categories.Category
+
+import static org.gradle.performance.measure.Duration.millis
+
+/**
+ * Builds a C++ library with a large tree of headers after every header has changed, so that each compile task parses all of the headers again.
+ */
+@Category(Experiment)
+class NativeHeaderParsingPerformanceTest extends AbstractCrossVersionPerformanceTest {
+    def "build after changing every header"() {
+        given:
+        runner.testId = "native build nativeHeaderTree all headers changed"
+        runner.testProject = "nativeHeaderTree"
+        runner.tasksToRun = ['assemble']
+        runner.maxExecutionTimeRegression = millis(1000)
+        runner.targetVersions = ['last']
+        runner.useDaemon = true
+        runner.buildExperimentListener = new BuildExperimentListenerAdapter() {
+            @Override
+            void beforeInvocation(BuildExperimentInvocationInfo invocationInfo) {
+                new File(invocationInfo.projectDir, "src/lib/headers/lib").eachFileMatch(~/.*\.hpp/) { File header ->
+                    header << "\n// ${invocationInfo.phase} ${invocationInfo.iterationNumber}\n"
+                }
+            }
+        }
+
+        when:
+        def result = runner.run()
+
+        then:
+        result.assertCurrentVersionHasNotRegressed()
+    }
+}
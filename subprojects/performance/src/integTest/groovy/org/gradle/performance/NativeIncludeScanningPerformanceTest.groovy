@@ -0,0 +1,58 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.performance
+
+import org.gradle.performance.categories.Experiment
+import org.gradle.performance.fixture.BuildExperimentInvocationInfo
+import org.gradle.performance.fixture.BuildExperimentListenerAdapter
+import org.junit.experimental.categories.Category
+import spock.lang.Unroll
+
+@Category(Experiment)
+class NativeIncludeScanningPerformanceTest extends AbstractCrossBuildPerformanceTest {
+    @Unroll
+    def "#testProject incremental build with parallel include scanning"() {
+        when:
+        runner.testId = "parallel include scanning $testProject"
+        runner.testGroup = "native include scanning"
+        runner.buildExperimentListener = new BuildExperimentListenerAdapter() {
+            @Override
+            void beforeInvocation(BuildExperimentInvocationInfo invocationInfo) {
+                // This header is an input of every compile task but is not included by any source file,
+                // so each compile task scans the includes of all its source files and then recompiles nothing
+                def header = new File(invocationInfo.projectDir, "prebuilt/lib0/include/header0.h")
+                header << "\n// ${invocationInfo.phase} ${invocationInfo.iterationNumber}\n"
+            }
+        }
+        runner.buildSpec {
+            projectName(testProject).displayName("parallel").invocation {
+                tasksToRun("build").useDaemon().gradleOpts("-Xms2g", "-Xmx2g", "-Dorg.gradle.native.parallelincludes=true")
+            }
+        }
+        runner.baseline {
+            projectName(testProject).displayName("serial").invocation {
+                tasksToRun("build").useDaemon().gradleOpts("-Xms2g", "-Xmx2g")
+            }
+        }
+
+        then:
+        runner.run()
+
+        where:
+        testProject << ["mediumNativeMonolithic", "nativeMonolithic"]
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.performance
+
+import org.gradle.integtests.fixtures.executer.GradleDistribution
+import org.gradle.integtests.fixtures.executer.UnderDevelopmentGradleDistribution
+import org.gradle.performance.categories.Experiment
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import org.junit.experimental.categories.Category
+import org.junit.rules.ExternalResource
+import org.mortbay.jetty.Server
+import org.mortbay.jetty.bio.SocketConnector
+import org.mortbay.jetty.handler.AbstractHandler
+import spock.lang.Specification
+
+import javax.servlet.http.HttpServletRequest
+import javax.servlet.http.HttpServletResponse
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Compares resolving a graph from a slow Maven repository with and without concurrent meta-data resolution.
+ */
+@Category(Experiment)
+class ParallelMetaDataResolutionPerformanceTest extends Specification {
+    static final int REQUEST_DELAY_MILLIS = 50
+    static final int FIRST_LEVEL_MODULES = 10
+    static final int SECOND_LEVEL_MODULES = 5
+
+    @Rule TestNameTestDirectoryProvider workspace = new TestNameTestDirectoryProvider()
+    @Rule DelayingMavenHttpServer server = new DelayingMavenHttpServer()
+    GradleDistribution distribution = new UnderDevelopmentGradleDistribution()
+
+    def "resolves graph from slow repository faster when resolving meta-data concurrently"() {
+        given:
+        workspace.file("build.gradle") << """
+repositories {
+    maven { url '${server.uri}' }
+}
+
+configurations {
+    compile
+}
+
+dependencies {
+    ${(1..FIRST_LEVEL_MODULES).collect { "compile 'org.gradle.test:lib${it}:1.0'" }.join("\n    ")}
+}
+
+task resolve << {
+    assert configurations.compile.incoming.resolutionResult.allComponents.size() == ${FIRST_LEVEL_MODULES * (SECOND_LEVEL_MODULES + 1) + 1}
+}
+"""
+
+        when:
+        def serial = resolveTime(false)
+        def parallel = resolveTime(true)
+        println "Serial meta-data resolution: ${serial}ms, concurrent meta-data resolution: ${parallel}ms"
+
+        then:
+        server.requestCount.get() > 0
+        parallel < serial
+    }
+
+    private long resolveTime(boolean parallel) {
+        def times = (1..3).collect { iteration ->
+            def executer = distribution.executer(workspace).
+                requireGradleHome().
+                withGradleUserHomeDir(workspace.file("user-home-${parallel}-${iteration}")).
+                withArgument("-Dorg.gradle.resolution.parallelmetadata=${parallel}")
+            long start = System.nanoTime()
+            executer.withTasks("resolve").run()
+            (System.nanoTime() - start) / 1000000L as long
+        }
+        return times.min()
+    }
+
+    /**
+     * Serves a generated Maven repository in which lib1 to lib10 each depend on 5 other modules, and every request is delayed.
+     */
+    static class DelayingMavenHttpServer extends ExternalResource {
+        final Server server = new Server(0)
+        final AtomicInteger requestCount = new AtomicInteger()
+
+        @Override
+        protected void before() {
+            server.addConnector(new SocketConnector())
+            server.addHandler(new AbstractHandler() {
+                void handle(String target, HttpServletRequest request, HttpServletResponse response, int dispatch) {
+                    requestCount.incrementAndGet()
+                    Thread.sleep(REQUEST_DELAY_MILLIS)
+                    def matcher = request.pathInfo =~ '/org/gradle/test/(lib[\\d-]+)/1.0/\\1-1.0.pom'
+                    if (request.method == 'GET' && matcher.matches()) {
+                        def content = pom(matcher.group(1)).bytes
+                        response.setContentLength(content.length)
+                        response.setContentType("text/xml")
+                        response.outputStream.write(content)
+                        request.handled = true
+                    }
+                }
+            })
+            server.start()
+        }
+
+        private static String pom(String module) {
+            def dependencies = module.contains('-') ? [] : (1..SECOND_LEVEL_MODULES).collect { "${module}-${it}" }
+            return """<project>
+    <modelVersion>4.0.0</modelVersion>
+    <groupId>org.gradle.test</groupId>
+    <artifactId>${module}</artifactId>
+    <version>1.0</version>
+    <packaging>pom</packaging>
+    <dependencies>
+${dependencies.collect { "        <dependency><groupId>org.gradle.test</groupId><artifactId>${it}</artifactId><version>1.0</version></dependency>" }.join("\n")}
+    </dependencies>
+</project>
+"""
+        }
+
+        @Override
+        protected void after() {
+            server.stop()
+        }
+
+        URI getUri() {
+            return new URI("http://localhost:${server.connectors[0].localPort}/")
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.performance
+
+import org.gradle.performance.categories.Experiment
+import org.junit.experimental.categories.Category
+
+import static org.gradle.performance.measure.Duration.millis
+
+/**
+ * Resolves a large graph of modules from a Maven file repository, where the POM of each module has a chain of parent POMs and an imported BOM.
+ * As file repositories are not cached, every POM is parsed by every build.
+ */
+@Category(Experiment)
+class PomParsingPerformanceTest extends AbstractCrossVersionPerformanceTest {
+    def "resolve modules with deep parent POM chains"() {
+        given:
+        runner.testId = "dependencyReport lotDependenciesWithParentPoms"
+        runner.testProject = "lotDependenciesWithParentPoms"
+        runner.tasksToRun = ['dependencyReport']
+        runner.maxExecutionTimeRegression = millis(1000)
+        runner.targetVersions = ['last']
+
+        when:
+        def result = runner.run()
+
+        then:
+        result.assertCurrentVersionHasNotRegressed()
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.performance
+
+import org.gradle.performance.categories.Experiment
+import org.junit.experimental.categories.Category
+import spock.lang.Unroll
+
+@Category(Experiment)
+class TaskSchedulingPerformanceTest extends AbstractCrossBuildPerformanceTest {
+    @Unroll
+    def "#testProject parallel build with ready task queue"() {
+        when:
+        runner.testId = "ready task queue $testProject"
+        runner.testGroup = "task scheduling"
+        runner.buildSpec {
+            projectName(testProject).displayName("ready queue").invocation {
+                tasksToRun("clean", "build").args("--parallel", "--max-workers=32").useDaemon().gradleOpts("-Dorg.gradle.parallel.readyQueue=true")
+            }
+        }
+        runner.baseline {
+            projectName(testProject).displayName("plan scan").invocation {
+                tasksToRun("clean", "build").args("--parallel", "--max-workers=32").useDaemon()
+            }
+        }
+
+        then:
+        runner.run()
+
+        where:
+        testProject << ["manyProjects", "largeMulti"]
+    }
+}
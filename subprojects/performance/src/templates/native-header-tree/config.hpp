@@ -0,0 +1,6 @@
+#ifndef LIB_CONFIG_HPP
+#define LIB_CONFIG_HPP
+
+#define LIB_VERSION 1
+
+#endif // LIB_CONFIG_HPP
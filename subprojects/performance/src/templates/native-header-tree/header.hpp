@@ -0,0 +1,30 @@
+// Header ${headerIndex} of ${headerCount}
+#ifndef LIB_HEADER_${headerIndex}_HPP
+#define LIB_HEADER_${headerIndex}_HPP
+
+#define LIB_CONFIG_${headerIndex} <lib/config.hpp>
+#include LIB_CONFIG_${headerIndex}
+<% includesPerHeader.times { i ->
+    def included = headerIndex * includesPerHeader + i + 1
+    if (included < headerCount) { %>
+#include <lib/header${included}.hpp>
+<% } } %>
+
+namespace lib {
+<% blocksPerHeader.times { %>
+/**
+ * Function ${it} of header ${headerIndex}. Not to be confused with #include <lib/missing.hpp>.
+ */
+template <typename T>
+inline T function_${headerIndex}_${it}(T value) {
+    // Scale the value
+    return value * ${it + 1}; /* by a "constant" */
+}
+
+#if defined(LIB_FEATURE_${it % 10})
+#  define LIB_FUNCTION_${headerIndex}_${it}(x) function_${headerIndex}_${it}(x)
+#endif
+<% } %>
+}
+
+#endif // LIB_HEADER_${headerIndex}_HPP
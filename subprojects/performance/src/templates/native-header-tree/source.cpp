@@ -0,0 +1,5 @@
+#include <lib/header0.hpp>
+
+int source_${sourceIndex}() {
+    return lib::function_0_0(${sourceIndex});
+}
@@ -28,6 +28,10 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.security.GeneralSecurityException;
 import java.security.KeyStore;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /*
  * This implementation is borrowed from the Apache HttpClient project
@@ -35,6 +39,30 @@ import java.security.KeyStore;
  */
 public class DefaultSslContextFactory implements Factory<SSLContext> {
     private static final char[] EMPTY_PASSWORD = "".toCharArray();
+    private static final List<String> SSL_SYSTEM_PROPERTIES = Arrays.asList(
+        "ssl.TrustManagerFactory.algorithm",
+        "javax.net.ssl.trustStoreType",
+        "javax.net.ssl.trustStore",
+        "javax.net.ssl.trustStoreProvider",
+        "javax.net.ssl.trustStorePassword",
+        "ssl.KeyManagerFactory.algorithm",
+        "javax.net.ssl.keyStoreType",
+        "javax.net.ssl.keyStore",
+        "javax.net.ssl.keyStoreProvider",
+        "javax.net.ssl.keyStorePassword",
+        "java.home"
+    );
+
+    /**
+     * Returns the values of the system properties that the SSL context is created from. Factories with equal properties create equivalent contexts.
+     */
+    public Map<String, String> getProperties() {
+        Map<String, String> properties = new HashMap<String, String>();
+        for (String property : SSL_SYSTEM_PROPERTIES) {
+            properties.put(property, System.getProperty(property));
+        }
+        return properties;
+    }
 
     @Override
     public SSLContext create() {
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.internal.resource.transport.http;
+
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.DefaultHostnameVerifier;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.gradle.internal.Factory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.SSLContext;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pools the connections of the HTTP clients used to access repositories. Clients with the same SSL configuration share a pool, so that repositories
+ * on the same host share connections. The pool lives as long as the process, so that a build in the daemon can reuse the connections, and the TLS
+ * sessions, opened by a previous build. Expired connections, and connections left idle for longer than the idle timeout, are closed as connections
+ * are leased from the pool.
+ */
+public class HttpClientConnectionPool implements Stoppable {
+    public static final String MAX_CONNECTIONS_PER_ROUTE_PROPERTY = "org.gradle.internal.http.maxConnectionsPerRoute";
+    public static final String MAX_CONNECTIONS_PROPERTY = "org.gradle.internal.http.maxConnections";
+    public static final String IDLE_TIMEOUT_PROPERTY = "org.gradle.internal.http.idleTimeout";
+    private static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 20;
+    private static final int DEFAULT_MAX_CONNECTIONS = 200;
+    private static final int DEFAULT_IDLE_TIMEOUT_SECONDS = 60;
+    // Check that a pooled connection is still open before reusing it, when it has not been used for this long
+    private static final int VALIDATE_AFTER_INACTIVITY_MILLIS = 2000;
+    // Look for idle connections to close at most this often, as this scans all of the pooled connections
+    private static final long EVICTION_INTERVAL_MILLIS = 5000;
+    private static final Logger LOGGER = LoggerFactory.getLogger(HttpClientConnectionPool.class);
+
+    private final Map<Map<String, String>, PoolingHttpClientConnectionManager> connectionManagers = new HashMap<Map<String, String>, PoolingHttpClientConnectionManager>();
+
+    /**
+     * Returns the connection manager to use for a client with the given settings, or null if the client cannot share connections with other clients.
+     * The returned connection manager must not be shut down by the client.
+     */
+    public synchronized HttpClientConnectionManager getConnectionManager(HttpSettings settings) {
+        if (!(settings.getSslContextFactory() instanceof DefaultSslContextFactory)) {
+            return null;
+        }
+        DefaultSslContextFactory sslContextFactory = (DefaultSslContextFactory) settings.getSslContextFactory();
+        Map<String, String> key = sslContextFactory.getProperties();
+        PoolingHttpClientConnectionManager connectionManager = connectionManagers.get(key);
+        if (connectionManager == null) {
+            connectionManager = createConnectionManager(sslContextFactory);
+            connectionManagers.put(key, connectionManager);
+        }
+        LOGGER.debug("Using HTTP connection pool {}", getStats(connectionManager));
+        return connectionManager;
+    }
+
+    /**
+     * Creates a connection manager that uses the given SSL configuration and the configured connection limits.
+     */
+    static PoolingHttpClientConnectionManager createConnectionManager(Factory<SSLContext> sslContextFactory) {
+        Registry<ConnectionSocketFactory> socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory>create()
+            .register("http", PlainConnectionSocketFactory.getSocketFactory())
+            .register("https", new SSLConnectionSocketFactory(sslContextFactory.create(), new DefaultHostnameVerifier(null)))
+            .build();
+        long idleTimeoutMillis = TimeUnit.SECONDS.toMillis(Integer.getInteger(IDLE_TIMEOUT_PROPERTY, DEFAULT_IDLE_TIMEOUT_SECONDS));
+        PoolingHttpClientConnectionManager connectionManager = new EvictingConnectionManager(socketFactoryRegistry, idleTimeoutMillis);
+        connectionManager.setDefaultMaxPerRoute(Integer.getInteger(MAX_CONNECTIONS_PER_ROUTE_PROPERTY, DEFAULT_MAX_CONNECTIONS_PER_ROUTE));
+        connectionManager.setMaxTotal(Integer.getInteger(MAX_CONNECTIONS_PROPERTY, DEFAULT_MAX_CONNECTIONS));
+        connectionManager.setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY_MILLIS);
+        return connectionManager;
+    }
+
+    /**
+     * Returns the combined statistics of all connection pools.
+     */
+    public synchronized PoolStats getTotalStats() {
+        int leased = 0;
+        int pending = 0;
+        int available = 0;
+        int max = 0;
+        for (PoolingHttpClientConnectionManager connectionManager : connectionManagers.values()) {
+            PoolStats stats = connectionManager.getTotalStats();
+            leased += stats.getLeased();
+            pending += stats.getPending();
+            available += stats.getAvailable();
+            max += stats.getMax();
+        }
+        return new PoolStats(leased, pending, available, max);
+    }
+
+    private static String getStats(PoolingHttpClientConnectionManager connectionManager) {
+        return connectionManager.getTotalStats().toString();
+    }
+
+    /**
+     * Closes expired and idle connections when a connection is leased, at most once per eviction interval.
+     */
+    private static class EvictingConnectionManager extends PoolingHttpClientConnectionManager {
+        private final long idleTimeoutMillis;
+        private final AtomicLong nextEviction = new AtomicLong();
+
+        EvictingConnectionManager(Registry<ConnectionSocketFactory> socketFactoryRegistry, long idleTimeoutMillis) {
+            super(socketFactoryRegistry);
+            this.idleTimeoutMillis = idleTimeoutMillis;
+        }
+
+        @Override
+        public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+            evictIfDue();
+            return super.requestConnection(route, state);
+        }
+
+        void evictIfDue() {
+            long now = System.currentTimeMillis();
+            long next = nextEviction.get();
+            if (now >= next && nextEviction.compareAndSet(next, now + EVICTION_INTERVAL_MILLIS)) {
+                closeExpiredConnections();
+                closeIdleConnections(idleTimeoutMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    public synchronized void stop() {
+        for (PoolingHttpClientConnectionManager connectionManager : connectionManagers.values()) {
+            LOGGER.debug("Closing HTTP connection pool {}", getStats(connectionManager));
+            connectionManager.shutdown();
+        }
+        connectionManagers.clear();
+    }
+}
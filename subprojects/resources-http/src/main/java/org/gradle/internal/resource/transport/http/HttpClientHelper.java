@@ -21,11 +21,14 @@ import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpHead;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.conn.HttpClientConnectionManager;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
 import org.apache.http.util.EntityUtils;
 import org.gradle.api.UncheckedIOException;
+import org.gradle.api.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -39,12 +42,33 @@ public class HttpClientHelper implements Closeable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(HttpClientHelper.class);
     private final CloseableHttpClient client;
-    private final BasicHttpContext httpContext = new BasicHttpContext();
+    // One context per thread, as requests may be performed concurrently
+    private final ThreadLocal<HttpContext> httpContext = new ThreadLocal<HttpContext>() {
+        @Override
+        protected HttpContext initialValue() {
+            return new BasicHttpContext();
+        }
+    };
 
     public HttpClientHelper(HttpSettings settings) {
+        this(settings, null);
+    }
+
+    /**
+     * Creates a client that uses the connections of the given pool, when the settings allow it to share connections with other clients. Otherwise,
+     * the client uses connections of its own, which are closed along with the client.
+     */
+    public HttpClientHelper(HttpSettings settings, @Nullable HttpClientConnectionPool connectionPool) {
         HttpClientBuilder builder = HttpClientBuilder.create();
         builder.setRedirectStrategy(new AlwaysRedirectRedirectStrategy());
         new HttpClientConfigurer(settings).configure(builder);
+        HttpClientConnectionManager connectionManager = connectionPool == null ? null : connectionPool.getConnectionManager(settings);
+        if (connectionManager != null) {
+            builder.setConnectionManager(connectionManager);
+            builder.setConnectionManagerShared(true);
+        } else {
+            builder.setConnectionManager(HttpClientConnectionPool.createConnectionManager(settings.getSslContextFactory()));
+        }
         this.client = builder.build();
     }
 
@@ -99,9 +123,10 @@ public class HttpClientHelper implements Closeable {
 
     public HttpResponse performHttpRequest(HttpRequestBase request) throws IOException {
         // Without this, HTTP Client prohibits multiple redirects to the same location within the same context
-        httpContext.removeAttribute(HttpClientContext.REDIRECT_LOCATIONS);
+        HttpContext context = httpContext.get();
+        context.removeAttribute(HttpClientContext.REDIRECT_LOCATIONS);
         LOGGER.debug("Performing HTTP {}: {}", request.getMethod(), request.getURI());
-        return client.execute(request, httpContext);
+        return client.execute(request, context);
     }
 
     private HttpResponse processResponse(String source, String method, HttpResponse response) {
@@ -36,7 +36,13 @@ public class HttpResourceAccessor implements ExternalResourceAccessor {
     private static final Logger LOGGER = LoggerFactory.getLogger(HttpResourceAccessor.class);
     private final HttpClientHelper http;
 
-    private final List<HttpResponseResource> openResources = new ArrayList<HttpResponseResource>();
+    // Tracked per thread, as the accessor may be used by several threads concurrently
+    private final ThreadLocal<List<HttpResponseResource>> openResources = new ThreadLocal<List<HttpResponseResource>>() {
+        @Override
+        protected List<HttpResponseResource> initialValue() {
+            return new ArrayList<HttpResponseResource>();
+        }
+    };
 
     public HttpResourceAccessor(HttpClientHelper http) {
         this.http = http;
@@ -87,12 +93,24 @@ public class HttpResourceAccessor implements ExternalResourceAccessor {
     }
 
     private HttpResponseResource recordOpenGetResource(HttpResponseResource httpResource) {
-        openResources.add(httpResource);
+        List<HttpResponseResource> resources = openResources.get();
+        synchronized (resources) {
+            resources.add(httpResource);
+        }
         return httpResource;
     }
 
+    /**
+     * Closes the resources that were opened by the current thread and not closed since.
+     */
     private void abortOpenResources() {
-        for (Closeable openResource : openResources) {
+        List<HttpResponseResource> resources = openResources.get();
+        List<HttpResponseResource> abandoned;
+        synchronized (resources) {
+            abandoned = new ArrayList<HttpResponseResource>(resources);
+            resources.clear();
+        }
+        for (Closeable openResource : abandoned) {
             LOGGER.warn("Forcing close on abandoned resource: {}", openResource);
             try {
                 openResource.close();
@@ -100,15 +118,18 @@ public class HttpResourceAccessor implements ExternalResourceAccessor {
                 LOGGER.warn("Failed to close abandoned resource", e);
             }
         }
-        openResources.clear();
     }
 
     private HttpResponseResource wrapResponse(URI uri, HttpResponse response) {
+        // The resource may be closed by a thread other than the one that opened it
+        final List<HttpResponseResource> resources = openResources.get();
         return new HttpResponseResource("GET", uri, response) {
             @Override
             public void close() throws IOException {
                 super.close();
-                HttpResourceAccessor.this.openResources.remove(this);
+                synchronized (resources) {
+                    resources.remove(this);
+                }
             }
         };
     }
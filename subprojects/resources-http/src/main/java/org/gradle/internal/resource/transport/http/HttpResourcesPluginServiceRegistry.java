@@ -44,8 +44,12 @@ public class HttpResourcesPluginServiceRegistry implements PluginServiceRegistry
     }
 
     private static class GlobalScopeServices {
-        ResourceConnectorFactory createHttpConnectorFactory() {
-            return new HttpConnectorFactory();
+        HttpClientConnectionPool createHttpClientConnectionPool() {
+            return new HttpClientConnectionPool();
+        }
+
+        ResourceConnectorFactory createHttpConnectorFactory(HttpClientConnectionPool connectionPool) {
+            return new HttpConnectorFactory(connectionPool);
         }
     }
 
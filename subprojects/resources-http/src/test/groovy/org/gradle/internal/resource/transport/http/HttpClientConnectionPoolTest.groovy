@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.internal.resource.transport.http
+
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager
+import org.apache.http.ssl.SSLContexts
+import org.gradle.internal.Factory
+import org.gradle.util.SetSystemProperties
+import org.junit.Rule
+import spock.lang.Specification
+
+class HttpClientConnectionPoolTest extends Specification {
+    @Rule SetSystemProperties sysProp = new SetSystemProperties()
+    def pool = new HttpClientConnectionPool()
+
+    def cleanup() {
+        pool.stop()
+    }
+
+    def "clients with the same SSL configuration share a connection manager"() {
+        expect:
+        def connectionManager = pool.getConnectionManager(settings(new DefaultSslContextFactory()))
+        connectionManager instanceof PoolingHttpClientConnectionManager
+        pool.getConnectionManager(settings(new DefaultSslContextFactory())).is(connectionManager)
+    }
+
+    def "clients with different SSL configuration use different connection managers"() {
+        given:
+        def connectionManager = pool.getConnectionManager(settings(new DefaultSslContextFactory()))
+
+        when:
+        System.setProperty("javax.net.ssl.trustStoreType", "JKS")
+
+        then:
+        !pool.getConnectionManager(settings(new DefaultSslContextFactory())).is(connectionManager)
+    }
+
+    def "clients with a custom SSL context factory do not share connections"() {
+        def sslContextFactory = Stub(Factory) {
+            create() >> SSLContexts.createDefault()
+        }
+
+        expect:
+        pool.getConnectionManager(settings(sslContextFactory)) == null
+    }
+
+    def "uses configured connection limits"() {
+        given:
+        System.setProperty(HttpClientConnectionPool.MAX_CONNECTIONS_PER_ROUTE_PROPERTY, "3")
+        System.setProperty(HttpClientConnectionPool.MAX_CONNECTIONS_PROPERTY, "12")
+
+        when:
+        def connectionManager = pool.getConnectionManager(settings(new DefaultSslContextFactory()))
+
+        then:
+        connectionManager.defaultMaxPerRoute == 3
+        connectionManager.maxTotal == 12
+        pool.totalStats.max == 12
+        pool.totalStats.leased == 0
+    }
+
+    def "clients that do not share connections use their own connection manager with configured limits"() {
+        given:
+        System.setProperty(HttpClientConnectionPool.MAX_CONNECTIONS_PROPERTY, "12")
+        def sslContextFactory = Stub(Factory) {
+            create() >> SSLContexts.createDefault()
+        }
+
+        when:
+        def connectionManager = HttpClientConnectionPool.createConnectionManager(sslContextFactory)
+
+        then:
+        connectionManager.maxTotal == 12
+        pool.totalStats.max == 0
+
+        cleanup:
+        connectionManager?.shutdown()
+    }
+
+    def "shuts down connection managers when stopped"() {
+        given:
+        def connectionManager = pool.getConnectionManager(settings(new DefaultSslContextFactory()))
+
+        when:
+        pool.stop()
+
+        then:
+        pool.totalStats.max == 0
+        !pool.getConnectionManager(settings(new DefaultSslContextFactory())).is(connectionManager)
+    }
+
+    private HttpSettings settings(Factory sslContextFactory) {
+        return Stub(HttpSettings) {
+            getSslContextFactory() >> sslContextFactory
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.internal.resource.transport.http
+
+import org.apache.http.HttpEntity
+import org.apache.http.HttpResponse
+import org.gradle.test.fixtures.concurrent.ConcurrentSpec
+
+class HttpResourceAccessorTest extends ConcurrentSpec {
+    def http = Mock(HttpClientHelper)
+    def accessor = new HttpResourceAccessor(http)
+
+    def "aborts resource that was opened and not closed before next request"() {
+        def entity = Mock(HttpEntity)
+        _ * http.performGet("http://host/1") >> response(entity)
+        _ * http.performGet("http://host/2") >> response(Mock(HttpEntity))
+
+        when:
+        accessor.openResource(new URI("http://host/1"))
+        accessor.openResource(new URI("http://host/2"))
+
+        then:
+        1 * entity.isStreaming() >> false
+    }
+
+    def "concurrent downloads through the same accessor do not abort each other"() {
+        def entity1 = Mock(HttpEntity)
+        def entity2 = Mock(HttpEntity)
+        _ * http.performGet("http://host/1") >> response(entity1)
+        _ * http.performGet("http://host/2") >> response(entity2)
+
+        when:
+        async {
+            start {
+                def resource = accessor.openResource(new URI("http://host/1"))
+                instant.opened1
+                thread.blockUntil.opened2
+                resource.close()
+                instant.closed1
+            }
+            start {
+                thread.blockUntil.opened1
+                def resource = accessor.openResource(new URI("http://host/2"))
+                instant.opened2
+                thread.blockUntil.closed1
+                resource.close()
+            }
+        }
+
+        then:
+        // Each resource is closed once only, by the thread that opened it
+        1 * entity1.isStreaming() >> false
+        1 * entity2.isStreaming() >> false
+    }
+
+    def response(HttpEntity entity) {
+        def response = Mock(HttpResponse)
+        _ * response.entity >> entity
+        return response
+    }
+}
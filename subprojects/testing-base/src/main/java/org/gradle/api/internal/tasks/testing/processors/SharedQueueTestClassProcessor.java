@@ -0,0 +1,179 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.processors;
+
+import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.internal.Factory;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.StoppableExecutor;
+import org.gradle.messaging.actor.Actor;
+import org.gradle.messaging.actor.ActorFactory;
+import org.gradle.messaging.dispatch.DispatchException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Manages a set of parallel TestClassProcessors, which take test classes from a shared queue. Each processor takes its next test class when it has
+ * finished with the previous one, so a slow test class does not hold up other test classes while the remaining processors are idle. The processors
+ * must process each test class before returning from {@link TestClassProcessor#processTestClass(TestClassRunInfo)}.
+ *
+ * <p>When the durations of the test classes in a previous run are given, the test classes are held back until all of them have been detected, and
+ * are then queued longest first. Test classes without a previous duration are queued before all others.</p>
+ */
+public class SharedQueueTestClassProcessor implements TestClassProcessor {
+    public static final String TOGGLE_PROPERTY = "org.gradle.testing.sharedqueue";
+    public static final String LONGEST_FIRST_PROPERTY = "org.gradle.testing.longestfirst";
+
+    private final int maxProcessors;
+    private final Factory<TestClassProcessor> factory;
+    private final ActorFactory actorFactory;
+    private final ExecutorFactory executorFactory;
+    private final Map<String, Long> previousDurations;
+    private final Lock lock = new ReentrantLock();
+    private final Condition condition = lock.newCondition();
+    private final Deque<TestClassRunInfo> queue = new ArrayDeque<TestClassRunInfo>();
+    private final List<TestClassRunInfo> heldBack = new ArrayList<TestClassRunInfo>();
+    private boolean finished;
+    private int processors;
+    private StoppableExecutor executor;
+    private TestResultProcessor resultProcessor;
+    private Actor resultProcessorActor;
+
+    public SharedQueueTestClassProcessor(int maxProcessors, Factory<TestClassProcessor> factory, ActorFactory actorFactory, ExecutorFactory executorFactory,
+                                         Map<String, Long> previousDurations) {
+        this.maxProcessors = maxProcessors;
+        this.factory = factory;
+        this.actorFactory = actorFactory;
+        this.executorFactory = executorFactory;
+        this.previousDurations = previousDurations;
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(TOGGLE_PROPERTY);
+    }
+
+    public static boolean isLongestFirstEnabled() {
+        return isEnabled() && Boolean.getBoolean(LONGEST_FIRST_PROPERTY);
+    }
+
+    public void startProcessing(TestResultProcessor resultProcessor) {
+        resultProcessorActor = actorFactory.createActor(resultProcessor);
+        this.resultProcessor = resultProcessorActor.getProxy(TestResultProcessor.class);
+        executor = executorFactory.create("Test class processors");
+    }
+
+    public void processTestClass(TestClassRunInfo testClass) {
+        if (!previousDurations.isEmpty()) {
+            heldBack.add(testClass);
+            return;
+        }
+        enqueue(Collections.singletonList(testClass));
+    }
+
+    private void enqueue(List<TestClassRunInfo> testClasses) {
+        int newProcessors;
+        lock.lock();
+        try {
+            queue.addAll(testClasses);
+            newProcessors = Math.min(maxProcessors - processors, testClasses.size());
+            processors += newProcessors;
+            condition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        for (int i = 0; i < newProcessors; i++) {
+            executor.execute(new ProcessorRunner());
+        }
+    }
+
+    /**
+     * Returns the next test class to process, or null when all test classes have been processed.
+     */
+    private TestClassRunInfo takeTestClass() {
+        lock.lock();
+        try {
+            while (queue.isEmpty() && !finished) {
+                condition.await();
+            }
+            return queue.poll();
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void stop() {
+        if (!heldBack.isEmpty()) {
+            Collections.sort(heldBack, new LongestFirst());
+            enqueue(heldBack);
+        }
+        lock.lock();
+        try {
+            finished = true;
+            condition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            CompositeStoppable.stoppable(executor, resultProcessorActor).stop();
+        } catch (DispatchException e) {
+            throw UncheckedException.throwAsUncheckedException(e.getCause());
+        }
+    }
+
+    private class ProcessorRunner implements Runnable {
+        public void run() {
+            TestClassProcessor processor = factory.create();
+            processor.startProcessing(resultProcessor);
+            try {
+                TestClassRunInfo testClass = takeTestClass();
+                while (testClass != null) {
+                    processor.processTestClass(testClass);
+                    testClass = takeTestClass();
+                }
+            } finally {
+                processor.stop();
+            }
+        }
+    }
+
+    private class LongestFirst implements Comparator<TestClassRunInfo> {
+        public int compare(TestClassRunInfo left, TestClassRunInfo right) {
+            Long leftDuration = previousDurations.get(left.getTestClassName());
+            Long rightDuration = previousDurations.get(right.getTestClassName());
+            if (leftDuration == null || rightDuration == null) {
+                // Test classes without a previous duration come first
+                return leftDuration == null ? (rightDuration == null ? 0 : -1) : 1;
+            }
+            return rightDuration.compareTo(leftDuration);
+        }
+    }
+}
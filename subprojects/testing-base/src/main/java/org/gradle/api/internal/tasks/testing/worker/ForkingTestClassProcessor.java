@@ -22,14 +22,25 @@ import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
 import org.gradle.internal.Factory;
+import org.gradle.internal.UncheckedException;
 import org.gradle.messaging.remote.ObjectConnection;
+import org.gradle.process.ExecResult;
 import org.gradle.process.JavaForkOptions;
+import org.gradle.process.internal.ExecHandle;
+import org.gradle.process.internal.ExecHandleListener;
 import org.gradle.process.internal.WorkerProcess;
 import org.gradle.process.internal.WorkerProcessBuilder;
 
 import java.io.File;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
-public class ForkingTestClassProcessor implements TestClassProcessor {
+/**
+ * Processes test classes in a forked worker process. By default, {@link #processTestClass(TestClassRunInfo)} only hands the test class over to the
+ * worker. When created to wait for completion, it blocks until the worker has finished processing the test class, or has stopped.
+ */
+public class ForkingTestClassProcessor implements TestClassProcessor, TestClassCompletionListener {
     private final Factory<WorkerProcessBuilder> workerFactory;
     private final WorkerTestClassProcessorFactory processorFactory;
     private final JavaForkOptions options;
@@ -38,13 +49,24 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
     private RemoteTestClassProcessor remoteProcessor;
     private WorkerProcess workerProcess;
     private TestResultProcessor resultProcessor;
+    private final boolean waitForCompletion;
+    private final Lock lock = new ReentrantLock();
+    private final Condition condition = lock.newCondition();
+    private int pendingTestClasses;
+    private boolean workerStopped;
 
     public ForkingTestClassProcessor(Factory<WorkerProcessBuilder> workerFactory, WorkerTestClassProcessorFactory processorFactory, JavaForkOptions options, Iterable<File> classPath, Action<WorkerProcessBuilder> buildConfigAction) {
+        this(workerFactory, processorFactory, options, classPath, buildConfigAction, false);
+    }
+
+    public ForkingTestClassProcessor(Factory<WorkerProcessBuilder> workerFactory, WorkerTestClassProcessorFactory processorFactory, JavaForkOptions options, Iterable<File> classPath, Action<WorkerProcessBuilder> buildConfigAction,
+                                     boolean waitForCompletion) {
         this.workerFactory = workerFactory;
         this.processorFactory = processorFactory;
         this.options = options;
         this.classPath = classPath;
         this.buildConfigAction = buildConfigAction;
+        this.waitForCompletion = waitForCompletion;
     }
 
     public void startProcessing(TestResultProcessor resultProcessor) {
@@ -56,7 +78,50 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
             remoteProcessor = forkProcess();
         }
 
+        lock.lock();
+        try {
+            pendingTestClasses++;
+        } finally {
+            lock.unlock();
+        }
         remoteProcessor.processTestClass(testClass);
+        if (waitForCompletion) {
+            waitForPendingTestClasses();
+        }
+    }
+
+    private void waitForPendingTestClasses() {
+        lock.lock();
+        try {
+            while (pendingTestClasses > 0 && !workerStopped) {
+                condition.await();
+            }
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void testClassCompleted() {
+        lock.lock();
+        try {
+            pendingTestClasses--;
+            condition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void workerStopped() {
+        // The worker may have crashed, so do not wait for any more test classes. The failure is reported when this processor is stopped
+        lock.lock();
+        try {
+            workerStopped = true;
+            condition.signalAll();
+        } finally {
+            lock.unlock();
+        }
     }
 
     RemoteTestClassProcessor forkProcess() {
@@ -64,8 +129,16 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
         builder.setBaseName("Gradle Test Executor");
         builder.applicationClasspath(classPath);
         builder.setLoadApplicationInSystemClassLoader(true);
-        builder.worker(new TestWorker(processorFactory));
+        builder.worker(new TestWorker(processorFactory, waitForCompletion));
         options.copyTo(builder.getJavaCommand());
+        builder.getJavaCommand().listener(new ExecHandleListener() {
+            public void executionStarted(ExecHandle execHandle) {
+            }
+
+            public void executionFinished(ExecHandle execHandle, ExecResult execResult) {
+                workerStopped();
+            }
+        });
         buildConfigAction.execute(builder);
 
         workerProcess = builder.build();
@@ -74,6 +147,9 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
         ObjectConnection connection = workerProcess.getConnection();
         connection.useParameterSerializer(TestEventSerializer.create());
         connection.addIncoming(TestResultProcessor.class, resultProcessor);
+        if (waitForCompletion) {
+            connection.addIncoming(TestClassCompletionListener.class, this);
+        }
         RemoteTestClassProcessor remoteProcessor = connection.addOutgoing(RemoteTestClassProcessor.class);
         connection.connect();
         remoteProcessor.startProcessing();
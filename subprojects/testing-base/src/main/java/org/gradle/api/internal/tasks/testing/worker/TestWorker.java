@@ -46,12 +46,22 @@ public class TestWorker implements Action<WorkerProcessContext>, RemoteTestClass
     private static final Logger LOGGER = LoggerFactory.getLogger(TestWorker.class);
     public static final String WORKER_ID_SYS_PROPERTY = "org.gradle.test.worker";
     private final WorkerTestClassProcessorFactory factory;
+    private final boolean reportTestClassCompletion;
     private CountDownLatch completed;
     private TestClassProcessor processor;
     private TestResultProcessor resultProcessor;
+    private TestClassCompletionListener completionListener;
 
     public TestWorker(WorkerTestClassProcessorFactory factory) {
+        this(factory, false);
+    }
+
+    /**
+     * @param reportTestClassCompletion whether to notify the build process each time a test class has been processed
+     */
+    public TestWorker(WorkerTestClassProcessorFactory factory, boolean reportTestClassCompletion) {
         this.factory = factory;
+        this.reportTestClassCompletion = reportTestClassCompletion;
     }
 
     public void execute(final WorkerProcessContext workerProcessContext) {
@@ -91,6 +101,9 @@ public class TestWorker implements Action<WorkerProcessContext>, RemoteTestClass
         ObjectConnection serverConnection = workerProcessContext.getServerConnection();
         serverConnection.useParameterSerializer(TestEventSerializer.create());
         this.resultProcessor = serverConnection.addOutgoing(TestResultProcessor.class);
+        if (reportTestClassCompletion) {
+            this.completionListener = serverConnection.addOutgoing(TestClassCompletionListener.class);
+        }
         serverConnection.addIncoming(RemoteTestClassProcessor.class, this);
         serverConnection.connect();
     }
@@ -107,6 +120,9 @@ public class TestWorker implements Action<WorkerProcessContext>, RemoteTestClass
         } finally {
             // Clean the interrupted status
             Thread.interrupted();
+            if (reportTestClassCompletion) {
+                completionListener.testClassCompleted();
+            }
         }
     }
 
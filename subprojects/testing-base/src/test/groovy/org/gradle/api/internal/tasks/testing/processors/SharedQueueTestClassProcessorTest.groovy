@@ -0,0 +1,157 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.processors
+
+import org.gradle.api.internal.tasks.testing.DefaultTestClassRunInfo
+import org.gradle.api.internal.tasks.testing.TestClassProcessor
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo
+import org.gradle.api.internal.tasks.testing.TestResultProcessor
+import org.gradle.internal.Factory
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.messaging.actor.Actor
+import org.gradle.messaging.actor.ActorFactory
+import org.gradle.test.fixtures.concurrent.ConcurrentSpec
+
+class SharedQueueTestClassProcessorTest extends ConcurrentSpec {
+    def resultProcessor = Mock(TestResultProcessor)
+    def asyncResultProcessor = Mock(TestResultProcessor)
+    def resultProcessorActor = Mock(Actor)
+    def actorFactory = Mock(ActorFactory)
+    def processors = [].asSynchronized()
+    Closure onTestClass = {}
+    def factory = {
+        def processor = new RecordingProcessor(onTestClass: onTestClass)
+        processors << processor
+        return processor
+    } as Factory
+
+    def setup() {
+        actorFactory.createActor(resultProcessor) >> resultProcessorActor
+        resultProcessorActor.getProxy(TestResultProcessor) >> asyncResultProcessor
+    }
+
+    def "does nothing when no tests processed"() {
+        def processor = processor(2)
+
+        when:
+        processor.startProcessing(resultProcessor)
+        processor.stop()
+
+        then:
+        processors.empty
+        1 * resultProcessorActor.stop()
+    }
+
+    def "starts processors on demand and stops them at end"() {
+        def processor = processor(2)
+
+        when:
+        processor.startProcessing(resultProcessor)
+        ["A", "B", "C", "D", "E"].each { processor.processTestClass(test(it)) }
+        processor.stop()
+
+        then:
+        processors.size() == 2
+        processors.every { it.started && it.stopped && it.resultProcessor == asyncResultProcessor }
+        processors.collectMany { it.classes }.sort() == ["A", "B", "C", "D", "E"]
+        1 * resultProcessorActor.stop()
+    }
+
+    def "idle processor takes the next test class while another processor is busy"() {
+        onTestClass = { String className ->
+            if (className == "Slow") {
+                thread.blockUntil.fastDone
+            } else if (className == "Fast3") {
+                instant.fastDone
+            }
+        }
+        def processor = processor(2)
+
+        when:
+        processor.startProcessing(resultProcessor)
+        ["Slow", "Fast1", "Fast2", "Fast3"].each { processor.processTestClass(test(it)) }
+        processor.stop()
+
+        then:
+        processors.size() == 2
+        processors.find { it.classes.contains("Slow") }.classes == ["Slow"]
+        processors.find { !it.classes.contains("Slow") }.classes == ["Fast1", "Fast2", "Fast3"]
+    }
+
+    def "queues test classes longest first once all have been detected"() {
+        def processor = processor(1, [A: 10L, B: 300L, C: 20L])
+
+        when:
+        processor.startProcessing(resultProcessor)
+        ["A", "B", "C", "D"].each { processor.processTestClass(test(it)) }
+
+        then:
+        processors.empty
+
+        when:
+        processor.stop()
+
+        then:
+        processors.size() == 1
+        processors[0].classes == ["D", "B", "C", "A"]
+    }
+
+    def "stops processor when it fails"() {
+        onTestClass = { String className -> throw new RuntimeException("broken") }
+        def processor = new SharedQueueTestClassProcessor(1, factory, actorFactory, new DefaultExecutorFactory(), [:])
+
+        when:
+        processor.startProcessing(resultProcessor)
+        processor.processTestClass(test("A"))
+        processor.stop()
+
+        then:
+        RuntimeException e = thrown()
+        e.message == "broken"
+        processors[0].stopped
+    }
+
+    private SharedQueueTestClassProcessor processor(int maxProcessors, Map<String, Long> previousDurations = [:]) {
+        return new SharedQueueTestClassProcessor(maxProcessors, factory, actorFactory, executorFactory, previousDurations)
+    }
+
+    private static TestClassRunInfo test(String className) {
+        return new DefaultTestClassRunInfo(className)
+    }
+
+    static class RecordingProcessor implements TestClassProcessor {
+        final List<String> classes = []
+        Closure onTestClass
+        TestResultProcessor resultProcessor
+        boolean started
+        boolean stopped
+
+        void startProcessing(TestResultProcessor resultProcessor) {
+            this.resultProcessor = resultProcessor
+            started = true
+        }
+
+        void processTestClass(TestClassRunInfo testClass) {
+            onTestClass.call(testClass.testClassName)
+            classes << testClass.testClassName
+        }
+
+        void stop() {
+            stopped = true
+        }
+    }
+}
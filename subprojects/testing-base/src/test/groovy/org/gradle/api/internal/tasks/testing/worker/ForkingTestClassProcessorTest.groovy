@@ -43,4 +43,21 @@ class ForkingTestClassProcessorTest extends Specification {
         1 * remoteProcessor.processTestClass(test2)
         0 * remoteProcessor._
     }
+
+    def "waits until worker has completed each test when created to wait for completion"() {
+        def waitingProcessor = Spy(ForkingTestClassProcessor, constructorArgs: [Mock(Factory), Mock(WorkerTestClassProcessorFactory), Mock(JavaForkOptions), [new File("classpath.jar")], Mock(Action), true])
+        def test1 = Mock(TestClassRunInfo)
+        def test2 = Mock(TestClassRunInfo)
+        def remoteProcessor = Mock(RemoteTestClassProcessor)
+
+        when:
+        waitingProcessor.processTestClass(test1)
+        waitingProcessor.processTestClass(test2)
+
+        then:
+        1 * waitingProcessor.forkProcess() >> remoteProcessor
+        1 * remoteProcessor.processTestClass(test1) >> { waitingProcessor.testClassCompleted() }
+        1 * remoteProcessor.processTestClass(test2) >> { waitingProcessor.testClassCompleted() }
+        0 * remoteProcessor._
+    }
 }
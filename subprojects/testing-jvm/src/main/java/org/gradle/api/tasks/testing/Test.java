@@ -34,6 +34,7 @@ import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 import org.gradle.api.internal.tasks.testing.detection.DefaultTestExecuter;
 import org.gradle.api.internal.tasks.testing.detection.TestExecuter;
 import org.gradle.api.internal.tasks.testing.filter.DefaultTestFilter;
+import org.gradle.api.internal.tasks.testing.processors.SharedQueueTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.junit.JUnitTestFramework;
 import org.gradle.api.internal.tasks.testing.junit.report.DefaultTestReport;
 import org.gradle.api.internal.tasks.testing.junit.report.TestReporter;
@@ -53,6 +54,7 @@ import org.gradle.api.tasks.testing.logging.TestLoggingContainer;
 import org.gradle.api.tasks.util.PatternFilterable;
 import org.gradle.internal.Factory;
 import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.event.ListenerBroadcast;
 import org.gradle.internal.event.ListenerManager;
 import org.gradle.internal.reflect.Instantiator;
@@ -179,6 +181,11 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
         throw new UnsupportedOperationException();
     }
 
+    @Inject
+    protected ExecutorFactory getExecutorFactory() {
+        throw new UnsupportedOperationException();
+    }
+
     @Inject
     protected ClassLoaderCache getClassLoaderCache() {
         throw new UnsupportedOperationException();
@@ -503,6 +510,10 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
         }
 
         File binaryResultsDir = getBinResultsDir();
+        // Read the durations of the previous run before its results are deleted
+        Map<String, Long> previousDurations = SharedQueueTestClassProcessor.isLongestFirstEnabled()
+                ? readTestClassDurations(binaryResultsDir)
+                : Collections.<String, Long>emptyMap();
         getProject().delete(binaryResultsDir);
         getProject().mkdir(binaryResultsDir);
 
@@ -523,7 +534,7 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
         TestResultProcessor resultProcessor = new StateTrackingTestResultProcessor(testListenerInternalBroadcaster.getSource());
 
         if (testExecuter == null) {
-            testExecuter = new DefaultTestExecuter(getProcessBuilderFactory(), getActorFactory());
+            testExecuter = new DefaultTestExecuter(getProcessBuilderFactory(), getActorFactory(), getExecutorFactory(), previousDurations);
         }
 
         try {
@@ -571,6 +582,26 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
         }
     }
 
+    private Map<String, Long> readTestClassDurations(File binaryResultsDir) {
+        final Map<String, Long> durations = new HashMap<String, Long>();
+        TestResultSerializer serializer = new TestResultSerializer(binaryResultsDir);
+        if (!serializer.isHasResults()) {
+            return durations;
+        }
+        try {
+            serializer.read(new Action<TestClassResult>() {
+                public void execute(TestClassResult result) {
+                    durations.put(result.getClassName(), result.getDuration());
+                }
+            });
+        } catch (RuntimeException e) {
+            // The durations are only used to order the test classes, so carry on without them
+            getLogger().info("Could not read the durations of the previous test run from {}.", binaryResultsDir, e);
+            durations.clear();
+        }
+        return durations;
+    }
+
     /**
      * Registers a test listener with this task. Consider also the following handy methods for quicker hooking into test execution: {@link #beforeTest(groovy.lang.Closure)}, {@link
      * #afterTest(groovy.lang.Closure)}, {@link #beforeSuite(groovy.lang.Closure)}, {@link #afterSuite(groovy.lang.Closure)} <p> This listener will NOT be notified of tests executed by other tasks. To